@@ -0,0 +1,115 @@
+"""
+Долгоживущий воркер инференса для моделей, которые не экспортируются в ONNX (.pkl).
+
+Запускается из Java (PythonModelWorkerPool) и общается через stdin/stdout
+кадрами с префиксом длины (big-endian):
+
+  запрос:  int32 длина | uint8 op | ...
+    op=1 PREDICT: uint16 len + путь модели (utf-8) | int32 rows | int32 cols | float32[rows*cols]
+    op=2 PING
+  ответ:   int32 длина | uint8 статус
+    статус 0: int32 n | float32[n]   (вероятность класса 1 для каждой строки)
+    статус 1: uint16 len + текст ошибки (utf-8)
+
+Модель загружается один раз и перезагружается, если файл изменился.
+Всё диагностическое — в stderr: stdout занят протоколом.
+"""
+import os
+import struct
+import sys
+
+import numpy as np
+
+OP_PREDICT = 1
+OP_PING = 2
+
+_models = {}
+
+
+def log(msg):
+    print(f"[model_server] {msg}", file=sys.stderr, flush=True)
+
+
+def load_model(path):
+    mtime = os.path.getmtime(path)
+    cached = _models.get(path)
+    if cached is not None and cached[0] == mtime:
+        return cached[1]
+    import joblib
+    model = joblib.load(path)
+    _models[path] = (mtime, model)
+    log(f"модель загружена: {path}")
+    return model
+
+
+def predict(model, x):
+    if hasattr(model, "predict_proba"):
+        proba = np.asarray(model.predict_proba(x))
+        return proba[:, -1] if proba.ndim == 2 else proba
+    return np.asarray(model.predict(x), dtype=np.float32).reshape(-1)
+
+
+def read_exact(stream, n):
+    buf = bytearray()
+    while len(buf) < n:
+        chunk = stream.read(n - len(buf))
+        if not chunk:
+            return None
+        buf.extend(chunk)
+    return bytes(buf)
+
+
+def write_frame(stream, payload):
+    stream.write(struct.pack(">i", len(payload)))
+    stream.write(payload)
+    stream.flush()
+
+
+def ok(values):
+    values = np.asarray(values, dtype=">f4")
+    return struct.pack(">Bi", 0, len(values)) + values.tobytes()
+
+
+def error(message):
+    data = message.encode("utf-8")[:65535]
+    return struct.pack(">BH", 1, len(data)) + data
+
+
+def handle(payload):
+    op = payload[0]
+    if op == OP_PING:
+        return ok([])
+    if op != OP_PREDICT:
+        return error(f"неизвестная операция {op}")
+
+    (path_len,) = struct.unpack_from(">H", payload, 1)
+    path = payload[3:3 + path_len].decode("utf-8")
+    offset = 3 + path_len
+    rows, cols = struct.unpack_from(">ii", payload, offset)
+    offset += 8
+    x = np.frombuffer(payload, dtype=">f4", count=rows * cols, offset=offset).reshape(rows, cols)
+    return ok(predict(load_model(path), x.astype(np.float32)))
+
+
+def main():
+    stdin = sys.stdin.buffer
+    stdout = sys.stdout.buffer
+    log(f"воркер запущен, pid={os.getpid()}")
+    while True:
+        header = read_exact(stdin, 4)
+        if header is None:
+            break
+        (length,) = struct.unpack(">i", header)
+        payload = read_exact(stdin, length)
+        if payload is None:
+            break
+        try:
+            response = handle(payload)
+        except Exception as e:  # ошибка одного запроса не должна ронять воркер
+            response = error(f"{type(e).__name__}: {e}")
+        write_frame(stdout, response)
+    log("stdin закрыт, воркер завершается")
+
+
+if __name__ == "__main__":
+    main()
@@ -1,14 +1,41 @@
 package com.chicu.trader.bot.config;
 
+import com.chicu.trader.trading.service.binance.client.BinanceRateLimitInterceptor;
+import com.chicu.trader.trading.service.binance.client.BinanceRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * Общий HTTP-клиент JDK: пул keep-alive соединений на хост, HTTP/2 там,
+     * где сервер его поддерживает (иначе HTTP/1.1). Потокобезопасен.
+     */
+    @Bean
+    public HttpClient httpClient(@Value("${http.client.connect-timeout-ms:5000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(HttpClient httpClient,
+                                     BinanceRateLimiter rateLimiter,
+                                     @Value("${http.client.read-timeout-ms:10000}") long readTimeoutMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        RestTemplate restTemplate = new RestTemplate(factory);
+        // запросы к Binance ждут бюджета лимитов вместо 429/418
+        restTemplate.getInterceptors().add(new BinanceRateLimitInterceptor(rateLimiter));
+        return restTemplate;
     }
 }
@@ -0,0 +1,8 @@
+package com.chicu.trader.bot.service;
+
+/**
+ * Режим или API-ключи пользователя изменились: клиенты биржи,
+ * созданные со старыми ключами, нужно пересоздать.
+ */
+public record UserCredentialsChangedEvent(Long chatId) {
+}
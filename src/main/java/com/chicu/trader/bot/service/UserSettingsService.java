@@ -5,6 +5,7 @@ import com.chicu.trader.bot.entity.UserSettings;
 import com.chicu.trader.bot.repository.UserRepository;
 import com.chicu.trader.bot.repository.UserSettingsRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
@@ -21,6 +22,7 @@ public class UserSettingsService {
 
     private final UserSettingsRepository settingsRepo;
     private final UserRepository         userRepo;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Возвращает настройки пользователя (JOIN users).
@@ -83,6 +85,7 @@ public class UserSettingsService {
                     .build();
             settingsRepo.save(s);
         }
+        eventPublisher.publishEvent(new UserCredentialsChangedEvent(chatId));
     }
 
     /**
@@ -115,6 +118,7 @@ public class UserSettingsService {
         } else {
             settingsRepo.updateRealApiKey(chatId, apiKey);
         }
+        eventPublisher.publishEvent(new UserCredentialsChangedEvent(chatId));
     }
 
     /**
@@ -140,6 +144,7 @@ public class UserSettingsService {
         } else {
             settingsRepo.updateRealSecretKey(chatId, secretKey);
         }
+        eventPublisher.publishEvent(new UserCredentialsChangedEvent(chatId));
     }
 
     /**
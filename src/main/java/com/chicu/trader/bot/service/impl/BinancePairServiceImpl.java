@@ -3,6 +3,7 @@ package com.chicu.trader.bot.service.impl;
 import com.chicu.trader.bot.service.BinancePairService;
 import com.chicu.trader.dto.BinancePairDto;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -12,9 +13,10 @@ import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class BinancePairServiceImpl implements BinancePairService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
 
     @Override
     public List<BinancePairDto> getAllAvailablePairs(boolean isTestnet) {
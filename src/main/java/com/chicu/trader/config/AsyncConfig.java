@@ -1,12 +1,14 @@
 // src/main/java/com/chicu/trader/config/AsyncConfig.java
 package com.chicu.trader.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 @Configuration
 @EnableAsync
@@ -24,6 +26,32 @@ public class AsyncConfig {
         return executor;
     }
 
+    /**
+     * Пул для параллельного бэктеста по символам.
+     * Ограничен backtest.parallelism (по умолчанию — число ядер).
+     */
+    @Bean(name = "backtestPool")
+    public ForkJoinPool backtestPool(@Value("${backtest.parallelism:0}") int parallelism) {
+        int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(size);
+    }
+
+    /**
+     * Торговые задачи пользователей (ChatTaskExecutor): не больше одной задачи
+     * на пользователя одновременно, поэтому очередь ограничена числом пользователей.
+     */
+    @Bean(name = "barCloseExecutor")
+    public Executor barCloseExecutor(@Value("${trading.tasks.threads:16}") int threads,
+                                     @Value("${trading.tasks.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bar-close-");
+        executor.initialize();
+        return executor;
+    }
+
     // При желании можно оставить дефолтный executor под @Async без параметров
     // или задать и другие bean’ы с @Bean(name="...") для разных задач.
 }
@@ -1,51 +1,54 @@
 package com.chicu.trader.ml;
 
+import com.chicu.trader.trading.service.inference.PythonModelWorkerPool;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.*;
 import java.util.List;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class MlSignalFilterService {
 
     private static final double DEFAULT_THRESHOLD = 0.6;
+    private static final String MODEL_PATH = "python_ml/data/models/rf_model.pkl";
+
+    private final PythonModelWorkerPool workerPool;
 
     /**
-     * Вызывает predict.py с фичами и получает предсказание.
+     * Предсказание модели по признакам через пул Python-воркеров.
      */
     public boolean isSignalApproved(Long chatId, List<Double> features) {
-        try {
-            File tempFile = File.createTempFile("features_" + chatId, ".csv");
-            try (PrintWriter pw = new PrintWriter(tempFile)) {
-                pw.println(String.join(",", features.stream().map(String::valueOf).toList()));
-            }
-
-            String modelPath = String.format("python_ml/data/models/rf_model.pkl");
-            ProcessBuilder pb = new ProcessBuilder("python", "python_ml/data/predict.py",
-                    "--model", modelPath,
-                    "--features", tempFile.getAbsolutePath());
-
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
+        return approveAll(chatId, List.of(features))[0];
+    }
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    log.info("[ML] Python output: {}", line);
-                    if (line.startsWith("PREDICT=")) {
-                        double prob = Double.parseDouble(line.substring("PREDICT=".length()));
-                        return prob >= DEFAULT_THRESHOLD;
-                    }
-                }
+    /**
+     * Пакетная проверка: все наборы признаков — одним запросом к воркеру.
+     * При ошибке модели сигналы не одобряются.
+     */
+    public boolean[] approveAll(Long chatId, List<List<Double>> features) {
+        boolean[] approved = new boolean[features.size()];
+        if (features.isEmpty()) {
+            return approved;
+        }
+        float[][] batch = new float[features.size()][];
+        for (int i = 0; i < batch.length; i++) {
+            List<Double> row = features.get(i);
+            batch[i] = new float[row.size()];
+            for (int j = 0; j < row.size(); j++) {
+                batch[i][j] = row.get(j).floatValue();
+            }
+        }
+        try {
+            float[] probabilities = workerPool.predict(MODEL_PATH, batch);
+            for (int i = 0; i < approved.length; i++) {
+                approved[i] = probabilities[i] >= DEFAULT_THRESHOLD;
             }
-
-            process.waitFor();
         } catch (Exception e) {
-            log.error("Ошибка при вызове Python модели:", e);
+            log.error("Ошибка при вызове Python модели (chatId={}): {}", chatId, e.getMessage());
         }
-
-        return false;
+        return approved;
     }
 }
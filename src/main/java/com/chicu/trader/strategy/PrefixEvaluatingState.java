@@ -0,0 +1,30 @@
+package com.chicu.trader.strategy;
+
+import com.chicu.trader.trading.model.Candle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запасной вариант {@link StrategyState} для стратегий без собственного
+ * потокового состояния: копит историю и на каждой свече вызывает
+ * {@link TradeStrategy#evaluate(List, StrategySettings)} по всему префиксу.
+ */
+final class PrefixEvaluatingState implements StrategyState {
+
+    private final TradeStrategy    strategy;
+    private final StrategySettings settings;
+    private final List<Candle>     history = new ArrayList<>();
+
+    PrefixEvaluatingState(TradeStrategy strategy, StrategySettings settings) {
+        this.strategy = strategy;
+        this.settings = settings;
+    }
+
+    @Override
+    public SignalType onBar(Candle candle) {
+        history.add(candle);
+        SignalType signal = strategy.evaluate(history, settings);
+        return signal != null ? signal : SignalType.HOLD;
+    }
+}
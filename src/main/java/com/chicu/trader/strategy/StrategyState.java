@@ -0,0 +1,28 @@
+package com.chicu.trader.strategy;
+
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
+
+/**
+ * Потоковое состояние стратегии для одного ряда свечей.
+ * <p>
+ * Получает свечи строго по одной в хронологическом порядке и на каждой
+ * возвращает сигнал, не пересчитывая всю предыдущую историю.
+ * Экземпляр не потокобезопасен и обслуживает ровно один символ/таймфрейм.
+ */
+public interface StrategyState {
+
+    /**
+     * Учесть очередную закрытую свечу и вернуть сигнал на ней.
+     */
+    SignalType onBar(Candle candle);
+
+    /**
+     * То же для i-й свечи колоночного ряда. По умолчанию материализует {@link Candle};
+     * состояниям, которым хватает цен и объёмов, переопределять — тогда прогон
+     * по архиву идёт без создания объектов на каждую свечу.
+     */
+    default SignalType onBar(CandleSeries series, int i) {
+        return onBar(series.toCandle(i));
+    }
+}
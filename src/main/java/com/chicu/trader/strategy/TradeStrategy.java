@@ -1,6 +1,7 @@
 package com.chicu.trader.strategy;
 
 import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
 
 import java.util.List;
 
@@ -10,8 +11,37 @@ public interface TradeStrategy {
 
     SignalType evaluate(List<Candle> candles, StrategySettings settings);
 
+    /**
+     * Оценка по колоночному ряду. По умолчанию материализует свечи и вызывает
+     * {@link #evaluate(List, StrategySettings)}; стратегии, которым хватает примитивных
+     * колонок, переопределяют метод и обходятся без списков.
+     */
+    default SignalType evaluate(CandleSeries series, StrategySettings settings) {
+        return evaluate(series.toCandles(), settings);
+    }
+
     StrategySettings getSettings(Long chatId);
 
+    /**
+     * Ключ параметров, от которых зависит сигнал: у пользователей с одинаковым ключом
+     * на одних и тех же свечах сигнал одинаковый и считается один раз на всех.
+     * null — сигнал нельзя разделять между пользователями (по умолчанию).
+     */
+    default String signalKey(StrategySettings settings) {
+        return null;
+    }
+
+    /**
+     * Создаёт потоковое состояние для последовательного прогона (например, бэктеста),
+     * где свечи подаются по одной через {@link StrategyState#onBar(Candle)}.
+     * <p>
+     * По умолчанию — обёртка над {@link #evaluate(List, StrategySettings)} по растущей истории.
+     * Стратегии, умеющие считать индикаторы инкрементально, переопределяют метод.
+     */
+    default StrategyState newState(StrategySettings settings) {
+        return new PrefixEvaluatingState(this, settings);
+    }
+
     default boolean isTrainable() {
         return false;
     }
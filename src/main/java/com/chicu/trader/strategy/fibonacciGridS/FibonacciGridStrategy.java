@@ -2,6 +2,7 @@ package com.chicu.trader.strategy.fibonacciGridS;
 
 import com.chicu.trader.strategy.SignalType;
 import com.chicu.trader.strategy.StrategySettings;
+import com.chicu.trader.strategy.StrategyState;
 import com.chicu.trader.strategy.StrategyType;
 import com.chicu.trader.strategy.TradeStrategy;
 import com.chicu.trader.strategy.fibonacciGridS.model.FibonacciGridStrategySettings;
@@ -40,6 +41,30 @@ public class FibonacciGridStrategy implements TradeStrategy {
         return SignalType.HOLD;
     }
 
+    /**
+     * Потоковый вариант: базовая цена — закрытие первой поданной свечи, как и в evaluate.
+     */
+    @Override
+    public StrategyState newState(StrategySettings rawSettings) {
+        if (!(rawSettings instanceof FibonacciGridStrategySettings settings)) {
+            return candle -> SignalType.HOLD;
+        }
+        return new StrategyState() {
+            private BigDecimal basePrice;
+
+            @Override
+            public SignalType onBar(Candle candle) {
+                BigDecimal currentPrice = BigDecimal.valueOf(candle.getClose());
+                if (basePrice == null) {
+                    basePrice = currentPrice;
+                }
+                if (isBuySignal(currentPrice, basePrice, settings)) return SignalType.BUY;
+                if (isSellSignal(currentPrice, basePrice, settings)) return SignalType.SELL;
+                return SignalType.HOLD;
+            }
+        };
+    }
+
     private boolean isBuySignal(BigDecimal currentPrice, BigDecimal basePrice, FibonacciGridStrategySettings settings) {
         return IntStream.rangeClosed(1, settings.getGridLevels())
                 .mapToObj(i -> priceAtLevel(basePrice, settings.getDistancePct(), i, true))
@@ -64,4 +89,10 @@ public class FibonacciGridStrategy implements TradeStrategy {
     public FibonacciGridStrategySettings getSettings(Long chatId) {
         return settingsService.getOrCreate(chatId);
     }
+
+    @Override
+    public String signalKey(StrategySettings rawSettings) {
+        if (!(rawSettings instanceof FibonacciGridStrategySettings settings)) return null;
+        return "levels=" + settings.getGridLevels() + ";dist=" + settings.getDistancePct();
+    }
 }
@@ -2,15 +2,20 @@ package com.chicu.trader.strategy.ml;
 
 import com.chicu.trader.strategy.SignalType;
 import com.chicu.trader.strategy.StrategySettings;
+import com.chicu.trader.strategy.StrategyState;
 import com.chicu.trader.strategy.StrategyType;
 import com.chicu.trader.strategy.TradeStrategy;
+import com.chicu.trader.trading.ml.features.FeatureDefinition;
+import com.chicu.trader.trading.ml.features.FeatureState;
+import com.chicu.trader.trading.ml.features.FeatureStore;
 import com.chicu.trader.trading.model.Candle;
-import com.chicu.trader.trading.service.inference.PythonInferenceService;
+import com.chicu.trader.trading.model.CandleSeries;
+import com.chicu.trader.trading.service.inference.OnnxInferenceService;
+import com.chicu.trader.trading.service.inference.PythonModelWorkerPool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
 import java.util.List;
 
 @Component
@@ -19,27 +24,55 @@ import java.util.List;
 public class MlModelStrategy implements TradeStrategy {
 
     private final MlModelStrategySettingsService settingsService;
-    private final PythonInferenceService inferenceService;
+    private final OnnxInferenceService inferenceService;
+    private final PythonModelWorkerPool pythonWorkers;
+    private final FeatureStore featureStore;
 
     @Override
     public SignalType evaluate(List<Candle> candles, StrategySettings settings) {
+        return evaluate(CandleSeries.of(candles), settings);
+    }
+
+    @Override
+    public SignalType evaluate(CandleSeries series, StrategySettings settings) {
         Long chatId = settings.getChatId();  // Получаем chatId из базового класса
         MlModelStrategySettings cfg = settingsService.getOrCreate(chatId);
 
         log.debug("ML_MODEL: chatId={}, model={}, features={}, threshold={}",
                 chatId, cfg.getModelPath(), cfg.getFeatureList(), cfg.getThreshold());
 
-        double[] features = extractFeatures(candles, cfg.getFeatureList());
-        double probability = inferenceService.predict(cfg.getModelPath(), features);
-
-        log.info("ML_MODEL: chatId={} → predict={} (threshold={})", chatId, probability, cfg.getThreshold());
+        float[] features = extractFeatures(series, cfg.getFeatureList());
+        if (features == null) {
+            return SignalType.HOLD;
+        }
+        return signal(chatId, cfg, features);
+    }
 
-        if (probability >= cfg.getThreshold()) {
-            return SignalType.BUY;
-        } else if (probability <= (1.0 - cfg.getThreshold())) {
-            return SignalType.SELL;
+    /**
+     * Потоковый режим: свой расчёт признаков, каждая свеча обновляет его за O(признаков).
+     */
+    @Override
+    public StrategyState newState(StrategySettings settings) {
+        Long chatId = settings.getChatId();
+        MlModelStrategySettings cfg = settingsService.getOrCreate(chatId);
+        FeatureDefinition definition = definition(cfg.getFeatureList());
+        if (definition == null) {
+            return candle -> SignalType.HOLD;
         }
-        return SignalType.HOLD;
+        FeatureState state = definition.newState();
+        return new StrategyState() {
+            @Override
+            public SignalType onBar(Candle c) {
+                state.update(c.getOpen(), c.getHigh(), c.getLow(), c.getClose(), c.getVolume());
+                return state.isReady() ? signal(chatId, cfg, state.toFloatArray()) : SignalType.HOLD;
+            }
+
+            @Override
+            public SignalType onBar(CandleSeries series, int i) {
+                state.update(series.open(i), series.high(i), series.low(i), series.close(i), series.volume(i));
+                return state.isReady() ? signal(chatId, cfg, state.toFloatArray()) : SignalType.HOLD;
+            }
+        };
     }
 
     @Override
@@ -52,6 +85,13 @@ public class MlModelStrategy implements TradeStrategy {
         return settingsService.getOrCreate(chatId);
     }
 
+    /** Одна и та же модель с теми же признаками и порогом даёт один сигнал */
+    @Override
+    public String signalKey(StrategySettings settings) {
+        MlModelStrategySettings cfg = (MlModelStrategySettings) settings;
+        return "model=" + cfg.getModelPath() + ";features=" + cfg.getFeatureList() + ";thr=" + cfg.getThreshold();
+    }
+
     @Override
     public boolean isTrainable() {
         return true;
@@ -63,22 +103,59 @@ public class MlModelStrategy implements TradeStrategy {
         log.info("ML_MODEL: обучение не реализовано (chatId={})", chatId);
     }
 
-    private double[] extractFeatures(List<Candle> candles, String featureList) {
-        if (candles == null || candles.isEmpty()) return new double[0];
-
-        Candle last = candles.get(candles.size() - 1);
-        return Arrays.stream(featureList.split(","))
-                .map(String::trim)
-                .mapToDouble(f -> switch (f.toLowerCase()) {
-                    case "close" -> last.getClose();
-                    case "open" -> last.getOpen();
-                    case "high" -> last.getHigh();
-                    case "low" -> last.getLow();
-                    case "volume" -> last.getVolume();
-                    default -> {
-                        log.warn("ML_MODEL: неизвестный признак '{}'", f);
-                        yield 0.0;
-                    }
-                }).toArray();
+    private SignalType signal(Long chatId, MlModelStrategySettings cfg, float[] features) {
+        double probability;
+        try {
+            // .onnx — в JVM, остальное (.pkl) — через пул Python-воркеров
+            probability = cfg.getModelPath().endsWith(".onnx")
+                    ? inferenceService.predict(cfg.getModelPath(), features)
+                    : pythonWorkers.predict(cfg.getModelPath(), new float[][]{features})[0];
+        } catch (Exception e) {
+            log.warn("ML_MODEL: chatId={} инференс не выполнен ({}), HOLD", chatId, e.getMessage());
+            return SignalType.HOLD;
+        }
+
+        log.info("ML_MODEL: chatId={} → predict={} (threshold={})", chatId, probability, cfg.getThreshold());
+
+        if (probability >= cfg.getThreshold()) {
+            return SignalType.BUY;
+        } else if (probability <= (1.0 - cfg.getThreshold())) {
+            return SignalType.SELL;
+        }
+        return SignalType.HOLD;
+    }
+
+    /**
+     * Признаки из хранилища: тот же набор, что и при обучении модели; по ряду
+     * с известными symbol/timeframe — инкрементально, иначе — расчётом по списку.
+     *
+     * @return вектор, либо null — если свечей для набора недостаточно
+     */
+    private float[] extractFeatures(CandleSeries series, String featureList) {
+        if (series.size() == 0) return null;
+
+        FeatureDefinition definition = definition(featureList);
+        if (definition == null) return null;
+        if (series.getSymbol() != null && series.getTimeframe() != null) {
+            return featureStore.latest(series, definition);
+        }
+        double[][] rows = definition.compute(series);
+        if (rows.length == 0) return null;
+        double[] last = rows[rows.length - 1];
+        float[] out = new float[last.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (float) last[i];
+        }
+        return out;
+    }
+
+    /** Набор признаков из настроек, либо null — если в списке ошибка */
+    private FeatureDefinition definition(String featureList) {
+        try {
+            return FeatureDefinition.adhoc(featureList);
+        } catch (IllegalArgumentException e) {
+            log.warn("ML_MODEL: неверный список признаков '{}': {}", featureList, e.getMessage());
+            return null;
+        }
     }
 }
@@ -16,7 +16,7 @@ import java.time.Instant;
 @EqualsAndHashCode(callSuper = true)
 public class MlModelStrategySettings extends StrategySettings {
 
-    /** Путь к файлу модели, например: "models/ml_model_rf.pkl" */
+    /** Путь к ONNX-модели, например: "models/ml_model_rf.onnx" */
     @Column(name = "model_path", length = 255)
     private String modelPath;
 
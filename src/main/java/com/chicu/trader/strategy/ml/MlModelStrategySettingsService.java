@@ -38,7 +38,7 @@ public class MlModelStrategySettingsService {
         MlModelStrategySettings cfg = new MlModelStrategySettings();
         cfg.setChatId(chatId);
         cfg.setAiTradingSettings(ai);
-        cfg.setModelPath("models/ml_model_default.pkl");
+        cfg.setModelPath("models/ml_model_default.onnx");
         cfg.setFeatureList("close,volume");
         cfg.setThreshold(0.5);
         cfg.setLastTrainedAt(Instant.now());
@@ -1,7 +1,10 @@
 // src/main/java/com/chicu/trader/trading/indicator/EmaCalculator.java
 package com.chicu.trader.strategy.rsiema;
 
+import com.chicu.trader.trading.model.CandleSeries;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -41,7 +44,38 @@ public class EmaCalculator {
      * @return последнее EMA, либо 0.0, если недостаточно данных
      */
     public static double latest(List<Double> prices, int period) {
-        List<Double> ema = calculate(prices, period);
-        return ema.isEmpty() ? 0.0 : ema.get(ema.size() - 1);
+        if (prices == null || prices.size() < period) return 0.0;
+
+        double multiplier = 2.0 / (period + 1);
+        double prevEma = prices.subList(0, period).stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        for (int i = period; i < prices.size(); i++) {
+            prevEma = (prices.get(i) - prevEma) * multiplier + prevEma;
+        }
+        return prevEma;
+    }
+
+    /**
+     * Последнее значение EMA по участку массива [from, to) — без упаковки и промежуточных списков.
+     * Совпадает с {@link #latest(List, int)} для того же набора цен.
+     *
+     * @return последнее EMA, либо 0.0, если недостаточно данных
+     */
+    public static double latest(double[] prices, int from, int to, int period) {
+        if (prices == null || to - from < period) return 0.0;
+
+        double multiplier = 2.0 / (period + 1);
+        double prevEma = Arrays.stream(prices, from, from + period).average().orElse(0.0);
+
+        for (int i = from + period; i < to; i++) {
+            prevEma = (prices[i] - prevEma) * multiplier + prevEma;
+        }
+        return prevEma;
+    }
+
+    /**
+     * Последнее значение EMA по ценам закрытия ряда.
+     */
+    public static double latest(CandleSeries series, int period) {
+        return latest(series.rawCloses(), series.offset(), series.offset() + series.size(), period);
     }
 }
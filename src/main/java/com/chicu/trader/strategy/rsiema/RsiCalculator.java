@@ -1,6 +1,9 @@
 // src/main/java/com/chicu/trader/trading/indicator/RsiCalculator.java
 package com.chicu.trader.strategy.rsiema;
 
+import com.chicu.trader.trading.indicator.stream.WilderRsi;
+import com.chicu.trader.trading.model.CandleSeries;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -57,7 +60,50 @@ public class RsiCalculator {
      * @return последнее значение RSI, либо 50.0 по умолчанию
      */
     public static double latest(List<Double> prices, int period) {
-        List<Double> rsi = calculate(prices, period);
-        return rsi.isEmpty() ? 50.0 : rsi.get(rsi.size() - 1);
+        if (prices == null || prices.size() <= period) return 50.0;
+        WilderRsi rsi = new WilderRsi(period);
+        for (Double price : prices) {
+            rsi.update(price);
+        }
+        return rsi.value();
+    }
+
+    /**
+     * Последнее значение RSI по участку массива [from, to) — без упаковки и промежуточных списков.
+     * Совпадает с {@link #latest(List, int)} для того же набора цен.
+     *
+     * @return последнее значение RSI, либо 50.0 по умолчанию
+     */
+    public static double latest(double[] prices, int from, int to, int period) {
+        if (prices == null || to - from <= period) return 50.0;
+
+        double gainSum = 0.0, lossSum = 0.0;
+        for (int i = from + 1; i <= from + period; i++) {
+            double diff = prices[i] - prices[i - 1];
+            if (diff >= 0) gainSum += diff;
+            else lossSum -= diff;
+        }
+
+        double avgGain = gainSum / period;
+        double avgLoss = lossSum / period;
+
+        for (int i = from + period + 1; i < to; i++) {
+            double diff = prices[i] - prices[i - 1];
+            double gain = diff > 0 ? diff : 0;
+            double loss = diff < 0 ? -diff : 0;
+
+            avgGain = (avgGain * (period - 1) + gain) / period;
+            avgLoss = (avgLoss * (period - 1) + loss) / period;
+        }
+
+        double rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
+        return 100 - (100 / (1 + rs));
+    }
+
+    /**
+     * Последнее значение RSI по ценам закрытия ряда.
+     */
+    public static double latest(CandleSeries series, int period) {
+        return latest(series.rawCloses(), series.offset(), series.offset() + series.size(), period);
     }
 }
@@ -0,0 +1,97 @@
+package com.chicu.trader.strategy.rsiema;
+
+import com.chicu.trader.trading.indicator.stream.Ema;
+import com.chicu.trader.trading.indicator.stream.WilderRsi;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Данные перебора параметров RSI/EMA по одному символу.
+ * <p>
+ * Всё, что не зависит от комбинации параметров, считается один раз:
+ * ряд RSI на каждый период и ряд EMA на каждую длину (лениво, с кэшем —
+ * общие для всех потоков перебора), исход BUY/SELL-сигнала на каждом баре
+ * и одобрение ML-фильтра. Оценка комбинации — один проход по массивам
+ * со сравнениями.
+ * <p>
+ * Значение индикатора на баре i — по закрытиям [0, i), как у живой стратегии
+ * по истории до текущей свечи.
+ */
+final class RsiEmaGrid {
+
+    /** Первый бар, на котором оцениваются сигналы */
+    static final int FIRST_BAR = 50;
+
+    private final double[]  closes;
+    private final boolean[] mlApproved;
+    private final int       to;
+    /** Исход сигнала на баре: цена за tpWindow баров дошла до TP или SL */
+    private final boolean[] buyHit;
+    private final boolean[] sellHit;
+
+    private final Map<Integer, double[]> rsi = new ConcurrentHashMap<>();
+    private final Map<Integer, double[]> ema = new ConcurrentHashMap<>();
+
+    RsiEmaGrid(double[] closes, boolean[] mlApproved, int tpWindow, double tpPct, double slPct) {
+        this.closes     = closes;
+        this.mlApproved = mlApproved;
+        this.to         = closes.length - tpWindow;
+        this.buyHit     = new boolean[closes.length];
+        this.sellHit    = new boolean[closes.length];
+
+        for (int i = FIRST_BAR; i < to; i++) {
+            double entry = closes[i];
+            for (int j = i + 1; j <= i + tpWindow; j++) {
+                double pct = (closes[j] - entry) / entry;
+                if (pct >= tpPct || pct <= -slPct) buyHit[i] = true;
+                if (pct <= -tpPct || pct >= slPct) sellHit[i] = true;
+                if (buyHit[i] && sellHit[i]) break;
+            }
+        }
+    }
+
+    /**
+     * Число сигналов комбинации, одобренных ML-фильтром и дошедших до TP/SL.
+     */
+    int score(int rsiPeriod, int emaShort, int emaLong, double rsiBuy, double rsiSell) {
+        double[] r = rsi(rsiPeriod);
+        double[] s = ema(emaShort);
+        double[] l = ema(emaLong);
+
+        int hits = 0;
+        for (int i = FIRST_BAR; i < to; i++) {
+            if (!mlApproved[i]) continue;
+            if (r[i] < rsiBuy && s[i] > l[i]) {
+                if (buyHit[i]) hits++;
+            } else if (r[i] > rsiSell && s[i] < l[i]) {
+                if (sellHit[i]) hits++;
+            }
+        }
+        return hits;
+    }
+
+    private double[] rsi(int period) {
+        return rsi.computeIfAbsent(period, p -> {
+            WilderRsi ind = new WilderRsi(p);
+            double[] out = new double[closes.length];
+            for (int i = 0; i < closes.length; i++) {
+                out[i] = ind.value();
+                ind.update(closes[i]);
+            }
+            return out;
+        });
+    }
+
+    private double[] ema(int period) {
+        return ema.computeIfAbsent(period, p -> {
+            Ema ind = new Ema(p);
+            double[] out = new double[closes.length];
+            for (int i = 0; i < closes.length; i++) {
+                out[i] = ind.value();
+                ind.update(closes[i]);
+            }
+            return out;
+        });
+    }
+}
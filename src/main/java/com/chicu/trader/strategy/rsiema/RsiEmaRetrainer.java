@@ -10,12 +10,12 @@ import com.chicu.trader.trading.model.Candle;
 import com.chicu.trader.trading.service.CandleService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -31,6 +31,10 @@ public class RsiEmaRetrainer implements StrategyRetrainer {
             Runtime.getRuntime().availableProcessors()
     );
 
+    /** Общий срок перебора параметров по одному символу */
+    @Value("${rsiema.retrain.grid-deadline-ms:60000}")
+    private long gridDeadlineMs;
+
     @Override
     public boolean retrain(AiTradingSettings settings) {
         Long chatId = settings.getChatId();
@@ -72,6 +76,12 @@ public class RsiEmaRetrainer implements StrategyRetrainer {
     }
 
     private RsiEmaStrategySettings findBestParams(Long chatId, List<Candle> candles, RsiEmaStrategySettings config) {
+        double[] closes = candles.stream().mapToDouble(Candle::getClose).toArray();
+        // ML-одобрение бара не зависит от параметров стратегии — один пакетный запрос на символ
+        boolean[] mlApproved = mlApprovalByBar(chatId, closes, config.getTakeProfitWindow());
+        RsiEmaGrid grid = new RsiEmaGrid(closes, mlApproved,
+                config.getTakeProfitWindow(), config.getTakeProfitPct(), config.getStopLossPct());
+
         List<Future<ParamResult>> futures = new ArrayList<>();
 
         for (int rsiPeriod : config.getRsiPeriods()) {
@@ -81,7 +91,7 @@ public class RsiEmaRetrainer implements StrategyRetrainer {
                         for (double sellTh : config.getRsiSellThresholds()) {
                             futures.add(executor.submit(() -> new ParamResult(
                                     rsiPeriod, emaShort, emaLong, buyTh, sellTh,
-                                    evaluateStrategy(chatId, candles, rsiPeriod, emaShort, emaLong, buyTh, sellTh, config)
+                                    grid.score(rsiPeriod, emaShort, emaLong, buyTh, sellTh)
                             )));
                         }
                     }
@@ -91,15 +101,28 @@ public class RsiEmaRetrainer implements StrategyRetrainer {
 
         final int candleCount = candles.size();
 
-        return futures.stream()
-                .map(f -> {
-                    try {
-                        return f.get(10, TimeUnit.SECONDS);
-                    } catch (Exception e) {
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
+        // Общий срок на весь перебор; не успевшие комбинации отменяются
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(gridDeadlineMs);
+        List<ParamResult> results = new ArrayList<>(futures.size());
+        for (Future<ParamResult> f : futures) {
+            try {
+                results.add(f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                f.cancel(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(x -> x.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                log.warn("⚠️ Ошибка оценки комбинации: {}", e.getCause().getMessage());
+            }
+        }
+        if (results.size() < futures.size()) {
+            log.warn("⏳ Перебор параметров: оценено {} из {} комбинаций за {} мс",
+                    results.size(), futures.size(), gridDeadlineMs);
+        }
+
+        return results.stream()
                 .max(Comparator.comparingInt(p -> p.score))
                 .map(best -> {
                     RsiEmaStrategySettings cfg = new RsiEmaStrategySettings();
@@ -117,46 +140,23 @@ public class RsiEmaRetrainer implements StrategyRetrainer {
                 .orElseThrow(() -> new IllegalStateException("Не удалось подобрать параметры"));
     }
 
-    private int evaluateStrategy(Long chatId, List<Candle> candles, int rsiPeriod, int emaShort, int emaLong,
-                                 double rsiBuy, double rsiSell, RsiEmaStrategySettings config) {
-
-        int hits = 0;
-        int tpWindow = config.getTakeProfitWindow();
-        double tpPct = config.getTakeProfitPct();
-        double slPct = config.getStopLossPct();
-
-        List<Double> closes = candles.stream().map(Candle::getClose).collect(Collectors.toList());
-
-        for (int i = 50; i < closes.size() - tpWindow; i++) {
-            double rsi = RsiCalculator.latest(closes.subList(i - rsiPeriod, i), rsiPeriod);
-            double emaS = EmaCalculator.latest(closes.subList(i - emaShort, i), emaShort);
-            double emaL = EmaCalculator.latest(closes.subList(i - emaLong, i), emaLong);
-
-            String signal;
-            if (rsi < rsiBuy && emaS > emaL) signal = "BUY";
-            else if (rsi > rsiSell && emaS < emaL) signal = "SELL";
-            else {
-                signal = "HOLD";
+    /**
+     * Одобрение ML-фильтра для каждого бара, на котором может возникнуть сигнал
+     * (признаки — 20 предыдущих закрытий); все окна — одним запросом к модели.
+     */
+    private boolean[] mlApprovalByBar(Long chatId, double[] closes, int tpWindow) {
+        boolean[] approved = new boolean[closes.length];
+        List<List<Double>> windows = new ArrayList<>();
+        for (int i = RsiEmaGrid.FIRST_BAR; i < closes.length - tpWindow; i++) {
+            List<Double> window = new ArrayList<>(20);
+            for (int j = i - 20; j < i; j++) {
+                window.add(closes[j]);
             }
-
-            if (signal.equals("HOLD")) continue;
-
-            List<Double> features = closes.subList(i - 20, i);
-            if (!mlSignalFilter.isSignalApproved(chatId, features)) continue;
-
-            double entryPrice = closes.get(i);
-            List<Double> future = closes.subList(i + 1, i + 1 + tpWindow);
-
-            boolean hit = future.stream().anyMatch(p -> {
-                double pct = (p - entryPrice) / entryPrice;
-                return (signal.equals("BUY") && (pct >= tpPct || pct <= -slPct)) ||
-                       (signal.equals("SELL") && (pct <= -tpPct || pct >= slPct));
-            });
-
-            if (hit) hits++;
+            windows.add(window);
         }
-
-        return hits;
+        boolean[] result = mlSignalFilter.approveAll(chatId, windows);
+        System.arraycopy(result, 0, approved, RsiEmaGrid.FIRST_BAR, result.length);
+        return approved;
     }
 
     private record ParamResult(int rsiPeriod, int emaShort, int emaLong, double rsiBuy, double rsiSell, int score) {}
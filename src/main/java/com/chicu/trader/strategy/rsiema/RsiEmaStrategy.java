@@ -3,42 +3,63 @@ package com.chicu.trader.strategy.rsiema;
 import com.chicu.trader.ml.MlTrainingService;
 import com.chicu.trader.strategy.SignalType;
 import com.chicu.trader.strategy.StrategySettings;
+import com.chicu.trader.strategy.StrategyState;
 import com.chicu.trader.strategy.StrategyType;
 import com.chicu.trader.strategy.TradeStrategy;
 import com.chicu.trader.strategy.rsiema.model.RsiEmaStrategySettings;
 import com.chicu.trader.strategy.rsiema.service.RsiEmaStrategySettingsService;
+import com.chicu.trader.trading.indicator.IndicatorService;
+import com.chicu.trader.trading.indicator.stream.Ema;
+import com.chicu.trader.trading.indicator.stream.IndicatorBank;
+import com.chicu.trader.trading.indicator.stream.WilderRsi;
 import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class RsiEmaStrategy implements TradeStrategy {
 
+    /** Минимальное число свечей, после которого стратегия начинает давать сигналы */
+    private static final int MIN_CANDLES = 50;
+
     private final RsiEmaStrategySettingsService settingsService;
     private final MlTrainingService trainingService;
+    private final IndicatorService indicatorService;
 
     @Override
     public SignalType evaluate(List<Candle> candles, StrategySettings settings) {
         Long chatId = settings.getChatId();
         log.debug("RsiEmaStrategy: начинаем evaluate для chatId={} с {} свечей", chatId, candles.size());
 
-        if (candles.size() < 50) {
+        return evaluate(CandleSeries.of(candles), settings);
+    }
+
+    @Override
+    public SignalType evaluate(CandleSeries series, StrategySettings settings) {
+        if (series.size() < MIN_CANDLES) {
             log.warn("RsiEmaStrategy: недостаточно данных для анализа (требуется минимум 50)");
             return SignalType.HOLD;
         }
 
         RsiEmaStrategySettings cfg = (RsiEmaStrategySettings) settings;
 
-        List<Double> closes = candles.stream().map(Candle::getClose).collect(Collectors.toList());
-        double rsi = RsiCalculator.latest(closes, cfg.getRsiPeriod());
-        double emaShort = EmaCalculator.latest(closes, cfg.getEmaShort());
-        double emaLong = EmaCalculator.latest(closes, cfg.getEmaLong());
+        double rsi, emaShort, emaLong;
+        double[] banked = fromBank(series, cfg);
+        if (banked != null) {
+            rsi      = banked[0];
+            emaShort = banked[1];
+            emaLong  = banked[2];
+        } else {
+            rsi      = RsiCalculator.latest(series, cfg.getRsiPeriod());
+            emaShort = EmaCalculator.latest(series, cfg.getEmaShort());
+            emaLong  = EmaCalculator.latest(series, cfg.getEmaLong());
+        }
 
         log.debug("rsi={}, emaShort={}, emaLong={}", rsi, emaShort, emaLong);
 
@@ -55,6 +76,45 @@ public class RsiEmaStrategy implements TradeStrategy {
         return SignalType.HOLD;
     }
 
+    /**
+     * RSI и обе EMA из общего банка ряда (symbol, timeframe): индикаторы обновляются
+     * по одной свече на закрытие, а не пересчитываются по всему ряду на каждый вызов.
+     * Банк используется, только если он доведён ровно до последней свечи ряда и она
+     * закрыта; иначе (прогон по архиву, незакрытая свеча, ряд без symbol/timeframe) —
+     * null, и значения считаются по самому ряду.
+     */
+    private double[] fromBank(CandleSeries series, RsiEmaStrategySettings cfg) {
+        if (series.getSymbol() == null || series.getTimeframe() == null) {
+            return null;
+        }
+        int last = series.size() - 1;
+        if (series.closeTime(last) >= System.currentTimeMillis()) {
+            return null;
+        }
+        IndicatorBank bank = indicatorService.bank(series);
+        synchronized (bank) {
+            if (bank.lastOpenTime() != series.openTime(last)) {
+                return null;
+            }
+            WilderRsi rsi = bank.rsi(cfg.getRsiPeriod());
+            Ema emaShort  = bank.ema(cfg.getEmaShort());
+            Ema emaLong   = bank.ema(cfg.getEmaLong());
+            if (!rsi.isReady() || !emaShort.isReady() || !emaLong.isReady()) {
+                return null;
+            }
+            return new double[]{rsi.value(), emaShort.value(), emaLong.value()};
+        }
+    }
+
+    /**
+     * Потоковый вариант: RSI (Уайлдер) и обе EMA обновляются за O(1) на свечу
+     * и совпадают со значениями {@link RsiCalculator}/{@link EmaCalculator} по всему префиксу.
+     */
+    @Override
+    public StrategyState newState(StrategySettings settings) {
+        return new RsiEmaState((RsiEmaStrategySettings) settings);
+    }
+
     @Override
     public StrategyType getType() {
         return StrategyType.RSI_EMA;
@@ -65,6 +125,13 @@ public class RsiEmaStrategy implements TradeStrategy {
         return settingsService.getOrCreate(chatId);
     }
 
+    @Override
+    public String signalKey(StrategySettings settings) {
+        RsiEmaStrategySettings cfg = (RsiEmaStrategySettings) settings;
+        return "rsi=" + cfg.getRsiPeriod() + ";emaS=" + cfg.getEmaShort() + ";emaL=" + cfg.getEmaLong()
+                + ";buy=" + cfg.getRsiBuyThreshold() + ";sell=" + cfg.getRsiSellThreshold();
+    }
+
     @Override
     public void train(Long chatId) {
         log.info("🧠 Запуск обучения RSI/EMA для chatId={}", chatId);
@@ -80,4 +147,54 @@ public class RsiEmaStrategy implements TradeStrategy {
     public boolean isTrainable() {
         return true;
     }
+
+    /**
+     * Инкрементальное состояние RSI/EMA для одного ряда свечей на потоковых индикаторах.
+     */
+    private static final class RsiEmaState implements StrategyState {
+
+        private final RsiEmaStrategySettings cfg;
+        private final WilderRsi rsi;
+        private final Ema       emaShort;
+        private final Ema       emaLong;
+        private int count;
+
+        RsiEmaState(RsiEmaStrategySettings cfg) {
+            this.cfg      = cfg;
+            this.rsi      = new WilderRsi(cfg.getRsiPeriod());
+            this.emaShort = new Ema(cfg.getEmaShort());
+            this.emaLong  = new Ema(cfg.getEmaLong());
+        }
+
+        @Override
+        public SignalType onBar(Candle candle) {
+            return onClose(candle.getClose());
+        }
+
+        @Override
+        public SignalType onBar(CandleSeries series, int i) {
+            return onClose(series.close(i));
+        }
+
+        private SignalType onClose(double close) {
+            rsi.update(close);
+            emaShort.update(close);
+            emaLong.update(close);
+            count++;
+
+            if (count < MIN_CANDLES) {
+                return SignalType.HOLD;
+            }
+            double r    = rsi.value();
+            double emaS = emaShort.value();
+            double emaL = emaLong.value();
+            if (r < cfg.getRsiBuyThreshold() && emaS > emaL) {
+                return SignalType.BUY;
+            }
+            if (r > cfg.getRsiSellThreshold() && emaS < emaL) {
+                return SignalType.SELL;
+            }
+            return SignalType.HOLD;
+        }
+    }
 }
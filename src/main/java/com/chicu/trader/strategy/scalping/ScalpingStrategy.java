@@ -2,11 +2,14 @@ package com.chicu.trader.strategy.scalping;
 
 import com.chicu.trader.strategy.SignalType;
 import com.chicu.trader.strategy.StrategySettings;
+import com.chicu.trader.strategy.StrategyState;
 import com.chicu.trader.strategy.StrategyType;
 import com.chicu.trader.strategy.TradeStrategy;
 import com.chicu.trader.strategy.scalping.model.ScalpingStrategySettings;
 import com.chicu.trader.strategy.scalping.service.ScalpingStrategySettingsService;
+import com.chicu.trader.trading.indicator.stream.RollingWindow;
 import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -69,6 +72,15 @@ public class ScalpingStrategy implements TradeStrategy {
         return SignalType.HOLD;
     }
 
+    /**
+     * Потоковый вариант: последние window свечей держим в кольцевом буфере,
+     * поэтому работа на свечу ограничена размером окна, а не длиной истории.
+     */
+    @Override
+    public StrategyState newState(StrategySettings strategySettings) {
+        return new ScalpingState((ScalpingStrategySettings) strategySettings);
+    }
+
     /** Простая EMA: α = smoothing/(1+window), window = размер списка */
     private double calculateEma(List<Candle> candles, int smoothing) {
         double alpha = smoothing / (1.0 + candles.size());
@@ -84,6 +96,13 @@ public class ScalpingStrategy implements TradeStrategy {
         return settingsService.getOrCreate(chatId);
     }
 
+    @Override
+    public String signalKey(StrategySettings strategySettings) {
+        ScalpingStrategySettings cfg = (ScalpingStrategySettings) strategySettings;
+        return "w=" + cfg.getWindowSize() + ";thr=" + cfg.getPriceChangeThreshold()
+                + ";vol=" + cfg.getVolumeThresholdMultiplier() + ";smooth=" + cfg.getEmaSmoothing();
+    }
+
     @Override
     public boolean isTrainable() {
         return false;
@@ -93,4 +112,75 @@ public class ScalpingStrategy implements TradeStrategy {
     public void train(Long chatId) {
         // обучение не требуется
     }
+
+    /**
+     * Кольцевой буфер закрытий последних window свечей; средний объём — скользящим окном.
+     */
+    private static final class ScalpingState implements StrategyState {
+
+        private final ScalpingStrategySettings cfg;
+        private final int           window;
+        private final double[]      closes;
+        private final RollingWindow volumes;
+        private int head;   // индекс самой старой свечи в буфере
+        private int filled;
+
+        ScalpingState(ScalpingStrategySettings cfg) {
+            this.cfg     = cfg;
+            this.window  = cfg.getWindowSize();
+            this.closes  = new double[window];
+            this.volumes = new RollingWindow(window);
+        }
+
+        @Override
+        public SignalType onBar(Candle candle) {
+            return onBar(candle.getClose(), candle.getVolume());
+        }
+
+        @Override
+        public SignalType onBar(CandleSeries series, int i) {
+            return onBar(series.close(i), series.volume(i));
+        }
+
+        private SignalType onBar(double close, double volume) {
+            volumes.update(volume);
+            if (filled < window) {
+                closes[filled] = close;
+                filled++;
+            } else {
+                closes[head] = close;
+                head = (head + 1) % window;
+            }
+            if (filled < window) {
+                return SignalType.HOLD;
+            }
+
+            int smoothing = cfg.getEmaSmoothing();
+            double emaFirst  = ema(0, window, smoothing);
+            double emaLast   = ema(1, window - 1, smoothing);
+            double emaChange = (emaLast - emaFirst) / emaFirst * 100;
+
+            double volThreshold = volumes.mean() * cfg.getVolumeThresholdMultiplier();
+            double currVol = volumes.latest();
+
+            double dynamicThreshold = cfg.getPriceChangeThreshold() * Math.sqrt(window);
+
+            if (emaChange >= dynamicThreshold && currVol >= volThreshold) {
+                return SignalType.BUY;
+            } else if (emaChange <= -dynamicThreshold && currVol >= volThreshold) {
+                return SignalType.SELL;
+            }
+            return SignalType.HOLD;
+        }
+
+        /** Та же EMA, что и calculateEma, по length свечам окна начиная с позиции from */
+        private double ema(int from, int length, int smoothing) {
+            double alpha = smoothing / (1.0 + length);
+            double ema = closes[(head + from) % window];
+            for (int i = 1; i < length; i++) {
+                ema = alpha * closes[(head + from + i) % window] + (1 - alpha) * ema;
+            }
+            return ema;
+        }
+    }
 }
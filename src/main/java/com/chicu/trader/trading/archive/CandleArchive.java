@@ -0,0 +1,389 @@
+package com.chicu.trader.trading.archive;
+
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Бинарный архив свечей одного (symbol, timeframe): один файл, только дозапись.
+ * <p>
+ * Формат (little-endian):
+ * <pre>
+ *   заголовок, 64 байта:
+ *     0  magic "CNDLARC1"      8  версия (int)      12 размер записи (int)
+ *     16 интервал, мс (long)   24 символ (16 байт)  40 интервал Binance (8 байт)
+ *   записи по 56 байт, по возрастанию openTime:
+ *     openTime(long) open high low close volume(double) closeTime(long)
+ * </pre>
+ * Число записей выводится из длины файла (недописанный хвост игнорируется).
+ * В памяти держится разреженный индекс — openTime каждой {@value #INDEX_STRIDE}-й записи;
+ * чтение идёт через {@link MappedByteBuffer} кусками, без создания {@link Candle}.
+ */
+public final class CandleArchive implements Closeable {
+
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 56;
+
+    private static final long MAGIC   = 0x314352414C444E43L; // "CNDLARC1" побайтно
+    private static final int  VERSION = 1;
+
+    /** Шаг разреженного индекса, в записях */
+    static final int INDEX_STRIDE = 4096;
+    /** Сколько записей отображать за раз при сканировании (~56 МБ) */
+    private static final int SCAN_CHUNK = 1 << 20;
+
+    private final Path        file;
+    private final FileChannel channel;
+    private final String      symbol;
+    private final String      interval;
+    private final long        intervalMs;
+
+    private long   count;
+    private long[] index = new long[16];
+    private int    indexSize;
+    private long   firstOpenTime = -1;
+    private long   lastOpenTime  = -1;
+
+    private CandleArchive(Path file, FileChannel channel, String symbol, String interval, long intervalMs) {
+        this.file       = file;
+        this.channel    = channel;
+        this.symbol     = symbol;
+        this.interval   = interval;
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Открывает архив, создавая файл с заголовком, если его нет.
+     */
+    public static CandleArchive open(Path file, String symbol, String interval, long intervalMs) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            FileChannel ch = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            CandleArchive archive = new CandleArchive(file, ch, symbol, interval, intervalMs);
+            if (ch.size() < HEADER_SIZE) {
+                archive.writeHeader();
+            } else {
+                archive.checkHeader();
+            }
+            archive.loadIndex();
+            return archive;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть архив " + file, e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public synchronized long size() {
+        return count;
+    }
+
+    /** openTime первой записи, либо -1 для пустого архива */
+    public synchronized long firstOpenTime() {
+        return firstOpenTime;
+    }
+
+    /** openTime последней записи, либо -1 для пустого архива */
+    public synchronized long lastOpenTime() {
+        return lastOpenTime;
+    }
+
+    // ===== Запись =====
+
+    /**
+     * Дописывает свечи в конец. Свечи с openTime не позже последней записи пропускаются.
+     *
+     * @return число дописанных свечей
+     */
+    public synchronized int append(List<Candle> candles) {
+        ByteBuffer buf = newBuffer(candles.size());
+        long last = lastOpenTime;
+        int added = 0;
+        for (Candle c : candles) {
+            if (c.getOpenTime() <= last) {
+                continue;
+            }
+            putRecord(buf, c.getOpenTime(), c.getOpen(), c.getHigh(), c.getLow(),
+                    c.getClose(), c.getVolume(), c.getCloseTime());
+            last = c.getOpenTime();
+            added++;
+        }
+        return flush(buf, added);
+    }
+
+    /**
+     * Дописывает ряд в конец (те же правила, что у {@link #append(List)}).
+     */
+    public synchronized int append(CandleSeries series) {
+        ByteBuffer buf = newBuffer(series.size());
+        long last = lastOpenTime;
+        int added = 0;
+        for (int i = 0; i < series.size(); i++) {
+            if (series.openTime(i) <= last) {
+                continue;
+            }
+            putRecord(buf, series.openTime(i), series.open(i), series.high(i), series.low(i),
+                    series.close(i), series.volume(i), series.closeTime(i));
+            last = series.openTime(i);
+            added++;
+        }
+        return flush(buf, added);
+    }
+
+    // ===== Чтение =====
+
+    /**
+     * Обходит записи с openTime в [fromOpenTime, toOpenTime] по возрастанию.
+     */
+    public void scan(long fromOpenTime, long toOpenTime, BarVisitor visitor) {
+        long lo, hi;
+        synchronized (this) {
+            lo = lowerBound(fromOpenTime);
+            hi = lowerBound(toOpenTime == Long.MAX_VALUE ? toOpenTime : toOpenTime + 1);
+        }
+        try {
+            for (long start = lo; start < hi; start += SCAN_CHUNK) {
+                int n = (int) Math.min(SCAN_CHUNK, hi - start);
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + start * RECORD_SIZE, (long) n * RECORD_SIZE);
+                map.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0, p = 0; i < n; i++, p += RECORD_SIZE) {
+                    visitor.onBar(
+                            map.getLong(p),
+                            map.getDouble(p + 8),
+                            map.getDouble(p + 16),
+                            map.getDouble(p + 24),
+                            map.getDouble(p + 32),
+                            map.getDouble(p + 40),
+                            map.getLong(p + 48));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения архива " + file, e);
+        }
+    }
+
+    /**
+     * Записи диапазона в виде колоночного ряда.
+     */
+    public CandleSeries read(long fromOpenTime, long toOpenTime) {
+        long lo, hi;
+        synchronized (this) {
+            lo = lowerBound(fromOpenTime);
+            hi = lowerBound(toOpenTime == Long.MAX_VALUE ? toOpenTime : toOpenTime + 1);
+        }
+        int n = Math.toIntExact(hi - lo);
+        long[]   ot = new long[n];
+        double[] o  = new double[n];
+        double[] h  = new double[n];
+        double[] l  = new double[n];
+        double[] c  = new double[n];
+        double[] v  = new double[n];
+        long[]   ct = new long[n];
+        int[] k = {0};
+        scan(fromOpenTime, toOpenTime, (openTime, open, high, low, close, volume, closeTime) -> {
+            int i = k[0]++;
+            if (i >= n) {
+                return; // дописали во время чтения — берём снимок на момент вызова
+            }
+            ot[i] = openTime;
+            o[i]  = open;
+            h[i]  = high;
+            l[i]  = low;
+            c[i]  = close;
+            v[i]  = volume;
+            ct[i] = closeTime;
+        });
+        return CandleSeries.wrap(symbol, interval, ot, o, h, l, c, v, ct);
+    }
+
+    /**
+     * Экспорт диапазона в сущности {@link Candle} (с идентификаторами, как в локальном хранилище).
+     */
+    public List<Candle> export(long fromOpenTime, long toOpenTime) {
+        List<Candle> candles = read(fromOpenTime, toOpenTime).toCandles();
+        for (Candle c : candles) {
+            c.setId(symbol + ":" + interval + ":" + c.getOpenTime());
+            c.setTimestamp(c.getOpenTime());
+        }
+        return candles;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Получатель записей при сканировании — примитивы, без объектов.
+     */
+    @FunctionalInterface
+    public interface BarVisitor {
+        void onBar(long openTime, double open, double high, double low,
+                   double close, double volume, long closeTime);
+    }
+
+    // ===== Внутреннее =====
+
+    private void writeHeader() throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        h.putLong(0, MAGIC);
+        h.putInt(8, VERSION);
+        h.putInt(12, RECORD_SIZE);
+        h.putLong(16, intervalMs);
+        h.put(24, fixed(symbol, 16));
+        h.put(40, fixed(interval, 8));
+        channel.write(h, 0);
+        channel.force(true);
+    }
+
+    private void checkHeader() throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(h, 0);
+        if (h.getLong(0) != MAGIC || h.getInt(8) != VERSION || h.getInt(12) != RECORD_SIZE) {
+            throw new IllegalStateException("Файл " + file + " не является архивом свечей v" + VERSION);
+        }
+        if (h.getLong(16) != intervalMs) {
+            throw new IllegalStateException("Архив " + file + " записан с другим интервалом: " + h.getLong(16));
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        count = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        indexSize = 0;
+        for (long i = 0; i < count; i += INDEX_STRIDE) {
+            addIndex(readOpenTime(i));
+        }
+        if (count > 0) {
+            firstOpenTime = readOpenTime(0);
+            lastOpenTime  = readOpenTime(count - 1);
+        }
+    }
+
+    private ByteBuffer newBuffer(int records) {
+        return ByteBuffer.allocate(records * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void putRecord(ByteBuffer buf, long openTime, double open, double high, double low,
+                                  double close, double volume, long closeTime) {
+        buf.putLong(openTime)
+                .putDouble(open)
+                .putDouble(high)
+                .putDouble(low)
+                .putDouble(close)
+                .putDouble(volume)
+                .putLong(closeTime);
+    }
+
+    private int flush(ByteBuffer buf, int added) {
+        if (added == 0) {
+            return 0;
+        }
+        buf.flip();
+        try {
+            long pos = HEADER_SIZE + count * RECORD_SIZE;
+            while (buf.hasRemaining()) {
+                pos += channel.write(buf, pos);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи архива " + file, e);
+        }
+        for (int i = 0; i < added; i++) {
+            long openTime = buf.getLong(i * RECORD_SIZE);
+            if (count % INDEX_STRIDE == 0) {
+                addIndex(openTime);
+            }
+            if (count == 0) {
+                firstOpenTime = openTime;
+            }
+            lastOpenTime = openTime;
+            count++;
+        }
+        return added;
+    }
+
+    private void addIndex(long openTime) {
+        if (indexSize == index.length) {
+            index = Arrays.copyOf(index, indexSize * 2);
+        }
+        index[indexSize++] = openTime;
+    }
+
+    /**
+     * Номер первой записи с openTime >= t: поиск по разреженному индексу,
+     * затем бинарный поиск внутри одного блока.
+     */
+    private long lowerBound(long t) {
+        if (count == 0 || t <= firstOpenTime) {
+            return 0;
+        }
+        if (t > lastOpenTime) {
+            return count;
+        }
+        int b = Arrays.binarySearch(index, 0, indexSize, t);
+        if (b >= 0) {
+            return (long) b * INDEX_STRIDE;
+        }
+        int block = -b - 2; // последний блок, начало которого < t
+        long lo = (long) block * INDEX_STRIDE + 1;
+        long hi = Math.min(count, lo - 1 + INDEX_STRIDE);
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (readOpenTime(mid) < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private long readOpenTime(long i) {
+        try {
+            ByteBuffer b = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(b, HEADER_SIZE + i * RECORD_SIZE);
+            return b.getLong(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения архива " + file, e);
+        }
+    }
+
+    private static byte[] fixed(String s, int len) {
+        byte[] out = new byte[len];
+        byte[] src = s.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(src, 0, out, 0, Math.min(len, src.length));
+        return out;
+    }
+}
@@ -0,0 +1,250 @@
+package com.chicu.trader.trading.archive;
+
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
+import com.chicu.trader.trading.repository.CandleRepository;
+import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Файловые архивы свечей ({@link CandleArchive}) для многолетних бэктестов и датасетов.
+ * <p>
+ * Один файл {@code <dir>/<SYMBOL>_<interval>.bin} на пару. Недостающие участки
+ * докачиваются с Binance по REST (только закрытые свечи); поддерживается
+ * импорт/экспорт из/в таблицу {@link Candle}.
+ * <p>
+ * Дозапись пары идёт по одной за раз, чтение её не ждёт. Ранняя история пишется
+ * в новый файл, и только подмена файла исключает чтение — так закрываемый архив
+ * никто не читает.
+ */
+@Slf4j
+@Service
+public class CandleArchiveService {
+
+    private final HttpBinanceCandleService restCandles;
+    private final CandleRepository         candleRepository;
+    private final boolean enabled;
+    private final Path    dir;
+
+    private final Map<String, Pair> pairs = new ConcurrentHashMap<>();
+
+    public CandleArchiveService(HttpBinanceCandleService restCandles,
+                                CandleRepository candleRepository,
+                                @Value("${candles.archive.enabled:false}") boolean enabled,
+                                @Value("${candles.archive.dir:data/candles}") String dir) {
+        this.restCandles      = restCandles;
+        this.candleRepository = candleRepository;
+        this.enabled          = enabled;
+        this.dir              = Paths.get(dir);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Свечи с временем открытия в [fromMillis, toMillis] в виде колоночного ряда.
+     * Перед чтением архив дополняется недостающими закрытыми свечами.
+     */
+    public CandleSeries load(String symbol, Duration timeframe, long fromMillis, long toMillis) {
+        long tf   = timeframe.toMillis();
+        long from = Math.floorDiv(fromMillis, tf) * tf;
+        long to   = Math.min(Math.floorDiv(toMillis, tf) * tf,
+                Math.floorDiv(System.currentTimeMillis(), tf) * tf - tf);
+        if (from > to) {
+            return CandleSeries.empty();
+        }
+
+        Pair pair = pair(symbol, timeframe);
+        synchronized (pair.writer) {
+            ensureCoverage(pair, symbol, timeframe, from, to);
+        }
+        pair.swap.readLock().lock();
+        try {
+            return pair.archive.read(from, to);
+        } finally {
+            pair.swap.readLock().unlock();
+        }
+    }
+
+    /**
+     * Обход диапазона без материализации ряда (для очень длинных периодов).
+     */
+    public void scan(String symbol, Duration timeframe, long fromMillis, long toMillis,
+                     CandleArchive.BarVisitor visitor) {
+        Pair pair = pair(symbol, timeframe);
+        pair.swap.readLock().lock();
+        try {
+            pair.archive.scan(fromMillis, toMillis, visitor);
+        } finally {
+            pair.swap.readLock().unlock();
+        }
+    }
+
+    /**
+     * Импорт свечей пары из таблицы {@link Candle} (дописываются только более новые).
+     *
+     * @return число импортированных свечей
+     */
+    public int importFromStore(String symbol, Duration timeframe) {
+        String interval = HttpBinanceCandleService.toBinanceInterval(timeframe);
+        List<Candle> rows = candleRepository.findBySymbolAndTimeframeOrderByTimestampAsc(symbol, interval);
+        Pair pair = pair(symbol, timeframe);
+        synchronized (pair.writer) {
+            int added = pair.archive.append(rows);
+            log.info("📦 Импорт {} {}: {} из {} свечей", symbol, interval, added, rows.size());
+            return added;
+        }
+    }
+
+    /**
+     * Экспорт диапазона архива в таблицу {@link Candle}.
+     *
+     * @return число выгруженных свечей
+     */
+    public int exportToStore(String symbol, Duration timeframe, long fromMillis, long toMillis) {
+        List<Candle> candles;
+        Pair pair = pair(symbol, timeframe);
+        pair.swap.readLock().lock();
+        try {
+            candles = pair.archive.export(fromMillis, toMillis);
+        } finally {
+            pair.swap.readLock().unlock();
+        }
+        candleRepository.saveAll(candles);
+        log.info("📤 Экспорт {} {}: {} свечей", symbol, HttpBinanceCandleService.toBinanceInterval(timeframe),
+                candles.size());
+        return candles.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pairs.values().forEach(p -> p.archive.close());
+        pairs.clear();
+    }
+
+    // ===== Внутреннее =====
+
+    private static String key(String symbol, Duration timeframe) {
+        return symbol + "_" + HttpBinanceCandleService.toBinanceInterval(timeframe);
+    }
+
+    private Pair pair(String symbol, Duration timeframe) {
+        String interval = HttpBinanceCandleService.toBinanceInterval(timeframe);
+        return pairs.computeIfAbsent(key(symbol, timeframe), k -> new Pair(
+                CandleArchive.open(dir.resolve(k + ".bin"), symbol, interval, timeframe.toMillis())));
+    }
+
+    /** Вызывается под pair.writer */
+    private void ensureCoverage(Pair pair, String symbol, Duration timeframe, long from, long to) {
+        long tf = timeframe.toMillis();
+        // раньше первой свечи Binance истории нет — не переспрашиваем
+        from = Math.max(from, pair.earliest);
+        if (from > to) {
+            return;
+        }
+        CandleArchive archive = pair.archive;
+        if (archive.size() == 0) {
+            restCandles.fetchClosedRange(symbol, timeframe, from, to, archive::append);
+            if (archive.size() == 0) {
+                return;
+            }
+            if (archive.firstOpenTime() > from) {
+                pair.earliest = archive.firstOpenTime();
+            }
+            return;
+        }
+        if (from < archive.firstOpenTime()) {
+            prepend(pair, symbol, timeframe, from, archive.firstOpenTime() - tf);
+            archive = pair.archive;
+        }
+        if (to > archive.lastOpenTime()) {
+            restCandles.fetchClosedRange(symbol, timeframe, archive.lastOpenTime() + tf, to, archive::append);
+        }
+    }
+
+    /**
+     * Архив только дописывается в конец, поэтому более раннюю историю [from, to] пишем
+     * в новый файл, копируем за ней старое содержимое и подменяем файл. Скачивание и
+     * копирование идут без замка чтения; подмена — под ним, чтобы старый архив не
+     * закрылся посреди чтения. Вызывается под pair.writer.
+     */
+    private void prepend(Pair pair, String symbol, Duration timeframe, long from, long to) {
+        CandleArchive archive = pair.archive;
+        long tf = timeframe.toMillis();
+        Path tmp = archive.getFile().resolveSibling(archive.getFile().getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(tmp);
+            CandleArchive fresh = CandleArchive.open(tmp, symbol, archive.getInterval(), archive.getIntervalMs());
+            int added = restCandles.fetchClosedRange(symbol, timeframe, from, to, fresh::append);
+            if (added > 0 && fresh.lastOpenTime() < to) {
+                // скачивание оборвалось (ошибка REST) — добираем хвост ещё раз
+                added += restCandles.fetchClosedRange(symbol, timeframe, fresh.lastOpenTime() + tf, to, fresh::append);
+            }
+            if (added == 0 || fresh.lastOpenTime() != to) {
+                fresh.close();
+                Files.deleteIfExists(tmp);
+                // ранее first Binance ничего не отдал (или не стыкуется) — до перезапуска не спрашиваем
+                pair.earliest = archive.firstOpenTime();
+                if (added > 0) {
+                    log.warn("⚠️ {} {}: ранняя история заканчивается на {}, а архив начинается с {} — "
+                                    + "без разрыва не дописать, пропускаем",
+                            symbol, archive.getInterval(), fresh.lastOpenTime(), archive.firstOpenTime());
+                }
+                return;
+            }
+            if (fresh.firstOpenTime() > from) {
+                pair.earliest = fresh.firstOpenTime();
+            }
+            long chunk = (long) CandleArchive.INDEX_STRIDE * 256 * tf;
+            for (long t = archive.firstOpenTime(); t <= archive.lastOpenTime(); t += chunk) {
+                fresh.append(archive.read(t, t + chunk - 1));
+            }
+            fresh.close();
+
+            pair.swap.writeLock().lock();
+            try {
+                archive.close();
+                Files.move(tmp, archive.getFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                pair.archive = CandleArchive.open(archive.getFile(), symbol,
+                        archive.getInterval(), archive.getIntervalMs());
+            } finally {
+                pair.swap.writeLock().unlock();
+            }
+            log.info("📦 {} {}: в начало архива добавлено {} свечей", symbol, archive.getInterval(), added);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось дополнить архив " + archive.getFile(), e);
+        }
+    }
+
+    /**
+     * Архив пары и его замки: writer — дозапись (одна за раз), swap — чтение
+     * против подмены файла.
+     */
+    private static final class Pair {
+        final Object writer = new Object();
+        final ReentrantReadWriteLock swap = new ReentrantReadWriteLock();
+        volatile CandleArchive archive;
+        /** openTime первой свечи, которую отдаёт Binance (раньше истории нет) */
+        volatile long earliest = Long.MIN_VALUE;
+
+        Pair(CandleArchive archive) {
+            this.archive = archive;
+        }
+    }
+}
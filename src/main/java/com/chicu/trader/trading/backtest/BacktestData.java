@@ -0,0 +1,38 @@
+package com.chicu.trader.trading.backtest;
+
+import com.chicu.trader.strategy.StrategySettings;
+import com.chicu.trader.strategy.TradeStrategy;
+import com.chicu.trader.trading.model.CandleSeries;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Всё, что нужно бэктесту кроме издержек: стратегия, символы с TP/SL и
+ * уже загруженные свечи за период. Загружается один раз на (таймфрейм, период)
+ * и переиспользуется между прогонами, например кандидатами оптимизатора.
+ * Неизменяемо и безопасно для параллельного чтения.
+ */
+@Getter
+@Builder
+public class BacktestData {
+
+    private final Long             chatId;
+    private final TradeStrategy    strategy;
+    private final StrategySettings strategySettings;
+    private final Duration         timeframe;
+    private final LocalDate        startDate;
+    private final LocalDate        endDate;
+    /** Символы в порядке, в котором сливаются сделки */
+    private final List<SymbolData> symbols;
+
+    /**
+     * Свечи символа за период (уже отфильтрованные по датам) и его TP/SL в процентах.
+     */
+    @Builder
+    public record SymbolData(String symbol, double tpPct, double slPct, CandleSeries candles) {
+    }
+}
@@ -39,6 +39,10 @@ public class BacktestResult {
         trades.add(t);
     }
 
+    public void addTrades(Collection<Trade> ts) {
+        trades.addAll(ts);
+    }
+
     public int getTotalTrades() {
         return trades.size();
     }
@@ -7,80 +7,145 @@ import com.chicu.trader.strategy.StrategySettings;
 import com.chicu.trader.trading.backtest.service.BacktestService;
 import com.chicu.trader.trading.backtest.service.BacktestSettingsService;
 import com.chicu.trader.trading.model.BacktestSettings;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
 
+@Slf4j
 @Component
-@RequiredArgsConstructor
 public class GeneticOptimizerService {
     private final AiTradingSettingsService   aiSettingsService;
     private final BacktestSettingsService    btSettingsService;
     private final BacktestService            backtestService;
     private final StrategyRegistry           strategyRegistry;
+    private final Executor                   optimizerExecutor;
+
+    private final int    populationSize;
+    private final int    generations;
+    private final int    elitism;
+    private final double mutationRate;
+    private final int    patience;
+    private final double targetPnl;
+
+    /** Чаты, для которых оптимизация уже идёт */
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    public GeneticOptimizerService(AiTradingSettingsService aiSettingsService,
+                                   BacktestSettingsService btSettingsService,
+                                   BacktestService backtestService,
+                                   StrategyRegistry strategyRegistry,
+                                   @Qualifier("optimizerExecutor") Executor optimizerExecutor,
+                                   @Value("${optimizer.genetic.population-size:10}") int populationSize,
+                                   @Value("${optimizer.genetic.generations:5}") int generations,
+                                   @Value("${optimizer.genetic.elitism:5}") int elitism,
+                                   @Value("${optimizer.genetic.mutation-rate:0.3}") double mutationRate,
+                                   @Value("${optimizer.genetic.patience:2}") int patience,
+                                   @Value("${optimizer.genetic.target-pnl:0.0}") double targetPnl) {
+        this.aiSettingsService = aiSettingsService;
+        this.btSettingsService = btSettingsService;
+        this.backtestService   = backtestService;
+        this.strategyRegistry  = strategyRegistry;
+        this.optimizerExecutor = optimizerExecutor;
+        this.populationSize    = Math.max(2, populationSize);
+        this.generations       = Math.max(1, generations);
+        this.elitism           = Math.max(1, Math.min(elitism, this.populationSize - 1));
+        this.mutationRate      = mutationRate;
+        this.patience          = patience;
+        this.targetPnl         = targetPnl;
+    }
 
     /**
      * Синхронно прогоняет эволюционный алгоритм, сохраняет лучшие настройки
      * и возвращает итоговую сводку по найденному PnL.
+     * <p>
+     * Кандидаты поколения считаются параллельно на optimizerExecutor на настройках в памяти;
+     * в БД записывается только итоговый лучший кандидат. Свечи грузятся один раз на таймфрейм.
      */
     public String optimizeEvolutionarySync(Long chatId) {
+        if (!running.add(chatId)) {
+            return "⏳ Оптимизация для этого чата уже выполняется.";
+        }
+        try {
+            return evolve(chatId);
+        } finally {
+            running.remove(chatId);
+        }
+    }
+
+    private String evolve(Long chatId) {
         AiTradingSettings ai       = aiSettingsService.getSettingsOrThrow(chatId);
         BacktestSettings  original = btSettingsService.getOrCreate(chatId);
         StrategySettings  strat    = strategyRegistry.getSettings(ai.getStrategy(), chatId);
 
         double[] commissions = {0.1, 0.2, 0.3, 0.4, 0.5};
-        int[]    limits      = {100, 250, 500};
         String[] tfs         = {"1m", "5m", "15m"};
 
-        int    populationSize = 10;
-        int    generations    = 5;
-        double mutationRate   = 0.3;
+        // Загрузка данных бэктеста на таймфрейм (одна на все кандидаты) и кэш фитнеса по генам
+        Map<String, FutureTask<BacktestData>> dataByTf = new ConcurrentHashMap<>();
+        Map<String, Double>       fitness  = new ConcurrentHashMap<>();
 
         List<Candidate> population = new ArrayList<>();
         for (int i = 0; i < populationSize; i++) {
-            population.add(randomCandidate(commissions, limits, tfs));
+            population.add(randomCandidate(commissions, tfs));
         }
 
         Candidate best    = null;
         double    bestPnl = Double.NEGATIVE_INFINITY;
+        int       stale   = 0;
 
         for (int gen = 0; gen < generations; gen++) {
+            evaluate(chatId, original, population, dataByTf, fitness);
+
+            boolean improved = false;
             for (Candidate c : population) {
-                // записываем параметры и запускаем бэктест
-                btSettingsService.save(c.toBacktestSettings(chatId, original));
-                double pnl = backtestService.runBacktest(chatId).getTotalPnl();
-                c.fitness = pnl;
-                if (pnl > bestPnl) {
-                    bestPnl = pnl;
-                    best    = c;
-                }
-                // при первом положительном PnL сразу сохраняем и возвращаем результат
-                if (pnl > 0) {
-                    applyBest(chatId, best);
-                    return formatSummary(bestPnl, best);
+                if (c.fitness > bestPnl) {
+                    bestPnl  = c.fitness;
+                    best     = c;
+                    improved = true;
                 }
             }
-            // селекция по лучшим половинам
+            log.info("🧬 chatId={} поколение {}: лучший PnL={}", chatId, gen + 1, bestPnl);
+
+            // ранняя остановка: цель достигнута или давно нет улучшений
+            if (bestPnl > targetPnl) {
+                break;
+            }
+            stale = improved ? 0 : stale + 1;
+            if (patience > 0 && stale >= patience) {
+                log.info("🧬 chatId={}: {} поколений без улучшений — остановка", chatId, stale);
+                break;
+            }
+            if (gen == generations - 1) {
+                break;
+            }
+
+            // селекция: родители — лучшая половина, elitism лучших переходят без изменений
             population.sort(Comparator.comparingDouble(Candidate::getFitness).reversed());
-            List<Candidate> elites = population.subList(0, populationSize / 2);
-            List<Candidate> nextGen = new ArrayList<>(elites);
+            List<Candidate> parents = population.subList(0, Math.max(elitism, populationSize / 2));
+            List<Candidate> nextGen = new ArrayList<>(population.subList(0, elitism));
             // кроссовер + возможная мутация
             while (nextGen.size() < populationSize) {
-                Candidate p1 = elites.get(ThreadLocalRandom.current().nextInt(elites.size()));
-                Candidate p2 = elites.get(ThreadLocalRandom.current().nextInt(elites.size()));
+                Candidate p1 = parents.get(ThreadLocalRandom.current().nextInt(parents.size()));
+                Candidate p2 = parents.get(ThreadLocalRandom.current().nextInt(parents.size()));
                 Candidate child = crossover(p1, p2);
                 if (ThreadLocalRandom.current().nextDouble() < mutationRate) {
-                    child = mutate(child, commissions, limits, tfs);
+                    child = mutate(child, commissions, tfs);
                 }
                 nextGen.add(child);
             }
             population = nextGen;
         }
 
-        // если за все поколения не было плюса, применяем лучший найденный
         if (best != null) {
             applyBest(chatId, best);
             return formatSummary(bestPnl, best);
@@ -89,6 +154,75 @@ public class GeneticOptimizerService {
         }
     }
 
+    /**
+     * Считает фитнес всех кандидатов поколения параллельно.
+     * Задачи отдаются в optimizerExecutor, а ещё не начатые вызывающий поток выполняет сам —
+     * так нет взаимоблокировки, даже если сам оптимизатор запущен в том же пуле.
+     */
+    private void evaluate(Long chatId,
+                          BacktestSettings original,
+                          List<Candidate> population,
+                          Map<String, FutureTask<BacktestData>> dataByTf,
+                          Map<String, Double> fitness) {
+        List<FutureTask<Double>> tasks = new ArrayList<>(population.size());
+        for (Candidate c : population) {
+            FutureTask<Double> task = new FutureTask<>(() -> {
+                Double known = fitness.get(c.key());
+                if (known != null) {
+                    return known;
+                }
+                BacktestSettings settings = c.toBacktestSettings(chatId, original);
+                BacktestData data = loadData(chatId, settings, c.timeframe, dataByTf);
+                double pnl = backtestService.runBacktest(data, settings).getTotalPnl();
+                fitness.put(c.key(), pnl);
+                return pnl;
+            });
+            tasks.add(task);
+            try {
+                optimizerExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // очередь заполнена — выполним сами ниже
+            }
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            FutureTask<Double> task = tasks.get(i);
+            task.run(); // no-op, если задача уже взята пулом
+            try {
+                population.get(i).fitness = task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Оптимизация прервана", e);
+            } catch (ExecutionException e) {
+                log.warn("⚠️ Ошибка бэктеста кандидата {}: {}", population.get(i).key(), e.getCause().getMessage());
+                population.get(i).fitness = Double.NEGATIVE_INFINITY;
+            }
+        }
+    }
+
+    /**
+     * Данные бэктеста таймфрейма: первый запросивший грузит их сам, остальные ждут
+     * ту же загрузку. Загрузка идёт вне замков карты, так что кандидаты других
+     * таймфреймов не блокируются; неудачная убирается, чтобы следующий кандидат
+     * попробовал снова.
+     */
+    private BacktestData loadData(Long chatId,
+                                  BacktestSettings settings,
+                                  String timeframe,
+                                  Map<String, FutureTask<BacktestData>> dataByTf) throws Exception {
+        FutureTask<BacktestData> load = new FutureTask<>(() -> backtestService.loadData(chatId, settings));
+        FutureTask<BacktestData> existing = dataByTf.putIfAbsent(timeframe, load);
+        if (existing == null) {
+            existing = load;
+            load.run();
+        }
+        try {
+            return existing.get();
+        } catch (ExecutionException e) {
+            dataByTf.remove(timeframe, existing);
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
     /**
      * Асинхронный вариант (через optimizerExecutor), оставляем на всякий случай.
      */
@@ -106,15 +240,14 @@ public class GeneticOptimizerService {
 
     private String formatSummary(double pnl, Candidate best) {
         return String.format(
-                "🧬 Эволюция завершена: PnL=%.2f%%, commission=%.1f%%, candlesLimit=%d, timeframe=%s",
-                pnl * 100, best.commission, best.limit, best.timeframe
+                "🧬 Эволюция завершена: PnL=%.2f%%, commission=%.1f%%, timeframe=%s",
+                pnl * 100, best.commission, best.timeframe
         );
     }
 
-    private Candidate randomCandidate(double[] comms, int[] limits, String[] tfs) {
+    private Candidate randomCandidate(double[] comms, String[] tfs) {
         return new Candidate(
                 comms[ThreadLocalRandom.current().nextInt(comms.length)],
-                limits[ThreadLocalRandom.current().nextInt(limits.length)],
                 tfs[ThreadLocalRandom.current().nextInt(tfs.length)]
         );
     }
@@ -122,28 +255,28 @@ public class GeneticOptimizerService {
     private Candidate crossover(Candidate a, Candidate b) {
         return new Candidate(
                 ThreadLocalRandom.current().nextBoolean() ? a.commission : b.commission,
-                ThreadLocalRandom.current().nextBoolean() ? a.limit      : b.limit,
                 ThreadLocalRandom.current().nextBoolean() ? a.timeframe  : b.timeframe
         );
     }
 
-    private Candidate mutate(Candidate c, double[] comms, int[] limits, String[] tfs) {
+    private Candidate mutate(Candidate c, double[] comms, String[] tfs) {
         return new Candidate(
                 comms[ThreadLocalRandom.current().nextInt(comms.length)],
-                limits[ThreadLocalRandom.current().nextInt(limits.length)],
                 tfs[ThreadLocalRandom.current().nextInt(tfs.length)]
         );
     }
 
+    /**
+     * Гены кандидата. Длины истории среди них нет: бэктест грузит свечи по датам
+     * из настроек, и cachedCandlesLimit на результат не влияет.
+     */
     private static class Candidate {
         final double commission;
-        final int    limit;
         final String timeframe;
         double      fitness;
 
-        Candidate(double commission, int limit, String timeframe) {
+        Candidate(double commission, String timeframe) {
             this.commission = commission;
-            this.limit      = limit;
             this.timeframe  = timeframe;
         }
 
@@ -151,13 +284,18 @@ public class GeneticOptimizerService {
             return fitness;
         }
 
+        String key() {
+            return commission + "|" + timeframe;
+        }
+
         BacktestSettings toBacktestSettings(Long chatId, BacktestSettings base) {
             return BacktestSettings.builder()
                     .chatId(chatId)
                     .startDate(base.getStartDate())
                     .endDate(base.getEndDate())
                     .commissionPct(commission)
-                    .cachedCandlesLimit(limit)
+                    .slippagePct(base.getSlippagePct())
+                    .cachedCandlesLimit(base.getCachedCandlesLimit())
                     .timeframe(timeframe)
                     .leverage(base.getLeverage())
                     .build();
@@ -5,13 +5,16 @@ import com.chicu.trader.bot.service.AiTradingSettingsService;
 import com.chicu.trader.strategy.SignalType;
 import com.chicu.trader.strategy.StrategyRegistry;
 import com.chicu.trader.strategy.StrategySettings;
+import com.chicu.trader.strategy.StrategyState;
 import com.chicu.trader.strategy.TradeStrategy;
+import com.chicu.trader.trading.archive.CandleArchiveService;
+import com.chicu.trader.trading.backtest.BacktestData;
 import com.chicu.trader.trading.backtest.BacktestResult;
 import com.chicu.trader.trading.backtest.service.BacktestService;
 import com.chicu.trader.trading.backtest.service.BacktestSettingsService;
 import com.chicu.trader.trading.entity.ProfitablePair;
 import com.chicu.trader.trading.model.BacktestSettings;
-import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
 import com.chicu.trader.trading.service.CandleService;
 import com.chicu.trader.trading.service.ProfitablePairService;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +27,8 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,28 +42,27 @@ public class BacktestServiceImpl implements BacktestService {
     private final CandleService            candleService;
     private final StrategyRegistry         strategyRegistry;
     private final BacktestSettingsService  backtestSettingsService;
+    private final ForkJoinPool             backtestPool;
+    private final CandleArchiveService     archiveService;
 
     @Override
     public BacktestResult runBacktest(Long chatId) {
+        return runBacktest(chatId, backtestSettingsService.getOrCreate(chatId));
+    }
+
+    @Override
+    public BacktestResult runBacktest(Long chatId, BacktestSettings btSettings) {
         log.info("=== Starting backtest for chatId={} ===", chatId);
+        return runBacktest(loadData(chatId, btSettings), btSettings);
+    }
 
+    @Override
+    public BacktestData loadData(Long chatId, BacktestSettings btSettings) {
         // 1) Пользовательские настройки
         AiTradingSettings aiSettings = settingsService.getSettingsOrThrow(chatId);
-        BacktestSettings  btSettings = backtestSettingsService.getOrCreate(chatId);
-
-        double commissionPct = btSettings.getCommissionPct();
-        double slippagePct   = btSettings.getSlippagePct();       // новый параметр
-        double costPct       = commissionPct + slippagePct;       // объединённые издержки
 
         log.info("Using strategy='{}', symbols='{}'",
                 aiSettings.getStrategy(), aiSettings.getSymbols());
-        log.info("Backtest settings: timeframe='{}', limit={}, commissionPct={}%, slippagePct={}%, dateRange={}→{}",
-                btSettings.getTimeframe(),
-                btSettings.getCachedCandlesLimit(),
-                commissionPct,
-                slippagePct,
-                btSettings.getStartDate(),
-                btSettings.getEndDate());
 
         // 2) Стратегия
         StrategySettings strategySettings =
@@ -68,7 +72,6 @@ public class BacktestServiceImpl implements BacktestService {
 
         // 3) Параметры бэктеста
         Duration  interval  = parseTimeframe(btSettings.getTimeframe());
-        int       limit     = btSettings.getCachedCandlesLimit();
         LocalDate startDate = btSettings.getStartDate();
         LocalDate endDate   = btSettings.getEndDate();
 
@@ -91,85 +94,163 @@ public class BacktestServiceImpl implements BacktestService {
             log.info("Symbols to test: {}", symbolsToTest);
         }
 
+        // 5) Свечи символов грузим параллельно, порядок символов сохраняем
+        List<ForkJoinTask<BacktestData.SymbolData>> tasks = new ArrayList<>(symbolsToTest.size());
+        for (String symbol : symbolsToTest) {
+            tasks.add(backtestPool.submit(() -> loadSymbol(chatId, symbol, interval, startDate, endDate)));
+        }
+        List<BacktestData.SymbolData> symbols = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<BacktestData.SymbolData> task : tasks) {
+            symbols.add(task.join());
+        }
+
+        return BacktestData.builder()
+                .chatId(chatId)
+                .strategy(strategy)
+                .strategySettings(strategySettings)
+                .timeframe(interval)
+                .startDate(startDate)
+                .endDate(endDate)
+                .symbols(symbols)
+                .build();
+    }
+
+    @Override
+    public BacktestResult runBacktest(BacktestData data, BacktestSettings btSettings) {
+        double commissionPct = btSettings.getCommissionPct();
+        double slippagePct   = btSettings.getSlippagePct() != null ? btSettings.getSlippagePct() : 0.0;
+        double costPct       = commissionPct + slippagePct;       // объединённые издержки
+
+        log.info("Backtest settings: timeframe='{}', commissionPct={}%, slippagePct={}%, dateRange={}→{}",
+                btSettings.getTimeframe(),
+                commissionPct,
+                slippagePct,
+                data.getStartDate(),
+                data.getEndDate());
+
         BacktestResult result = new BacktestResult();
 
-        // 5) Цикл по символам
-        for (String symbol : symbolsToTest) {
-            log.info(">> Testing symbol='{}'", symbol);
+        // Символы независимы — гоняем параллельно в ограниченном пуле,
+        // а сделки сливаем в порядке символов, чтобы результат был детерминирован
+        List<ForkJoinTask<List<BacktestResult.Trade>>> tasks = new ArrayList<>(data.getSymbols().size());
+        for (BacktestData.SymbolData symbolData : data.getSymbols()) {
+            tasks.add(backtestPool.submit(() -> simulateSymbol(data, symbolData, costPct)));
+        }
+        for (ForkJoinTask<List<BacktestResult.Trade>> task : tasks) {
+            result.addTrades(task.join());
+        }
 
-            List<Candle> rawCandles = candleService.loadHistory(symbol, interval, limit);
-            log.info("Loaded {} raw candles for '{}'", rawCandles.size(), symbol);
+        log.info("=== Backtest complete for chatId={}, total trades={} ===",
+                data.getChatId(), result.getTotalTrades());
+        return result;
+    }
 
-            List<Candle> candles = filterByDateRange(rawCandles, startDate, endDate);
-            log.info("{} candles after filter [{}→{}] for '{}'",
-                    candles.size(), startDate, endDate, symbol);
+    /**
+     * Загрузка свечей символа за период и его TP/SL.
+     */
+    private BacktestData.SymbolData loadSymbol(
+            Long      chatId,
+            String    symbol,
+            Duration  interval,
+            LocalDate startDate,
+            LocalDate endDate
+    ) {
+        // Весь период, начиная на свечу раньше: фильтр ниже идёт по времени закрытия.
+        // Из файлового архива — колонками, без сущностей; иначе из локального хранилища.
+        Instant from = rangeStart(startDate).minus(interval);
+        Instant to   = rangeEnd(endDate);
+        CandleSeries raw = archiveService.isEnabled()
+                ? archiveService.load(symbol, interval, from.toEpochMilli(), to.toEpochMilli())
+                : CandleSeries.of(candleService.loadRange(symbol, interval, from, to));
+        log.info("Loaded {} raw candles for '{}'", raw.size(), symbol);
 
-            if (candles.size() < 2) {
-                log.warn("Skipping '{}': only {} candles", symbol, candles.size());
-                continue;
-            }
+        CandleSeries candles = filterByDateRange(raw, startDate, endDate);
+        log.info("{} candles after filter [{}→{}] for '{}'",
+                candles.size(), startDate, endDate, symbol);
 
-            boolean open  = false;
-            Candle  entry = null;
+        // TP/SL из активной ProfitablePair
+        Optional<ProfitablePair> pairOpt = pairService
+                .getPairsBySymbol(chatId, symbol).stream()
+                .filter(ProfitablePair::getActive)
+                .findFirst();
+        double tpPct = pairOpt.map(ProfitablePair::getTakeProfitPct).orElse(2.0);
+        double slPct = pairOpt.map(ProfitablePair::getStopLossPct).orElse(1.0);
 
-            // TP/SL из активной ProfitablePair
-            Optional<ProfitablePair> pairOpt = pairService
-                    .getPairsBySymbol(chatId, symbol).stream()
-                    .filter(ProfitablePair::getActive)
-                    .findFirst();
-            double tpPct = pairOpt.map(ProfitablePair::getTakeProfitPct).orElse(2.0);
-            double slPct = pairOpt.map(ProfitablePair::getStopLossPct).orElse(1.0);
+        return new BacktestData.SymbolData(symbol, tpPct, slPct, candles);
+    }
 
-            // 6) Цикл бэктеста по свечам
-            for (int i = 1; i < candles.size(); i++) {
-                List<Candle> history = candles.subList(0, i + 1);
-                SignalType   signal  = strategy.evaluate(history, strategySettings);
-                Candle       current = candles.get(i);
+    /**
+     * Прогон одного символа: один проход стратегии, TP/SL.
+     * Не трогает общий результат — возвращает сделки символа в хронологическом порядке.
+     */
+    private List<BacktestResult.Trade> simulateSymbol(
+            BacktestData            data,
+            BacktestData.SymbolData symbolData,
+            double                  costPct
+    ) {
+        String       symbol  = symbolData.symbol();
+        CandleSeries candles = symbolData.candles();
+        double       tpPct   = symbolData.tpPct();
+        double       slPct   = symbolData.slPct();
+        log.info(">> Testing symbol='{}'", symbol);
+
+        List<BacktestResult.Trade> trades = new ArrayList<>();
+        if (candles.size() < 2) {
+            log.warn("Skipping '{}': only {} candles", symbol, candles.size());
+            return trades;
+        }
 
+        boolean open  = false;
+        int     entry = -1;
+
+        // Цикл бэктеста по свечам: один проход, стратегия получает свечи по одной
+        StrategyState state = data.getStrategy().newState(data.getStrategySettings());
+        state.onBar(candles, 0);
+        for (int i = 1; i < candles.size(); i++) {
+            SignalType signal = state.onBar(candles, i);
+
+            if (log.isDebugEnabled()) {
                 log.debug("Signal for '{}' at {}: {}",
-                        symbol, Instant.ofEpochMilli(current.getCloseTime()), signal);
-
-                if (signal == SignalType.BUY && !open) {
-                    open  = true;
-                    entry = current;
-                    log.info("Opened BUY '{}' at {} (time={})",
-                            symbol, entry.getClose(), Instant.ofEpochMilli(entry.getCloseTime()));
-                } else if (open && entry != null) {
-                    double entryPrice = entry.getClose();
-                    double high       = current.getHigh();
-                    double low        = current.getLow();
-                    double tpPrice    = entryPrice * (1 + tpPct / 100.0);
-                    double slPrice    = entryPrice * (1 - slPct / 100.0);
-
-                    boolean tpHit = high >= tpPrice;
-                    boolean slHit = low  <= slPrice;
-                    if (tpHit || slHit) {
-                        double exitPrice = tpHit ? tpPrice : slPrice;
-                        result.addTrade(new BacktestResult.Trade(
-                                symbol,
-                                entry.getCloseTime(),
-                                entryPrice,
-                                current.getCloseTime(),
-                                exitPrice,
-                                costPct                   // передаем объединенные издержки
-                        ));
-                        log.info("Closed '{}' at {} (time={}), TP={}, SL={}",
-                                symbol,
-                                exitPrice,
-                                Instant.ofEpochMilli(current.getCloseTime()),
-                                tpHit,
-                                slHit
-                        );
-                        open  = false;
-                        entry = null;
-                    }
+                        symbol, Instant.ofEpochMilli(candles.closeTime(i)), signal);
+            }
+
+            if (signal == SignalType.BUY && !open) {
+                open  = true;
+                entry = i;
+                log.info("Opened BUY '{}' at {} (time={})",
+                        symbol, candles.close(entry), Instant.ofEpochMilli(candles.closeTime(entry)));
+            } else if (open) {
+                double entryPrice = candles.close(entry);
+                double high       = candles.high(i);
+                double low        = candles.low(i);
+                double tpPrice    = entryPrice * (1 + tpPct / 100.0);
+                double slPrice    = entryPrice * (1 - slPct / 100.0);
+
+                boolean tpHit = high >= tpPrice;
+                boolean slHit = low  <= slPrice;
+                if (tpHit || slHit) {
+                    double exitPrice = tpHit ? tpPrice : slPrice;
+                    trades.add(new BacktestResult.Trade(
+                            symbol,
+                            candles.closeTime(entry),
+                            entryPrice,
+                            candles.closeTime(i),
+                            exitPrice,
+                            costPct                   // передаем объединенные издержки
+                    ));
+                    log.info("Closed '{}' at {} (time={}), TP={}, SL={}",
+                            symbol,
+                            exitPrice,
+                            Instant.ofEpochMilli(candles.closeTime(i)),
+                            tpHit,
+                            slHit
+                    );
+                    open  = false;
+                    entry = -1;
                 }
             }
         }
-
-        log.info("=== Backtest complete for chatId={}, total trades={} ===",
-                chatId, result.getTotalTrades());
-        return result;
+        return trades;
     }
 
     // Вспомогательные
@@ -186,23 +267,32 @@ public class BacktestServiceImpl implements BacktestService {
         };
     }
 
-    private List<Candle> filterByDateRange(
-            List<Candle> rawCandles,
+    private Instant rangeStart(LocalDate startDate) {
+        return startDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    private Instant rangeEnd(LocalDate endDate) {
+        return endDate.plusDays(1)
+                .atStartOfDay(ZoneId.systemDefault())
+                .toInstant()
+                .minusNanos(1);
+    }
+
+    /**
+     * Окно ряда со свечами, закрывшимися в [startDate 00:00, endDate 23:59:59.999] — без копирования.
+     */
+    private CandleSeries filterByDateRange(
+            CandleSeries rawCandles,
             LocalDate    startDate,
             LocalDate    endDate
     ) {
-        ZoneId zone          = ZoneId.systemDefault();
-        Instant startInstant = startDate.atStartOfDay(zone).toInstant();
-        Instant endInstant   = endDate.plusDays(1)
-                .atStartOfDay(zone)
-                .toInstant()
-                .minusNanos(1);
+        long startMillis = rangeStart(startDate).toEpochMilli();
+        long endMillis   = rangeEnd(endDate).toEpochMilli();
 
-        return rawCandles.stream()
-                .filter(c -> {
-                    Instant ts = Instant.ofEpochMilli(c.getCloseTime());
-                    return !ts.isBefore(startInstant) && !ts.isAfter(endInstant);
-                })
-                .collect(Collectors.toList());
+        int from = 0;
+        while (from < rawCandles.size() && rawCandles.closeTime(from) < startMillis) from++;
+        int to = rawCandles.size();
+        while (to > from && rawCandles.closeTime(to - 1) > endMillis) to--;
+        return rawCandles.window(from, to);
     }
 }
@@ -2,8 +2,26 @@
 package com.chicu.trader.trading.backtest.service;
 
 
+import com.chicu.trader.trading.backtest.BacktestData;
 import com.chicu.trader.trading.backtest.BacktestResult;
+import com.chicu.trader.trading.model.BacktestSettings;
 
 public interface BacktestService {
     BacktestResult runBacktest(Long chatId);
+
+    /**
+     * Бэктест с настройками, заданными в памяти: сохранённые BacktestSettings не читаются и не меняются.
+     */
+    BacktestResult runBacktest(Long chatId, BacktestSettings settings);
+
+    /**
+     * Загрузить стратегию, символы и свечи для таймфрейма и периода из settings —
+     * для многократных прогонов на одних данных.
+     */
+    BacktestData loadData(Long chatId, BacktestSettings settings);
+
+    /**
+     * Прогон на заранее загруженных данных; из settings берутся только издержки.
+     */
+    BacktestResult runBacktest(BacktestData data, BacktestSettings settings);
 }
@@ -0,0 +1,36 @@
+package com.chicu.trader.trading.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Непрерывный диапазон свечей (symbol, timeframe), уже сохранённый в локальном хранилище.
+ * Границы — время открытия первой и последней свечи, включительно.
+ */
+@Entity
+@Table(name = "candle_ranges",
+        indexes = @Index(name = "idx_candle_ranges_symbol_tf", columnList = "symbol, timeframe"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CandleRange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "symbol", nullable = false)
+    private String symbol;
+
+    /** Интервал Binance, например "1m", "1h" */
+    @Column(name = "timeframe", nullable = false)
+    private String timeframe;
+
+    @Column(name = "from_open_time", nullable = false)
+    private Long fromOpenTime;
+
+    @Column(name = "to_open_time", nullable = false)
+    private Long toOpenTime;
+}
@@ -1,5 +1,6 @@
 package com.chicu.trader.trading.entity;
 
+import com.chicu.trader.trading.exit.TradeLogIndexListener;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -8,6 +9,7 @@ import java.time.Instant;
 
 @Entity
 @Table(name = "trade_log")
+@EntityListeners(TradeLogIndexListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
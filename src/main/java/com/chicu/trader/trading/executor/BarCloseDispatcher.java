@@ -0,0 +1,231 @@
+package com.chicu.trader.trading.executor;
+
+import com.chicu.trader.bot.entity.AiTradingSettings;
+import com.chicu.trader.bot.service.AiTradingSettingsService;
+import com.chicu.trader.trading.entity.ProfitablePair;
+import com.chicu.trader.trading.marketdata.BarClosedEvent;
+import com.chicu.trader.trading.marketdata.KlineStreamService;
+import com.chicu.trader.trading.service.ProfitablePairService;
+import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Торговый цикл по закрытию свечи вместо опроса всех пользователей по таймеру.
+ * <p>
+ * Держит реестр подписок: ряд (symbol, timeframe) → активные пары пользователей,
+ * торгующих этим рядом. {@link BarClosedEvent} из потока свечей раздаётся только
+ * подписчикам ряда через {@link ChatTaskExecutor}: пользователи обрабатываются
+ * параллельно, задачи одного пользователя — по порядку и только до закрытия следующей свечи.
+ * Редкий опрос по времени подхватывает закрытия только тех рядов, по которым поток
+ * сейчас не идёт (выключен, нет соединения, ряд не загрузился); пропущенное за время
+ * обрыва поток публикует сам после догрузки. Каждая свеча ряда раздаётся ровно один раз.
+ * <p>
+ * Свечи одного таймфрейма у разных символов закрываются одновременно, а события о них
+ * приходят друг за другом. Закрытия с одним openTime копятся по пользователю batch-window-ms
+ * и уходят одной задачей со всеми его парами — так конвейер ордеров получает все сигналы
+ * тика пачкой, а не по одному.
+ */
+@Slf4j
+@Component
+public class BarCloseDispatcher {
+
+    private final AiTradingSettingsService settingsService;
+    private final ProfitablePairService    pairService;
+    private final KlineStreamService       klineStream;
+    private final List<BarCloseListener>   listeners;
+    private final ChatTaskExecutor         chatTasks;
+    private final long                     pollGraceMs;
+    private final long                     batchWindowMs;
+
+    /** Подписки по ключу ряда; заменяется целиком при обновлении */
+    private volatile Map<String, Subscription> subscriptions = Map.of();
+    /** openTime последней разданной свечи по ключу ряда */
+    private final Map<String, Long> lastDispatched = new ConcurrentHashMap<>();
+    /** Копящиеся пачки закрытий: (пользователь, интервал, openTime) → его пары */
+    private final Map<BatchKey, Batch> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "bar-dispatch-batch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BarCloseDispatcher(AiTradingSettingsService settingsService,
+                              ProfitablePairService pairService,
+                              KlineStreamService klineStream,
+                              List<BarCloseListener> listeners,
+                              ChatTaskExecutor chatTasks,
+                              @Value("${trading.bar-dispatch.poll-grace-ms:5000}") long pollGraceMs,
+                              @Value("${trading.bar-dispatch.batch-window-ms:300}") long batchWindowMs) {
+        this.settingsService = settingsService;
+        this.pairService     = pairService;
+        this.klineStream     = klineStream;
+        this.listeners       = listeners;
+        this.chatTasks       = chatTasks;
+        this.pollGraceMs     = pollGraceMs;
+        this.batchWindowMs   = batchWindowMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    /**
+     * Перестраивает реестр подписок по запущенным пользователям и их активным парам.
+     */
+    @Scheduled(initialDelay = 5_000, fixedDelayString = "${trading.bar-dispatch.refresh-ms:30000}")
+    public void refresh() {
+        Map<String, Subscription> fresh = new HashMap<>();
+        for (AiTradingSettings settings : settingsService.getAllActiveTrading()) {
+            Long chatId = settings.getChatId();
+            Duration timeframe = parseDuration(settings.getTimeframe());
+            String interval = HttpBinanceCandleService.toBinanceInterval(timeframe);
+            for (ProfitablePair pair : pairService.getActivePairs(chatId)) {
+                fresh.computeIfAbsent(key(pair.getSymbol(), interval),
+                                k -> new Subscription(pair.getSymbol(), interval, timeframe, new ArrayList<>()))
+                        .subscribers().add(new Subscriber(chatId, pair));
+            }
+        }
+
+        Map<String, Subscription> previous = subscriptions;
+        subscriptions = fresh;
+        lastDispatched.keySet().retainAll(fresh.keySet());
+
+        for (Map.Entry<String, Subscription> e : fresh.entrySet()) {
+            if (!previous.containsKey(e.getKey())) {
+                Subscription sub = e.getValue();
+                if (!klineStream.watch(sub.symbol(), sub.timeframe())) {
+                    log.debug("Поток свечей {} {} недоступен — только опрос", sub.symbol(), sub.interval());
+                }
+            }
+        }
+        log.debug("📡 Подписки на закрытие свечей: {} рядов", fresh.size());
+    }
+
+    @EventListener
+    public void onBarClosed(BarClosedEvent event) {
+        dispatch(key(event.symbol(), event.interval()), event);
+    }
+
+    /**
+     * Подстраховка потока: раздаёт последнюю закрытую свечу рядов, по которым поток
+     * не идёт. Ряд, у которого поток только что восстановился, ждёт ещё poll-grace-ms.
+     */
+    @Scheduled(initialDelayString = "${trading.bar-dispatch.poll-ms:15000}",
+               fixedRateString = "${trading.bar-dispatch.poll-ms:15000}")
+    public void pollMissed() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Subscription> e : subscriptions.entrySet()) {
+            Subscription sub = e.getValue();
+            if (klineStream.isLive(sub.symbol(), sub.timeframe())) {
+                continue;   // закрытие придёт из потока
+            }
+            long tf = sub.timeframe().toMillis();
+            long lastClosedOpen = Math.floorDiv(now, tf) * tf - tf;
+            long grace = klineStream.isEnabled() ? pollGraceMs : 0;
+            if (now - (lastClosedOpen + tf) < grace) {
+                continue;   // событие из потока ещё может прийти
+            }
+            dispatch(e.getKey(),
+                    new BarClosedEvent(sub.symbol(), sub.interval(), sub.timeframe(), lastClosedOpen, null));
+        }
+    }
+
+    // ===== Внутреннее =====
+
+    private void dispatch(String key, BarClosedEvent bar) {
+        Subscription sub = subscriptions.get(key);
+        if (sub == null) {
+            return;
+        }
+        boolean[] fresh = {false};
+        lastDispatched.compute(key, (k, prev) -> {
+            if (prev != null && prev >= bar.openTime()) {
+                return prev;
+            }
+            fresh[0] = true;
+            return bar.openTime();
+        });
+        if (!fresh[0]) {
+            return;
+        }
+
+        log.debug("🕯️ Закрыта свеча {} {} @{} → {} подписчиков",
+                bar.symbol(), bar.interval(), bar.openTime(), sub.subscribers().size());
+        // сигнал по свече имеет смысл только до закрытия следующей
+        long deadline = bar.openTime() + 2 * bar.timeframe().toMillis();
+        for (Subscriber s : sub.subscribers()) {
+            pending.compute(new BatchKey(s.chatId(), bar.interval(), bar.openTime()), (k, batch) -> {
+                if (batch == null) {
+                    batch = new Batch(deadline, new ArrayList<>());
+                    flusher.schedule(() -> flush(k), batchWindowMs, TimeUnit.MILLISECONDS);
+                }
+                batch.pairs().add(s.pair());
+                return batch;
+            });
+        }
+    }
+
+    /**
+     * Отдаёт накопленные пары пользователя обработчикам одной задачей.
+     * Закрытие, пришедшее после отправки пачки, начнёт новую.
+     */
+    private void flush(BatchKey k) {
+        Batch batch = pending.remove(k);
+        if (batch == null) {
+            return;
+        }
+        List<ProfitablePair> pairs = List.copyOf(batch.pairs());
+        String label = k.interval() + " ×" + pairs.size();
+        for (BarCloseListener listener : listeners) {
+            chatTasks.submit(k.chatId(), label, batch.deadline(),
+                    () -> listener.onBarClosed(k.chatId(), pairs, k.openTime()));
+        }
+    }
+
+    private static String key(String symbol, String interval) {
+        return symbol.toUpperCase() + ":" + interval;
+    }
+
+    private Duration parseDuration(String timeframe) {
+        if (timeframe == null || timeframe.isEmpty()) {
+            return Duration.ofMinutes(1);
+        }
+        try {
+            timeframe = timeframe.trim().toLowerCase();
+            if (timeframe.endsWith("m")) return Duration.ofMinutes(Integer.parseInt(timeframe.replace("m", "")));
+            if (timeframe.endsWith("h")) return Duration.ofHours(Integer.parseInt(timeframe.replace("h", "")));
+            if (timeframe.endsWith("d")) return Duration.ofDays(Integer.parseInt(timeframe.replace("d", "")));
+        } catch (Exception e) {
+            log.warn("⚠️ Неверный timeframe='{}', используем 1m", timeframe);
+        }
+        return Duration.ofMinutes(1);
+    }
+
+    private record Subscription(String symbol, String interval, Duration timeframe, List<Subscriber> subscribers) {
+    }
+
+    private record Subscriber(Long chatId, ProfitablePair pair) {
+    }
+
+    private record BatchKey(Long chatId, String interval, long openTime) {
+    }
+
+    private record Batch(long deadline, List<ProfitablePair> pairs) {
+    }
+}
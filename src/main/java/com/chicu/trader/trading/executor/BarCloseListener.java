@@ -0,0 +1,15 @@
+package com.chicu.trader.trading.executor;
+
+import com.chicu.trader.trading.entity.ProfitablePair;
+
+import java.util.List;
+
+/**
+ * Обработчик закрытия свечи для пар одного пользователя.
+ * Вызывается {@link BarCloseDispatcher} только для подписчиков закрывшихся рядов:
+ * все пары пользователя, чьи свечи закрылись с одним openTime, приходят одним вызовом.
+ */
+public interface BarCloseListener {
+
+    void onBarClosed(Long chatId, List<ProfitablePair> pairs, long barOpenTime);
+}
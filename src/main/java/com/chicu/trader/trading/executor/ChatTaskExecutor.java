@@ -0,0 +1,196 @@
+package com.chicu.trader.trading.executor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Выполнение торговых задач пользователей на общем ограниченном пуле.
+ * <p>
+ * Задачи одного chatId выполняются строго по очереди (ордера пользователя не
+ * переупорядочиваются), разных пользователей — параллельно, так что медленный
+ * вызов Binance одного пользователя не задерживает остальных. В пул попадает
+ * не больше одной задачи-«разборщика» на пользователя. У каждой задачи есть
+ * крайний срок: не начатая к нему задача отбрасывается (сигнал устарел).
+ * Опустевшая очередь пользователя удаляется, так что {@link #retryPending}
+ * обходит только пользователей с ожидающими задачами.
+ */
+@Slf4j
+@Component
+public class ChatTaskExecutor {
+
+    private final Executor pool;
+    private final Map<Long, ChatQueue> queues = new ConcurrentHashMap<>();
+
+    // ===== Метрики =====
+    private final AtomicInteger queued    = new AtomicInteger();
+    private final AtomicInteger active    = new AtomicInteger();
+    private final LongAdder     completed = new LongAdder();
+    private final LongAdder     failed    = new LongAdder();
+    private final LongAdder     expired   = new LongAdder();
+    private final LongAdder     rejected  = new LongAdder();
+    private final LongAdder     busyNanos = new LongAdder();
+    private final LongAdder     waitNanos = new LongAdder();
+    private final AtomicLong    maxBusyNanos = new AtomicLong();
+
+    public ChatTaskExecutor(@Qualifier("barCloseExecutor") Executor pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Поставить задачу пользователя в его очередь.
+     *
+     * @param deadlineMillis время (epoch ms), после которого задачу уже не запускать
+     */
+    public void submit(Long chatId, String label, long deadlineMillis, Runnable task) {
+        submit(chatId, label, deadlineMillis, task, null);
+    }
+
+    /**
+     * То же, с действием на случай, если задача так и не будет запущена
+     * (просрочена в очереди): например, снять отметку «выход уже поставлен».
+     *
+     * @param onExpired вызывается вместо задачи после её крайнего срока; может быть null
+     */
+    public void submit(Long chatId, String label, long deadlineMillis, Runnable task, Runnable onExpired) {
+        Task t = new Task(label, deadlineMillis, System.nanoTime(), task, onExpired);
+        // добавление — под замком записи карты, чтобы не попасть в удаляемую очередь
+        ChatQueue q = queues.compute(chatId, (k, cur) -> {
+            ChatQueue target = cur != null ? cur : new ChatQueue(k);
+            target.tasks.add(t);
+            return target;
+        });
+        queued.incrementAndGet();
+        schedule(q);
+    }
+
+    public Stats getStats() {
+        long done = completed.sum() + failed.sum();
+        return new Stats(
+                queued.get(),
+                active.get(),
+                completed.sum(),
+                failed.sum(),
+                expired.sum(),
+                rejected.sum(),
+                done == 0 ? 0 : busyNanos.sum() / done / 1_000_000.0,
+                done == 0 ? 0 : waitNanos.sum() / done / 1_000_000.0,
+                maxBusyNanos.get() / 1_000_000.0);
+    }
+
+    @Scheduled(fixedDelayString = "${trading.tasks.stats-log-ms:60000}")
+    public void logStats() {
+        Stats s = getStats();
+        if (s.queued() > 0 || s.active() > 0 || s.completed() > 0) {
+            log.info("⏱️ Торговые задачи: в очереди={}, выполняются={}, готово={}, ошибок={}, просрочено={}, "
+                            + "отклонено={}, среднее={}мс, ожидание={}мс, макс={}мс",
+                    s.queued(), s.active(), s.completed(), s.failed(), s.expired(), s.rejected(),
+                    String.format("%.1f", s.avgProcessingMs()), String.format("%.1f", s.avgWaitMs()),
+                    String.format("%.1f", s.maxProcessingMs()));
+        }
+    }
+
+    /**
+     * Повторно ставит в пул очереди, которым не хватило места в пуле.
+     */
+    @Scheduled(fixedDelay = 1_000)
+    public void retryPending() {
+        queues.values().forEach(this::schedule);
+    }
+
+    // ===== Внутреннее =====
+
+    private void schedule(ChatQueue q) {
+        if (q.tasks.isEmpty() || !q.running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            pool.execute(() -> drain(q));
+        } catch (RejectedExecutionException e) {
+            // пул переполнен: задачи пользователя остаются в очереди до retryPending/следующего submit
+            q.running.set(false);
+            rejected.increment();
+            log.debug("Пул торговых задач переполнен, chatId={} ждёт ({} в очереди)", q.chatId, q.tasks.size());
+        }
+    }
+
+    private void drain(ChatQueue q) {
+        try {
+            Task t;
+            while ((t = q.tasks.poll()) != null) {
+                queued.decrementAndGet();
+                run(q.chatId, t);
+            }
+        } finally {
+            q.running.set(false);
+        }
+        // пустую очередь убираем; submit добавляет задачи под тем же замком, поэтому
+        // пришедшая после poll() == null задача оставит очередь на месте
+        queues.computeIfPresent(q.chatId, (k, cur) ->
+                cur == q && cur.tasks.isEmpty() && !cur.running.get() ? null : cur);
+        // задача могла прийти между poll() == null и сбросом флага
+        schedule(q);
+    }
+
+    private void run(Long chatId, Task t) {
+        long start = System.nanoTime();
+        waitNanos.add(start - t.enqueuedNanos);
+        if (System.currentTimeMillis() > t.deadlineMillis) {
+            expired.increment();
+            log.warn("⌛ Просрочена задача {} для chatId={} — пропускаем", t.label, chatId);
+            if (t.onExpired != null) {
+                try {
+                    t.onExpired.run();
+                } catch (Exception e) {
+                    log.error("❌ Ошибка обработки просрочки {} для chatId={}: {}", t.label, chatId, e.getMessage(), e);
+                }
+            }
+            return;
+        }
+        active.incrementAndGet();
+        try {
+            t.task.run();
+            completed.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.error("❌ Ошибка задачи {} для chatId={}: {}", t.label, chatId, e.getMessage(), e);
+        } finally {
+            active.decrementAndGet();
+            long busy = System.nanoTime() - start;
+            busyNanos.add(busy);
+            maxBusyNanos.accumulateAndGet(busy, Math::max);
+        }
+    }
+
+    private static final class ChatQueue {
+        final Long          chatId;
+        final Queue<Task>   tasks   = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean running = new AtomicBoolean();
+
+        ChatQueue(Long chatId) {
+            this.chatId = chatId;
+        }
+    }
+
+    private record Task(String label, long deadlineMillis, long enqueuedNanos, Runnable task, Runnable onExpired) {
+    }
+
+    /**
+     * Снимок метрик: глубина очереди, число выполняемых, счётчики и времена (мс).
+     */
+    public record Stats(int queued, int active, long completed, long failed, long expired, long rejected,
+                        double avgProcessingMs, double avgWaitMs, double maxProcessingMs) {
+    }
+}
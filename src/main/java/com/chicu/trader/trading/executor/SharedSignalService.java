@@ -0,0 +1,113 @@
+package com.chicu.trader.trading.executor;
+
+import com.chicu.trader.strategy.SignalType;
+import com.chicu.trader.strategy.StrategySettings;
+import com.chicu.trader.strategy.TradeStrategy;
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
+import com.chicu.trader.trading.service.CandleService;
+import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сигналы стратегий, общие для пользователей с одинаковой конфигурацией.
+ * <p>
+ * Группа — (symbol, timeframe, глубина истории, стратегия, {@link TradeStrategy#signalKey}).
+ * На каждую свечу группы свечи загружаются и стратегия оценивается один раз;
+ * остальные участники группы получают готовый результат (ждут, если расчёт ещё идёт).
+ * Стратегии без ключа считаются для каждого пользователя отдельно.
+ */
+@Slf4j
+@Service
+public class SharedSignalService {
+
+    private final CandleService candleService;
+
+    /** Ключ группы и свечи → расчёт сигнала; живёт недолго, т.к. на следующей свече ключ другой */
+    private final Cache<String, CompletableFuture<Signal>> signals = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder shared   = new LongAdder();
+
+    public SharedSignalService(CandleService candleService) {
+        this.candleService = candleService;
+    }
+
+    /**
+     * Сигнал стратегии по последним historyLimit свечам ряда.
+     *
+     * @param barOpenTime openTime свечи, по закрытию которой считается сигнал;
+     *                    null — неизвестно (например, ручной запуск), тогда без разделения
+     * @return сигнал, либо null — если свечей нет
+     */
+    public Signal evaluate(String symbol, Duration timeframe, int historyLimit,
+                           TradeStrategy strategy, StrategySettings settings, Long barOpenTime) {
+        String signalKey = strategy.signalKey(settings);
+        if (signalKey == null || barOpenTime == null) {
+            computed.increment();
+            return compute(symbol, timeframe, historyLimit, strategy, settings);
+        }
+
+        String key = symbol + "|" + HttpBinanceCandleService.toBinanceInterval(timeframe) + "|" + historyLimit
+                + "|" + strategy.getType() + "|" + signalKey + "|" + barOpenTime;
+        CompletableFuture<Signal> mine = new CompletableFuture<>();
+        CompletableFuture<Signal> existing = signals.asMap().putIfAbsent(key, mine);
+        if (existing != null) {
+            shared.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        computed.increment();
+        try {
+            Signal signal = compute(symbol, timeframe, historyLimit, strategy, settings);
+            mine.complete(signal);
+            return signal;
+        } catch (RuntimeException e) {
+            // ошибку получат ждущие; следующий запрос посчитает заново
+            signals.asMap().remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Сколько сигналов посчитано и сколько раз результат был взят готовым */
+    public long getComputedCount() {
+        return computed.sum();
+    }
+
+    public long getSharedCount() {
+        return shared.sum();
+    }
+
+    private Signal compute(String symbol, Duration timeframe, int historyLimit,
+                           TradeStrategy strategy, StrategySettings settings) {
+        List<Candle> candles = candleService.loadHistory(symbol, timeframe, historyLimit);
+        if (candles == null || candles.isEmpty()) {
+            return null;
+        }
+        CandleSeries series = CandleSeries.of(candles);
+        return new Signal(strategy.evaluate(series, settings), series.lastClose());
+    }
+
+    /**
+     * Сигнал и цена закрытия последней свечи, по которой он посчитан.
+     */
+    public record Signal(SignalType type, double lastPrice) {
+    }
+}
@@ -7,7 +7,6 @@ import com.chicu.trader.trading.entity.ProfitablePair;
 import com.chicu.trader.trading.service.ProfitablePairService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -21,8 +20,8 @@ public class TradingExecutor {
     private final ProfitablePairService profitablePairService;
     private final TradeOrchestrator tradeOrchestrator;
 
-    // Основной плановый запуск каждые 60 сек
-    @Scheduled(fixedRate = 60_000)
+    // Полный проход по всем пользователям (по запросу; плановый запуск — по закрытию свечей,
+    // см. TradingOrchestrator)
     public void execute() {
         List<AiTradingSettings> activeUsers = settingsService.findAllRunning();
 
@@ -1,12 +1,8 @@
 package com.chicu.trader.trading.executor;
 
-import com.chicu.trader.bot.entity.AiTradingSettings;
-import com.chicu.trader.bot.service.AiTradingSettingsService;
 import com.chicu.trader.trading.entity.ProfitablePair;
-import com.chicu.trader.trading.service.ProfitablePairService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -14,28 +10,17 @@ import java.util.List;
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class TradingOrchestrator {
+public class TradingOrchestrator implements BarCloseListener {
 
-    private final AiTradingSettingsService settingsService;
-    private final ProfitablePairService pairService;
     private final TradingStrategyProcessor strategyProcessor;
 
     /**
-     * Основной планировщик, который проверяет всех пользователей и запускает стратегии.
-     * Запускается каждые 15 секунд.
+     * Оценка стратегии по парам пользователя сразу после закрытия свечи их рядов;
+     * пары с сигналом BUY — одной пачкой в конвейер ордеров. Единственный обработчик закрытия
+     * свечи: вызывается {@link BarCloseDispatcher} только для подписчиков ряда.
      */
-    @Scheduled(fixedRate = 15_000)
-    public void execute() {
-        log.info("🚀 Запуск TradingOrchestrator 2.0");
-
-        List<AiTradingSettings> allSettings = settingsService.getAllActiveTrading();
-        for (AiTradingSettings settings : allSettings) {
-            Long chatId = settings.getChatId();
-            List<ProfitablePair> pairs = pairService.getActivePairs(chatId);
-
-            for (ProfitablePair pair : pairs) {
-                strategyProcessor.processSymbol(chatId, pair);
-            }
-        }
+    @Override
+    public void onBarClosed(Long chatId, List<ProfitablePair> pairs, long barOpenTime) {
+        strategyProcessor.processPairs(chatId, pairs, barOpenTime);
     }
 }
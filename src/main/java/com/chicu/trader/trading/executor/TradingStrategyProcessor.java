@@ -7,20 +7,13 @@ import com.chicu.trader.strategy.StrategyRegistry;
 import com.chicu.trader.strategy.StrategySettings;
 import com.chicu.trader.strategy.TradeStrategy;
 import com.chicu.trader.trading.entity.ProfitablePair;
-import com.chicu.trader.trading.entity.TradeLog;
-import com.chicu.trader.trading.model.Candle;
-import com.chicu.trader.trading.repository.TradeLogRepository;
-import com.chicu.trader.trading.risk.RiskManager;
-import com.chicu.trader.trading.service.CandleService;
-import com.chicu.trader.trading.service.PriceService;
-import com.chicu.trader.trading.service.binance.OrderService;
+import com.chicu.trader.trading.order.OrderPipeline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -30,75 +23,50 @@ public class TradingStrategyProcessor {
 
     private final StrategyRegistry strategyRegistry;
     private final AiTradingSettingsService settingsService;
-    private final CandleService candleService;
-    private final RiskManager riskManager;
-    private final OrderService orderService;
-    private final PriceService priceService;
-    private final TradeLogRepository tradeLogRepository;
+    private final SharedSignalService signalService;
+    private final OrderPipeline orderPipeline;
 
     public void processSymbol(Long chatId, ProfitablePair pair) {
+        processPairs(chatId, List.of(pair), null);
+    }
+
+    /**
+     * Обработка пар пользователя по закрытию свечи: сигнал общий для пользователей
+     * с той же конфигурацией ({@link SharedSignalService}), размер позиции и ордера — свои.
+     * Все пары с сигналом BUY уходят в конвейер ордеров одной пачкой: баланс, цены и
+     * exchangeInfo запрашиваются один раз, баланс резервируется между парами.
+     *
+     * @param barOpenTime openTime закрывшейся свечи; null — без разделения сигнала
+     */
+    public void processPairs(Long chatId, List<ProfitablePair> pairs, Long barOpenTime) {
         AiTradingSettings settings = settingsService.getSettingsOrThrow(chatId);
         var strategyType = settings.getStrategy();
         var strategy = strategyRegistry.getStrategy(strategyType);
         var strategySettings = strategyRegistry.getSettings(strategyType, chatId);
         Duration interval = parseDuration(settings.getTimeframe());
 
-        List<Candle> candles = candleService.loadHistory(
-                pair.getSymbol(), interval, settings.getCachedCandlesLimit()
-        );
-        if (candles == null || candles.isEmpty()) {
-            log.warn("❌ Нет свечей для symbol={}", pair.getSymbol());
-            return;
-        }
-
-        double lastPrice = candles.get(candles.size() - 1).getClose();
-        SignalType signal = strategy.evaluate(candles, strategySettings);
-        log.info("📊 Сигнал {} для symbol={} → {}", chatId, pair.getSymbol(), signal);
-
-        if (signal == SignalType.BUY) {
-            double qty = riskManager.calculatePositionSize(
-                    chatId, pair.getSymbol(), lastPrice, settings
+        List<ProfitablePair> buys = new ArrayList<>();
+        for (ProfitablePair pair : pairs) {
+            SharedSignalService.Signal shared = signalService.evaluate(
+                    pair.getSymbol(), interval, settings.getCachedCandlesLimit(),
+                    strategy, strategySettings, barOpenTime
             );
+            if (shared == null) {
+                log.warn("❌ Нет свечей для symbol={}", pair.getSymbol());
+                continue;
+            }
 
-            if (qty <= 0) {
-                log.warn("❌ qty=0 для symbol={} — пропускаем", pair.getSymbol());
-                return;
+            SignalType signal = shared.type();
+            log.info("📊 Сигнал {} для symbol={} → {}", chatId, pair.getSymbol(), signal);
+            if (signal == SignalType.BUY) {
+                buys.add(pair);
             }
+        }
 
+        if (!buys.isEmpty()) {
+            // размер позиций, входы, сохранение сделок и OCO — общим конвейером ордеров
             try {
-                BigDecimal entryPrice = priceService.getPrice(chatId, pair.getSymbol());
-                BigDecimal quantity = BigDecimal.valueOf(qty);
-
-                String orderId = orderService.placeMarketBuy(chatId, pair.getSymbol(), quantity);
-
-                // === Расчёт TP/SL ===
-                BigDecimal tp = entryPrice.multiply(BigDecimal.valueOf(1 + pair.getTakeProfitPct() / 100.0));
-                BigDecimal sl = entryPrice.multiply(BigDecimal.valueOf(1 - pair.getStopLossPct() / 100.0));
-
-                // === OCO ===
-                try {
-                    orderService.placeOcoSell(chatId, pair.getSymbol(), quantity, sl, tp);
-                } catch (Exception ex) {
-                    log.warn("⚠️ Ошибка установки OCO: {}", ex.getMessage());
-                }
-
-                // === Сохраняем в TradeLog ===
-                TradeLog logEntry = TradeLog.builder()
-                        .userChatId(chatId)
-                        .symbol(pair.getSymbol())
-                        .entryTime(Instant.now())
-                        .entryPrice(entryPrice)
-                        .quantity(quantity)
-                        .entryClientOrderId(orderId)
-                        .takeProfitPrice(tp)
-                        .stopLossPrice(sl)
-                        .closed(false)
-                        .build();
-                tradeLogRepository.save(logEntry);
-
-                log.info("🟢 Открыта сделка {} qty={} TP={} SL={}",
-                        pair.getSymbol(), quantity, tp, sl);
-
+                orderPipeline.execute(chatId, settings, buys);
             } catch (Exception e) {
                 log.error("❌ Ошибка покупки: {}", e.getMessage(), e);
             }
@@ -0,0 +1,311 @@
+package com.chicu.trader.trading.exit;
+
+import com.chicu.trader.bot.service.UserSettingsService;
+import com.chicu.trader.trading.entity.TradeLog;
+import com.chicu.trader.trading.executor.ChatTaskExecutor;
+import com.chicu.trader.trading.marketdata.PriceTickerCache;
+import com.chicu.trader.trading.service.PriceService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Индекс открытых позиций в памяти для выхода по TP/SL на каждом тике цены.
+ * <p>
+ * Позиции сгруппированы по (сеть, символ); внутри — уровни TP и SL в отсортированных
+ * картах. Тик, не пересёкший ни одного уровня, отсекается сравнением с минимальным
+ * TP и максимальным SL без блокировок; иначе из карт забираются ровно те позиции,
+ * чьи уровни пересечены, и выход ставится в очередь пользователя
+ * ({@link ChatTaskExecutor}). БД трогается только при закрытии сделки.
+ * <p>
+ * Индекс узнаёт о сделках из {@link TradeLogIndexListener} (сохранение TradeLog)
+ * и сверяется с БД в {@link #reconcile}: так возвращаются и позиции, выход по
+ * которым не удался или просрочился в очереди. Символы без свежей потоковой цены
+ * при сверке проверяются по REST-цене ({@link PriceService}).
+ */
+@Slf4j
+@Component
+public class OpenPositionIndex implements PriceTickerCache.TickListener {
+
+    private final UserSettingsService userSettingsService;
+    private final PriceTickerCache    tickerCache;
+    private final PriceService        priceService;
+    private final ChatTaskExecutor    chatTasks;
+    private final TradingExitManager  exitManager;
+    private final long                exitDeadlineMs;
+
+    /** "T:SYMBOL" / "M:SYMBOL" → позиции символа в сети */
+    private final Map<String, Book> books = new ConcurrentHashMap<>();
+    /** tradeId → ключ книги, в которой лежит позиция */
+    private final Map<Long, String> locations = new ConcurrentHashMap<>();
+    /** Сделки, выход по которым уже поставлен в очередь */
+    private final Set<Long> exiting = ConcurrentHashMap.newKeySet();
+
+    /** Изменения из entity-listener'а применяются вне транзакции JPA */
+    private final ExecutorService updates = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "position-index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public OpenPositionIndex(UserSettingsService userSettingsService,
+                             PriceTickerCache tickerCache,
+                             PriceService priceService,
+                             ChatTaskExecutor chatTasks,
+                             TradingExitManager exitManager,
+                             @Value("${trading.exit.deadline-ms:60000}") long exitDeadlineMs) {
+        this.userSettingsService = userSettingsService;
+        this.tickerCache         = tickerCache;
+        this.priceService        = priceService;
+        this.chatTasks           = chatTasks;
+        this.exitManager         = exitManager;
+        this.exitDeadlineMs      = exitDeadlineMs;
+        tickerCache.addListener(this);
+    }
+
+    /**
+     * Сделка сохранена: открытая с TP/SL — в индекс, закрытая — из индекса.
+     */
+    public void onSaved(TradeLog trade) {
+        if (trade.getId() == null) {
+            return;
+        }
+        Position p = toPosition(trade);
+        long id = trade.getId();
+        updates.execute(() -> {
+            if (p == null) {
+                remove(id);
+            } else {
+                add(p);
+            }
+        });
+    }
+
+    public void onRemoved(Long tradeId) {
+        if (tradeId != null) {
+            updates.execute(() -> remove(tradeId));
+        }
+    }
+
+    /**
+     * Сверка с БД: добавить недостающие открытые сделки (в т.ч. после неудачного выхода),
+     * убрать закрытые, и проверить уровни по последним известным ценам.
+     */
+    public void reconcile(List<TradeLog> openTrades) {
+        List<Position> positions = new ArrayList<>(openTrades.size());
+        for (TradeLog trade : openTrades) {
+            Position p = toPosition(trade);
+            if (p != null) {
+                positions.add(p);
+            }
+        }
+        updates.execute(() -> doReconcile(positions));
+    }
+
+    /** Число позиций в индексе */
+    public int size() {
+        return locations.size();
+    }
+
+    @Override
+    public void onPrice(boolean isTestnet, String symbol, double last) {
+        Book book = books.get(key(isTestnet, symbol));
+        if (book == null || !book.mayCross(last)) {
+            return;
+        }
+        for (Position p : book.takeCrossed(last)) {
+            locations.remove(p.tradeId());
+            if (!exiting.add(p.tradeId())) {
+                continue;
+            }
+            String reason = last >= p.tp() ? "TP" : "SL";
+            log.info("🎯 {} {} пересечён: price={} TP={} SL={} (trade={})",
+                    p.symbol(), reason, last, p.tp(), p.sl(), p.tradeId());
+            // просроченный выход снимает отметку, и сверка вернёт позицию в индекс
+            chatTasks.submit(p.chatId(), "exit " + p.symbol(), System.currentTimeMillis() + exitDeadlineMs, () -> {
+                try {
+                    exitManager.exitOnTrigger(p.tradeId(), last, reason);
+                } finally {
+                    exiting.remove(p.tradeId());
+                }
+            }, () -> exiting.remove(p.tradeId()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        updates.shutdownNow();
+    }
+
+    // ===== Внутреннее =====
+
+    private void doReconcile(List<Position> positions) {
+        Set<Long> open = new HashSet<>();
+        for (Position p : positions) {
+            open.add(p.tradeId());
+            if (!locations.containsKey(p.tradeId()) && !exiting.contains(p.tradeId())) {
+                add(p);
+            }
+        }
+        for (Long id : List.copyOf(locations.keySet())) {
+            if (!open.contains(id)) {
+                remove(id);
+            }
+        }
+        // цены, пришедшие до появления позиции в индексе; без свежего тика (поток
+        // отключён или символ не подписан) — цена по REST
+        books.forEach((key, book) -> {
+            boolean testnet = key.startsWith("T:");
+            PriceTickerCache.Quote q = tickerCache.getFresh(testnet, book.symbol);
+            if (q != null) {
+                onPrice(testnet, book.symbol, q.last());
+                return;
+            }
+            Long chatId = book.anyChatId();
+            if (chatId == null) {
+                return;
+            }
+            BigDecimal price = priceService.getPrice(chatId, book.symbol);
+            if (price != null) {
+                onPrice(testnet, book.symbol, price.doubleValue());
+            }
+        });
+    }
+
+    private Position toPosition(TradeLog trade) {
+        if (trade.getId() == null || Boolean.TRUE.equals(trade.getClosed())
+                || trade.getTakeProfitPrice() == null || trade.getStopLossPrice() == null) {
+            return null;
+        }
+        return new Position(trade.getId(), trade.getUserChatId(), trade.getSymbol().toUpperCase(),
+                trade.getTakeProfitPrice().doubleValue(), trade.getStopLossPrice().doubleValue());
+    }
+
+    private void add(Position p) {
+        boolean testnet;
+        try {
+            testnet = userSettingsService.isTestnet(p.chatId());
+        } catch (Exception e) {
+            log.warn("⚠️ Нет настроек chatId={} — позиция {} не индексирована", p.chatId(), p.tradeId());
+            return;
+        }
+        remove(p.tradeId());
+        String key = key(testnet, p.symbol());
+        books.computeIfAbsent(key, k -> new Book(p.symbol())).add(p);
+        locations.put(p.tradeId(), key);
+        tickerCache.watch(testnet);
+    }
+
+    private void remove(long tradeId) {
+        String key = locations.remove(tradeId);
+        if (key != null) {
+            Book book = books.get(key);
+            if (book != null) {
+                book.remove(tradeId);
+            }
+        }
+    }
+
+    private static String key(boolean testnet, String symbol) {
+        return (testnet ? "T:" : "M:") + symbol;
+    }
+
+    record Position(long tradeId, Long chatId, String symbol, double tp, double sl) {
+    }
+
+    /**
+     * Позиции одного символа: TP по возрастанию (срабатывают при price ≥ tp),
+     * SL по возрастанию (срабатывают при price ≤ sl).
+     */
+    static final class Book {
+        final String symbol;
+        private final Map<Long, Position> positions = new HashMap<>();
+        private final NavigableMap<Double, Map<Long, Position>> byTp = new TreeMap<>();
+        private final NavigableMap<Double, Map<Long, Position>> bySl = new TreeMap<>();
+        /** Для проверки тика без блокировки */
+        private volatile double minTp = Double.POSITIVE_INFINITY;
+        private volatile double maxSl = Double.NEGATIVE_INFINITY;
+
+        Book(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean mayCross(double price) {
+            return price >= minTp || price <= maxSl;
+        }
+
+        /** chatId любой позиции книги (сеть у них общая) — для запроса цены; null, если пусто */
+        synchronized Long anyChatId() {
+            return positions.isEmpty() ? null : positions.values().iterator().next().chatId();
+        }
+
+        synchronized void add(Position p) {
+            positions.put(p.tradeId(), p);
+            byTp.computeIfAbsent(p.tp(), k -> new HashMap<>()).put(p.tradeId(), p);
+            bySl.computeIfAbsent(p.sl(), k -> new HashMap<>()).put(p.tradeId(), p);
+            refreshBounds();
+        }
+
+        synchronized void remove(long tradeId) {
+            Position p = positions.remove(tradeId);
+            if (p != null) {
+                detach(p);
+                refreshBounds();
+            }
+        }
+
+        synchronized List<Position> takeCrossed(double price) {
+            List<Position> crossed = new ArrayList<>();
+            for (Map<Long, Position> level : byTp.headMap(price, true).values()) {
+                crossed.addAll(level.values());
+            }
+            for (Map<Long, Position> level : bySl.tailMap(price, true).values()) {
+                for (Position p : level.values()) {
+                    if (p.tp() > price) { // уже взятые по TP не дублируем
+                        crossed.add(p);
+                    }
+                }
+            }
+            for (Position p : crossed) {
+                positions.remove(p.tradeId());
+                detach(p);
+            }
+            refreshBounds();
+            return crossed;
+        }
+
+        private void detach(Position p) {
+            removeFrom(byTp, p.tp(), p.tradeId());
+            removeFrom(bySl, p.sl(), p.tradeId());
+        }
+
+        private static void removeFrom(NavigableMap<Double, Map<Long, Position>> levels, double level, long tradeId) {
+            Map<Long, Position> atLevel = levels.get(level);
+            if (atLevel != null) {
+                atLevel.remove(tradeId);
+                if (atLevel.isEmpty()) {
+                    levels.remove(level);
+                }
+            }
+        }
+
+        private void refreshBounds() {
+            minTp = byTp.isEmpty() ? Double.POSITIVE_INFINITY : byTp.firstKey();
+            maxSl = bySl.isEmpty() ? Double.NEGATIVE_INFINITY : bySl.lastKey();
+        }
+    }
+}
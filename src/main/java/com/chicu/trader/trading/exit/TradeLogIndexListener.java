@@ -0,0 +1,40 @@
+package com.chicu.trader.trading.exit;
+
+import com.chicu.trader.trading.entity.TradeLog;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA-слушатель {@link TradeLog}: сообщает {@link OpenPositionIndex} о каждом
+ * сохранении сделки, где бы оно ни происходило. Индекс берётся лениво —
+ * слушатель создаётся вместе с EntityManagerFactory, раньше сервисов.
+ */
+@Component
+public class TradeLogIndexListener {
+
+    private final ObjectProvider<OpenPositionIndex> index;
+
+    public TradeLogIndexListener(ObjectProvider<OpenPositionIndex> index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(TradeLog trade) {
+        OpenPositionIndex i = index.getIfAvailable();
+        if (i != null) {
+            i.onSaved(trade);
+        }
+    }
+
+    @PostRemove
+    public void onRemoved(TradeLog trade) {
+        OpenPositionIndex i = index.getIfAvailable();
+        if (i != null) {
+            i.onRemoved(trade.getId());
+        }
+    }
+}
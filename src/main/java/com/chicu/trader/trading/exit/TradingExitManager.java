@@ -6,14 +6,17 @@ import com.chicu.trader.trading.service.PriceService;
 import com.chicu.trader.trading.service.binance.OrderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
-import java.util.List;
 
+/**
+ * Закрытие сделок MARKET SELL'ом, если OCO не сработал (или его нет).
+ * Момент выхода определяет {@link OpenPositionIndex} по тикам цены;
+ * OCO сделки перед продажей отменяется.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -26,61 +29,25 @@ public class TradingExitManager {
     // Проценты TP/SL из лога (брать не из here) игнорируем, т.к. ордеры OCO уже выставлены
 
     /**
-     * Проверяем открытые сделки каждые 30 секунд и закрываем MARKET SELL’ом,
-     * если OCO не сработал.
+     * Выход по пересечению TP/SL, обнаруженному индексом позиций.
+     * Сделка перечитывается из БД: если её уже закрыли (OCO, ручной выход) — ничего не делаем.
+     *
+     * @param price  цена тика, пересёкшего уровень
+     * @param reason "TP" или "SL" — для логов
      */
-    @Scheduled(fixedDelay = 30_000)
-    public void monitorOpenTrades() {
-        List<TradeLog> openTrades = tradeLogRepository.findAllByClosedFalse();
-
-        for (TradeLog trade : openTrades) {
-            try {
-                String symbol = trade.getSymbol();
-                Long   chatId = trade.getUserChatId();
-
-                BigDecimal entryPrice = trade.getEntryPrice();
-                BigDecimal quantity   = trade.getQuantity();
-
-                // Текущая рыночная цена
-                BigDecimal currentPrice = priceService.getPrice(chatId, symbol);
-                if (currentPrice == null) {
-                    log.warn("Не удалось получить текущую цену для {}", symbol);
-                    continue;
-                }
-
-                // Проверяем, не прошла ли цена TP/SL
-                BigDecimal tp = trade.getTakeProfitPrice().setScale(8, RoundingMode.HALF_UP);
-                BigDecimal sl = trade.getStopLossPrice().setScale(8, RoundingMode.HALF_UP);
-
-                boolean hitTp = currentPrice.compareTo(tp) >= 0;
-                boolean hitSl = currentPrice.compareTo(sl) <= 0;
-
-                if (hitTp || hitSl) {
-                    log.info("Закрываем {}: current={} TP={} SL={}", symbol, currentPrice, tp, sl);
-
-                    // MARKET SELL
-                    String exitClientOrderId = orderService.placeMarketSell(chatId, symbol, quantity);
-
-                    // Рассчитываем PnL
-                    BigDecimal pnl = currentPrice
-                            .subtract(entryPrice)
-                            .multiply(quantity)
-                            .setScale(8, RoundingMode.HALF_UP);
-
-                    // Обновляем лог
-                    trade.setClosed(true);
-                    trade.setExitTime(Instant.now());
-                    trade.setExitPrice(currentPrice);
-                    trade.setExitClientOrderId(exitClientOrderId);
-                    trade.setPnl(pnl);
-
-                    tradeLogRepository.save(trade);
-
-                    log.info("🔴 CLOSED {} exitId={} price={} pnl={}", symbol, exitClientOrderId, currentPrice, pnl);
-                }
-            } catch (Exception e) {
-                log.error("Ошибка при мониторинге сделки {}: {}", trade.getSymbol(), e.getMessage(), e);
-            }
+    public void exitOnTrigger(Long tradeId, double price, String reason) {
+        TradeLog trade = tradeLogRepository.findById(tradeId).orElse(null);
+        if (trade == null || Boolean.TRUE.equals(trade.getClosed())) {
+            return;
+        }
+        try {
+            BigDecimal currentPrice = BigDecimal.valueOf(price);
+            log.info("Закрываем {} по {}: current={} TP={} SL={}", trade.getSymbol(), reason, currentPrice,
+                    trade.getTakeProfitPrice(), trade.getStopLossPrice());
+            close(trade, currentPrice);
+        } catch (Exception e) {
+            // позиция вернётся в индекс при ближайшей сверке с БД
+            log.error("Ошибка при выходе из сделки {}: {}", trade.getSymbol(), e.getMessage(), e);
         }
     }
 
@@ -96,27 +63,48 @@ public class TradingExitManager {
                 log.warn("Не удалось получить цену для forceExit {}", symbol);
                 return;
             }
+            close(trade, currentPrice);
+        } catch (Exception e) {
+            log.error("Ошибка forceExit для {}: {}", trade.getSymbol(), e.getMessage(), e);
+        }
+    }
 
-            BigDecimal quantity = trade.getQuantity();
-            String exitClientOrderId = orderService.placeMarketSell(chatId, symbol, quantity);
+    private void close(TradeLog trade, BigDecimal currentPrice) {
+        Long chatId = trade.getUserChatId();
+        String symbol = trade.getSymbol();
+        BigDecimal quantity = trade.getQuantity();
 
-            BigDecimal pnl = currentPrice
-                    .subtract(trade.getEntryPrice())
-                    .multiply(quantity)
-                    .setScale(8, RoundingMode.HALF_UP);
+        // У сделки стоит OCO: сначала снимаем его, иначе продадим позицию дважды.
+        // Не отменился — значит, нога уже исполнена, и сделку закроет её executionReport.
+        String ocoLegs = trade.getExitClientOrderId();
+        if (ocoLegs != null && !ocoLegs.isBlank()) {
+            try {
+                orderService.cancelOrder(chatId, symbol, ocoLegs.split(",")[0]);
+            } catch (Exception e) {
+                log.info("OCO {} не отменён ({}) — ждём исполнения ноги (trade={})",
+                        symbol, e.getMessage(), trade.getId());
+                return;
+            }
+        }
 
-            trade.setClosed(true);
-            trade.setExitTime(Instant.now());
-            trade.setExitPrice(currentPrice);
-            trade.setExitClientOrderId(exitClientOrderId);
-            trade.setPnl(pnl);
+        // MARKET SELL
+        String exitClientOrderId = orderService.placeMarketSell(chatId, symbol, quantity);
 
-            tradeLogRepository.save(trade);
+        // Рассчитываем PnL
+        BigDecimal pnl = currentPrice
+                .subtract(trade.getEntryPrice())
+                .multiply(quantity)
+                .setScale(8, RoundingMode.HALF_UP);
 
-            log.info("✅ Force exit {} exitId={} price={} pnl={}",
-                    symbol, exitClientOrderId, currentPrice, pnl);
-        } catch (Exception e) {
-            log.error("Ошибка forceExit для {}: {}", trade.getSymbol(), e.getMessage(), e);
-        }
+        // Обновляем лог
+        trade.setClosed(true);
+        trade.setExitTime(Instant.now());
+        trade.setExitPrice(currentPrice);
+        trade.setExitClientOrderId(exitClientOrderId);
+        trade.setPnl(pnl);
+
+        tradeLogRepository.save(trade);
+
+        log.info("🔴 CLOSED {} exitId={} price={} pnl={}", symbol, exitClientOrderId, currentPrice, pnl);
     }
 }
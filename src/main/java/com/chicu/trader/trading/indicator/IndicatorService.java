@@ -1,7 +1,9 @@
 // src/main/java/com/chicu/trader/trading/indicator/IndicatorService.java
 package com.chicu.trader.trading.indicator;
 
+import com.chicu.trader.trading.indicator.stream.IndicatorBank;
 import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
 
 import java.util.List;
 
@@ -13,4 +15,19 @@ public interface IndicatorService {
     double vwma(List<Candle> history, int period);
     double atr(List<Candle> history, int period);
     double[][] buildFeatures(List<Candle> history);
+
+    // Перегрузки для колоночного ряда: та же семантика, без упаковки и копий окон
+    double rsi(CandleSeries history, int period);
+    double bbLower(CandleSeries history, int period, double k);
+    double bbUpper(CandleSeries history, int period, double k);
+    double sma(CandleSeries history, int period);
+    double vwma(CandleSeries history, int period);
+    double atr(CandleSeries history, int period);
+    double[][] buildFeatures(CandleSeries history);
+
+    /**
+     * Общий для всего приложения набор потоковых индикаторов ряда (symbol, timeframe),
+     * дополненный закрытыми свечами history.
+     */
+    IndicatorBank bank(CandleSeries history);
 }
@@ -1,6 +1,11 @@
 package com.chicu.trader.trading.indicator;
 
+import com.chicu.trader.trading.indicator.stream.IndicatorBank;
+import com.chicu.trader.trading.indicator.stream.IndicatorBanks;
+import com.chicu.trader.trading.ml.features.FeatureDefinition;
 import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -8,8 +13,11 @@ import java.util.List;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class IndicatorServiceImpl implements IndicatorService {
 
+    private final IndicatorBanks banks;
+
     @Override
     public double rsi(List<Candle> history, int period) {
         double gain = 0, loss = 0;
@@ -85,29 +93,103 @@ public class IndicatorServiceImpl implements IndicatorService {
 
     @Override
     public double[][] buildFeatures(List<Candle> history) {
-        int n = history.size();
-        if (n < 27) {
-            log.warn("⚠️ Недостаточно свечей для фичей: {} < 27", n);
-            return new double[0][0];
+        // Одна копия в колонки, дальше окна — представления без аллокаций свечей
+        return buildFeatures(CandleSeries.of(history));
+    }
+
+    // ===== CandleSeries =====
+
+    @Override
+    public double rsi(CandleSeries history, int period) {
+        double gain = 0, loss = 0;
+        for (int i = 1; i <= period; i++) {
+            double change = history.close(i) - history.close(i - 1);
+            if (change > 0) gain += change;
+            else loss -= change;
+        }
+        double avgGain = gain / period, avgLoss = loss / period;
+        double rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
+        return 100 - (100 / (1 + rs));
+    }
+
+    @Override
+    public double sma(CandleSeries history, int period) {
+        int n = Math.min(period, history.size());
+        if (n == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += history.close(i);
+        }
+        return sum / n;
+    }
+
+    @Override
+    public double bbLower(CandleSeries history, int period, double k) {
+        double mean = sma(history, period);
+        return mean - k * Math.sqrt(variance(history, period, mean));
+    }
+
+    @Override
+    public double bbUpper(CandleSeries history, int period, double k) {
+        double mean = sma(history, period);
+        return mean + k * Math.sqrt(variance(history, period, mean));
+    }
+
+    private double variance(CandleSeries history, int period, double mean) {
+        int n = Math.min(period, history.size());
+        if (n == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            double d = history.close(i) - mean;
+            sum += d * d;
         }
+        return sum / n;
+    }
 
-        double[][] feats = new double[n - 26][4];
-        for (int i = 26; i < n; i++) {
-            try {
-                Candle c = history.get(i);
-                double rsi = rsi(history.subList(i - 14, i + 1), 14);
-                double lower = bbLower(history.subList(i - 20, i + 1), 20, 2);
-                double upper = bbUpper(history.subList(i - 20, i + 1), 20, 2);
-                double bbPct = (c.getClose() - lower) / (upper - lower);
-                double volPct = c.getVolume() / vwma(history.subList(i - 20, i + 1), 20);
-                double ema12 = sma(history.subList(i - 12, i + 1), 12);
-                double ema26 = sma(history.subList(i - 26, i + 1), 26);
-                feats[i - 26] = new double[]{rsi, bbPct, volPct, (ema12 - ema26) / ema26};
-            } catch (Exception e) {
-                log.warn("⛔ Ошибка фичи на i={} → {}", i, e.getMessage());
-                feats[i - 26] = new double[]{0, 0, 0, 0};
-            }
+    @Override
+    public double vwma(CandleSeries history, int period) {
+        double num = 0, den = 0;
+        for (int i = 0; i < period && i < history.size(); i++) {
+            double v = history.volume(i);
+            num += history.close(i) * v;
+            den += v;
+        }
+        return den == 0 ? 0 : num / den;
+    }
+
+    @Override
+    public double atr(CandleSeries history, int period) {
+        double sum = 0;
+        for (int i = 1; i <= period && i < history.size(); i++) {
+            double prevClose = history.close(i - 1);
+            double tr = Math.max(
+                    history.high(i) - history.low(i),
+                    Math.max(
+                            Math.abs(history.high(i) - prevClose),
+                            Math.abs(history.low(i) - prevClose)
+                    )
+            );
+            sum += tr;
+        }
+        return sum / period;
+    }
+
+    /**
+     * Признаки набора {@link FeatureDefinition#MARKET_V1} по каждой свече, начиная с первой,
+     * на которой набор готов. Все окна — по свечам до бара i включительно, как у
+     * хранилища признаков в живой торговле.
+     */
+    @Override
+    public double[][] buildFeatures(CandleSeries history) {
+        double[][] feats = FeatureDefinition.MARKET_V1.compute(history);
+        if (feats.length == 0) {
+            log.warn("⚠️ Недостаточно свечей для фичей: {}", history.size());
         }
         return feats;
     }
+
+    @Override
+    public IndicatorBank bank(CandleSeries history) {
+        return banks.sync(history);
+    }
 }
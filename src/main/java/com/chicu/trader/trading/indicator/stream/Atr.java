@@ -0,0 +1,37 @@
+package com.chicu.trader.trading.indicator.stream;
+
+/**
+ * ATR как простое среднее true range за последние period свечей
+ * (та же формула, что {@code IndicatorService.atr}). Первая свеча даёт только prevClose.
+ */
+public final class Atr implements StreamingIndicator {
+
+    private final RollingWindow trueRanges;
+    private boolean hasPrev;
+    private double  prevClose;
+
+    public Atr(int period) {
+        this.trueRanges = new RollingWindow(period);
+    }
+
+    @Override
+    public void update(double high, double low, double close, double volume) {
+        if (hasPrev) {
+            double tr = Math.max(high - low,
+                    Math.max(Math.abs(high - prevClose), Math.abs(low - prevClose)));
+            trueRanges.update(tr);
+        }
+        hasPrev   = true;
+        prevClose = close;
+    }
+
+    @Override
+    public boolean isReady() {
+        return trueRanges.isReady();
+    }
+
+    @Override
+    public double value() {
+        return trueRanges.mean();
+    }
+}
@@ -0,0 +1,49 @@
+package com.chicu.trader.trading.indicator.stream;
+
+/**
+ * Полосы Боллинджера: SMA закрытий ± k стандартных отклонений за period свечей.
+ */
+public final class BollingerBands implements StreamingIndicator {
+
+    private final RollingWindow window;
+    private final double        k;
+
+    public BollingerBands(int period, double k) {
+        this.window = new RollingWindow(period);
+        this.k      = k;
+    }
+
+    public void update(double close) {
+        window.update(close);
+    }
+
+    @Override
+    public void update(double high, double low, double close, double volume) {
+        window.update(close);
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isReady();
+    }
+
+    /** Средняя линия */
+    @Override
+    public double value() {
+        return window.mean();
+    }
+
+    public double upper() {
+        return window.mean() + k * window.stdDev();
+    }
+
+    public double lower() {
+        return window.mean() - k * window.stdDev();
+    }
+
+    /** Положение цены внутри полос: 0 — нижняя, 1 — верхняя */
+    public double percentB(double price) {
+        double lower = lower();
+        return (price - lower) / (upper() - lower);
+    }
+}
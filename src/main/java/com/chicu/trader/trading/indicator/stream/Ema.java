@@ -0,0 +1,53 @@
+package com.chicu.trader.trading.indicator.stream;
+
+/**
+ * EMA по цене закрытия. Затравка — среднее первых period значений,
+ * затем {@code ema += (price - ema) * 2 / (period + 1)}.
+ * До готовности {@link #value()} возвращает 0.0.
+ */
+public final class Ema implements StreamingIndicator {
+
+    private final int    period;
+    private final double multiplier;
+    private int    count;
+    private double sum;
+    private double value;
+
+    public Ema(int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period должен быть > 0: " + period);
+        }
+        this.period     = period;
+        this.multiplier = 2.0 / (period + 1);
+    }
+
+    public void update(double price) {
+        if (count < period) {
+            sum += price;
+            if (++count == period) {
+                value = sum / period;
+            }
+        } else {
+            value = (price - value) * multiplier + value;
+        }
+    }
+
+    @Override
+    public void update(double high, double low, double close, double volume) {
+        update(close);
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    @Override
+    public double value() {
+        return isReady() ? value : 0.0;
+    }
+
+    public int period() {
+        return period;
+    }
+}
@@ -0,0 +1,198 @@
+package com.chicu.trader.trading.indicator.stream;
+
+import com.chicu.trader.trading.model.CandleSeries;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Набор потоковых индикаторов одного ряда (symbol, timeframe).
+ * <p>
+ * Индикатор с одинаковыми параметрами создаётся один раз и разделяется всеми
+ * потребителями ряда. Закрытая свеча подаётся один раз и обновляет все индикаторы.
+ * Последние свечи хранятся в кольцевом буфере, поэтому индикатор, запрошенный позже,
+ * сразу прогревается по ним (для индикаторов с бесконечной памятью, как EMA/RSI Уайлдера,
+ * — приближённо, если буфер короче истории).
+ * <p>
+ * Свечи должны идти подряд. Банк наполняется через {@link #sync}, поток закрытых свечей
+ * ({@link #onBar}) лишь продлевает его. Если между учтённой и новой свечой пропуск
+ * (обрыв потока, перерыв в опросе), значения индикаторов ряду больше не соответствуют:
+ * банк сбрасывается, и ближайший {@code sync} заново прогревает его по ряду. При сбросе
+ * индикаторы пересоздаются, поэтому ссылки на них между вызовами не хранят.
+ * <p>
+ * Методы синхронизированы; значения индикаторов читать под монитором банка,
+ * если ряд одновременно обновляется из другого потока.
+ */
+public final class IndicatorBank {
+
+    private final String symbol;
+    private final String timeframe;
+
+    // последние свечи для прогрева новых индикаторов
+    private final double[] highs;
+    private final double[] lows;
+    private final double[] closes;
+    private final double[] volumes;
+    private int head;
+    private int filled;
+
+    private final Map<String, StreamingIndicator> byKey      = new HashMap<>();
+    private final List<StreamingIndicator>        indicators = new ArrayList<>();
+    private final Map<String, Supplier<? extends StreamingIndicator>> factories = new HashMap<>();
+    private long lastOpenTime = Long.MIN_VALUE;
+    /** Длительность свечи ряда, мс (по closeTime - openTime + 1 учтённых свечей) */
+    private long intervalMs;
+
+    public IndicatorBank(String symbol, String timeframe, int historyCapacity) {
+        this.symbol    = symbol;
+        this.timeframe = timeframe;
+        this.highs     = new double[historyCapacity];
+        this.lows      = new double[historyCapacity];
+        this.closes    = new double[historyCapacity];
+        this.volumes   = new double[historyCapacity];
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getTimeframe() {
+        return timeframe;
+    }
+
+    /**
+     * Учесть закрытую свечу, следующую сразу за последней учтённой. Свечи не новее
+     * уже учтённой игнорируются; пока банк не наполнен через {@link #sync} — тоже.
+     * Свеча после пропуска сбрасывает банк до следующего {@code sync}.
+     *
+     * @return true, если свеча принята
+     */
+    public synchronized boolean onBar(long openTime, long closeTime,
+                                      double high, double low, double close, double volume) {
+        if (lastOpenTime == Long.MIN_VALUE || openTime <= lastOpenTime) {
+            return false;
+        }
+        if (openTime != lastOpenTime + intervalMs) {
+            reset();
+            return false;
+        }
+        accept(openTime, closeTime, high, low, close, volume);
+        return true;
+    }
+
+    /**
+     * Подать из ряда все закрытые (closeTime &lt; nowMillis) свечи новее уже учтённых.
+     * Если ряд не продолжает банк без пропуска, банк сбрасывается и прогревается
+     * по всему ряду заново.
+     *
+     * @return сколько свечей принято
+     */
+    public synchronized int sync(CandleSeries series, long nowMillis) {
+        int from = 0;
+        while (from < series.size() && series.openTime(from) <= lastOpenTime) {
+            from++;
+        }
+        if (from == series.size() || series.closeTime(from) >= nowMillis) {
+            return 0;
+        }
+        if (lastOpenTime != Long.MIN_VALUE && series.openTime(from) != lastOpenTime + intervalMs) {
+            reset();
+            from = 0;
+        }
+        int added = 0;
+        for (int i = from; i < series.size(); i++) {
+            if (series.closeTime(i) >= nowMillis) {
+                break;
+            }
+            if (series.openTime(i) > lastOpenTime) {
+                accept(series.openTime(i), series.closeTime(i),
+                        series.high(i), series.low(i), series.close(i), series.volume(i));
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /** Время открытия последней учтённой свечи, либо {@link Long#MIN_VALUE} */
+    public synchronized long lastOpenTime() {
+        return lastOpenTime;
+    }
+
+    private void accept(long openTime, long closeTime, double high, double low, double close, double volume) {
+        lastOpenTime = openTime;
+        intervalMs   = closeTime - openTime + 1;
+        if (highs.length > 0) {
+            highs[head]   = high;
+            lows[head]    = low;
+            closes[head]  = close;
+            volumes[head] = volume;
+            head = head + 1 == highs.length ? 0 : head + 1;
+            if (filled < highs.length) filled++;
+        }
+        for (int i = 0; i < indicators.size(); i++) {
+            indicators.get(i).update(high, low, close, volume);
+        }
+    }
+
+    /** Забыть учтённые свечи: история пуста, индикаторы — новые экземпляры */
+    private void reset() {
+        lastOpenTime = Long.MIN_VALUE;
+        head   = 0;
+        filled = 0;
+        indicators.clear();
+        factories.forEach((key, factory) -> {
+            StreamingIndicator fresh = factory.get();
+            byKey.put(key, fresh);
+            indicators.add(fresh);
+        });
+    }
+
+    public Ema ema(int period) {
+        return register("ema:" + period, () -> new Ema(period));
+    }
+
+    public WilderRsi rsi(int period) {
+        return register("rsi:" + period, () -> new WilderRsi(period));
+    }
+
+    public SimpleRsi simpleRsi(int period) {
+        return register("srsi:" + period, () -> new SimpleRsi(period));
+    }
+
+    public RollingWindow sma(int period) {
+        return register("sma:" + period, () -> new RollingWindow(period));
+    }
+
+    public BollingerBands bollinger(int period, double k) {
+        return register("bb:" + period + ":" + k, () -> new BollingerBands(period, k));
+    }
+
+    public Atr atr(int period) {
+        return register("atr:" + period, () -> new Atr(period));
+    }
+
+    public Vwma vwma(int period) {
+        return register("vwma:" + period, () -> new Vwma(period));
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T extends StreamingIndicator> T register(String key, Supplier<T> factory) {
+        StreamingIndicator existing = byKey.get(key);
+        if (existing != null) {
+            return (T) existing;
+        }
+        T created = factory.get();
+        int start = filled < highs.length ? 0 : head;
+        for (int k = 0; k < filled; k++) {
+            int idx = (start + k) % highs.length;
+            created.update(highs[idx], lows[idx], closes[idx], volumes[idx]);
+        }
+        byKey.put(key, created);
+        factories.put(key, factory);
+        indicators.add(created);
+        return created;
+    }
+}
@@ -0,0 +1,63 @@
+package com.chicu.trader.trading.indicator.stream;
+
+import com.chicu.trader.trading.marketdata.BarClosedEvent;
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр {@link IndicatorBank} — по одному на (symbol, timeframe) на всё приложение,
+ * чтобы сервис индикаторов и стратегии считали одно и то же один раз.
+ * Заведённые банки дополняются закрытыми свечами из потока ({@link BarClosedEvent}).
+ */
+@Component
+public class IndicatorBanks {
+
+    private final int historyCapacity;
+    private final Map<String, IndicatorBank> banks = new ConcurrentHashMap<>();
+
+    public IndicatorBanks(@Value("${indicators.bank.history:1000}") int historyCapacity) {
+        this.historyCapacity = historyCapacity;
+    }
+
+    public IndicatorBank get(String symbol, String timeframe) {
+        return banks.computeIfAbsent(symbol + ":" + timeframe,
+                k -> new IndicatorBank(symbol, timeframe, historyCapacity));
+    }
+
+    /**
+     * Банк ряда, дополненный его закрытыми свечами.
+     */
+    public IndicatorBank sync(CandleSeries series) {
+        if (series.getSymbol() == null || series.getTimeframe() == null) {
+            throw new IllegalArgumentException("У ряда не заданы symbol/timeframe");
+        }
+        IndicatorBank bank = get(series.getSymbol(), series.getTimeframe());
+        bank.sync(series, System.currentTimeMillis());
+        return bank;
+    }
+
+    /**
+     * Закрытая свеча из потока — в банк ряда, если он уже заведён.
+     */
+    @EventListener
+    public void onBarClosed(BarClosedEvent event) {
+        Candle c = event.candle();
+        if (c == null) {
+            return;     // закрытие по опросу: свечу подтянет sync по истории
+        }
+        IndicatorBank bank = banks.get(event.symbol() + ":" + event.interval());
+        if (bank != null) {
+            bank.onBar(c.getOpenTime(), c.getCloseTime(), c.getHigh(), c.getLow(), c.getClose(), c.getVolume());
+        }
+    }
+
+    public void remove(String symbol, String timeframe) {
+        banks.remove(symbol + ":" + timeframe);
+    }
+}
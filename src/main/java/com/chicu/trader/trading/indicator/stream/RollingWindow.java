@@ -0,0 +1,121 @@
+package com.chicu.trader.trading.indicator.stream;
+
+/**
+ * Скользящее окно последних period значений в кольцевом буфере:
+ * среднее (SMA) и дисперсия обновляются за O(1) скользящим алгоритмом Уэлфорда.
+ * Чтобы не копить ошибку округления, раз в {@link #RESYNC_PERIODS} полных окон
+ * статистика пересчитывается по буферу — в среднем это всё ещё O(1) на значение.
+ * <p>
+ * По свечам берёт цену закрытия; для других рядов (объёмы, TR) — {@link #update(double)}.
+ */
+public final class RollingWindow implements StreamingIndicator {
+
+    static final int RESYNC_PERIODS = 64;
+
+    private final double[] ring;
+    private final int      period;
+    private int    head;    // куда пишется следующее значение (при полном окне — самое старое)
+    private int    count;
+    private double mean;
+    private double m2;      // сумма квадратов отклонений от среднего
+    private int    sinceResync;
+
+    public RollingWindow(int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period должен быть > 0: " + period);
+        }
+        this.period = period;
+        this.ring   = new double[period];
+    }
+
+    public void update(double x) {
+        if (count < period) {
+            ring[head] = x;
+            count++;
+            double d = x - mean;
+            mean += d / count;
+            m2   += d * (x - mean);
+        } else {
+            double old = ring[head];
+            ring[head] = x;
+            double newMean = mean + (x - old) / period;
+            m2  += (x - old) * (x - newMean + old - mean);
+            mean = newMean;
+            if (++sinceResync >= period * RESYNC_PERIODS) {
+                resync();
+            }
+        }
+        head = head + 1 == period ? 0 : head + 1;
+    }
+
+    @Override
+    public void update(double high, double low, double close, double volume) {
+        update(close);
+    }
+
+    @Override
+    public boolean isReady() {
+        return count == period;
+    }
+
+    /** SMA окна (по накопленным значениям, пока окно не заполнено) */
+    @Override
+    public double value() {
+        return mean;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    public double sum() {
+        return mean * count;
+    }
+
+    /** Дисперсия генеральной совокупности (деление на число значений) */
+    public double variance() {
+        return count == 0 ? 0 : Math.max(0, m2 / count);
+    }
+
+    public double stdDev() {
+        return Math.sqrt(variance());
+    }
+
+    /** Последнее добавленное значение */
+    public double latest() {
+        return get(0);
+    }
+
+    /**
+     * Значение, добавленное ago шагов назад (0 — последнее).
+     */
+    public double get(int ago) {
+        if (ago < 0 || ago >= count) {
+            throw new IndexOutOfBoundsException("ago=" + ago + ", count=" + count);
+        }
+        int idx = head - 1 - ago;
+        return ring[idx < 0 ? idx + period : idx];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int period() {
+        return period;
+    }
+
+    private void resync() {
+        double sum = 0;
+        for (double v : ring) sum += v;
+        double m = sum / period;
+        double sq = 0;
+        for (double v : ring) {
+            double d = v - m;
+            sq += d * d;
+        }
+        mean = m;
+        m2   = sq;
+        sinceResync = 0;
+    }
+}
@@ -0,0 +1,56 @@
+package com.chicu.trader.trading.indicator.stream;
+
+/**
+ * RSI по простым средним роста/падения за последние period изменений
+ * (скользящее окно, как {@code IndicatorService.rsi} по окну из period + 1 свечей).
+ * До готовности — 50.0.
+ */
+public final class SimpleRsi implements StreamingIndicator {
+
+    private final RollingWindow gains;
+    private final RollingWindow losses;
+    private final int period;
+    // скользящее среднее может не вернуться ровно в 0 — нулевые потери считаем отдельно
+    private int     lossBars;
+    private boolean hasPrev;
+    private double  prevClose;
+
+    public SimpleRsi(int period) {
+        this.gains  = new RollingWindow(period);
+        this.losses = new RollingWindow(period);
+        this.period = period;
+    }
+
+    public void update(double close) {
+        if (hasPrev) {
+            double change = close - prevClose;
+            double loss   = change > 0 ? 0 : -change;
+            if (losses.isReady() && losses.get(period - 1) > 0) lossBars--;
+            if (loss > 0) lossBars++;
+            gains.update(change > 0 ? change : 0);
+            losses.update(loss);
+        }
+        hasPrev   = true;
+        prevClose = close;
+    }
+
+    @Override
+    public void update(double high, double low, double close, double volume) {
+        update(close);
+    }
+
+    @Override
+    public boolean isReady() {
+        return gains.isReady();
+    }
+
+    @Override
+    public double value() {
+        if (!isReady()) {
+            return 50.0;
+        }
+        double avgLoss = lossBars == 0 ? 0 : losses.mean();
+        double rs = avgLoss == 0 ? 100 : gains.mean() / avgLoss;
+        return 100 - (100 / (1 + rs));
+    }
+}
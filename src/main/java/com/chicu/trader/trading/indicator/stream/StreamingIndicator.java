@@ -0,0 +1,20 @@
+package com.chicu.trader.trading.indicator.stream;
+
+/**
+ * Потоковый индикатор: получает закрытые свечи по одной в хронологическом порядке,
+ * обновляется за O(1) и без аллокаций. Экземпляр не потокобезопасен
+ * и обслуживает ровно один ряд (symbol, timeframe).
+ */
+public interface StreamingIndicator {
+
+    /**
+     * Учесть очередную закрытую свечу. Каждый индикатор берёт нужные ему поля.
+     */
+    void update(double high, double low, double close, double volume);
+
+    /** Накоплено ли достаточно свечей для корректного значения */
+    boolean isReady();
+
+    /** Текущее значение (до готовности — значение по умолчанию индикатора) */
+    double value();
+}
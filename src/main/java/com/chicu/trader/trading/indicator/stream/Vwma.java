@@ -0,0 +1,37 @@
+package com.chicu.trader.trading.indicator.stream;
+
+/**
+ * Средняя цена закрытия, взвешенная по объёму, за последние period свечей.
+ * При нулевом объёме окна — 0.
+ */
+public final class Vwma implements StreamingIndicator {
+
+    private final RollingWindow priceVolume;
+    private final RollingWindow volume;
+
+    public Vwma(int period) {
+        this.priceVolume = new RollingWindow(period);
+        this.volume      = new RollingWindow(period);
+    }
+
+    public void update(double close, double vol) {
+        priceVolume.update(close * vol);
+        volume.update(vol);
+    }
+
+    @Override
+    public void update(double high, double low, double close, double vol) {
+        update(close, vol);
+    }
+
+    @Override
+    public boolean isReady() {
+        return volume.isReady();
+    }
+
+    @Override
+    public double value() {
+        double den = volume.mean();
+        return den == 0 ? 0 : priceVolume.mean() / den;
+    }
+}
@@ -0,0 +1,64 @@
+package com.chicu.trader.trading.indicator.stream;
+
+/**
+ * RSI со сглаживанием Уайлдера: средние за первые period изменений,
+ * далее {@code avg = (avg * (period - 1) + x) / period}.
+ * Совпадает с {@code RsiCalculator} по тому же префиксу цен; до готовности — 50.0.
+ */
+public final class WilderRsi implements StreamingIndicator {
+
+    private final int period;
+    private int    count;
+    private double prevClose;
+    private double gainSum, lossSum;
+    private double avgGain, avgLoss;
+    private double value = 50.0;
+
+    public WilderRsi(int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period должен быть > 0: " + period);
+        }
+        this.period = period;
+    }
+
+    public void update(double close) {
+        if (count++ == 0) {
+            prevClose = close;
+            return;
+        }
+        double diff = close - prevClose;
+        prevClose = close;
+
+        if (count <= period + 1) {
+            if (diff >= 0) gainSum += diff;
+            else lossSum -= diff;
+            if (count <= period) {
+                return;
+            }
+            avgGain = gainSum / period;
+            avgLoss = lossSum / period;
+        } else {
+            double gain = diff > 0 ? diff : 0;
+            double loss = diff < 0 ? -diff : 0;
+            avgGain = (avgGain * (period - 1) + gain) / period;
+            avgLoss = (avgLoss * (period - 1) + loss) / period;
+        }
+        double rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
+        value = 100 - (100 / (1 + rs));
+    }
+
+    @Override
+    public void update(double high, double low, double close, double volume) {
+        update(close);
+    }
+
+    @Override
+    public boolean isReady() {
+        return count > period;
+    }
+
+    @Override
+    public double value() {
+        return value;
+    }
+}
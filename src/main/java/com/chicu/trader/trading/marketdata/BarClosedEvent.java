@@ -0,0 +1,15 @@
+package com.chicu.trader.trading.marketdata;
+
+import com.chicu.trader.trading.model.Candle;
+
+import java.time.Duration;
+
+/**
+ * Закрылась свеча ряда (symbol, timeframe).
+ *
+ * @param interval  интервал в нотации Binance, например "15m"
+ * @param openTime  время открытия закрывшейся свечи
+ * @param candle    сама свеча из потока; null, если закрытие обнаружено по времени (опрос)
+ */
+public record BarClosedEvent(String symbol, String interval, Duration timeframe, long openTime, Candle candle) {
+}
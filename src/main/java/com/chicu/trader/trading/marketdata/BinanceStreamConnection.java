@@ -0,0 +1,263 @@
+package com.chicu.trader.trading.marketdata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Одно WebSocket-соединение с combined-потоками Binance ({@code /stream}).
+ * <p>
+ * Хранит набор подписок, досылает SUBSCRIBE/UNSUBSCRIBE в живую сессию,
+ * а при обрыве переподключается с экспоненциальной задержкой и восстанавливает
+ * все подписки. Каждое сообщение {@code {"stream": ..., "data": ...}} передаётся
+ * слушателю в потоке WebSocket-контейнера — обработчик должен быть быстрым.
+ */
+@Slf4j
+public class BinanceStreamConnection {
+
+    private static final long MIN_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+    /** Binance держит сессию не дольше 24 ч — переподключаемся сами чуть раньше */
+    private static final long MAX_SESSION_MS = TimeUnit.HOURS.toMillis(23);
+    private static final int  SUBSCRIBE_BATCH = 200;
+
+    private final String name;
+    private final String baseUrl;
+    private final BiConsumer<String, JsonNode> listener;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StandardWebSocketClient client;
+    private final ScheduledExecutorService scheduler;
+
+    private final Set<String> streams = new LinkedHashSet<>();
+    private final AtomicLong requestId = new AtomicLong();
+
+    private volatile WebSocketSession session;
+    private volatile Runnable onReconnect = () -> { };
+    private volatile boolean closed;
+    private boolean connecting;
+    private long backoffMs = MIN_BACKOFF_MS;
+    private boolean everConnected;
+
+    /**
+     * @param name     имя для логов
+     * @param baseUrl  адрес combined-эндпоинта, например {@code wss://stream.binance.com:9443/stream}
+     * @param listener получатель (имя потока, data)
+     */
+    public BinanceStreamConnection(String name, String baseUrl, BiConsumer<String, JsonNode> listener) {
+        this.name = name;
+        this.baseUrl = baseUrl;
+        this.listener = listener;
+
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        // Массивы тикеров по всему рынку заметно больше дефолтного буфера в 8 КБ
+        container.setDefaultMaxTextMessageBufferSize(4 * 1024 * 1024);
+        this.client = new StandardWebSocketClient(container);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Действие после успешного переподключения (не первого подключения):
+     * например, догрузка пропущенных за время обрыва данных.
+     */
+    public void setOnReconnect(Runnable onReconnect) {
+        this.onReconnect = onReconnect;
+    }
+
+    /**
+     * Добавляет потоки. Если соединения ещё нет — поднимает его.
+     */
+    public synchronized void subscribe(Collection<String> names) {
+        List<String> added = names.stream().filter(streams::add).toList();
+        if (added.isEmpty() || closed) {
+            return;
+        }
+        WebSocketSession s = session;
+        if (s != null && s.isOpen()) {
+            send(s, "SUBSCRIBE", added);
+        } else if (!connecting) {
+            connect();
+        }
+    }
+
+    public synchronized void unsubscribe(Collection<String> names) {
+        List<String> removed = names.stream().filter(streams::remove).toList();
+        WebSocketSession s = session;
+        if (!removed.isEmpty() && s != null && s.isOpen()) {
+            send(s, "UNSUBSCRIBE", removed);
+        }
+    }
+
+    public synchronized Set<String> getStreams() {
+        return Set.copyOf(streams);
+    }
+
+    public boolean isConnected() {
+        WebSocketSession s = session;
+        return s != null && s.isOpen();
+    }
+
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        WebSocketSession s = session;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    // ===== Внутреннее =====
+
+    private synchronized void connect() {
+        if (closed || streams.isEmpty()) {
+            return;
+        }
+        connecting = true;
+        log.info("🔌 [{}] Подключение к {} ({} потоков)", name, baseUrl, streams.size());
+
+        client.execute(new Handler(), baseUrl).whenComplete((s, ex) -> {
+            if (ex != null) {
+                log.warn("⚠️ [{}] Не удалось подключиться: {}", name, ex.getMessage());
+                synchronized (this) {
+                    connecting = false;
+                }
+                scheduleReconnect();
+            }
+        });
+    }
+
+    private synchronized void onOpened(WebSocketSession s) {
+        boolean reconnect = everConnected;
+        session = s;
+        connecting = false;
+        everConnected = true;
+        backoffMs = MIN_BACKOFF_MS;
+
+        // Восстанавливаем все подписки пачками (у Binance лимит на размер и частоту запросов)
+        List<String> all = List.copyOf(streams);
+        for (int i = 0; i < all.size(); i += SUBSCRIBE_BATCH) {
+            send(s, "SUBSCRIBE", all.subList(i, Math.min(all.size(), i + SUBSCRIBE_BATCH)));
+        }
+        scheduler.schedule(() -> recycle(s), MAX_SESSION_MS, TimeUnit.MILLISECONDS);
+
+        log.info("✅ [{}] Соединение установлено", name);
+        if (reconnect) {
+            scheduler.execute(() -> {
+                try {
+                    onReconnect.run();
+                } catch (Exception e) {
+                    log.warn("⚠️ [{}] Ошибка обработки переподключения: {}", name, e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void recycle(WebSocketSession s) {
+        if (s.isOpen()) {
+            log.info("♻️ [{}] Плановое переподключение", name);
+            try {
+                s.close(CloseStatus.GOING_AWAY);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private synchronized void onClosed(WebSocketSession s, String reason) {
+        if (session == s) {
+            session = null;
+        }
+        log.warn("🔌 [{}] Соединение закрыто: {}", name, reason);
+        scheduleReconnect();
+    }
+
+    private synchronized void scheduleReconnect() {
+        if (closed || connecting) {
+            return;
+        }
+        long delay = backoffMs;
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        connecting = true;
+        log.info("⏳ [{}] Переподключение через {} мс", name, delay);
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                connecting = false;
+            }
+            connect();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void send(WebSocketSession s, String method, List<String> params) {
+        try {
+            ObjectNode req = objectMapper.createObjectNode();
+            req.put("method", method);
+            req.putPOJO("params", params);
+            req.put("id", requestId.incrementAndGet());
+            synchronized (s) {
+                s.sendMessage(new TextMessage(objectMapper.writeValueAsString(req)));
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ [{}] Не удалось отправить {}: {}", name, method, e.getMessage());
+        }
+    }
+
+    private class Handler extends TextWebSocketHandler {
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession s) {
+            onOpened(s);
+        }
+
+        @Override
+        protected void handleTextMessage(WebSocketSession s, TextMessage message) {
+            try {
+                JsonNode root = objectMapper.readTree(message.getPayload());
+                JsonNode stream = root.get("stream");
+                if (stream == null) {
+                    // ответ на SUBSCRIBE/UNSUBSCRIBE
+                    if (root.hasNonNull("error")) {
+                        log.warn("⚠️ [{}] Ошибка подписки: {}", name, root.get("error"));
+                    }
+                    return;
+                }
+                listener.accept(stream.asText(), root.get("data"));
+            } catch (Exception e) {
+                log.warn("⚠️ [{}] Ошибка обработки сообщения: {}", name, e.getMessage());
+            }
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession s, Throwable exception) {
+            log.warn("⚠️ [{}] Ошибка транспорта: {}", name, exception.getMessage());
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession s, CloseStatus status) {
+            onClosed(s, status.toString());
+        }
+    }
+}
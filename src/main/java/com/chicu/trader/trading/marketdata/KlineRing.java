@@ -0,0 +1,138 @@
+package com.chicu.trader.trading.marketdata;
+
+import com.chicu.trader.trading.model.Candle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Кольцевой буфер свечей одного (symbol, timeframe).
+ * <p>
+ * Последний элемент может быть незакрытой свечой — её обновления из потока
+ * заменяют его на месте. Свечи упорядочены по openTime, самые старые
+ * вытесняются при переполнении.
+ */
+public class KlineRing {
+
+    private final Candle[] buf;
+    private final long     intervalMs;
+    private int  head;   // индекс самой старой свечи
+    private int  size;
+    private boolean lastClosed;
+
+    public KlineRing(int capacity, long intervalMs) {
+        this.buf        = new Candle[capacity];
+        this.intervalMs = intervalMs;
+    }
+
+    public int capacity() {
+        return buf.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** openTime последней свечи, либо -1, если буфер пуст */
+    public synchronized long lastOpenTime() {
+        return size == 0 ? -1 : at(size - 1).getOpenTime();
+    }
+
+    public synchronized boolean isLastClosed() {
+        return lastClosed;
+    }
+
+    /**
+     * Применяет свечу из потока.
+     *
+     * @return openTime, с которого образовалась дыра (нужна догрузка), либо -1
+     */
+    public synchronized long upsert(Candle candle, boolean closed) {
+        long openTime = candle.getOpenTime();
+        if (size == 0) {
+            append(candle);
+            lastClosed = closed;
+            return -1;
+        }
+        long lastOpen = at(size - 1).getOpenTime();
+        if (openTime == lastOpen) {
+            buf[index(size - 1)] = candle;
+            lastClosed = closed;
+            return -1;
+        }
+        if (openTime < lastOpen) {
+            // запоздалое сообщение о свече, которая уже есть
+            return -1;
+        }
+        append(candle);
+        lastClosed = closed;
+        return openTime - lastOpen > intervalMs ? lastOpen : -1;
+    }
+
+    /**
+     * Сливает догруженные по REST свечи с буфером (REST-данные по закрытым свечам
+     * приоритетнее, поток — по последней незакрытой).
+     */
+    public synchronized void merge(Collection<Candle> candles) {
+        if (candles.isEmpty()) {
+            return;
+        }
+        TreeMap<Long, Candle> byOpen = new TreeMap<>();
+        for (Candle c : candles) {
+            byOpen.put(c.getOpenTime(), c);
+        }
+        Candle streamLast = size > 0 ? at(size - 1) : null;
+        for (int i = 0; i < size; i++) {
+            Candle c = at(i);
+            byOpen.putIfAbsent(c.getOpenTime(), c);
+        }
+        boolean keepStreamLast = streamLast != null && streamLast.getOpenTime() >= byOpen.lastKey();
+        if (keepStreamLast) {
+            byOpen.put(streamLast.getOpenTime(), streamLast);
+        } else {
+            lastClosed = byOpen.lastEntry().getValue().getCloseTime() < System.currentTimeMillis();
+        }
+
+        List<Candle> all = new ArrayList<>(byOpen.values());
+        int from = Math.max(0, all.size() - buf.length);
+        head = 0;
+        size = 0;
+        Arrays.fill(buf, null);
+        for (int i = from; i < all.size(); i++) {
+            append(all.get(i));
+        }
+    }
+
+    /**
+     * Последние limit свечей (включая незакрытую), от старых к новым.
+     */
+    public synchronized List<Candle> snapshot(int limit) {
+        int n = Math.min(limit, size);
+        List<Candle> out = new ArrayList<>(n);
+        for (int i = size - n; i < size; i++) {
+            out.add(at(i));
+        }
+        return out;
+    }
+
+    private void append(Candle c) {
+        if (size < buf.length) {
+            buf[index(size)] = c;
+            size++;
+        } else {
+            buf[head] = c;
+            head = (head + 1) % buf.length;
+        }
+    }
+
+    private Candle at(int i) {
+        return buf[index(i)];
+    }
+
+    private int index(int i) {
+        return (head + i) % buf.length;
+    }
+}
@@ -0,0 +1,218 @@
+package com.chicu.trader.trading.marketdata;
+
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Потоковые свечи Binance: одна подписка {@code <symbol>@kline_<interval>} на пару
+ * (symbol, timeframe) и кольцевой буфер закрытых и текущей свечей в памяти.
+ * <p>
+ * REST используется только для начальной загрузки буфера и для догрузки дыр —
+ * после обрыва соединения или при пропуске свечей в потоке.
+ * О каждой закрывшейся свече публикуется {@link BarClosedEvent} — и о догруженных
+ * тоже, по порядку (получатели пропускают уже учтённые).
+ */
+@Slf4j
+@Service
+public class KlineStreamService {
+
+    private final HttpBinanceCandleService  restCandles;
+    private final ApplicationEventPublisher events;
+    private final boolean enabled;
+    private final int     capacity;
+    private final BinanceStreamConnection connection;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final ExecutorService repairExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "kline-repair");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public KlineStreamService(HttpBinanceCandleService restCandles,
+                              ApplicationEventPublisher events,
+                              @Value("${binance.market-stream.enabled:true}") boolean enabled,
+                              @Value("${binance.market-stream.url:wss://stream.binance.com:9443/stream}") String url,
+                              @Value("${binance.market-stream.ring-capacity:1000}") int capacity) {
+        this.restCandles = restCandles;
+        this.events      = events;
+        this.enabled     = enabled;
+        this.capacity    = capacity;
+        this.connection  = new BinanceStreamConnection("klines", url, this::onMessage);
+        this.connection.setOnReconnect(this::repairAll);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Последние limit свечей из буфера (последняя может быть незакрытой).
+     * При первом обращении подписывается на поток и заполняет буфер по REST.
+     *
+     * @return свечи, либо null — если поток выключен, limit больше буфера
+     *         или начальная загрузка не удалась (вызывающий идёт в REST сам)
+     */
+    public List<Candle> getHistory(String symbol, Duration timeframe, int limit) {
+        if (!enabled || limit > capacity) {
+            return null;
+        }
+        Series s = ensureSeries(symbol, timeframe);
+        return s == null ? null : s.ring.snapshot(limit);
+    }
+
+    /**
+     * Подписаться на ряд заранее, чтобы получать {@link BarClosedEvent} о его свечах.
+     *
+     * @return false — поток выключен или начальная загрузка не удалась
+     */
+    public boolean watch(String symbol, Duration timeframe) {
+        return enabled && ensureSeries(symbol, timeframe) != null;
+    }
+
+    /**
+     * Приходят ли закрытия свечей ряда из потока: поток включён, соединение
+     * установлено и ряд загружен. Иначе о закрытии узнают только опросом.
+     */
+    public boolean isLive(String symbol, Duration timeframe) {
+        if (!enabled || !connection.isConnected()) {
+            return false;
+        }
+        Series s = series.get(key(symbol, HttpBinanceCandleService.toBinanceInterval(timeframe)));
+        return s != null && s.ready;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connection.close();
+        repairExecutor.shutdownNow();
+    }
+
+    // ===== Внутреннее =====
+
+    private Series ensureSeries(String symbol, Duration timeframe) {
+        String interval = HttpBinanceCandleService.toBinanceInterval(timeframe);
+        Series s = series.computeIfAbsent(key(symbol, interval),
+                k -> new Series(symbol, interval, timeframe, new KlineRing(capacity, timeframe.toMillis())));
+
+        if (!s.ready) {
+            synchronized (s) {
+                if (!s.ready && !backfill(s)) {
+                    return null;
+                }
+            }
+        }
+        return s;
+    }
+
+    private boolean backfill(Series s) {
+        // Сначала подписка, потом REST: всё, что придёт в поток во время загрузки, сольётся в буфер
+        connection.subscribe(List.of(s.streamName()));
+        List<Candle> history = restCandles.fetchCandles(s.symbol, s.timeframe, capacity);
+        if (history.isEmpty()) {
+            log.warn("⚠️ Начальная загрузка свечей {} {} не удалась — используем REST", s.symbol, s.interval);
+            return false;
+        }
+        s.ring.merge(history);
+        s.ready = true;
+        log.info("📈 Поток свечей {} {}: загружено {} свечей", s.symbol, s.interval, history.size());
+        return true;
+    }
+
+    private void onMessage(String stream, JsonNode data) {
+        JsonNode k = data.get("k");
+        if (k == null) {
+            return;
+        }
+        String symbol   = k.get("s").asText();
+        String interval = k.get("i").asText();
+        Series s = series.get(key(symbol, interval));
+        if (s == null) {
+            return;
+        }
+        Candle candle = Candle.builder()
+                .symbol(symbol)
+                .timeframe(interval)
+                .openTime(k.get("t").asLong())
+                .closeTime(k.get("T").asLong())
+                .open(k.get("o").asDouble())
+                .high(k.get("h").asDouble())
+                .low(k.get("l").asDouble())
+                .close(k.get("c").asDouble())
+                .volume(k.get("v").asDouble())
+                .build();
+
+        boolean closed = k.get("x").asBoolean();
+        long gapFrom = s.ring.upsert(candle, closed);
+        if (gapFrom >= 0 && s.ready) {
+            log.warn("🕳️ Пропуск в потоке {} {} после {} — догружаем", symbol, interval, gapFrom);
+            repairExecutor.execute(() -> repair(s, gapFrom));
+        }
+        if (closed && s.ready) {
+            events.publishEvent(new BarClosedEvent(s.symbol, interval, s.timeframe, candle.getOpenTime(), candle));
+        }
+    }
+
+    private void repairAll() {
+        series.values().stream()
+                .filter(s -> s.ready)
+                .forEach(s -> repair(s, s.ring.lastOpenTime()));
+    }
+
+    private void repair(Series s, long fromOpenTime) {
+        if (fromOpenTime < 0) {
+            return;
+        }
+        List<Candle> missed = restCandles.fetchCandles(
+                s.symbol, s.timeframe, fromOpenTime, System.currentTimeMillis(), capacity);
+        s.ring.merge(missed);
+        log.info("🩹 {} {}: догружено {} свечей", s.symbol, s.interval, missed.size());
+        // закрытия, пропущенные за время обрыва, — как из потока
+        long now = System.currentTimeMillis();
+        for (Candle c : missed) {
+            if (c.getOpenTime() >= fromOpenTime && c.getCloseTime() < now) {
+                events.publishEvent(new BarClosedEvent(s.symbol, s.interval, s.timeframe, c.getOpenTime(), c));
+            }
+        }
+    }
+
+    private static String key(String symbol, String interval) {
+        return symbol.toUpperCase() + ":" + interval;
+    }
+
+    private static final class Series {
+        final String    symbol;
+        final String    interval;
+        final Duration  timeframe;
+        final KlineRing ring;
+        volatile boolean ready;
+
+        Series(String symbol, String interval, Duration timeframe, KlineRing ring) {
+            this.symbol    = symbol;
+            this.interval  = interval;
+            this.timeframe = timeframe;
+            this.ring      = ring;
+        }
+
+        String streamName() {
+            return symbol.toLowerCase() + "@kline_" + interval;
+        }
+    }
+}
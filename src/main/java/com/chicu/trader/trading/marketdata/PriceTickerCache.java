@@ -0,0 +1,312 @@
+package com.chicu.trader.trading.marketdata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Таблица последних цен и лучших bid/ask в памяти, отдельно для mainnet и testnet.
+ * <p>
+ * Цены приходят из потока {@code !miniTicker@arr} (весь рынок раз в секунду),
+ * лучшие bid/ask — из {@code <symbol>@bookTicker}, на который подписываемся при
+ * первом запросе символа. Подписка снимается, если символ не запрашивали дольше
+ * book-ticker-idle-ms, а их число ограничено max-book-tickers (Binance допускает
+ * не больше 1024 потоков на соединение): новый символ сверх предела вытесняет
+ * давно не запрашивавшийся. Соединение сети поднимается при первом обращении к ней.
+ * Чтение — без блокировок: котировка неизменяема и заменяется целиком.
+ * Последняя цена и bid/ask обновляются разными потоками, поэтому время обновления
+ * у них своё: свежий bookTicker не делает свежей давно не менявшуюся последнюю цену.
+ * Вызывающий сам решает, считать ли котировку устаревшей, — по времени того поля,
+ * которым пользуется (см. {@link #getFresh}).
+ * <p>
+ * На каждое изменение последней цены вызываются {@link TickListener}'ы —
+ * в потоке WebSocket, поэтому они должны быть быстрыми.
+ */
+@Slf4j
+@Service
+public class PriceTickerCache {
+
+    private static final String ALL_MINI_TICKERS = "!miniTicker@arr";
+
+    private final boolean enabled;
+    private final long    maxAgeMs;
+    private final long    bookTickerIdleMs;
+    private final Network mainnet;
+    private final Network testnet;
+
+    private final List<TickListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder hits   = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PriceTickerCache(@Value("${binance.price-stream.enabled:true}") boolean enabled,
+                            @Value("${binance.price-stream.url:wss://stream.binance.com:9443/stream}") String url,
+                            @Value("${binance.price-stream.testnet-url:wss://testnet.binance.vision/stream}") String testnetUrl,
+                            @Value("${binance.price-stream.max-age-ms:5000}") long maxAgeMs,
+                            @Value("${binance.price-stream.book-ticker-idle-ms:600000}") long bookTickerIdleMs,
+                            @Value("${binance.price-stream.max-book-tickers:1000}") int maxBookTickers) {
+        this.enabled          = enabled;
+        this.maxAgeMs         = maxAgeMs;
+        this.bookTickerIdleMs = bookTickerIdleMs;
+        this.mainnet  = new Network("prices", url, false, listeners, maxBookTickers);
+        this.testnet  = new Network("prices-testnet", testnetUrl, true, listeners, maxBookTickers);
+    }
+
+    /**
+     * Котировка, последняя цена которой не старше max-age-ms, либо null
+     * (нет данных или устарела — идти в REST).
+     */
+    public Quote getFresh(boolean isTestnet, String symbol) {
+        return getFresh(isTestnet, symbol, maxAgeMs);
+    }
+
+    public Quote getFresh(boolean isTestnet, String symbol, long maxAgeMs) {
+        Quote q = get(isTestnet, symbol);
+        if (q != null && q.lastAgeMillis(System.currentTimeMillis()) <= maxAgeMs) {
+            hits.increment();
+            return q;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Последняя известная котировка (любого возраста), либо null.
+     * Первый вызов для сети/символа подписывает их на поток.
+     */
+    public Quote get(boolean isTestnet, String symbol) {
+        if (!enabled) {
+            return null;
+        }
+        Network n = isTestnet ? testnet : mainnet;
+        String s = symbol.toUpperCase();
+        n.ensureSubscribed(s, System.currentTimeMillis());
+        return n.quotes.get(s);
+    }
+
+    /**
+     * Обновить цену из другого источника (например, REST-фолбэка): более свежая заменит старую.
+     */
+    public void putLast(boolean isTestnet, String symbol, double last) {
+        (isTestnet ? testnet : mainnet).updateLast(symbol.toUpperCase(), last, System.currentTimeMillis());
+    }
+
+    /**
+     * Подписаться на изменения последней цены (всех символов обеих сетей).
+     */
+    public void addListener(TickListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Поднять поток цен сети заранее, без запроса конкретной котировки
+     * (для получателей {@link TickListener}).
+     */
+    public void watch(boolean isTestnet) {
+        if (enabled) {
+            (isTestnet ? testnet : mainnet).ensureStarted();
+        }
+    }
+
+    /** Сколько раз цена взята из кэша и сколько раз пришлось идти в REST */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Снять подписки bookTicker символов, которые давно не запрашивали.
+     */
+    @Scheduled(fixedDelayString = "${binance.price-stream.book-ticker-sweep-ms:60000}")
+    public void evictIdleBookTickers() {
+        long idleBefore = System.currentTimeMillis() - bookTickerIdleMs;
+        int removed = mainnet.evictIdle(idleBefore) + testnet.evictIdle(idleBefore);
+        if (removed > 0) {
+            log.debug("📉 Снято подписок bookTicker: {}", removed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mainnet.connection.close();
+        testnet.connection.close();
+    }
+
+    /**
+     * Получатель новых цен.
+     */
+    public interface TickListener {
+        void onPrice(boolean isTestnet, String symbol, double last);
+    }
+
+    /**
+     * Котировка: последняя цена и лучшие bid/ask (0 — ещё не известны), у каждого
+     * своё время обновления (ms; 0 — не обновлялись).
+     */
+    public record Quote(String symbol, double last, double bid, double ask,
+                        long lastUpdatedAt, long bookUpdatedAt) {
+
+        /** Возраст последней цены */
+        public long lastAgeMillis(long now) {
+            return now - lastUpdatedAt;
+        }
+
+        /** Возраст bid/ask */
+        public long bookAgeMillis(long now) {
+            return now - bookUpdatedAt;
+        }
+
+        /** Середина спреда, если bid/ask известны, иначе последняя цена */
+        public double mid() {
+            return bid > 0 && ask > 0 ? (bid + ask) / 2 : last;
+        }
+    }
+
+    /**
+     * Одна сеть: соединение и таблица котировок.
+     */
+    private static final class Network {
+        final BinanceStreamConnection connection;
+        final boolean testnet;
+        final List<TickListener> listeners;
+        final Map<String, Quote> quotes = new ConcurrentHashMap<>();
+        final int maxBookTickers;
+        /** Символ с подпиской на bookTicker → время последнего запроса (ms) */
+        final Map<String, AtomicLong> bookTickers = new ConcurrentHashMap<>();
+        volatile boolean started;
+
+        Network(String name, String url, boolean testnet, List<TickListener> listeners, int maxBookTickers) {
+            this.connection     = new BinanceStreamConnection(name, url, this::onMessage);
+            this.testnet        = testnet;
+            this.listeners      = listeners;
+            this.maxBookTickers = maxBookTickers;
+        }
+
+        void ensureSubscribed(String symbol, long now) {
+            ensureStarted();
+            AtomicLong seen = bookTickers.get(symbol);
+            if (seen != null) {
+                seen.set(now);
+                return;
+            }
+            synchronized (bookTickers) {
+                seen = bookTickers.get(symbol);
+                if (seen != null) {
+                    seen.set(now);
+                    return;
+                }
+                if (bookTickers.size() >= maxBookTickers) {
+                    evictOldest();
+                }
+                bookTickers.put(symbol, new AtomicLong(now));
+                connection.subscribe(List.of(bookTicker(symbol)));
+            }
+        }
+
+        /** @return сколько подписок снято */
+        int evictIdle(long idleBefore) {
+            List<String> idle = new ArrayList<>();
+            synchronized (bookTickers) {
+                bookTickers.forEach((symbol, seen) -> {
+                    if (seen.get() < idleBefore) {
+                        idle.add(symbol);
+                    }
+                });
+                unsubscribe(idle);
+            }
+            return idle.size();
+        }
+
+        /** Вызывается под замком bookTickers */
+        private void evictOldest() {
+            String oldest = null;
+            long oldestSeen = Long.MAX_VALUE;
+            for (Map.Entry<String, AtomicLong> e : bookTickers.entrySet()) {
+                if (e.getValue().get() < oldestSeen) {
+                    oldestSeen = e.getValue().get();
+                    oldest     = e.getKey();
+                }
+            }
+            if (oldest != null) {
+                unsubscribe(List.of(oldest));
+            }
+        }
+
+        /** Вызывается под замком bookTickers */
+        private void unsubscribe(List<String> symbols) {
+            if (symbols.isEmpty()) {
+                return;
+            }
+            List<String> streams = new ArrayList<>(symbols.size());
+            for (String symbol : symbols) {
+                bookTickers.remove(symbol);
+                streams.add(bookTicker(symbol));
+                // bid/ask без подписки больше не обновятся — не выдаём их за свежие
+                quotes.computeIfPresent(symbol, (k, q) -> new Quote(symbol, q.last(), 0, 0, q.lastUpdatedAt(), 0));
+            }
+            connection.unsubscribe(streams);
+        }
+
+        private static String bookTicker(String symbol) {
+            return symbol.toLowerCase() + "@bookTicker";
+        }
+
+        void ensureStarted() {
+            if (!started) {
+                synchronized (this) {
+                    if (!started) {
+                        connection.subscribe(List.of(ALL_MINI_TICKERS));
+                        started = true;
+                    }
+                }
+            }
+        }
+
+        void onMessage(String stream, JsonNode data) {
+            long now = System.currentTimeMillis();
+            if (ALL_MINI_TICKERS.equals(stream)) {
+                for (JsonNode t : data) {
+                    updateLast(t.get("s").asText(), t.get("c").asDouble(), now);
+                }
+            } else if (stream.endsWith("@bookTicker")) {
+                String symbol = data.get("s").asText();
+                if (!bookTickers.containsKey(symbol)) {
+                    return;     // запоздавшее сообщение уже снятой подписки
+                }
+                double bid = data.get("b").asDouble();
+                double ask = data.get("a").asDouble();
+                // последней цены bookTicker не несёт — её время не трогаем
+                quotes.compute(symbol, (k, q) -> q == null
+                        ? new Quote(symbol, 0, bid, ask, 0, now)
+                        : new Quote(symbol, q.last(), bid, ask, q.lastUpdatedAt(), now));
+            }
+        }
+
+        void updateLast(String symbol, double last, long now) {
+            quotes.compute(symbol, (k, q) -> q == null
+                    ? new Quote(symbol, last, 0, 0, now, 0)
+                    : new Quote(symbol, last, q.bid(), q.ask(), Math.max(now, q.lastUpdatedAt()), q.bookUpdatedAt()));
+            for (TickListener l : listeners) {
+                try {
+                    l.onPrice(testnet, symbol, last);
+                } catch (Exception e) {
+                    log.warn("⚠️ Ошибка обработчика цены {}: {}", symbol, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -5,15 +5,17 @@ import com.chicu.trader.bot.repository.AiTradingSettingsRepository;
 
 import com.chicu.trader.trading.ml.dataset.Dataset;
 import com.chicu.trader.trading.ml.dataset.DatasetBuilder;
-import com.chicu.trader.trading.ml.features.FeatureExtractor;
+import com.chicu.trader.trading.ml.features.FeatureDefinition;
 import com.chicu.trader.trading.model.Candle;
 import com.chicu.trader.trading.service.CandleService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.util.List;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DefaultMlModelTrainer implements MlModelTrainer {
@@ -21,7 +23,6 @@ public class DefaultMlModelTrainer implements MlModelTrainer {
     private final CandleService candleService;
     private final AiTradingSettingsRepository settingsRepository;
     private final ModelTrainerInternal trainer;
-    private final FeatureExtractor extractor;
 
     @Override
     public MlTrainingMetrics trainAndExport(Long chatId, String modelPath) throws MlTrainingException {
@@ -34,22 +35,25 @@ public class DefaultMlModelTrainer implements MlModelTrainer {
         Duration interval = parseTimeframe(settings.getTimeframe());
         int limit = settings.getCachedCandlesLimit();
 
-        // 3) Загрузка свечей через CandleService
-        List<Candle> candles = candleService.loadHistory(symbol, interval, limit);
+        // 3) Загрузка закрытых свечей из локального хранилища через CandleService
+        List<Candle> candles = candleService.loadStoredHistory(symbol, interval, limit);
 
         if (candles.size() < 21) {
             throw new MlTrainingException("Недостаточно данных: найдено " + candles.size() + " свечей");
         }
 
-        // 4) Построение датасета с окном в 20 точек
-        DatasetBuilder builder = new DatasetBuilder(extractor, 20);
+        // 4) Построение датасета: тот же версионированный набор признаков, что считает
+        //    хранилище признаков при инференсе
+        DatasetBuilder builder = new DatasetBuilder(FeatureDefinition.WINDOW_V1);
         Dataset dataset = builder.build(candles);
+        log.info("📊 Датасет {}: {} строк × {} признаков", symbol, dataset.getRows(), dataset.getCols());
 
         // 5) Обучение модели
         TrainedModel model = trainer.train(dataset);
 
         // 6) Сохранение в ONNX
         model.saveToOnnx(modelPath);
+        log.info("✅ Модель {} обучена на наборе признаков {}", modelPath, FeatureDefinition.WINDOW_V1.id());
 
         // 7) Сбор метрик и возврат
         return MlTrainingMetrics.builder()
@@ -1,6 +1,7 @@
 // src/main/java/com/chicu/trader/trading/ml/DummyMlSignalFilter.java
 package com.chicu.trader.trading.ml;
 
+import com.chicu.trader.trading.model.CandleSeries;
 import com.chicu.trader.trading.model.MarketData;
 import com.chicu.trader.trading.model.MarketSignal;
 import lombok.extern.slf4j.Slf4j;
@@ -20,4 +21,9 @@ public class DummyMlSignalFilter implements MlSignalFilter {
         log.debug("DummyMlSignalFilter.predict(): возвращаем HOLD");
         return MarketSignal.HOLD;
     }
+
+    @Override
+    public MarketSignal predict(Long chatId, CandleSeries history) throws MlFilterException {
+        return MarketSignal.HOLD;
+    }
 }
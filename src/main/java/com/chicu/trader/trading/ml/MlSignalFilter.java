@@ -1,6 +1,7 @@
 // src/main/java/com/chicu/trader/trading/ml/MlSignalFilter.java
 package com.chicu.trader.trading.ml;
 
+import com.chicu.trader.trading.model.CandleSeries;
 import com.chicu.trader.trading.model.MarketData;
 import com.chicu.trader.trading.model.MarketSignal;
 
@@ -14,4 +15,10 @@ public interface MlSignalFilter {
      * @throws MlFilterException при ошибке внутри фильтра
      */
     MarketSignal predict(Long chatId, MarketData data) throws MlFilterException;
+
+    /**
+     * Инференс по закрытым свечам ряда: вектор признаков, на которых обучена модель,
+     * фильтр берёт сам.
+     */
+    MarketSignal predict(Long chatId, CandleSeries history) throws MlFilterException;
 }
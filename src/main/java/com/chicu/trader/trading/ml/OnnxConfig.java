@@ -2,13 +2,13 @@
 package com.chicu.trader.trading.ml;
 
 import ai.onnxruntime.OrtEnvironment;
-import ai.onnxruntime.OrtException;
-import ai.onnxruntime.OrtSession;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.context.annotation.*;
 
+/**
+ * OrtEnvironment для ONNX Runtime. Сессии моделей создаёт и кэширует
+ * {@link com.chicu.trader.trading.service.inference.OnnxInferenceService}.
+ */
 @Slf4j
 @Configuration
 public class OnnxConfig {
@@ -29,17 +29,4 @@ public class OnnxConfig {
             return null;
         }
     }
-
-    /**
-     * Создаём OrtSession только в случае, если OrtEnvironment != null.
-     */
-    @Bean
-    @ConditionalOnBean(OrtEnvironment.class)
-    public OrtSession ortSession(OrtEnvironment env,
-                                 @Value("${ml.model.path:models/default.onnx}") String modelPath) throws OrtException {
-        // Опции по умолчанию
-        OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
-        log.info("✅ Загружаем ONNX‐модель из: {}", modelPath);
-        return env.createSession(modelPath, opts);
-    }
 }
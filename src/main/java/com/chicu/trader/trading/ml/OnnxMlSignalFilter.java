@@ -1,23 +1,113 @@
 // src/main/java/com/chicu/trader/trading/ml/OnnxMlSignalFilter.java
 package com.chicu.trader.trading.ml;
 
+import com.chicu.trader.trading.ml.features.FeatureDefinition;
+import com.chicu.trader.trading.ml.features.FeatureStore;
+import com.chicu.trader.trading.model.CandleSeries;
 import com.chicu.trader.trading.model.MarketData;
 import com.chicu.trader.trading.model.MarketSignal;
+import com.chicu.trader.trading.service.inference.OnnxInferenceService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
- * «ONNX-фильтр» в данной реализации – просто заглушка, возвращающая HOLD.
- * Если не нужно ещё инициализировать OrtEnvironment, весь код с onnxruntime можно убрать.
+ * ML-фильтр на ONNX-модели пользователя (её пишет {@code AiTradingSettingsService.trainAndApplyAsync}).
+ * Модель возвращает вероятность BUY: выше порога — BUY, ниже (1 − порог) — SELL, иначе HOLD.
+ * Пока модель не обучена — HOLD.
+ * <p>
+ * Модель обучается на {@link FeatureDefinition#WINDOW_V1} ({@code DefaultMlModelTrainer}),
+ * поэтому вектор для ряда свечей берётся из {@link FeatureStore} по тому же набору —
+ * тот же, что у этой свечи в датасете.
  */
 @Slf4j
 @Component
 public class OnnxMlSignalFilter implements MlSignalFilter {
 
+    /** Набор признаков, на котором обучается модель фильтра */
+    private static final FeatureDefinition FEATURES = FeatureDefinition.WINDOW_V1;
+
+    private final OnnxInferenceService inferenceService;
+    private final FeatureStore featureStore;
+    private final String modelPathPattern;
+    private final double threshold;
+
+    public OnnxMlSignalFilter(OnnxInferenceService inferenceService,
+                              FeatureStore featureStore,
+                              @Value("${ml.filter.model-path:models/%d/ml_signal_filter.onnx}") String modelPathPattern,
+                              @Value("${ml.filter.threshold:0.6}") double threshold) {
+        this.inferenceService = inferenceService;
+        this.featureStore     = featureStore;
+        this.modelPathPattern = modelPathPattern;
+        this.threshold        = threshold;
+    }
+
+    /**
+     * Готовый вектор признаков; он должен быть посчитан по {@link FeatureDefinition#WINDOW_V1}.
+     */
     @Override
     public MarketSignal predict(Long chatId, MarketData data) throws MlFilterException {
-        // Временно просто заглушка:
-        log.debug("OnnxMlSignalFilter.predict() для chatId={}, data={}, возвращаем HOLD", chatId, data);
+        return predict(chatId, new float[][]{data.getFeatures()}).get(0);
+    }
+
+    @Override
+    public MarketSignal predict(Long chatId, CandleSeries history) throws MlFilterException {
+        return predictAll(chatId, List.of(history)).get(0);
+    }
+
+    /**
+     * Пакетный вариант: ряды пользователя (например, по его парам) — одним вызовом модели.
+     * Ряд, по которому набор признаков ещё не готов, получает HOLD.
+     */
+    public List<MarketSignal> predictAll(Long chatId, List<CandleSeries> histories) throws MlFilterException {
+        float[][] vectors = new float[histories.size()][];
+        int ready = 0;
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = featureStore.latest(histories.get(i), FEATURES);
+            if (vectors[i] != null) ready++;
+        }
+        float[][] batch = new float[ready][];
+        for (int i = 0, k = 0; i < vectors.length; i++) {
+            if (vectors[i] != null) batch[k++] = vectors[i];
+        }
+        List<MarketSignal> predicted = ready == 0 ? List.of() : predict(chatId, batch);
+        List<MarketSignal> signals = new ArrayList<>(vectors.length);
+        for (int i = 0, k = 0; i < vectors.length; i++) {
+            signals.add(vectors[i] == null ? MarketSignal.HOLD : predicted.get(k++));
+        }
+        return signals;
+    }
+
+    private List<MarketSignal> predict(Long chatId, float[][] batch) throws MlFilterException {
+        String modelPath = String.format(modelPathPattern, chatId);
+        if (!inferenceService.isAvailable() || !Files.exists(Paths.get(modelPath))) {
+            log.debug("OnnxMlSignalFilter: нет модели {} для chatId={}, возвращаем HOLD", modelPath, chatId);
+            return Collections.nCopies(batch.length, MarketSignal.HOLD);
+        }
+        try {
+            float[] probabilities = inferenceService.predict(modelPath, batch);
+            List<MarketSignal> signals = new ArrayList<>(probabilities.length);
+            for (float p : probabilities) {
+                signals.add(toSignal(p));
+            }
+            return signals;
+        } catch (MlInferenceException e) {
+            throw new MlFilterException("Ошибка ONNX-инференса для chatId=" + chatId, e);
+        }
+    }
+
+    private MarketSignal toSignal(double probability) {
+        if (probability >= threshold) {
+            return MarketSignal.BUY;
+        } else if (probability <= 1.0 - threshold) {
+            return MarketSignal.SELL;
+        }
         return MarketSignal.HOLD;
     }
 }
@@ -2,13 +2,30 @@ package com.chicu.trader.trading.ml.dataset;
 
 import lombok.Getter;
 
+/**
+ * Обучающая выборка в плотном построчном виде: признаки строки i лежат в
+ * {@code features[i * cols .. (i + 1) * cols)}. Массив передаётся в
+ * {@code DMatrix} как есть, без промежуточных объектов на строку.
+ */
 @Getter
 public class Dataset {
-    private final double[][] X;
-    private final int[] y;
+    private final float[] features;
+    private final float[] labels;
+    private final int rows;
+    private final int cols;
 
-    public Dataset(double[][] X, int[] y) {
-        this.X = X;
-        this.y = y;
+    public Dataset(float[] features, float[] labels, int rows, int cols) {
+        if (features.length != (long) rows * cols || labels.length != rows) {
+            throw new IllegalArgumentException("Размеры датасета не согласованы: " + rows + "x" + cols
+                    + ", признаков " + features.length + ", меток " + labels.length);
+        }
+        this.features = features;
+        this.labels   = labels;
+        this.rows     = rows;
+        this.cols     = cols;
+    }
+
+    public float feature(int row, int col) {
+        return features[row * cols + col];
     }
 }
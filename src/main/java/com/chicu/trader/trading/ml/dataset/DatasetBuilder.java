@@ -2,48 +2,161 @@ package com.chicu.trader.trading.ml.dataset;
 
 
 import com.chicu.trader.trading.ml.MlTrainingException;
-import com.chicu.trader.trading.ml.features.FeatureExtractor;
+import com.chicu.trader.trading.ml.features.FeatureDefinition;
+import com.chicu.trader.trading.ml.features.FeatureState;
 import com.chicu.trader.trading.model.Candle;
-import lombok.AllArgsConstructor;
+import com.chicu.trader.trading.model.CandleSeries;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
-@AllArgsConstructor
+/**
+ * Строит {@link Dataset} сразу в предвыделенный построчный {@code float[]}:
+ * число строк и признаков известно до расчёта, поэтому ни списков, ни упакованных
+ * меток, ни массива на строку. Ряд делится на куски, которые считаются параллельно
+ * в общем ForkJoinPool и пишут каждый в свой диапазон строк.
+ */
 public class DatasetBuilder {
 
-    private final FeatureExtractor extractor;
-    private final int windowSize;
+    /** Меньше стольких строк на кусок не делим — накладные расходы съедят выигрыш */
+    private static final int MIN_CHUNK_ROWS = 2048;
+
+    private final FeatureDefinition definition;
+
+    /**
+     * Датасет по набору признаков хранилища: строка свечи i — тот же вектор,
+     * что {@link com.chicu.trader.trading.ml.features.FeatureStore} выдаёт
+     * в живой торговле после закрытия этой свечи.
+     */
+    public DatasetBuilder(FeatureDefinition definition) {
+        this.definition = definition;
+    }
 
     /**
      * Построить Dataset из списка свечей.
      * @throws MlTrainingException если данных недостаточно
      */
     public Dataset build(List<Candle> allCandles) throws MlTrainingException {
+        return build(CandleSeries.of(allCandles));
+    }
+
+    /**
+     * Построить Dataset по колоночному ряду (например, прочитанному из файлового архива).
+     * @throws MlTrainingException если данных недостаточно
+     */
+    public Dataset build(CandleSeries allCandles) throws MlTrainingException {
+        return buildStreaming(allCandles);
+    }
+
+    /**
+     * Признаки по свечам [0 .. i], метка: 1 если close(i+1)>close(i).
+     * Если вектор набора зависит только от последних lookback свечей, кусок
+     * начинает своё состояние за lookback свечей до первой строки; наборы
+     * с бесконечной памятью (EMA, RSI Уайлдера) считаются одним проходом.
+     */
+    private Dataset buildStreaming(CandleSeries allCandles) throws MlTrainingException {
         int n = allCandles.size();
-        if (n <= windowSize) {
-            throw new MlTrainingException("Недостаточно данных для формирования датасета");
+        int first = firstReadyBar(allCandles);
+        int rows = first < 0 ? 0 : n - 1 - first;
+        if (rows <= 0) {
+            throw new MlTrainingException("Недостаточно данных для формирования датасета ("
+                    + definition.id() + ")");
         }
+        int cols = definition.size();
+        float[] x = allocate(rows, cols);
+        float[] y = new float[rows];
+        int lookback = definition.lookback();
 
-        List<double[]> X = new ArrayList<>();
-        List<Integer> y = new ArrayList<>();
+        ChunkTask task = (from, to) -> {
+            int start = first + from;
+            int end   = first + to;
+            int warmFrom = lookback < 0 ? 0 : Math.max(0, start - lookback + 1);
+            FeatureState state = definition.newState();
+            for (int i = warmFrom; i < start; i++) {
+                feed(state, allCandles, i);
+            }
+            for (int i = start; i < end; i++) {
+                feed(state, allCandles, i);
+                state.write(x, (i - first) * cols);
+                y[i - first] = label(allCandles, i);
+            }
+        };
+        if (lookback < 0) {
+            task.run(0, rows);
+        } else {
+            runChunks(rows, task);
+        }
+        return new Dataset(x, y, rows, cols);
+    }
 
-        // каждое окно — от [i-windowSize .. i), метка: 1 если close(i+1)>close(i)
-        for (int i = windowSize; i < n - 1; i++) {
-            List<Candle> window = allCandles.subList(i - windowSize, i);
-            double[] feats = extractor.extract(window);
-            X.add(feats);
+    /** Первая свеча, на которой набор готов, либо -1 */
+    private int firstReadyBar(CandleSeries series) {
+        FeatureState probe = definition.newState();
+        for (int i = 0; i < series.size(); i++) {
+            feed(probe, series, i);
+            if (probe.isReady()) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-            double curr = allCandles.get(i).getClose();
-            double next = allCandles.get(i + 1).getClose();
-            y.add(next > curr ? 1 : 0);
+    private static void feed(FeatureState state, CandleSeries s, int i) {
+        state.update(s.open(i), s.high(i), s.low(i), s.close(i), s.volume(i));
+    }
+
+    private static float label(CandleSeries s, int i) {
+        return s.close(i + 1) > s.close(i) ? 1f : 0f;
+    }
+
+    private static float[] allocate(int rows, int cols) throws MlTrainingException {
+        long size = (long) rows * cols;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new MlTrainingException("Датасет " + rows + "x" + cols
+                    + " не помещается в один массив — уменьшите период обучения");
         }
+        return new float[(int) size];
+    }
 
-        // конвертация в массивы
-        double[][] xArr = X.toArray(new double[X.size()][]);
-        int[] yArr    = y.stream().mapToInt(Integer::intValue).toArray();
+    /** Строки [from, to) одного куска */
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(int from, int to) throws MlTrainingException;
+    }
 
-        // возвращаем именно ml.dataset.Dataset
-        return new Dataset(xArr, yArr);
+    private static void runChunks(int rows, ChunkTask task) throws MlTrainingException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunks = Math.min(pool.getParallelism() * 4, Math.max(1, rows / MIN_CHUNK_ROWS));
+        if (chunks <= 1) {
+            task.run(0, rows);
+            return;
+        }
+        int chunk = (rows + chunks - 1) / chunks;
+        List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int from = 0; from < rows; from += chunk) {
+            int f = from;
+            int t = Math.min(rows, from + chunk);
+            tasks.add(() -> {
+                task.run(f, t);
+                return null;
+            });
+        }
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MlTrainingException("Построение датасета прервано", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof MlTrainingException mte) {
+                    throw mte;
+                }
+                throw new MlTrainingException("Ошибка построения датасета: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
     }
 }
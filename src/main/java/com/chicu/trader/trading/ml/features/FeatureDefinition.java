@@ -0,0 +1,150 @@
+package com.chicu.trader.trading.ml.features;
+
+import com.chicu.trader.trading.model.CandleSeries;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Версионированный набор признаков: упорядоченный список имён вида
+ * {@code rsi14}, {@code bbpct20}, {@code spread12_26}.
+ * <p>
+ * Один и тот же набор считается и при обучении (по архиву), и в живой торговле
+ * (по мере закрытия свечей) — через {@link FeatureState}, поэтому векторы
+ * одной и той же свечи совпадают. Изменение состава или формулы признаков — новая версия:
+ * модель, обученная на {@code window:v1}, кормится только {@code window:v1}.
+ * <p>
+ * Признаки считаются по свечам до текущей включительно:
+ * <ul>
+ *   <li>{@code open, high, low, close, volume} — поля последней свечи;</li>
+ *   <li>{@code return} — close / предыдущий close − 1; {@code range} — (high − low) / close;</li>
+ *   <li>{@code rsiN} — RSI Уайлдера, {@code srsiN} — RSI по простым средним;</li>
+ *   <li>{@code emaN}, {@code smaN}, {@code atrN} — значения индикаторов;</li>
+ *   <li>{@code bbpctN} — положение close в полосах Боллинджера (N, 2σ);</li>
+ *   <li>{@code volpctN} — объём / VWMA(N);</li>
+ *   <li>{@code spreadA_B} — (SMA(A) − SMA(B)) / SMA(B);</li>
+ *   <li>{@code growthN} — close / open свечи N−1 баров назад − 1;</li>
+ *   <li>{@code avgvolN}, {@code avghlN} — средние объём и (high − low) за N свечей.</li>
+ * </ul>
+ */
+public final class FeatureDefinition {
+
+    /** Рыночные признаки сервиса индикаторов: RSI, %B, относительный объём, расхождение средних */
+    public static final FeatureDefinition MARKET_V1 =
+            of("market", 1, "srsi14,bbpct20,volpct20,spread12_26");
+
+    /** Признаки окна из 20 свечей: рост, средний объём, средний размах */
+    public static final FeatureDefinition WINDOW_V1 =
+            of("window", 1, "growth20,avgvol20,avghl20");
+
+    private final String name;
+    private final int version;
+    private final List<String> features;
+    private int lookback;
+
+    private FeatureDefinition(String name, int version, List<String> features) {
+        this.name     = name;
+        this.version  = version;
+        this.features = features;
+    }
+
+    /**
+     * @param spec имена признаков через запятую
+     * @throws IllegalArgumentException если признак неизвестен
+     */
+    public static FeatureDefinition of(String name, int version, String spec) {
+        List<String> features = Arrays.stream(spec.split(","))
+                .map(f -> f.trim().toLowerCase(Locale.ROOT))
+                .filter(f -> !f.isEmpty())
+                .toList();
+        if (features.isEmpty()) {
+            throw new IllegalArgumentException("Пустой набор признаков: " + name);
+        }
+        FeatureDefinition def = new FeatureDefinition(name, version, features);
+        // разбор имён сразу, а не на первой свече
+        def.lookback = def.newState().lookback();
+        return def;
+    }
+
+    /**
+     * Признаки окна из n свечей (рост, средний объём, средний размах);
+     * для n = 20 — {@link #WINDOW_V1}.
+     */
+    public static FeatureDefinition window(int n) {
+        return n == 20 ? WINDOW_V1 : of("window" + n, 1, "growth" + n + ",avgvol" + n + ",avghl" + n);
+    }
+
+    /**
+     * Набор из настроек пользователя (список признаков стратегии). Версия — сам список:
+     * другой список — другой набор.
+     */
+    public static FeatureDefinition adhoc(String spec) {
+        return of("adhoc", 0, spec);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public List<String> getFeatures() {
+        return features;
+    }
+
+    public int size() {
+        return features.size();
+    }
+
+    /** См. {@link FeatureState#lookback()} */
+    public int lookback() {
+        return lookback;
+    }
+
+    /** Ключ набора: {@code name:vN}, для пользовательских — сам список признаков */
+    public String id() {
+        return version == 0 ? name + ":" + String.join(",", features) : name + ":v" + version;
+    }
+
+    /** Новое состояние расчёта (пустое, без свечей) */
+    public FeatureState newState() {
+        return new FeatureState(this);
+    }
+
+    /**
+     * Признаки по каждой свече ряда, начиная с первой, на которой набор готов.
+     * Строка i — вектор, который живой {@link FeatureState} выдал бы после закрытия
+     * свечи {@code size() - rows + i}.
+     */
+    public double[][] compute(CandleSeries series) {
+        FeatureState state = newState();
+        double[][] rows = new double[series.size()][];
+        int count = 0;
+        for (int i = 0; i < series.size(); i++) {
+            state.update(series.open(i), series.high(i), series.low(i), series.close(i), series.volume(i));
+            if (state.isReady()) {
+                rows[count++] = state.toArray();
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FeatureDefinition d && version == d.version
+                && name.equals(d.name) && features.equals(d.features);
+    }
+
+    @Override
+    public int hashCode() {
+        return id().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return id();
+    }
+}
@@ -0,0 +1,307 @@
+package com.chicu.trader.trading.ml.features;
+
+import com.chicu.trader.trading.indicator.stream.Atr;
+import com.chicu.trader.trading.indicator.stream.BollingerBands;
+import com.chicu.trader.trading.indicator.stream.Ema;
+import com.chicu.trader.trading.indicator.stream.RollingWindow;
+import com.chicu.trader.trading.indicator.stream.SimpleRsi;
+import com.chicu.trader.trading.indicator.stream.StreamingIndicator;
+import com.chicu.trader.trading.indicator.stream.Vwma;
+import com.chicu.trader.trading.indicator.stream.WilderRsi;
+import com.chicu.trader.trading.model.CandleSeries;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Потоковый расчёт признаков одного {@link FeatureDefinition} по одному ряду.
+ * <p>
+ * Свеча подаётся один раз и обновляет все индикаторы набора за O(признаков);
+ * индикатор с одинаковыми параметрами у нескольких признаков создаётся один раз.
+ * Экземпляр не потокобезопасен.
+ */
+public final class FeatureState {
+
+    private static final Pattern TOKEN = Pattern.compile("([a-z]+)(\\d+)?(?:_(\\d+))?");
+
+    private static final int SRC_OPEN   = 0;
+    private static final int SRC_VOLUME = 1;
+    private static final int SRC_RANGE  = 2;
+
+    private final FeatureDefinition definition;
+    private final Column[] columns;
+
+    /** Индикаторы по свечам (high, low, close, volume) */
+    private final List<StreamingIndicator> indicators = new ArrayList<>();
+    /** Скользящие окна по отдельному полю свечи */
+    private final List<Feed> windows = new ArrayList<>();
+    private final Map<String, Object> byKey = new HashMap<>();
+
+    private double open, high, low, close, volume;
+    private double prevClose = Double.NaN;
+    private int bars;
+    private long lastOpenTime = Long.MIN_VALUE;
+    /** Сколько последних свечей определяют вектор; -1 — память не ограничена (EMA, RSI Уайлдера) */
+    private int lookback = 1;
+
+    FeatureState(FeatureDefinition definition) {
+        this.definition = definition;
+        List<String> names = definition.getFeatures();
+        this.columns = new Column[names.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = column(names.get(i));
+        }
+    }
+
+    public FeatureDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Учесть закрытую свечу. Свечи не новее уже учтённой игнорируются.
+     *
+     * @return true, если свеча принята
+     */
+    public boolean onBar(long openTime, double open, double high, double low, double close, double volume) {
+        if (openTime <= lastOpenTime) {
+            return false;
+        }
+        lastOpenTime = openTime;
+        update(open, high, low, close, volume);
+        return true;
+    }
+
+    /**
+     * Подать из ряда все закрытые (closeTime &lt; nowMillis) свечи новее уже учтённых.
+     *
+     * @return сколько свечей принято
+     */
+    public int sync(CandleSeries series, long nowMillis) {
+        int added = 0;
+        for (int i = 0; i < series.size(); i++) {
+            if (series.closeTime(i) >= nowMillis) {
+                break;
+            }
+            if (onBar(series.openTime(i), series.open(i), series.high(i), series.low(i),
+                    series.close(i), series.volume(i))) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /** Учесть очередную свечу без проверки времени (прогон по архиву) */
+    public void update(double open, double high, double low, double close, double volume) {
+        if (bars > 0) {
+            prevClose = this.close;
+        }
+        this.open   = open;
+        this.high   = high;
+        this.low    = low;
+        this.close  = close;
+        this.volume = volume;
+        bars++;
+
+        for (int i = 0; i < indicators.size(); i++) {
+            indicators.get(i).update(high, low, close, volume);
+        }
+        for (int i = 0; i < windows.size(); i++) {
+            Feed f = windows.get(i);
+            f.window().update(switch (f.source()) {
+                case SRC_OPEN   -> open;
+                case SRC_VOLUME -> volume;
+                default         -> high - low;
+            });
+        }
+    }
+
+    /** Готовы ли все признаки набора */
+    public boolean isReady() {
+        for (Column c : columns) {
+            if (!c.isReady()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Сколько последних свечей определяют вектор набора: состояние, начатое с любой
+     * свечи, после lookback свечей выдаёт те же признаки (с точностью до округления),
+     * что и состояние, прошедшее весь ряд. -1 — у набора есть признаки с бесконечной
+     * памятью, и вектор зависит от всей истории.
+     */
+    public int lookback() {
+        return lookback;
+    }
+
+    /** Время открытия последней учтённой свечи, либо {@link Long#MIN_VALUE} */
+    public long lastOpenTime() {
+        return lastOpenTime;
+    }
+
+    public void write(double[] out, int offset) {
+        for (int i = 0; i < columns.length; i++) {
+            out[offset + i] = columns[i].value();
+        }
+    }
+
+    public void write(float[] out, int offset) {
+        for (int i = 0; i < columns.length; i++) {
+            out[offset + i] = (float) columns[i].value();
+        }
+    }
+
+    public double[] toArray() {
+        double[] out = new double[columns.length];
+        write(out, 0);
+        return out;
+    }
+
+    public float[] toFloatArray() {
+        float[] out = new float[columns.length];
+        write(out, 0);
+        return out;
+    }
+
+    // ===== Разбор признаков =====
+
+    private record Feed(RollingWindow window, int source) {
+    }
+
+    private interface Column {
+        double value();
+
+        boolean isReady();
+    }
+
+    private Column column(String feature) {
+        Matcher m = TOKEN.matcher(feature);
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Неизвестный признак: " + feature);
+        }
+        String kind = m.group(1);
+        int p = m.group(2) == null ? 0 : Integer.parseInt(m.group(2));
+        int q = m.group(3) == null ? 0 : Integer.parseInt(m.group(3));
+        boolean plain = m.group(2) == null;
+        if (!plain && p < 1 || m.group(3) != null && (q < 1 || !"spread".equals(kind))) {
+            throw new IllegalArgumentException("Неверные параметры признака: " + feature);
+        }
+
+        if (plain) {
+            need("return".equals(kind) ? 2 : 1);
+            return switch (kind) {
+                case "open"   -> column(() -> open, 1);
+                case "high"   -> column(() -> high, 1);
+                case "low"    -> column(() -> low, 1);
+                case "close"  -> column(() -> close, 1);
+                case "volume" -> column(() -> volume, 1);
+                case "return" -> column(() -> prevClose == 0 ? 0 : close / prevClose - 1, 2);
+                case "range"  -> column(() -> close == 0 ? 0 : (high - low) / close, 1);
+                default -> throw new IllegalArgumentException("Неизвестный признак: " + feature);
+            };
+        }
+
+        switch (kind) {
+            case "rsi", "ema", "atr" -> lookback = -1;
+            case "srsi"   -> need(p + 1);
+            case "spread" -> need(Math.max(p, q));
+            default       -> need(p);
+        }
+        return switch (kind) {
+            case "rsi"  -> of(indicator("rsi:" + p, () -> new WilderRsi(p)));
+            case "srsi" -> of(indicator("srsi:" + p, () -> new SimpleRsi(p)));
+            case "ema"  -> of(indicator("ema:" + p, () -> new Ema(p)));
+            case "sma"  -> of(indicator("sma:" + p, () -> new RollingWindow(p)));
+            case "atr"  -> of(indicator("atr:" + p, () -> new Atr(p)));
+            case "bbpct" -> {
+                BollingerBands bb = indicator("bb:" + p, () -> new BollingerBands(p, 2));
+                yield column(() -> {
+                    double width = bb.upper() - bb.lower();
+                    return width == 0 ? 0.5 : bb.percentB(close);
+                }, bb::isReady);
+            }
+            case "volpct" -> {
+                Vwma vwma = indicator("vwma:" + p, () -> new Vwma(p));
+                yield column(() -> vwma.value() == 0 ? 0 : volume / vwma.value(), vwma::isReady);
+            }
+            case "spread" -> {
+                if (q == 0) {
+                    throw new IllegalArgumentException("Для spread нужны два периода: " + feature);
+                }
+                RollingWindow fast = indicator("sma:" + p, () -> new RollingWindow(p));
+                RollingWindow slow = indicator("sma:" + q, () -> new RollingWindow(q));
+                yield column(() -> slow.mean() == 0 ? 0 : (fast.mean() - slow.mean()) / slow.mean(),
+                        () -> fast.isReady() && slow.isReady());
+            }
+            case "growth" -> {
+                RollingWindow opens = window("open:" + p, p, SRC_OPEN);
+                yield column(() -> {
+                    double first = opens.get(p - 1);
+                    return first == 0 ? 0 : close / first - 1;
+                }, opens::isReady);
+            }
+            case "avgvol" -> {
+                RollingWindow w = window("vol:" + p, p, SRC_VOLUME);
+                yield column(w::mean, w::isReady);
+            }
+            case "avghl" -> {
+                RollingWindow w = window("hl:" + p, p, SRC_RANGE);
+                yield column(w::mean, w::isReady);
+            }
+            default -> throw new IllegalArgumentException("Неизвестный признак: " + feature);
+        };
+    }
+
+    private void need(int bars) {
+        if (lookback >= 0) {
+            lookback = Math.max(lookback, bars);
+        }
+    }
+
+    private Column column(DoubleSupplier value, int minBars) {
+        return column(value, () -> bars >= minBars);
+    }
+
+    private static Column column(DoubleSupplier value, BooleanSupplier ready) {
+        return new Column() {
+            @Override
+            public double value() {
+                return value.getAsDouble();
+            }
+
+            @Override
+            public boolean isReady() {
+                return ready.getAsBoolean();
+            }
+        };
+    }
+
+    private static Column of(StreamingIndicator ind) {
+        return column(ind::value, ind::isReady);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends StreamingIndicator> T indicator(String key, Supplier<T> factory) {
+        return (T) byKey.computeIfAbsent(key, k -> {
+            T created = factory.get();
+            indicators.add(created);
+            return created;
+        });
+    }
+
+    private RollingWindow window(String key, int period, int source) {
+        return (RollingWindow) byKey.computeIfAbsent(key, k -> {
+            RollingWindow created = new RollingWindow(period);
+            windows.add(new Feed(created, source));
+            return created;
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package com.chicu.trader.trading.ml.features;
+
+import com.chicu.trader.trading.marketdata.BarClosedEvent;
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Хранилище признаков для живой торговли: по одному {@link FeatureState}
+ * на (symbol, timeframe, набор признаков).
+ * <p>
+ * Ряд заводится при первом запросе {@link #latest} и прогревается по переданной
+ * истории; дальше каждая закрывшаяся свеча из потока ({@link BarClosedEvent})
+ * обновляет все наборы ряда за O(признаков), и запрос вектора — это копия
+ * готового массива. Ряды без потока догоняются по истории при запросе.
+ * <p>
+ * Обучение считает те же наборы через {@link FeatureDefinition#compute} и
+ * {@link com.chicu.trader.trading.ml.dataset.DatasetBuilder}, поэтому вектор
+ * при инференсе совпадает с вектором той же свечи в датасете.
+ */
+@Service
+public class FeatureStore {
+
+    /** symbol:timeframe → id набора → состояние */
+    private final Map<String, Map<String, Entry>> series = new ConcurrentHashMap<>();
+
+    private final LongAdder bars    = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+
+    /**
+     * Вектор признаков набора после последней закрытой свечи ряда.
+     *
+     * @param history закрытые свечи ряда (symbol/timeframe обязательны); учитываются только новые
+     * @return вектор, либо null — если свечей для набора пока недостаточно
+     */
+    public float[] latest(CandleSeries history, FeatureDefinition definition) {
+        if (history.getSymbol() == null || history.getTimeframe() == null) {
+            throw new IllegalArgumentException("У ряда не заданы symbol/timeframe");
+        }
+        Entry entry = series
+                .computeIfAbsent(key(history.getSymbol(), history.getTimeframe()), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(definition.id(), k -> new Entry(definition.newState()));
+        lookups.increment();
+        long now = System.currentTimeMillis();
+        synchronized (entry) {
+            if (entry.state.sync(history, now) > 0) {
+                entry.refresh();
+            }
+            if (entry.state.lastOpenTime() == lastClosedOpenTime(history, now)) {
+                return entry.vector == null ? null : entry.vector.clone();
+            }
+        }
+        // история заканчивается раньше ряда (прогон по архиву) — считаем по ней самой
+        double[][] rows = definition.compute(history);
+        if (rows.length == 0) {
+            return null;
+        }
+        double[] last = rows[rows.length - 1];
+        float[] out = new float[last.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (float) last[i];
+        }
+        return out;
+    }
+
+    /**
+     * Закрытая свеча из потока — во все наборы ряда.
+     */
+    @EventListener
+    public void onBarClosed(BarClosedEvent event) {
+        Candle c = event.candle();
+        if (c == null) {
+            return;     // закрытие по опросу: свечу подтянет история при запросе
+        }
+        Map<String, Entry> entries = series.get(key(event.symbol(), event.interval()));
+        if (entries == null) {
+            return;
+        }
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                if (entry.state.onBar(c.getOpenTime(), c.getOpen(), c.getHigh(), c.getLow(),
+                        c.getClose(), c.getVolume())) {
+                    entry.refresh();
+                    bars.increment();
+                }
+            }
+        }
+    }
+
+    /** Забыть все наборы ряда (например, после пропуска свечей) */
+    public void remove(String symbol, String timeframe) {
+        series.remove(key(symbol, timeframe));
+    }
+
+    /** Свечей, учтённых из потока */
+    public long getBarCount() {
+        return bars.sum();
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    private static long lastClosedOpenTime(CandleSeries history, long now) {
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (history.closeTime(i) < now) {
+                return history.openTime(i);
+            }
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static String key(String symbol, String timeframe) {
+        return symbol + ":" + timeframe;
+    }
+
+    private static final class Entry {
+        final FeatureState state;
+        /** Вектор после последней свечи; null, пока набор не готов */
+        float[] vector;
+
+        Entry(FeatureState state) {
+            this.state = state;
+        }
+
+        void refresh() {
+            if (!state.isReady()) {
+                return;
+            }
+            if (vector == null) {
+                vector = new float[state.getDefinition().size()];
+            }
+            state.write(vector, 0);
+        }
+    }
+}
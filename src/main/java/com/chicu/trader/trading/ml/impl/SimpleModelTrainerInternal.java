@@ -14,7 +14,7 @@ public class SimpleModelTrainerInternal implements ModelTrainerInternal {
     public TrainedModel train(Dataset dataset) {
         long start = System.currentTimeMillis();
 
-        // TODO: здесь ваша реальная логика обучения на dataset.getX() и dataset.getY()
+        // TODO: здесь ваша реальная логика обучения на dataset.getFeatures() и dataset.getLabels()
         double dummyAccuracy  = 0.5;
         double dummyAuc       = 0.5;
         double dummyPrecision = 0.5;
@@ -4,15 +4,12 @@ import com.chicu.trader.trading.ml.MlTrainingException;
 import com.chicu.trader.trading.ml.ModelTrainerInternal;
 import com.chicu.trader.trading.ml.TrainedModel;
 import com.chicu.trader.trading.ml.dataset.Dataset;
-import ml.dmlc.xgboost4j.LabeledPoint;
 import ml.dmlc.xgboost4j.java.Booster;
 import ml.dmlc.xgboost4j.java.DMatrix;
 import ml.dmlc.xgboost4j.java.XGBoost;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 @Service
@@ -24,19 +21,12 @@ public class XgboostModelTrainerInternal implements ModelTrainerInternal {
         try {
             long start = System.currentTimeMillis();
 
-            double[][] x = ds.getX();
-            int[]      y = ds.getY();
-            int        n = x.length;
+            float[] y = ds.getLabels();
+            int     n = ds.getRows();
 
-            // Формируем LabeledPoint (dense формат)
-            List<LabeledPoint> points = new ArrayList<>(n);
-            for (int i = 0; i < n; i++) {
-                float   label    = (float) y[i];
-                float[] features = toFloatArray(x[i]);
-                points.add(new LabeledPoint(label, features.length, null, features));
-            }
-
-            DMatrix trainMat = new DMatrix(points.iterator(), "nan");
+            // Плотная построчная матрица уходит в нативный DMatrix одним копированием
+            DMatrix trainMat = new DMatrix(ds.getFeatures(), n, ds.getCols(), Float.NaN);
+            trainMat.setLabel(y);
 
             Map<String, Object> params = Map.of(
                     "eta",         0.1f,
@@ -52,7 +42,7 @@ public class XgboostModelTrainerInternal implements ModelTrainerInternal {
             double correct = 0;
             for (int i = 0; i < preds.length; i++) {
                 int p = preds[i][0] > 0.5 ? 1 : 0;
-                if (p == y[i]) correct++;
+                if (p == (int) y[i]) correct++;
             }
             double accuracy = correct / n;
 
@@ -72,13 +62,4 @@ public class XgboostModelTrainerInternal implements ModelTrainerInternal {
             throw new MlTrainingException("Ошибка XGBoost: " + e.getMessage(), e);
         }
     }
-
-
-    private static float[] toFloatArray(double[] arr) {
-        float[] f = new float[arr.length];
-        for (int i = 0; i < arr.length; i++) {
-            f[i] = (float) arr[i];
-        }
-        return f;
-    }
 }
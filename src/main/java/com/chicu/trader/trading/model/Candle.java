@@ -2,17 +2,26 @@ package com.chicu.trader.trading.model;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
 
 @Entity
+@Table(indexes = @Index(name = "idx_candle_symbol_tf_open", columnList = "symbol, timeframe, openTime"))
 @Builder
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Candle {
+public class Candle implements Persistable<String> {
     @Id
     private String id;
 
@@ -26,4 +35,24 @@ public class Candle {
     private long closeTime;
     private String timeframe;
     private long timestamp;
+
+    /**
+     * Свеча уже есть в БД. Id назначается заранее, поэтому без этого флага saveAll
+     * делал бы merge — SELECT перед каждым INSERT; новые свечи сохраняются через persist.
+     */
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
@@ -0,0 +1,191 @@
+package com.chicu.trader.trading.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Колоночный ряд свечей на примитивных массивах.
+ * <p>
+ * Каждое поле хранится в отдельном {@code double[]}/{@code long[]}, поэтому индикаторы
+ * читают цены без упаковки и без промежуточных {@code List<Double>}.
+ * {@link #window(int, int)} и {@link #last(int)} возвращают представления над теми же
+ * массивами (без копирования). Ряд неизменяемый и потокобезопасен для чтения.
+ */
+public final class CandleSeries {
+
+    private static final CandleSeries EMPTY = new CandleSeries(null, null,
+            new long[0], new double[0], new double[0], new double[0], new double[0], new double[0], new long[0],
+            0, 0);
+
+    private final String symbol;
+    private final String timeframe;
+
+    private final long[]   openTime;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+    private final long[]   closeTime;
+
+    /** Смещение представления в массивах и его длина */
+    private final int offset;
+    private final int size;
+
+    private CandleSeries(String symbol, String timeframe,
+                         long[] openTime, double[] open, double[] high, double[] low,
+                         double[] close, double[] volume, long[] closeTime,
+                         int offset, int size) {
+        this.symbol    = symbol;
+        this.timeframe = timeframe;
+        this.openTime  = openTime;
+        this.open      = open;
+        this.high      = high;
+        this.low       = low;
+        this.close     = close;
+        this.volume    = volume;
+        this.closeTime = closeTime;
+        this.offset    = offset;
+        this.size      = size;
+    }
+
+    public static CandleSeries empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Адаптер из списка сущностей: одна копия полей в колонки.
+     * Символ и таймфрейм берутся из первой свечи.
+     */
+    public static CandleSeries of(List<Candle> candles) {
+        if (candles == null || candles.isEmpty()) {
+            return EMPTY;
+        }
+        int n = candles.size();
+        long[]   ot = new long[n];
+        double[] o  = new double[n];
+        double[] h  = new double[n];
+        double[] l  = new double[n];
+        double[] c  = new double[n];
+        double[] v  = new double[n];
+        long[]   ct = new long[n];
+        for (int i = 0; i < n; i++) {
+            Candle k = candles.get(i);
+            ot[i] = k.getOpenTime();
+            o[i]  = k.getOpen();
+            h[i]  = k.getHigh();
+            l[i]  = k.getLow();
+            c[i]  = k.getClose();
+            v[i]  = k.getVolume();
+            ct[i] = k.getCloseTime();
+        }
+        Candle first = candles.get(0);
+        return new CandleSeries(first.getSymbol(), first.getTimeframe(), ot, o, h, l, c, v, ct, 0, n);
+    }
+
+    /**
+     * Оборачивает готовые колонки без копирования. Все массивы должны быть одной длины.
+     */
+    public static CandleSeries wrap(String symbol, String timeframe,
+                                    long[] openTime, double[] open, double[] high, double[] low,
+                                    double[] close, double[] volume, long[] closeTime) {
+        int n = close.length;
+        if (openTime.length != n || open.length != n || high.length != n
+                || low.length != n || volume.length != n || closeTime.length != n) {
+            throw new IllegalArgumentException("Колонки ряда разной длины");
+        }
+        return new CandleSeries(symbol, timeframe, openTime, open, high, low, close, volume, closeTime, 0, n);
+    }
+
+    // ===== Представления =====
+
+    /**
+     * Представление [from, to) относительно текущего ряда — без копирования.
+     */
+    public CandleSeries window(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("window [" + from + ", " + to + ") вне ряда размера " + size);
+        }
+        if (from == 0 && to == size) {
+            return this;
+        }
+        return new CandleSeries(symbol, timeframe, openTime, open, high, low, close, volume, closeTime,
+                offset + from, to - from);
+    }
+
+    /** Последние n свечей (или весь ряд, если он короче) */
+    public CandleSeries last(int n) {
+        return window(Math.max(0, size - n), size);
+    }
+
+    // ===== Доступ по индексу =====
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getTimeframe() {
+        return timeframe;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long openTime(int i)  { return openTime[offset + i]; }
+    public double open(int i)    { return open[offset + i]; }
+    public double high(int i)    { return high[offset + i]; }
+    public double low(int i)     { return low[offset + i]; }
+    public double close(int i)   { return close[offset + i]; }
+    public double volume(int i)  { return volume[offset + i]; }
+    public long closeTime(int i) { return closeTime[offset + i]; }
+
+    public double lastClose() {
+        return close(size - 1);
+    }
+
+    // ===== Сырые колонки =====
+    // Возвращают общие массивы (не копии): валидный диапазон — [offset(), offset() + size()).
+    // Менять содержимое нельзя.
+
+    public int offset() {
+        return offset;
+    }
+
+    public double[] rawOpens()      { return open; }
+    public double[] rawHighs()      { return high; }
+    public double[] rawLows()       { return low; }
+    public double[] rawCloses()     { return close; }
+    public double[] rawVolumes()    { return volume; }
+    public long[]   rawOpenTimes()  { return openTime; }
+    public long[]   rawCloseTimes() { return closeTime; }
+
+    // ===== Обратные адаптеры =====
+
+    public Candle toCandle(int i) {
+        return Candle.builder()
+                .symbol(symbol)
+                .timeframe(timeframe)
+                .openTime(openTime(i))
+                .open(open(i))
+                .high(high(i))
+                .low(low(i))
+                .close(close(i))
+                .volume(volume(i))
+                .closeTime(closeTime(i))
+                .build();
+    }
+
+    /** Материализует ряд обратно в сущности — для кода, который пока работает со списками */
+    public List<Candle> toCandles() {
+        List<Candle> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(toCandle(i));
+        }
+        return list;
+    }
+}
@@ -1,54 +1,32 @@
 package com.chicu.trader.trading.monitor;
 
-import com.chicu.trader.trading.entity.TradeLog;
-import com.chicu.trader.trading.exit.TradingExitManager;
+import com.chicu.trader.trading.exit.OpenPositionIndex;
 import com.chicu.trader.trading.repository.TradeLogRepository;
-import com.chicu.trader.trading.service.PriceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.util.List;
-
+/**
+ * Страховка push-выхода: раз в reconcile-ms сверяет {@link OpenPositionIndex}
+ * с открытыми сделками в БД (один запрос). Возвращает в индекс сделки, сохранённые
+ * в обход JPA или с неудавшимся/просроченным выходом, и проверяет уровни символов
+ * без свежей потоковой цены по одной REST-цене на символ.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FallbackMonitorService {
 
     private final TradeLogRepository tradeLogRepository;
-    private final PriceService priceService;
-    private final TradingExitManager tradingExitManager;
+    private final OpenPositionIndex  openPositionIndex;
 
-    /**
-     * Мониторинг на случай пропуска обычного выхода.
-     */
-    @Scheduled(fixedRate = 15_000)
+    @Scheduled(initialDelay = 5_000, fixedDelayString = "${trading.exit.reconcile-ms:60000}")
     public void monitorOpenPositions() {
-        List<TradeLog> openTrades = tradeLogRepository.findAllByClosedFalse();
-
-        for (TradeLog trade : openTrades) {
-            try {
-                BigDecimal currentPrice = priceService.getPrice(trade.getUserChatId(), trade.getSymbol());
-                BigDecimal tp = trade.getTakeProfitPrice();
-                BigDecimal sl = trade.getStopLossPrice();
-
-                if (currentPrice == null || tp == null || sl == null) {
-                    log.warn("Не удалось получить цены по сделке {} - пропуск", trade.getSymbol());
-                    continue;
-                }
-
-                boolean shouldExit = currentPrice.compareTo(tp) >= 0 || currentPrice.compareTo(sl) <= 0;
-
-                if (shouldExit) {
-                    log.warn("⚠️ FallbackExit: символ={}, current={}, TP={}, SL={}",
-                            trade.getSymbol(), currentPrice, tp, sl);
-                    tradingExitManager.forceExit(trade);
-                }
-            } catch (Exception e) {
-                log.error("❗ Ошибка в FallbackMonitorService: {}", e.getMessage(), e);
-            }
+        try {
+            openPositionIndex.reconcile(tradeLogRepository.findAllByClosedFalse());
+        } catch (Exception e) {
+            log.error("❗ Ошибка в FallbackMonitorService: {}", e.getMessage(), e);
         }
     }
 }
@@ -0,0 +1,169 @@
+package com.chicu.trader.trading.optimizer;
+
+import com.chicu.trader.trading.model.CandleSeries;
+
+import java.util.Arrays;
+
+/**
+ * Предрасчёт движения цены после каждой возможной точки входа — для быстрой оценки сетки TP/SL.
+ * <p>
+ * Вход — по close бара i. Для каждого входа в пределах горизонта сохраняются «рекорды»:
+ * бары, на которых максимум high (рост) или минимум low (падение) впервые обновился,
+ * и достигнутое относительное отклонение. Рекорды монотонны, поэтому бар первого касания
+ * любого уровня — первый рекорд не ниже уровня. Дополнительно хранится доходность
+ * при выходе по таймауту.
+ * <p>
+ * После построения любая сетка (tp, sl) оценивается одним проходом по входам,
+ * без повторного чтения свечей. Экземпляр неизменяем и потокобезопасен.
+ */
+public final class ExcursionProfile {
+
+    /** Уровень не достигнут в пределах горизонта */
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final int entries;
+
+    // рекорды роста: для входа i — индексы [upStart[i], upStart[i + 1])
+    private final int[]    upStart;
+    private final int[]    upBar;
+    private final double[] upExc;
+
+    // рекорды падения
+    private final int[]    downStart;
+    private final int[]    downBar;
+    private final double[] downExc;
+
+    private final double[] timeoutReturn;
+
+    private ExcursionProfile(int entries,
+                             int[] upStart, int[] upBar, double[] upExc,
+                             int[] downStart, int[] downBar, double[] downExc,
+                             double[] timeoutReturn) {
+        this.entries       = entries;
+        this.upStart       = upStart;
+        this.upBar         = upBar;
+        this.upExc         = upExc;
+        this.downStart     = downStart;
+        this.downBar       = downBar;
+        this.downExc       = downExc;
+        this.timeoutReturn = timeoutReturn;
+    }
+
+    /**
+     * Строит профиль по ряду.
+     *
+     * @param horizon максимальное удержание позиции, в барах
+     */
+    public static ExcursionProfile build(CandleSeries series, int horizon) {
+        int n = Math.max(0, series.size() - 1);
+        int[]    upStart   = new int[n + 1];
+        int[]    downStart = new int[n + 1];
+        double[] timeout   = new double[n];
+
+        int cap = Math.max(16, n * 4);
+        int[]    upBar   = new int[cap];
+        double[] upExc   = new double[cap];
+        int[]    downBar = new int[cap];
+        double[] downExc = new double[cap];
+        int ups = 0, downs = 0;
+
+        for (int i = 0; i < n; i++) {
+            upStart[i]   = ups;
+            downStart[i] = downs;
+            double entry = series.close(i);
+            double maxUp = 0, maxDown = 0;
+            int last = Math.min(series.size() - 1, i + horizon);
+
+            for (int j = i + 1; j <= last; j++) {
+                double up = series.high(j) / entry - 1;
+                if (up > maxUp) {
+                    maxUp = up;
+                    if (ups == upBar.length) {
+                        upBar = Arrays.copyOf(upBar, ups * 2);
+                        upExc = Arrays.copyOf(upExc, ups * 2);
+                    }
+                    upBar[ups] = j - i;
+                    upExc[ups] = up;
+                    ups++;
+                }
+                double down = 1 - series.low(j) / entry;
+                if (down > maxDown) {
+                    maxDown = down;
+                    if (downs == downBar.length) {
+                        downBar = Arrays.copyOf(downBar, downs * 2);
+                        downExc = Arrays.copyOf(downExc, downs * 2);
+                    }
+                    downBar[downs] = j - i;
+                    downExc[downs] = down;
+                    downs++;
+                }
+            }
+            timeout[i] = series.close(last) / entry - 1;
+        }
+        upStart[n]   = ups;
+        downStart[n] = downs;
+
+        return new ExcursionProfile(n, upStart, upBar, upExc, downStart, downBar, downExc, timeout);
+    }
+
+    /** Число точек входа */
+    public int entries() {
+        return entries;
+    }
+
+    /**
+     * Средняя доходность на вход для каждой пары (tp[t], sl[s]).
+     * <p>
+     * Исход входа: TP, если уровень TP касается не позже SL (при касании обоих на одном баре
+     * засчитывается TP — как в бэктесте), иначе SL, иначе выход по close на горизонте.
+     * Уровни в долях и строго по возрастанию. Один проход по входам, без аллокаций внутри.
+     *
+     * @return score[t][s]
+     */
+    public double[][] scoreGrid(double[] tpLevels, double[] slLevels) {
+        int tn = tpLevels.length, sn = slLevels.length;
+        double[][] sum = new double[tn][sn];
+        if (entries == 0) {
+            return sum;
+        }
+        int[] tpBar = new int[tn];
+        int[] slBar = new int[sn];
+
+        for (int i = 0; i < entries; i++) {
+            fillTouches(upStart[i], upStart[i + 1], upBar, upExc, tpLevels, tpBar);
+            fillTouches(downStart[i], downStart[i + 1], downBar, downExc, slLevels, slBar);
+            double timeout = timeoutReturn[i];
+
+            for (int t = 0; t < tn; t++) {
+                int tb = tpBar[t];
+                double tpRet = tpLevels[t];
+                double[] row = sum[t];
+                for (int s = 0; s < sn; s++) {
+                    int sb = slBar[s];
+                    if (tb != NONE && tb <= sb) {
+                        row[s] += tpRet;
+                    } else if (sb != NONE) {
+                        row[s] -= slLevels[s];
+                    } else {
+                        row[s] += timeout;
+                    }
+                }
+            }
+        }
+        for (double[] row : sum) {
+            for (int s = 0; s < sn; s++) {
+                row[s] /= entries;
+            }
+        }
+        return sum;
+    }
+
+    /** Два указателя: уровни и рекорды оба возрастают */
+    private static void fillTouches(int from, int to, int[] bars, double[] exc, double[] levels, int[] out) {
+        int r = from;
+        for (int k = 0; k < levels.length; k++) {
+            while (r < to && exc[r] < levels[k]) r++;
+            out[k] = r < to ? bars[r] : NONE;
+        }
+    }
+}
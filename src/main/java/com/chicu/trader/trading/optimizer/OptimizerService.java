@@ -1,12 +1,15 @@
 package com.chicu.trader.trading.optimizer;
 
+import com.chicu.trader.bot.service.AiTradingSettingsService;
 import com.chicu.trader.trading.entity.ProfitablePair;
 import com.chicu.trader.trading.repository.ProfitablePairRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -14,25 +17,43 @@ import java.util.List;
 public class OptimizerService {
 
     private final ProfitablePairRepository pairRepository;
-    private final TpSlOptimizer tpSlOptimizer;  // Внедри сюда через DI
+    private final TpSlOptimizer tpSlOptimizer;
+    private final AiTradingSettingsService settingsService;
 
     /**
      * Оптимизация TP/SL для всех пар пользователя.
      */
     public void optimizeAllForChat(Long chatId) {
         List<ProfitablePair> pairs = pairRepository.findByUserChatId(chatId);
+        Duration timeframe = parseDuration(settingsService.getSettingsOrThrow(chatId).getTimeframe());
+
+        // все пары оптимизируются одним вызовом — параллельно и каждая по своей истории
+        Map<String, TpSlOptimizer.Result> results = tpSlOptimizer.optimize(
+                pairs.stream().map(ProfitablePair::getSymbol).distinct().toList(), timeframe);
         for (ProfitablePair pair : pairs) {
-            optimizeSingle(pair);
+            TpSlOptimizer.Result opt = results.get(pair.getSymbol());
+            if (opt == null) {
+                log.warn("Пропуск пары {}: недостаточно данных", pair.getSymbol());
+                continue;
+            }
+            optimizeSingle(pair, opt);
         }
     }
 
-    private void optimizeSingle(ProfitablePair pair) {
-        TpSlOptimizer.Result opt = tpSlOptimizer.optimize(pair.getUserChatId());
-
+    private void optimizeSingle(ProfitablePair pair, TpSlOptimizer.Result opt) {
         pair.setTakeProfitPct(opt.getTpPct() * 100.0);  // конвертация в проценты
         pair.setStopLossPct(opt.getSlPct() * 100.0);
 
         pairRepository.save(pair);
         log.info("Оптимизирована пара {} → TP={}%, SL={}%", pair.getSymbol(), opt.getTpPct() * 100.0, opt.getSlPct() * 100.0);
     }
+
+    private Duration parseDuration(String timeframe) {
+        if (timeframe == null || timeframe.isEmpty()) return Duration.ofMinutes(1);
+        timeframe = timeframe.trim().toLowerCase();
+        if (timeframe.endsWith("m")) return Duration.ofMinutes(Integer.parseInt(timeframe.replace("m", "")));
+        if (timeframe.endsWith("h")) return Duration.ofHours(Integer.parseInt(timeframe.replace("h", "")));
+        if (timeframe.endsWith("d")) return Duration.ofDays(Integer.parseInt(timeframe.replace("d", "")));
+        return Duration.ofMinutes(1);
+    }
 }
@@ -2,7 +2,11 @@
 package com.chicu.trader.trading.optimizer;
 
 import com.chicu.trader.trading.model.Candle;
+
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Интерфейс для оптимизации параметров TP/SL по истории свечей.
@@ -26,6 +30,14 @@ public interface TpSlOptimizer {
      */
     Result optimize(Long chatId);
 
+    /**
+     * Оптимизировать TP/SL отдельно для каждого символа (символы обрабатываются параллельно).
+     * Символы без достаточной истории в результат не попадают.
+     *
+     * @return символ → результат, в порядке symbols
+     */
+    Map<String, Result> optimize(Collection<String> symbols, Duration timeframe);
+
     /**
      * Результат оптимизации: доли (0.03 = 3%), и получившийся profit.
      */
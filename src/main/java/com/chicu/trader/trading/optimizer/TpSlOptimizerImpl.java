@@ -1,32 +1,190 @@
-// src/main/java/com/chicu/trader/trading/optimizer/TpSlOptimizerImpl.java
 package com.chicu.trader.trading.optimizer;
 
-import com.chicu.trader.trading.optimizer.TpSlOptimizer.Result;
+import com.chicu.trader.bot.entity.AiTradingSettings;
+import com.chicu.trader.bot.service.AiTradingSettingsService;
 import com.chicu.trader.trading.model.Candle;
-import lombok.RequiredArgsConstructor;
+import com.chicu.trader.trading.model.CandleSeries;
+import com.chicu.trader.trading.service.CandleService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+/**
+ * Перебор сетки TP/SL по {@link ExcursionProfile}: свечи читаются один раз на символ,
+ * после чего вся сетка (хоть с шагом 0.01%) оценивается одним проходом по входам.
+ * Символы обрабатываются параллельно в общем пуле бэктестов.
+ */
+@Slf4j
 @Component
-@RequiredArgsConstructor
 public class TpSlOptimizerImpl implements TpSlOptimizer {
 
-    // Внедряйте сюда, если нужны дополнительные сервисы
-    // private final CandleService candleService; 
+    /** Минимум свечей, с которым оптимизация имеет смысл */
+    private static final int MIN_CANDLES = 100;
+
+    private final AiTradingSettingsService settingsService;
+    private final CandleService            candleService;
+    private final ForkJoinPool             backtestPool;
+
+    private final double[] levels;
+    private final int      horizonBars;
+    private final int      historyBars;
+
+    public TpSlOptimizerImpl(AiTradingSettingsService settingsService,
+                             CandleService candleService,
+                             ForkJoinPool backtestPool,
+                             @Value("${optimizer.tpsl.min-pct:0.3}") double minPct,
+                             @Value("${optimizer.tpsl.max-pct:1.5}") double maxPct,
+                             @Value("${optimizer.tpsl.step-pct:0.1}") double stepPct,
+                             @Value("${optimizer.tpsl.horizon-bars:96}") int horizonBars,
+                             @Value("${optimizer.tpsl.history-bars:1000}") int historyBars) {
+        this.settingsService = settingsService;
+        this.candleService   = candleService;
+        this.backtestPool    = backtestPool;
+        this.levels          = buildLevels(minPct, maxPct, stepPct);
+        this.horizonBars     = horizonBars;
+        this.historyBars     = historyBars;
+    }
+
+    @Override
+    public Result optimize(List<Candle> history) {
+        return best(score(CandleSeries.of(history)));
+    }
 
     @Override
     public Result optimize(Long chatId) {
-        // получите историю через сигнал сервис, или вручную
-        List<Candle> history = List.of(); // замените на реальную загрузку
-        return optimize(history);
+        AiTradingSettings settings = settingsService.getSettingsOrThrow(chatId);
+        List<String> symbols = parseSymbols(settings.getSymbols());
+        Duration timeframe   = parseDuration(settings.getTimeframe());
+
+        // Общие TP/SL для всех символов пользователя: усредняем оценки сеток
+        double[][] total = null;
+        int counted = 0;
+        for (double[][] grid : scoreAll(symbols, timeframe).values()) {
+            if (total == null) {
+                total = grid;
+            } else {
+                for (int t = 0; t < total.length; t++) {
+                    for (int s = 0; s < total[t].length; s++) {
+                        total[t][s] += grid[t][s];
+                    }
+                }
+            }
+            counted++;
+        }
+        if (total == null) {
+            log.warn("⚠️ TP/SL chatId={}: нет данных для оптимизации", chatId);
+            return new Result(levels[0], levels[0], 0);
+        }
+        for (double[] row : total) {
+            for (int s = 0; s < row.length; s++) {
+                row[s] /= counted;
+            }
+        }
+        return best(total);
     }
 
     @Override
-    public Result optimize(List<Candle> history) {
-        // Ваша логика перебора TP/SL по history
-        double bestTp = 0.03, bestSl = 0.01, profit = 0;
-        // …
-        return new Result(bestTp, bestSl, profit);
+    public Map<String, Result> optimize(Collection<String> symbols, Duration timeframe) {
+        Map<String, Result> results = new LinkedHashMap<>();
+        scoreAll(symbols, timeframe).forEach((symbol, grid) -> results.put(symbol, best(grid)));
+        return results;
+    }
+
+    // ===== Внутреннее =====
+
+    /**
+     * Оценки сетки по каждому символу; загрузка и расчёт — параллельно, порядок символов сохраняется.
+     */
+    private Map<String, double[][]> scoreAll(Collection<String> symbols, Duration timeframe) {
+        List<String> order = new ArrayList<>(symbols);
+        List<ForkJoinTask<double[][]>> tasks = new ArrayList<>(order.size());
+        for (String symbol : order) {
+            tasks.add(backtestPool.submit(() -> scoreSymbol(symbol, timeframe)));
+        }
+
+        Map<String, double[][]> grids = new LinkedHashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            double[][] grid = tasks.get(i).join();
+            if (grid != null) {
+                grids.put(order.get(i), grid);
+            }
+        }
+        return grids;
+    }
+
+    private double[][] scoreSymbol(String symbol, Duration timeframe) {
+        try {
+            List<Candle> candles = candleService.loadHistory(symbol, timeframe, historyBars);
+            if (candles.size() < MIN_CANDLES) {
+                log.warn("Недостаточно свечей для анализа: {}", symbol);
+                return null;
+            }
+            return score(CandleSeries.of(candles));
+        } catch (Exception e) {
+            log.error("❌ TP/SL {}: ошибка оптимизации", symbol, e);
+            return null;
+        }
+    }
+
+    private double[][] score(CandleSeries series) {
+        return ExcursionProfile.build(series, horizonBars).scoreGrid(levels, levels);
+    }
+
+    /** Лучшая ячейка сетки; при равенстве — меньшие TP и SL (первые по порядку) */
+    private Result best(double[][] grid) {
+        int bestT = 0, bestS = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int t = 0; t < grid.length; t++) {
+            for (int s = 0; s < grid[t].length; s++) {
+                if (grid[t][s] > bestScore) {
+                    bestScore = grid[t][s];
+                    bestT = t;
+                    bestS = s;
+                }
+            }
+        }
+        return new Result(levels[bestT], levels[bestS], bestScore == Double.NEGATIVE_INFINITY ? 0 : bestScore);
+    }
+
+    /** Уровни в долях; считаем от индекса, чтобы шаг не накапливал ошибку округления */
+    private static double[] buildLevels(double minPct, double maxPct, double stepPct) {
+        if (stepPct <= 0 || maxPct < minPct) {
+            throw new IllegalArgumentException("Некорректная сетка TP/SL: " + minPct + ".." + maxPct + " / " + stepPct);
+        }
+        int count = (int) Math.floor((maxPct - minPct) / stepPct + 1e-9) + 1;
+        double[] levels = new double[count];
+        for (int k = 0; k < count; k++) {
+            levels[k] = Math.round((minPct + k * stepPct) * 1e6) / 1e8;
+        }
+        return levels;
+    }
+
+    private static List<String> parseSymbols(String csv) {
+        if (csv == null || csv.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(csv.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+    }
+
+    private Duration parseDuration(String timeframe) {
+        if (timeframe == null || timeframe.isEmpty()) return Duration.ofMinutes(1);
+        timeframe = timeframe.trim().toLowerCase();
+        if (timeframe.endsWith("m")) return Duration.ofMinutes(Integer.parseInt(timeframe.replace("m", "")));
+        if (timeframe.endsWith("h")) return Duration.ofHours(Integer.parseInt(timeframe.replace("h", "")));
+        if (timeframe.endsWith("d")) return Duration.ofDays(Integer.parseInt(timeframe.replace("d", "")));
+        return Duration.ofMinutes(1);
     }
 }
@@ -0,0 +1,377 @@
+package com.chicu.trader.trading.order;
+
+import com.chicu.trader.bot.entity.AiTradingSettings;
+import com.chicu.trader.bot.service.UserSettingsService;
+import com.chicu.trader.trading.entity.ProfitablePair;
+import com.chicu.trader.trading.entity.TradeLog;
+import com.chicu.trader.trading.marketdata.PriceTickerCache;
+import com.chicu.trader.trading.repository.TradeLogRepository;
+import com.chicu.trader.trading.risk.RiskManager;
+import com.chicu.trader.trading.service.PriceService;
+import com.chicu.trader.trading.service.binance.client.BinanceAsyncClient;
+import com.chicu.trader.trading.service.binance.client.BinanceAsyncClientFactory;
+import com.chicu.trader.trading.service.binance.client.BinanceHttpClient;
+import com.chicu.trader.trading.service.binance.client.BinanceRestClientFactory;
+import com.chicu.trader.trading.service.binance.client.model.ExchangeInfo;
+import com.chicu.trader.trading.util.QuantityAdjuster;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Конвейер входа по пачке сигналов одного пользователя.
+ * <ol>
+ *   <li>prefetch — один запрос баланса и цены всех пар (из потокового кэша,
+ *       недостающие — параллельно через REST);</li>
+ *   <li>plan — размер каждой позиции считается в памяти от общего баланса,
+ *       который резервируется по мере планирования;</li>
+ *   <li>entry — MARKET BUY всех пар одновременно (не больше max-concurrency;
+ *       лимиты Binance соблюдает фильтр {@code BinanceRateLimiter});</li>
+ *   <li>persist + oco — по исполнению входа сделка сохраняется по фактической
+ *       цене, и сразу за ней ставится OCO — без ожидания остальных пар.</li>
+ * </ol>
+ * По каждой стадии копится задержка (средняя/максимальная), а по входу —
+ * проскальзывание цены исполнения от цены сигнала.
+ */
+@Slf4j
+@Service
+public class OrderPipeline {
+
+    private static final Executor BLOCKING = r -> Schedulers.boundedElastic().schedule(r);
+
+    private final BinanceAsyncClientFactory asyncClientFactory;
+    private final BinanceRestClientFactory  clientFactory;
+    private final UserSettingsService       userSettingsService;
+    private final PriceTickerCache          tickerCache;
+    private final PriceService              priceService;
+    private final RiskManager               riskManager;
+    private final TradeLogRepository        repo;
+    private final ObjectMapper              objectMapper;
+    private final int                       maxConcurrency;
+    private final Duration                  timeout;
+
+    private final Map<Stage, StageStats> stats = new EnumMap<>(Stage.class);
+    private final LongAdder slippageBpsSum = new LongAdder();
+    private final LongAdder slippageCount  = new LongAdder();
+
+    public OrderPipeline(BinanceAsyncClientFactory asyncClientFactory,
+                         BinanceRestClientFactory clientFactory,
+                         UserSettingsService userSettingsService,
+                         PriceTickerCache tickerCache,
+                         PriceService priceService,
+                         RiskManager riskManager,
+                         TradeLogRepository repo,
+                         ObjectMapper objectMapper,
+                         @Value("${trading.pipeline.max-concurrency:8}") int maxConcurrency,
+                         @Value("${trading.pipeline.timeout-ms:30000}") long timeoutMs) {
+        this.asyncClientFactory  = asyncClientFactory;
+        this.clientFactory       = clientFactory;
+        this.userSettingsService = userSettingsService;
+        this.tickerCache         = tickerCache;
+        this.priceService        = priceService;
+        this.riskManager         = riskManager;
+        this.repo                = repo;
+        this.objectMapper        = objectMapper;
+        this.maxConcurrency      = maxConcurrency;
+        this.timeout             = Duration.ofMillis(timeoutMs);
+        for (Stage s : Stage.values()) {
+            stats.put(s, new StageStats());
+        }
+    }
+
+    /**
+     * Открыть позиции по всем парам. Возвращает управление, когда по каждой паре
+     * вход и OCO завершены (или истёк timeout-ms), чтобы следующий тик
+     * пользователя не пересекался с текущим.
+     */
+    public void execute(Long chatId, AiTradingSettings settings, List<ProfitablePair> pairs) {
+        if (pairs.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        BinanceAsyncClient client = asyncClientFactory.getClient(chatId);
+
+        // 1) prefetch
+        long t = System.nanoTime();
+        boolean isTestnet = userSettingsService.isTestnet(chatId);
+        ExchangeInfo exchangeInfo = clientFactory.getClient(chatId).getExchangeInfo();
+        CompletableFuture<Map<String, BinanceHttpClient.BalanceInfo>> balancesF = client.getFullBalance();
+        Map<String, CompletableFuture<BigDecimal>> pricesF = new LinkedHashMap<>();
+        for (ProfitablePair p : pairs) {
+            pricesF.computeIfAbsent(p.getSymbol(), symbol -> {
+                PriceTickerCache.Quote q = tickerCache.getFresh(isTestnet, symbol);
+                if (q != null) {
+                    return CompletableFuture.completedFuture(BigDecimal.valueOf(q.last()));
+                }
+                return client.getLastPrice(symbol)
+                        .whenComplete((price, ex) -> {
+                            if (price != null) {
+                                tickerCache.putLast(isTestnet, symbol, price.doubleValue());
+                            }
+                        });
+            });
+        }
+        Map<String, BigDecimal> free = new HashMap<>();
+        Map<String, BigDecimal> prices = new HashMap<>();
+        try {
+            balancesF.get(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .forEach((asset, b) -> free.put(asset, b.getFree()));
+            for (Map.Entry<String, CompletableFuture<BigDecimal>> e : pricesF.entrySet()) {
+                try {
+                    prices.put(e.getKey(), e.getValue().get(timeout.toMillis(), TimeUnit.MILLISECONDS));
+                } catch (Exception ex) {
+                    log.warn("Не удалось получить цену для {}: {}", e.getKey(), ex.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.error("❌ Не удалось получить баланс chatId={}: {}", chatId, e.getMessage());
+            return;
+        }
+        record(Stage.PREFETCH, t);
+
+        // 2) plan
+        t = System.nanoTime();
+        List<Entry> entries = new ArrayList<>();
+        for (ProfitablePair p : pairs) {
+            String symbol = p.getSymbol();
+            BigDecimal price = prices.get(symbol);
+            if (price == null) {
+                continue;
+            }
+            try {
+                String asset = riskManager.quoteAsset(symbol);
+                BigDecimal available = free.getOrDefault(asset, BigDecimal.ZERO);
+                double rawSize = riskManager.calculatePositionSize(available, price.doubleValue(), settings);
+                BigDecimal qty = QuantityAdjuster.adjustQuantity(symbol, BigDecimal.valueOf(rawSize), exchangeInfo);
+                if (qty.compareTo(BigDecimal.ZERO) <= 0) {
+                    log.warn("После коррекции qty={} для {} слишком мал — пропускаем", rawSize, symbol);
+                    continue;
+                }
+                // резервируем, чтобы следующие пары считались от остатка, как при последовательном входе
+                free.put(asset, available.subtract(qty.multiply(price)));
+                entries.add(new Entry(chatId, p, price, qty));
+            } catch (Exception ex) {
+                log.error("Ошибка при обработке {}: {}", symbol, ex.getMessage(), ex);
+            }
+        }
+        record(Stage.PLAN, t);
+
+        // 3) entry → persist → oco, по каждой паре независимо
+        try {
+            Flux.fromIterable(entries)
+                    .flatMap(e -> Mono.fromFuture(() -> enter(client, e))
+                            .onErrorResume(ex -> {
+                                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                                log.error("Ошибка при обработке {}: {}", e.pair().getSymbol(), cause.getMessage(), cause);
+                                return Mono.empty();
+                            }), maxConcurrency)
+                    .then()
+                    .block(timeout);
+        } catch (Exception e) {
+            log.warn("⏳ Конвейер ордеров chatId={} не завершился за {} мс: {}",
+                    chatId, timeout.toMillis(), e.getMessage());
+        }
+        record(Stage.TOTAL, start);
+    }
+
+    /** Снимок задержек по стадиям */
+    public Map<Stage, StageSnapshot> getStageStats() {
+        Map<Stage, StageSnapshot> out = new EnumMap<>(Stage.class);
+        stats.forEach((stage, s) -> out.put(stage, s.snapshot()));
+        return out;
+    }
+
+    /** Среднее проскальзывание входа, в б.п. (положительное — купили дороже сигнала) */
+    public double getAvgSlippageBps() {
+        long n = slippageCount.sum();
+        return n == 0 ? 0 : (double) slippageBpsSum.sum() / n;
+    }
+
+    @Scheduled(fixedDelayString = "${trading.pipeline.stats-log-ms:60000}")
+    public void logStats() {
+        if (stats.get(Stage.TOTAL).count.sum() == 0) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        getStageStats().forEach((stage, s) -> sb.append(' ')
+                .append(stage.name().toLowerCase()).append('=')
+                .append(String.format("%.1f/%d", s.avgMs(), s.maxMs())).append("мс"));
+        log.info("📦 Конвейер ордеров (среднее/макс):{}, проскальзывание={} б.п.",
+                sb, String.format("%.1f", getAvgSlippageBps()));
+    }
+
+    // ===== Внутреннее =====
+
+    private CompletableFuture<Void> enter(BinanceAsyncClient client, Entry e) {
+        String symbol = e.pair().getSymbol();
+        long t = System.nanoTime();
+        return client.placeMarketBuy(symbol, e.qty())
+                .thenApplyAsync(raw -> {
+                    record(Stage.ENTRY, t);
+                    return persist(e, readTree(raw));
+                }, BLOCKING)
+                .thenCompose(trade -> {
+                    long tOco = System.nanoTime();
+                    return client.placeOcoSell(symbol, trade.getQuantity(),
+                                    trade.getStopLossPrice(), trade.getTakeProfitPrice())
+                            .thenAcceptAsync(raw -> {
+                                record(Stage.OCO, tOco);
+                                onOcoPlaced(e, trade, readTree(raw));
+                            }, BLOCKING);
+                });
+    }
+
+    /**
+     * Сохранить вход по фактическому исполнению; TP/SL — от цены исполнения.
+     */
+    private TradeLog persist(Entry e, JsonNode fill) {
+        long t = System.nanoTime();
+        String symbol = e.pair().getSymbol();
+        String entryId = fill.get("clientOrderId").asText();
+
+        BigDecimal qty = e.qty();
+        BigDecimal price = e.signalPrice();
+        BigDecimal executed = new BigDecimal(fill.path("executedQty").asText("0"));
+        BigDecimal quote = new BigDecimal(fill.path("cummulativeQuoteQty").asText("0"));
+        if (executed.signum() > 0 && quote.signum() > 0) {
+            qty = executed;
+            price = quote.divide(executed, MathContext.DECIMAL64);
+            long bps = price.subtract(e.signalPrice())
+                    .multiply(BigDecimal.valueOf(10_000))
+                    .divide(e.signalPrice(), MathContext.DECIMAL64)
+                    .longValue();
+            slippageBpsSum.add(bps);
+            slippageCount.increment();
+        }
+
+        BigDecimal tp = price.multiply(BigDecimal.valueOf(1 + e.pair().getTakeProfitPct() / 100.0));
+        BigDecimal sl = price.multiply(BigDecimal.valueOf(1 - e.pair().getStopLossPct() / 100.0));
+
+        TradeLog logEntry = TradeLog.builder()
+                .userChatId(e.chatId())
+                .symbol(symbol)
+                .entryTime(Instant.now())
+                .entryPrice(price)
+                .quantity(qty)
+                .entryClientOrderId(entryId)
+                .takeProfitPrice(tp)
+                .stopLossPrice(sl)
+                .closed(false)
+                .build();
+        logEntry = repo.save(logEntry);
+        record(Stage.PERSIST, t);
+
+        log.info("🟢 BUY {} @{} (сигнал {}) qty={} entryId={}", symbol, price, e.signalPrice(), qty, entryId);
+        return logEntry;
+    }
+
+    /**
+     * OCO выставлен — сделка остаётся открытой, в ней запоминаются clientOrderId ног
+     * (через запятую); закрывает её исполнение одной из ног из User Data Stream.
+     * Если OCO не прошёл фильтры и вместо него ушёл MARKET SELL — он уже исполнен,
+     * и сделка закрывается по его фактической цене.
+     */
+    private void onOcoPlaced(Entry e, TradeLog logEntry, JsonNode root) {
+        String symbol = e.pair().getSymbol();
+        JsonNode reports = root.get("orderReports");
+        if (reports != null && reports.isArray() && reports.size() > 0) {
+            List<String> legs = new ArrayList<>(reports.size());
+            reports.forEach(r -> legs.add(r.get("clientOrderId").asText()));
+            logEntry.setExitClientOrderId(String.join(",", legs));
+            repo.save(logEntry);
+            log.info("🛡 OCO {} выставлен, ноги={} (trade={})", symbol, legs, logEntry.getId());
+            return;
+        }
+        if (!root.has("clientOrderId")) {
+            throw new IllegalStateException("Не удалось извлечь clientOrderId из ответа: " + root);
+        }
+
+        String exitId = root.get("clientOrderId").asText();
+        BigDecimal executed = new BigDecimal(root.path("executedQty").asText("0"));
+        BigDecimal quote = new BigDecimal(root.path("cummulativeQuoteQty").asText("0"));
+        BigDecimal exitPrice = executed.signum() > 0 && quote.signum() > 0
+                ? quote.divide(executed, MathContext.DECIMAL64)
+                : priceService.getPrice(e.chatId(), symbol);
+        if (exitPrice == null) {
+            exitPrice = logEntry.getEntryPrice();
+        }
+        BigDecimal qty = executed.signum() > 0 ? executed : logEntry.getQuantity();
+        BigDecimal pnl = exitPrice.subtract(logEntry.getEntryPrice()).multiply(qty);
+
+        logEntry.setExitClientOrderId(exitId);
+        logEntry.setExitTime(root.has("transactTime")
+                ? Instant.ofEpochMilli(root.get("transactTime").asLong()) : Instant.now());
+        logEntry.setExitPrice(exitPrice);
+        logEntry.setPnl(pnl);
+        logEntry.setClosed(true);
+        repo.save(logEntry);
+
+        log.info("↗ EXIT {} (MARKET вместо OCO) exitId={} price={} pnl={}", symbol, exitId, exitPrice, pnl);
+    }
+
+    private JsonNode readTree(String raw) {
+        try {
+            return objectMapper.readTree(raw);
+        } catch (Exception ex) {
+            throw new IllegalStateException("Ошибка разбора ответа Binance", ex);
+        }
+    }
+
+    private void record(Stage stage, long startNanos) {
+        stats.get(stage).record((System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private record Entry(Long chatId, ProfitablePair pair, BigDecimal signalPrice, BigDecimal qty) {
+    }
+
+    /**
+     * Стадии конвейера: prefetch — баланс и цены; plan — расчёт объёмов;
+     * entry — MARKET BUY до ответа биржи; persist — запись входа в БД;
+     * oco — выставление OCO; total — весь тик пользователя.
+     */
+    public enum Stage {
+        PREFETCH, PLAN, ENTRY, PERSIST, OCO, TOTAL
+    }
+
+    public record StageSnapshot(long count, double avgMs, long maxMs) {
+    }
+
+    private static final class StageStats {
+        final LongAdder  count = new LongAdder();
+        final LongAdder  sumMs = new LongAdder();
+        final AtomicLong maxMs = new AtomicLong();
+
+        void record(long ms) {
+            count.increment();
+            sumMs.add(ms);
+            maxMs.accumulateAndGet(ms, Math::max);
+        }
+
+        StageSnapshot snapshot() {
+            long n = count.sum();
+            return new StageSnapshot(n, n == 0 ? 0 : (double) sumMs.sum() / n, maxMs.get());
+        }
+    }
+}
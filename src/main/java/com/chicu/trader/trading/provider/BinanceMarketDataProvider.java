@@ -4,6 +4,7 @@ import com.chicu.trader.trading.model.Candle;
 import com.chicu.trader.trading.provider.MarketDataProvider;
 import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
 import com.chicu.trader.trading.service.binance.BinanceExchangeInfoService;
+import com.chicu.trader.trading.service.binance.client.BinanceAsyncClientFactory;
 import com.chicu.trader.trading.service.binance.client.BinanceRestClient;
 import com.chicu.trader.trading.service.binance.client.BinanceRestClientFactory;
 import com.chicu.trader.trading.service.binance.client.model.SymbolInfo;
@@ -13,6 +14,7 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Component
@@ -22,12 +24,18 @@ public class BinanceMarketDataProvider implements MarketDataProvider {
     private final HttpBinanceCandleService candleService;
     private final BinanceExchangeInfoService exchangeInfoService;
     private final BinanceRestClientFactory clientFactory;
+    private final BinanceAsyncClientFactory asyncClientFactory;
 
     @Override
     public List<Candle> fetchCandles(String symbol, Duration timeframe, int limit) {
         return candleService.fetchCandles(symbol, timeframe, limit);
     }
 
+    @Override
+    public CompletableFuture<List<Candle>> fetchCandlesAsync(String symbol, Duration timeframe, int limit) {
+        return asyncClientFactory.getPublicClient().getKlines(symbol, timeframe, limit);
+    }
+
     @Override
     public List<String> getAllSymbols() {
         // Получаем кэшированный ExchangeInfo и извлекаем названия всех символов
@@ -5,12 +5,22 @@ import com.chicu.trader.trading.model.Candle;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface MarketDataProvider {
 
     // Загрузка истории свечей
     List<Candle> fetchCandles(String symbol, Duration timeframe, int limit);
 
+    // Асинхронная загрузка свечей; по умолчанию — синхронная в вызывающем потоке
+    default CompletableFuture<List<Candle>> fetchCandlesAsync(String symbol, Duration timeframe, int limit) {
+        try {
+            return CompletableFuture.completedFuture(fetchCandles(symbol, timeframe, limit));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     // Получение всех доступных торговых пар
     List<String> getAllSymbols();
 
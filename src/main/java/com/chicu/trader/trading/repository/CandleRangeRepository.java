@@ -0,0 +1,14 @@
+package com.chicu.trader.trading.repository;
+
+import com.chicu.trader.trading.entity.CandleRange;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface CandleRangeRepository extends JpaRepository<CandleRange, Long> {
+
+    /**
+     * Сохранённые диапазоны пары/таймфрейма в порядке начала
+     */
+    List<CandleRange> findBySymbolAndTimeframeOrderByFromOpenTimeAsc(String symbol, String timeframe);
+}
@@ -5,10 +5,16 @@ import com.chicu.trader.trading.model.Candle;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 
-public interface CandleRepository extends JpaRepository<Candle, Long> {
+public interface CandleRepository extends JpaRepository<Candle, String> {
     /**
      * Возвращает все свечи для данной пары и таймфрейма,
      * отсортированные по полю timestamp (время открытия) по возрастанию.
      */
     List<Candle> findBySymbolAndTimeframeOrderByTimestampAsc(String symbol, String timeframe);
+
+    /**
+     * Свечи пары и таймфрейма с временем открытия в [from, to], по возрастанию.
+     */
+    List<Candle> findBySymbolAndTimeframeAndOpenTimeBetweenOrderByOpenTimeAsc(
+            String symbol, String timeframe, long from, long to);
 }
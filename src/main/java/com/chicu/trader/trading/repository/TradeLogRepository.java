@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,4 +52,17 @@ public interface TradeLogRepository extends JpaRepository<TradeLog, Long> {
            AND t.closed             = false
         """)
     Optional<TradeLog> findOpenByEntryClientOrderId(@Param("cid") String entryClientOrderId);
+
+    /**
+     * Открытые сделки с выставленными ордерами выхода по набору символов.
+     * В exitClientOrderId — clientOrderId ног OCO через запятую (или одного ордера).
+     */
+    @Query("""
+        SELECT t
+          FROM TradeLog t
+         WHERE t.symbol IN :symbols
+           AND t.closed = false
+           AND t.exitClientOrderId IS NOT NULL
+        """)
+    List<TradeLog> findOpenWithExitOrders(@Param("symbols") Collection<String> symbols);
 }
@@ -18,10 +18,13 @@ public class DefaultRiskManager implements RiskManager {
     @Override
     public double calculatePositionSize(Long chatId, String symbol, double entryPrice, AiTradingSettings settings) {
 
-        String quoteAsset = detectQuoteAsset(symbol);
-        BigDecimal freeBalance = accountService.getFreeBalance(chatId, quoteAsset);
+        BigDecimal freeBalance = accountService.getFreeBalance(chatId, quoteAsset(symbol));
+        return calculatePositionSize(freeBalance, entryPrice, settings);
+    }
 
-        if (freeBalance.compareTo(BigDecimal.ZERO) <= 0) {
+    @Override
+    public double calculatePositionSize(BigDecimal freeBalance, double entryPrice, AiTradingSettings settings) {
+        if (freeBalance == null || freeBalance.compareTo(BigDecimal.ZERO) <= 0) {
             return 0;
         }
 
@@ -33,7 +36,8 @@ public class DefaultRiskManager implements RiskManager {
         return qty.doubleValue();
     }
 
-    private String detectQuoteAsset(String symbol) {
+    @Override
+    public String quoteAsset(String symbol) {
         if (symbol.endsWith("USDT")) return "USDT";
         if (symbol.endsWith("BUSD")) return "BUSD";
         if (symbol.endsWith("BTC")) return "BTC";
@@ -2,6 +2,17 @@ package com.chicu.trader.trading.risk;
 
 import com.chicu.trader.bot.entity.AiTradingSettings;
 
+import java.math.BigDecimal;
+
 public interface RiskManager {
     double calculatePositionSize(Long chatId, String symbol, double price, AiTradingSettings settings);
+
+    /**
+     * Размер позиции от уже известного свободного баланса котируемого актива
+     * (без запроса к бирже) — для пакетного входа по нескольким парам.
+     */
+    double calculatePositionSize(BigDecimal freeBalance, double price, AiTradingSettings settings);
+
+    /** Котируемый актив символа, в котором считается баланс (USDT для BTCUSDT) */
+    String quoteAsset(String symbol);
 }
@@ -2,39 +2,50 @@ package com.chicu.trader.trading.scanner;
 
 import com.chicu.trader.trading.model.Candle;
 import com.chicu.trader.trading.provider.MarketDataProvider;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.*;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MarketScanner {
 
     private final MarketDataProvider marketDataProvider;
+    /** Сколько запросов свечей держать в полёте одновременно */
+    private final int maxConcurrency;
+
+    public MarketScanner(MarketDataProvider marketDataProvider,
+                         @Value("${scanner.max-concurrency:16}") int maxConcurrency) {
+        this.marketDataProvider = marketDataProvider;
+        this.maxConcurrency     = maxConcurrency;
+    }
 
     public List<String> scanTopSymbols(int topN, Duration timeframe) {
         log.info("🔍 Запуск сканера рынка для выбора топ-{} монет...", topN);
 
         List<String> allSymbols = marketDataProvider.getAllSymbols();
-        Map<String, Double> volatilityMap = new HashMap<>();
 
         int limit = 500; // например, 500 последних свечей
-        for (String symbol : allSymbols) {
-            try {
-                List<Candle> candles = marketDataProvider.fetchCandles(symbol, timeframe, limit);
-                if (candles.size() < 50) continue;
-
-                double volatility = calculateVolatility(candles);
-                volatilityMap.put(symbol, volatility);
-            } catch (Exception e) {
-                log.warn("Ошибка при загрузке свечей для {}: {}", symbol, e.getMessage());
-            }
-        }
+        // Запросы идут асинхронно, не более maxConcurrency одновременно
+        Map<String, Double> volatilityMap = Flux.fromIterable(allSymbols)
+                .flatMap(symbol -> Mono.fromFuture(() -> marketDataProvider.fetchCandlesAsync(symbol, timeframe, limit))
+                        .filter(candles -> candles.size() >= 50)
+                        .map(candles -> Map.entry(symbol, calculateVolatility(candles)))
+                        .onErrorResume(e -> {
+                            log.warn("Ошибка при загрузке свечей для {}: {}", symbol, e.getMessage());
+                            return Mono.empty();
+                        }), maxConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
 
+        if (volatilityMap == null) {
+            return List.of();
+        }
         return volatilityMap.entrySet().stream()
                 .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
                 .limit(topN)
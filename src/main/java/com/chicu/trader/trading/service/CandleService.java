@@ -1,63 +1,186 @@
 package com.chicu.trader.trading.service;
 
+import com.chicu.trader.trading.marketdata.KlineStreamService;
 import com.chicu.trader.trading.model.Candle;
 import com.chicu.trader.trading.provider.MarketDataProvider;
-import lombok.RequiredArgsConstructor;
+import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Единая точка доступа к свечам.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class CandleService {
 
     private final MarketDataProvider marketDataProvider;
+    private final KlineStreamService klineStreamService;
+    private final CandleStore        candleStore;
 
-    // Кэш последних свечей на случай частых вызовов
-    private final ConcurrentHashMap<String, List<Candle>> cache = new ConcurrentHashMap<>();
+    /**
+     * Кэш REST-истории по ключу symbol:tfMinutes.
+     * Запись живёт до закрытия текущей свечи своего таймфрейма, общий объём
+     * ограничен числом свечей (candles.cache.max-bars).
+     */
+    private final Cache<String, CachedHistory> cache;
+
+    public CandleService(MarketDataProvider marketDataProvider,
+                         KlineStreamService klineStreamService,
+                         CandleStore candleStore,
+                         @Value("${candles.cache.max-bars:200000}") long maxBars) {
+        this.marketDataProvider = marketDataProvider;
+        this.klineStreamService = klineStreamService;
+        this.candleStore        = candleStore;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBars)
+                .weigher((String key, CachedHistory h) -> h.candles().size())
+                .expireAfter(new UntilNextBarClose())
+                .recordStats()
+                .build();
+    }
 
     /**
-     * Загружаем историю свечей с Binance (или другого провайдера)
+     * Загружаем историю свечей: из потокового буфера, если он включён и вмещает limit,
+     * иначе — с Binance (или другого провайдера) по REST
      */
     public List<Candle> loadHistory(String symbol, Duration timeframe, int limit) {
-        String cacheKey = symbol + ":" + timeframe.toMinutes() + ":" + limit;
-        if (cache.containsKey(cacheKey)) {
-            return cache.get(cacheKey);
+        List<Candle> streamed = klineStreamService.getHistory(symbol, timeframe, limit);
+        if (streamed != null) {
+            return streamed;
+        }
+
+        String cacheKey = key(symbol, timeframe);
+        CachedHistory cached = cache.getIfPresent(cacheKey);
+        if (cached != null && cached.limit() < limit) {
+            // закэшировано меньше, чем просят, — перечитаем с большим limit
+            cache.invalidate(cacheKey);
+            cached = null;
+        }
+        if (cached == null) {
+            cached = cache.get(cacheKey, k -> fetch(symbol, timeframe, limit));
         }
+        return cached != null ? cached.tail(limit) : List.of();
+    }
+
+    /**
+     * Закрытые свечи в диапазоне времени открытия [from, to] из локального хранилища
+     * (недостающие участки догружаются с биржи). Для бэктестов на длинных периодах.
+     */
+    public List<Candle> loadRange(String symbol, Duration timeframe, Instant from, Instant to) {
+        return candleStore.getRange(symbol, timeframe, from.toEpochMilli(), to.toEpochMilli());
+    }
 
-        List<Candle> candles = marketDataProvider.fetchCandles(symbol, timeframe, limit);
-        cache.put(cacheKey, candles);
-        return candles;
+    /**
+     * Последние limit закрытых свечей из локального хранилища — без ограничения
+     * в 1000 свечей одного REST-запроса. Для обучения моделей.
+     */
+    public List<Candle> loadStoredHistory(String symbol, Duration timeframe, int limit) {
+        return candleStore.getLatest(symbol, timeframe, limit);
     }
 
     /**
      * Принудительно обновляем кэш (напр. по таймеру)
      */
     public void refreshCache(String symbol, Duration timeframe, int limit) {
-        String cacheKey = symbol + ":" + timeframe.toMinutes() + ":" + limit;
-        List<Candle> candles = marketDataProvider.fetchCandles(symbol, timeframe, limit);
-        cache.put(cacheKey, candles);
+        CachedHistory fresh = fetch(symbol, timeframe, limit);
+        if (fresh != null) {
+            cache.put(key(symbol, timeframe), fresh);
+        }
     }
 
     /**
      * Очистка всего кэша (если потребуется)
      */
     public void clearCache() {
-        cache.clear();
+        cache.invalidateAll();
     }
+
+    /**
+     * Статистика кэша: попадания, промахи, время загрузок, вытеснения.
+     */
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
     public double getCurrentPrice(String symbol) {
-        List<Candle> candles = cache.get(symbol);  // если ты держишь кэш
-        if (candles != null && !candles.isEmpty()) {
-            return candles.get(candles.size() - 1).getClose();
+        // Самая свежая свеча символа среди всех закэшированных таймфреймов
+        String prefix = symbol + ":";
+        return cache.asMap().entrySet().stream()
+                .filter(e -> e.getKey().startsWith(prefix))
+                .map(e -> e.getValue().candles())
+                .filter(c -> !c.isEmpty())
+                .map(c -> c.get(c.size() - 1))
+                .max((a, b) -> Long.compare(a.getCloseTime(), b.getCloseTime()))
+                .map(Candle::getClose)
+                .orElseThrow(() -> new IllegalStateException("No cached candles for symbol: " + symbol));
+    }
+
+    private CachedHistory fetch(String symbol, Duration timeframe, int limit) {
+        // Больше одной страницы klines за раз не отдать — такие запросы идут через хранилище
+        List<Candle> candles = limit > HttpBinanceCandleService.MAX_LIMIT
+                ? candleStore.getLatest(symbol, timeframe, limit)
+                : marketDataProvider.fetchCandles(symbol, timeframe, limit);
+        if (candles == null || candles.isEmpty()) {
+            // пустой ответ (ошибка провайдера) не кэшируем
+            return null;
+        }
+        return new CachedHistory(List.copyOf(candles), limit, nextBarClose(candles, timeframe));
+    }
+
+    private static String key(String symbol, Duration timeframe) {
+        return symbol + ":" + timeframe.toMinutes();
+    }
+
+    /**
+     * Момент, после которого данные устаревают: закрытие последней (текущей) свечи,
+     * а если она уже закрыта — ближайшая граница таймфрейма.
+     */
+    private static long nextBarClose(List<Candle> candles, Duration timeframe) {
+        long now = System.currentTimeMillis();
+        long lastClose = candles.get(candles.size() - 1).getCloseTime();
+        if (lastClose >= now) {
+            return lastClose + 1;
+        }
+        long tf = Math.max(1, timeframe.toMillis());
+        return (now / tf + 1) * tf;
+    }
+
+    private record CachedHistory(List<Candle> candles, int limit, long expiresAtMillis) {
+
+        /** Последние count свечей — больший кэш обслуживает меньшие запросы */
+        List<Candle> tail(int count) {
+            int n = candles.size();
+            return count >= n ? candles : candles.subList(n - count, n);
         }
-        throw new IllegalStateException("No cached candles for symbol: " + symbol);
     }
 
+    private static final class UntilNextBarClose implements Expiry<String, CachedHistory> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedHistory value, long currentTime) {
+            long ms = Math.max(0, value.expiresAtMillis() - System.currentTimeMillis());
+            return TimeUnit.MILLISECONDS.toNanos(ms);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedHistory value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedHistory value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
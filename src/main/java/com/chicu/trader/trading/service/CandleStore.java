@@ -0,0 +1,163 @@
+package com.chicu.trader.trading.service;
+
+import com.chicu.trader.trading.entity.CandleRange;
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.repository.CandleRangeRepository;
+import com.chicu.trader.trading.repository.CandleRepository;
+import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Локальное хранилище закрытых свечей по (symbol, timeframe).
+ * <p>
+ * Помнит, какие диапазоны уже сохранены ({@link CandleRange}), и при запросе
+ * докачивает с Binance только недостающие участки, листая klines страницами
+ * по startTime/endTime. Незакрытые свечи не сохраняются; участки, где у Binance
+ * свечей нет, тоже запоминаются, чтобы не запрашивать их снова.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CandleStore {
+
+    private final CandleRepository         candleRepository;
+    private final CandleRangeRepository    rangeRepository;
+    private final HttpBinanceCandleService restCandles;
+    private final TransactionTemplate      tx;
+
+    /** Одна догрузка на (symbol, timeframe) за раз */
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Закрытые свечи с временем открытия в [fromMillis, toMillis], по возрастанию.
+     * Недостающие участки предварительно догружаются.
+     */
+    public List<Candle> getRange(String symbol, Duration timeframe, long fromMillis, long toMillis) {
+        String interval = HttpBinanceCandleService.toBinanceInterval(timeframe);
+        long tf   = timeframe.toMillis();
+        long from = Math.floorDiv(fromMillis, tf) * tf;
+        long to   = Math.min(Math.floorDiv(toMillis, tf) * tf, lastClosedOpenTime(tf));
+        if (from > to) {
+            return List.of();
+        }
+
+        Object lock = locks.computeIfAbsent(symbol + ":" + interval, k -> new Object());
+        synchronized (lock) {
+            for (long[] gap : findGaps(symbol, interval, from, to, tf)) {
+                fill(symbol, timeframe, interval, gap[0], gap[1]);
+            }
+        }
+        return candleRepository.findBySymbolAndTimeframeAndOpenTimeBetweenOrderByOpenTimeAsc(
+                symbol, interval, from, to);
+    }
+
+    /**
+     * Последние limit закрытых свечей.
+     */
+    public List<Candle> getLatest(String symbol, Duration timeframe, int limit) {
+        long tf = timeframe.toMillis();
+        long to = lastClosedOpenTime(tf);
+        return getRange(symbol, timeframe, to - (long) (limit - 1) * tf, to);
+    }
+
+    // ===== Внутреннее =====
+
+    private static long lastClosedOpenTime(long tf) {
+        return Math.floorDiv(System.currentTimeMillis(), tf) * tf - tf;
+    }
+
+    /**
+     * Участки [from, to], не покрытые сохранёнными диапазонами.
+     */
+    private List<long[]> findGaps(String symbol, String interval, long from, long to, long tf) {
+        List<long[]> gaps = new ArrayList<>();
+        long cursor = from;
+        for (CandleRange r : rangeRepository.findBySymbolAndTimeframeOrderByFromOpenTimeAsc(symbol, interval)) {
+            if (r.getToOpenTime() < cursor) {
+                continue;
+            }
+            if (r.getFromOpenTime() > to) {
+                break;
+            }
+            if (r.getFromOpenTime() > cursor) {
+                gaps.add(new long[]{cursor, r.getFromOpenTime() - tf});
+            }
+            cursor = Math.max(cursor, r.getToOpenTime() + tf);
+        }
+        if (cursor <= to) {
+            gaps.add(new long[]{cursor, to});
+        }
+        return gaps;
+    }
+
+    /**
+     * Постранично выкачивает [from, to]. Каждая страница сохраняется вместе с отметкой
+     * покрытого ею диапазона в одной транзакции. Участок без свечей (до листинга,
+     * простой биржи) отмечается, только если загрузка прошла без ошибок и он кончается
+     * раньше последней закрытой свечи — её Binance может отдать с задержкой.
+     */
+    private void fill(String symbol, Duration timeframe, String interval, long from, long to) {
+        long tf = timeframe.toMillis();
+        long[] next = {from};
+        int total;
+        try {
+            total = restCandles.fetchClosedRangeOrThrow(symbol, timeframe, from, to, page -> {
+                for (Candle c : page) {
+                    c.setId(symbol + ":" + interval + ":" + c.getOpenTime());
+                    c.setTimeframe(interval);
+                    c.setTimestamp(c.getOpenTime());
+                }
+                long pageTo = page.get(page.size() - 1).getOpenTime();
+                tx.executeWithoutResult(status -> {
+                    candleRepository.saveAll(page);
+                    addRange(symbol, interval, next[0], pageTo, tf);
+                });
+                next[0] = pageTo + tf;
+            });
+        } catch (Exception e) {
+            // сохранённые страницы уже отмечены, остаток догрузится при следующем запросе
+            log.warn("⚠️ {} {}: загрузка [{}, {}] прервана: {}", symbol, interval, next[0], to, e.getMessage());
+            return;
+        }
+
+        if (next[0] <= to && to < lastClosedOpenTime(tf)) {
+            tx.executeWithoutResult(status -> addRange(symbol, interval, next[0], to, tf));
+            log.info("🕳️ {} {}: свечей нет в [{}, {}] — отмечено как пустое", symbol, interval, next[0], to);
+        }
+        if (total > 0) {
+            log.info("💾 {} {}: сохранено {} свечей [{} → {}]", symbol, interval, total, from, next[0] - tf);
+        }
+    }
+
+    /**
+     * Добавляет диапазон и склеивает его с пересекающимися и соседними.
+     */
+    private void addRange(String symbol, String interval, long from, long to, long tf) {
+        long mergedFrom = from;
+        long mergedTo   = to;
+        List<CandleRange> absorbed = new ArrayList<>();
+        for (CandleRange r : rangeRepository.findBySymbolAndTimeframeOrderByFromOpenTimeAsc(symbol, interval)) {
+            if (r.getToOpenTime() + tf >= mergedFrom && r.getFromOpenTime() - tf <= mergedTo) {
+                mergedFrom = Math.min(mergedFrom, r.getFromOpenTime());
+                mergedTo   = Math.max(mergedTo, r.getToOpenTime());
+                absorbed.add(r);
+            }
+        }
+        rangeRepository.deleteAll(absorbed);
+        rangeRepository.save(CandleRange.builder()
+                .symbol(symbol)
+                .timeframe(interval)
+                .fromOpenTime(mergedFrom)
+                .toOpenTime(mergedTo)
+                .build());
+    }
+}
@@ -1,6 +1,7 @@
 package com.chicu.trader.trading.service;
 
 import com.chicu.trader.bot.service.UserSettingsService;
+import com.chicu.trader.trading.marketdata.PriceTickerCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -9,23 +10,36 @@ import org.springframework.web.client.RestTemplate;
 import java.math.BigDecimal;
 import java.util.Map;
 
+/**
+ * Текущая цена символа в сети пользователя: из потокового {@link PriceTickerCache},
+ * а если там нет свежей цены — REST {@code ticker/price}.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PriceService {
 
     private final UserSettingsService userSettingsService;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final PriceTickerCache tickerCache;
 
     public BigDecimal getPrice(Long chatId, String symbol) {
-        String baseUrl = userSettingsService.isTestnet(chatId)
+        boolean isTestnet = userSettingsService.isTestnet(chatId);
+        PriceTickerCache.Quote quote = tickerCache.getFresh(isTestnet, symbol);
+        if (quote != null) {
+            return BigDecimal.valueOf(quote.last());
+        }
+
+        String baseUrl = isTestnet
                 ? "https://testnet.binance.vision"
                 : "https://api.binance.com";
         try {
             String url = baseUrl + "/api/v3/ticker/price?symbol=" + symbol;
             Map<?, ?> response = restTemplate.getForObject(url, Map.class);
             if (response == null || !response.containsKey("price")) return null;
-            return new BigDecimal((String) response.get("price"));
+            BigDecimal price = new BigDecimal((String) response.get("price"));
+            tickerCache.putLast(isTestnet, symbol, price.doubleValue());
+            return price;
         } catch (Exception e) {
             log.error("❌ Error fetching price for {} (chatId={}): {}", symbol, chatId, e.getMessage());
             return null;
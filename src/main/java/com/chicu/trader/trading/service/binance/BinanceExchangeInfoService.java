@@ -38,7 +38,7 @@ public class BinanceExchangeInfoService {
 
     public synchronized void refresh() {
         log.info("Refreshing Binance ExchangeInfo…");
-        ExchangeInfo newInfo = publicClient.getExchangeInfo();
+        ExchangeInfo newInfo = publicClient.refreshExchangeInfo();
 
         Map<String, BigDecimal> newPriceMap = new ConcurrentHashMap<>();
         Map<String, BigDecimal> newLotMap   = new ConcurrentHashMap<>();
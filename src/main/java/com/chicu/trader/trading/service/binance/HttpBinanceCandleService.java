@@ -12,59 +12,151 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class HttpBinanceCandleService {
 
+    /** Максимум свечей в одном ответе klines */
+    public static final int MAX_LIMIT = 1000;
+
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public List<Candle> fetchCandles(String symbol, Duration timeframe, int limit) {
-        String interval = convertToBinanceInterval(timeframe);
+        String interval = toBinanceInterval(timeframe);
         String url = String.format(
                 "https://api.binance.com/api/v3/klines?symbol=%s&interval=%s&limit=%d",
                 symbol, interval, limit
         );
+        return load(url, symbol, interval);
+    }
 
-        try {
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode root = objectMapper.readTree(response);
-            List<Candle> candles = new ArrayList<>();
-
-            for (JsonNode array : root) {
-                Instant openTime = Instant.ofEpochMilli(array.get(0).asLong());
-                Instant closeTime = Instant.ofEpochMilli(array.get(6).asLong());
-
-                double open = array.get(1).asDouble();
-                double high = array.get(2).asDouble();
-                double low  = array.get(3).asDouble();
-                double close = array.get(4).asDouble();
-                double volume = array.get(5).asDouble();
-
-                Candle candle = Candle.builder()
-                        .symbol(symbol)
-                        .openTime(openTime.toEpochMilli())
-                        .open(open)
-                        .high(high)
-                        .low(low)
-                        .close(close)
-                        .volume(volume)
-                        .closeTime(closeTime.toEpochMilli())
-                        .build();
-
-                candles.add(candle);
+    /**
+     * Свечи в диапазоне [startTime, endTime] (мс, по времени открытия), не более limit штук.
+     * Используется для догрузки пропусков и постраничной выгрузки истории.
+     */
+    public List<Candle> fetchCandles(String symbol, Duration timeframe, long startTime, long endTime, int limit) {
+        String interval = toBinanceInterval(timeframe);
+        return load(rangeUrl(symbol, interval, startTime, endTime, limit), symbol, interval);
+    }
+
+    /**
+     * Постранично выкачивает закрытые свечи с временем открытия в [from, to]
+     * и отдаёт их потребителю страницами (по возрастанию времени).
+     *
+     * @return число переданных свечей (0 — данных нет или загрузка не удалась)
+     */
+    public int fetchClosedRange(String symbol, Duration timeframe, long from, long to,
+                                Consumer<List<Candle>> pageConsumer) {
+        return fetchClosedRange(symbol, timeframe, from, to, pageConsumer, false);
+    }
+
+    /**
+     * Как {@link #fetchClosedRange}, но сбой запроса не выдаётся за пустой ответ:
+     * при ошибке бросает исключение (уже переданные страницы остаются у потребителя),
+     * а 0 значит, что у Binance свечей в [from, to] действительно нет.
+     */
+    public int fetchClosedRangeOrThrow(String symbol, Duration timeframe, long from, long to,
+                                       Consumer<List<Candle>> pageConsumer) {
+        return fetchClosedRange(symbol, timeframe, from, to, pageConsumer, true);
+    }
+
+    private int fetchClosedRange(String symbol, Duration timeframe, long from, long to,
+                                 Consumer<List<Candle>> pageConsumer, boolean strict) {
+        String interval = toBinanceInterval(timeframe);
+        long tf    = timeframe.toMillis();
+        long now   = System.currentTimeMillis();
+        long start = from;
+        int  total = 0;
+
+        while (start <= to) {
+            String url = rangeUrl(symbol, interval, start, to, MAX_LIMIT);
+            List<Candle> page = strict ? loadOrThrow(url, symbol, interval) : load(url, symbol, interval);
+            if (page.isEmpty()) {
+                break;
+            }
+            List<Candle> closed = new ArrayList<>(page.size());
+            for (Candle c : page) {
+                if (c.getCloseTime() < now && c.getOpenTime() <= to) {
+                    closed.add(c);
+                }
             }
-            return candles;
+            if (!closed.isEmpty()) {
+                pageConsumer.accept(closed);
+                total += closed.size();
+            }
+            if (page.size() < MAX_LIMIT) {
+                break;
+            }
+            start = page.get(page.size() - 1).getOpenTime() + tf;
+        }
+        return total;
+    }
 
+    private static String rangeUrl(String symbol, String interval, long startTime, long endTime, int limit) {
+        return String.format(
+                "https://api.binance.com/api/v3/klines?symbol=%s&interval=%s&startTime=%d&endTime=%d&limit=%d",
+                symbol, interval, startTime, endTime, limit
+        );
+    }
+
+    private List<Candle> load(String url, String symbol, String interval) {
+        try {
+            return loadOrThrow(url, symbol, interval);
         } catch (Exception e) {
             log.error("Ошибка загрузки свечей с Binance: {}", e.getMessage(), e);
             return List.of();
         }
     }
 
-    private String convertToBinanceInterval(Duration duration) {
+    private List<Candle> loadOrThrow(String url, String symbol, String interval) {
+        try {
+            String response = restTemplate.getForObject(url, String.class);
+            return parseKlines(objectMapper.readTree(response), symbol, interval);
+        } catch (Exception e) {
+            throw new IllegalStateException("Ошибка загрузки свечей " + symbol + " " + interval, e);
+        }
+    }
+
+    /**
+     * Разбор ответа /api/v3/klines (массив массивов) в свечи.
+     */
+    public static List<Candle> parseKlines(JsonNode root, String symbol, String interval) {
+        List<Candle> candles = new ArrayList<>(root.size());
+        for (JsonNode array : root) {
+            Instant openTime = Instant.ofEpochMilli(array.get(0).asLong());
+            Instant closeTime = Instant.ofEpochMilli(array.get(6).asLong());
+
+            double open = array.get(1).asDouble();
+            double high = array.get(2).asDouble();
+            double low  = array.get(3).asDouble();
+            double close = array.get(4).asDouble();
+            double volume = array.get(5).asDouble();
+
+            Candle candle = Candle.builder()
+                    .symbol(symbol)
+                    .openTime(openTime.toEpochMilli())
+                    .open(open)
+                    .high(high)
+                    .low(low)
+                    .close(close)
+                    .volume(volume)
+                    .closeTime(closeTime.toEpochMilli())
+                    .timeframe(interval)
+                    .build();
+
+            candles.add(candle);
+        }
+        return candles;
+    }
+
+    /**
+     * Интервал Binance ("1m", "4h", "1d") для заданной длительности.
+     */
+    public static String toBinanceInterval(Duration duration) {
         long minutes = duration.toMinutes();
 
         if (minutes < 60) {
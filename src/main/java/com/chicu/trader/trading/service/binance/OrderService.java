@@ -66,6 +66,14 @@ public class OrderService {
         }
         throw new IllegalStateException("Не удалось извлечь clientOrderId из ответа: " + raw);
     }
+    /**
+     * Отменить ордер (или весь OCO — по любой его ноге).
+     * Если ордер уже исполнен или отменён, Binance отвечает ошибкой — она пробрасывается.
+     */
+    public void cancelOrder(Long chatId, String symbol, String clientOrderId) {
+        clientFactory.getClient(chatId).cancelOrderRaw(symbol, clientOrderId);
+    }
+
     /** Получить статус OCO-ордера по его listId */
     @SneakyThrows
     public JsonNode getOcoStatus(Long chatId, String symbol, String listId) {
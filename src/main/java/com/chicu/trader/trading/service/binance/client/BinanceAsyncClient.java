@@ -0,0 +1,320 @@
+package com.chicu.trader.trading.service.binance.client;
+
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
+import com.chicu.trader.trading.service.binance.client.model.ExchangeInfo;
+import com.chicu.trader.trading.service.binance.client.model.SymbolFilter;
+import com.chicu.trader.trading.service.binance.client.model.SymbolInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Неблокирующий вариант {@link BinanceHttpClient} на WebClient (reactor-netty).
+ * <p>
+ * Те же эндпоинты (klines, ticker/price, account, order, order/oco, exchangeInfo),
+ * но методы сразу возвращают {@link CompletableFuture}: запрос не занимает поток
+ * на время ожидания ответа, поэтому сотни запросов могут идти одновременно по
+ * общему пулу соединений (HTTP/2 — мультиплексирование в одном соединении).
+ * Правила LOT_SIZE и смещение времени берутся из общего {@link BinanceEndpoint}.
+ */
+@Slf4j
+public class BinanceAsyncClient {
+
+    private static final String KLINES_EP = "/api/v3/klines";
+    private static final String PRICE_EP = "/api/v3/ticker/price";
+    private static final String INFO_EP = "/api/v3/exchangeInfo";
+    private static final String ACCOUNT_EP = "/api/v3/account";
+    private static final String ORDER_EP = "/api/v3/order";
+    private static final String OCO_ORDER_EP = "/api/v3/order/oco";
+    private static final long DEFAULT_WINDOW = 5000L;
+
+    private final WebClient       webClient;
+    private final BinanceEndpoint endpoint;
+    private final ObjectMapper    objectMapper;
+    private final String apiKey;
+    private final String secretKey;
+    @Getter
+    private final String baseUrl;
+
+    public BinanceAsyncClient(WebClient webClient, BinanceEndpoint endpoint, String apiKey, String secretKey) {
+        this.webClient    = Objects.requireNonNull(webClient);
+        this.endpoint     = Objects.requireNonNull(endpoint);
+        this.objectMapper = endpoint.getObjectMapper();
+        this.apiKey       = apiKey;
+        this.secretKey    = secretKey;
+        this.baseUrl      = endpoint.getBaseUrl();
+    }
+
+    // ===== Market data =====
+
+    public CompletableFuture<List<Candle>> getKlines(String symbol, Duration timeframe, int limit) {
+        String interval = HttpBinanceCandleService.toBinanceInterval(timeframe);
+        String query = "symbol=" + symbol + "&interval=" + interval + "&limit=" + limit;
+        return get(KLINES_EP, query)
+                .map(json -> HttpBinanceCandleService.parseKlines(readTree(json), symbol, interval))
+                .toFuture();
+    }
+
+    /**
+     * Свечи с временем открытия в [startTime, endTime] (мс), не более limit штук.
+     */
+    public CompletableFuture<List<Candle>> getKlines(String symbol, Duration timeframe,
+                                                     long startTime, long endTime, int limit) {
+        String interval = HttpBinanceCandleService.toBinanceInterval(timeframe);
+        String query = "symbol=" + symbol + "&interval=" + interval
+                + "&startTime=" + startTime + "&endTime=" + endTime + "&limit=" + limit;
+        return get(KLINES_EP, query)
+                .map(json -> HttpBinanceCandleService.parseKlines(readTree(json), symbol, interval))
+                .toFuture();
+    }
+
+    public CompletableFuture<BigDecimal> getLastPrice(String symbol) {
+        return lastPrice(symbol).toFuture();
+    }
+
+    /**
+     * Свежий exchangeInfo с биржи (общий снимок эндпоинта при этом не меняется).
+     */
+    public CompletableFuture<ExchangeInfo> getExchangeInfo() {
+        return get(INFO_EP, null)
+                .map(json -> {
+                    try {
+                        return objectMapper.readValue(json, ExchangeInfo.class);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Ошибка getExchangeInfo", e);
+                    }
+                })
+                .toFuture();
+    }
+
+    // ===== Аккаунт =====
+
+    public CompletableFuture<BigDecimal> getBalance(String asset) {
+        return account()
+                .map(root -> {
+                    for (JsonNode b : root.get("balances")) {
+                        if (asset.equals(b.get("asset").asText())) {
+                            return new BigDecimal(b.get("free").asText());
+                        }
+                    }
+                    return BigDecimal.ZERO;
+                })
+                .toFuture();
+    }
+
+    public CompletableFuture<Map<String, BinanceHttpClient.BalanceInfo>> getFullBalance() {
+        return account()
+                .map(root -> {
+                    Map<String, BinanceHttpClient.BalanceInfo> result = new LinkedHashMap<>();
+                    for (JsonNode b : root.get("balances")) {
+                        BigDecimal free   = new BigDecimal(b.get("free").asText());
+                        BigDecimal locked = new BigDecimal(b.get("locked").asText());
+                        if (free.signum() > 0 || locked.signum() > 0) {
+                            String asset = b.get("asset").asText();
+                            result.put(asset, new BinanceHttpClient.BalanceInfo(asset, free, locked));
+                        }
+                    }
+                    return result;
+                })
+                .toFuture();
+    }
+
+    // ===== Ордера =====
+
+    public CompletableFuture<String> placeMarketBuy(String symbol, BigDecimal qty) {
+        return marketOrder("BUY", symbol, qty).toFuture();
+    }
+
+    public CompletableFuture<String> placeMarketSell(String symbol, BigDecimal qty) {
+        return marketOrder("SELL", symbol, qty).toFuture();
+    }
+
+    /**
+     * OCO SELL: TP/стоп округляются до PRICE_FILTER и сдвигаются от текущей цены
+     * минимум на тик — как в {@link BinanceHttpClient#placeOcoSell}.
+     */
+    public CompletableFuture<String> placeOcoSell(String symbol,
+                                                  BigDecimal rawQty,
+                                                  BigDecimal stopLossPrice,
+                                                  BigDecimal takeProfitPrice) {
+        return Mono.fromCallable(() -> {
+                    requireKeys();
+                    SymbolInfo info = endpoint.rules().symbols().get(symbol);
+                    if (info == null) {
+                        throw new RuntimeException("Symbol not found: " + symbol);
+                    }
+                    SymbolFilter pf = info.getFilters().stream()
+                            .filter(f -> "PRICE_FILTER".equals(f.getFilterType()))
+                            .findFirst().orElseThrow();
+                    BigDecimal quantity = endpoint.normalizeQuantity(symbol, rawQty);
+                    if (quantity.signum() == 0) {
+                        throw new RuntimeException("Quantity too small for symbol " + symbol);
+                    }
+                    return Map.entry(new BigDecimal(pf.getTickSize()), quantity);
+                })
+                // exchangeInfo может загружаться с биржи — не на event-loop
+                .subscribeOn(Schedulers.boundedElastic())
+                .zipWith(lastPrice(symbol))
+                .flatMap(t -> {
+                    BigDecimal tick     = t.getT1().getKey();
+                    BigDecimal quantity = t.getT1().getValue();
+                    BigDecimal last     = t.getT2();
+                    int priceScale = tick.stripTrailingZeros().scale();
+
+                    BigDecimal tp = takeProfitPrice.setScale(priceScale, RoundingMode.DOWN);
+                    BigDecimal sp = stopLossPrice.setScale(priceScale, RoundingMode.UP);
+                    BigDecimal minTP = last.add(tick).setScale(priceScale, RoundingMode.DOWN);
+                    if (tp.compareTo(minTP) < 0) tp = minTP;
+                    BigDecimal maxSP = last.subtract(tick).setScale(priceScale, RoundingMode.UP);
+                    if (sp.compareTo(maxSP) > 0) sp = maxSP;
+                    BigDecimal slimit = sp.subtract(tick).setScale(priceScale, RoundingMode.DOWN);
+
+                    Map<String, String> params = new LinkedHashMap<>();
+                    params.put("symbol",               symbol);
+                    params.put("side",                 "SELL");
+                    params.put("quantity",             quantity.toPlainString());
+                    params.put("price",                tp.toPlainString());
+                    params.put("stopPrice",            sp.toPlainString());
+                    params.put("stopLimitPrice",       slimit.toPlainString());
+                    params.put("stopLimitTimeInForce", "GTC");
+
+                    BigDecimal finalTp = tp, finalSp = sp;
+                    return signed(HttpMethod.POST, OCO_ORDER_EP, params)
+                            .doOnNext(json -> log.info("OCO SELL {} qty={} TP={} stopPrice={} stopLimit={}",
+                                    symbol, quantity, finalTp, finalSp, slimit))
+                            .onErrorResume(WebClientResponseException.BadRequest.class, ex -> {
+                                if (ex.getResponseBodyAsString().contains("\"code\":-2010")) {
+                                    log.warn("OCO rejected ({}), executing MARKET SELL instead",
+                                            ex.getResponseBodyAsString());
+                                    return marketOrder("SELL", symbol, quantity);
+                                }
+                                return Mono.error(ex);
+                            });
+                })
+                .toFuture();
+    }
+
+    // ===== Внутреннее =====
+
+    private Mono<BigDecimal> lastPrice(String symbol) {
+        return get(PRICE_EP, "symbol=" + URLEncoder.encode(symbol, StandardCharsets.UTF_8))
+                .map(json -> new BigDecimal(readTree(json).get("price").asText()));
+    }
+
+    private Mono<JsonNode> account() {
+        return signed(HttpMethod.GET, ACCOUNT_EP, Map.of()).map(this::readTree);
+    }
+
+    private Mono<String> marketOrder(String side, String symbol, BigDecimal qty) {
+        return Mono.fromCallable(() -> {
+                    requireKeys();
+                    BigDecimal quantity = endpoint.normalizeQuantity(symbol, qty);
+                    if (quantity.signum() == 0) {
+                        throw new IllegalArgumentException("Quantity after normalization is zero for " + symbol);
+                    }
+                    return quantity;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(quantity -> {
+                    Map<String, String> params = new LinkedHashMap<>();
+                    params.put("symbol",   symbol);
+                    params.put("side",     side);
+                    params.put("type",     "MARKET");
+                    params.put("quantity", quantity.toPlainString());
+                    return signed(HttpMethod.POST, ORDER_EP, params)
+                            .doOnNext(json -> log.info("✅ MARKET {} {} qty={}", side, symbol, quantity));
+                });
+    }
+
+    private Mono<String> get(String path, String query) {
+        String url = baseUrl + path + (query == null ? "" : "?" + query);
+        return webClient.get().uri(url).retrieve().bodyToMono(String.class);
+    }
+
+    /**
+     * Подписанный запрос; при -1021 (часы разошлись) время пересинхронизируется
+     * и запрос повторяется один раз.
+     */
+    private Mono<String> signed(HttpMethod method, String path, Map<String, String> params) {
+        // timestamp() изредка синхронизирует часы блокирующим запросом — не на event-loop
+        return Mono.defer(() -> send(method, path, params))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(WebClientResponseException.BadRequest.class, ex -> {
+                    if (!ex.getResponseBodyAsString().contains("\"code\":-1021")) {
+                        return Mono.error(ex);
+                    }
+                    log.warn("⏰ Timestamp вне recvWindow для {}, пересинхронизация времени", baseUrl);
+                    return Mono.fromRunnable(endpoint::syncTime)
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .then(Mono.defer(() -> send(method, path, params)));
+                });
+    }
+
+    private Mono<String> send(HttpMethod method, String path, Map<String, String> params) {
+        requireKeys();
+        Map<String, String> q = new LinkedHashMap<>(params);
+        q.put("timestamp", String.valueOf(endpoint.timestamp()));
+        q.put("recvWindow", String.valueOf(DEFAULT_WINDOW));
+
+        String query = q.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getKey() + "=" + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        String url = baseUrl + path + "?" + query + "&signature=" + generateSignature(secretKey, query);
+
+        return webClient.method(method)
+                .uri(URI.create(url))
+                .header("X-MBX-APIKEY", apiKey)
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка разбора ответа Binance", e);
+        }
+    }
+
+    private void requireKeys() {
+        if (apiKey == null || secretKey == null) {
+            throw new IllegalStateException("This operation requires API key and secret");
+        }
+    }
+
+    private String generateSignature(String secret, String data) {
+        try {
+            Mac hmac = Mac.getInstance("HmacSHA256");
+            hmac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] hash = hmac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка generateSignature", e);
+        }
+    }
+}
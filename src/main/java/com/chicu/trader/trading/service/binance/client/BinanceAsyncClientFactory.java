@@ -0,0 +1,86 @@
+package com.chicu.trader.trading.service.binance.client;
+
+import com.chicu.trader.bot.entity.UserSettings;
+import com.chicu.trader.bot.service.UserSettingsService;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Фабрика неблокирующих клиентов Binance ({@link BinanceAsyncClient}).
+ * <p>
+ * Все клиенты делят один WebClient с пулом соединений reactor-netty
+ * (HTTP/2 при поддержке сервером, иначе HTTP/1.1 keep-alive) и
+ * {@link BinanceEndpoint} сети из {@link BinanceHttpClientFactory}.
+ * Сам клиент состояния не хранит, поэтому создаётся на каждый вызов.
+ */
+@Slf4j
+@Component
+public class BinanceAsyncClientFactory {
+
+    private final UserSettingsService      userSettingsService;
+    private final BinanceHttpClientFactory httpClientFactory;
+    private final WebClient                webClient;
+    private final BinanceAsyncClient       publicClient;
+
+    public BinanceAsyncClientFactory(UserSettingsService userSettingsService,
+                                     BinanceHttpClientFactory httpClientFactory,
+                                     WebClient.Builder webClientBuilder,
+                                     BinanceRateLimiter rateLimiter,
+                                     @Value("${binance.async.max-connections:64}") int maxConnections,
+                                     @Value("${binance.async.max-pending:5000}") int maxPending,
+                                     @Value("${http.client.connect-timeout-ms:5000}") int connectTimeoutMs,
+                                     @Value("${http.client.read-timeout-ms:10000}") long readTimeoutMs) {
+        this.userSettingsService = userSettingsService;
+        this.httpClientFactory   = httpClientFactory;
+
+        ConnectionProvider provider = ConnectionProvider.builder("binance")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPending)
+                .maxIdleTime(Duration.ofSeconds(50))
+                .build();
+        HttpClient httpClient = HttpClient.create(provider)
+                .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                .secure()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+
+        // builder — общий бин, поэтому настраиваем копию
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(BinanceRateLimitInterceptor.filter(rateLimiter))
+                .build();
+        this.publicClient = create(null, null, false);
+    }
+
+    /**
+     * Клиент с ключами из настроек пользователя (текущий режим TEST/REAL).
+     */
+    public BinanceAsyncClient getClient(Long chatId) {
+        UserSettings settings = userSettingsService.getSettings(chatId);
+        boolean isTestnet     = "TEST".equalsIgnoreCase(settings.getMode());
+        return create(
+                isTestnet ? settings.getTestApiKey() : settings.getRealApiKey(),
+                isTestnet ? settings.getTestSecretKey() : settings.getRealSecretKey(),
+                isTestnet);
+    }
+
+    /**
+     * Публичный клиент без ключей (production-эндпоинты).
+     */
+    public BinanceAsyncClient getPublicClient() {
+        return publicClient;
+    }
+
+    public BinanceAsyncClient create(String apiKey, String secretKey, boolean isTestnet) {
+        return new BinanceAsyncClient(webClient, httpClientFactory.endpoint(isTestnet), apiKey, secretKey);
+    }
+}
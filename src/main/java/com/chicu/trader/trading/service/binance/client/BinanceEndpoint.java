@@ -0,0 +1,194 @@
+package com.chicu.trader.trading.service.binance.client;
+
+import com.chicu.trader.trading.service.binance.client.model.ExchangeInfo;
+import com.chicu.trader.trading.service.binance.client.model.SymbolFilter;
+import com.chicu.trader.trading.service.binance.client.model.SymbolInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Общее для всех клиентов одного базового URL Binance (production или testnet):
+ * HTTP-транспорт, снимок exchangeInfo с правилами LOT_SIZE/NOTIONAL
+ * и смещение часов сервера относительно локальных.
+ * <p>
+ * exchangeInfo загружается один раз и перечитывается не чаще, чем раз в ttl;
+ * время сервера — раз в {@link #TIME_SYNC_MS} вместо запроса перед каждой подписью.
+ */
+@Slf4j
+public class BinanceEndpoint {
+
+    private static final String TIME_EP = "/api/v3/time";
+    private static final String INFO_EP = "/api/v3/exchangeInfo";
+    static final long TIME_SYNC_MS = 10 * 60_000L;
+
+    @Getter
+    private final String       baseUrl;
+    @Getter
+    private final RestTemplate restTemplate;
+    @Getter
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long exchangeInfoTtlMs;
+    /** Вызывается после каждой загрузки exchangeInfo (например, чтобы применить rateLimits) */
+    private final Consumer<ExchangeInfo> onLoad;
+
+    private volatile Rules rules;
+    private volatile long  timeOffsetMs;
+    private volatile long  timeSyncedAt;
+
+    public BinanceEndpoint(String baseUrl, RestTemplate restTemplate, long exchangeInfoTtlMs) {
+        this(baseUrl, restTemplate, exchangeInfoTtlMs, info -> { });
+    }
+
+    public BinanceEndpoint(String baseUrl, RestTemplate restTemplate, long exchangeInfoTtlMs,
+                           Consumer<ExchangeInfo> onLoad) {
+        this.baseUrl           = baseUrl;
+        this.restTemplate      = restTemplate;
+        this.exchangeInfoTtlMs = exchangeInfoTtlMs;
+        this.onLoad            = onLoad;
+    }
+
+    /**
+     * Текущий снимок торговых правил (при необходимости загружается/обновляется).
+     */
+    public Rules rules() {
+        Rules r = rules;
+        if (r == null || System.currentTimeMillis() - r.loadedAt() > exchangeInfoTtlMs) {
+            synchronized (this) {
+                r = rules;
+                if (r == null || System.currentTimeMillis() - r.loadedAt() > exchangeInfoTtlMs) {
+                    try {
+                        r = load();
+                    } catch (RuntimeException e) {
+                        if (rules == null) throw e;
+                        // старый снимок лучше, чем ничего
+                        log.warn("⚠️ Не удалось обновить exchangeInfo {}: {}", baseUrl, e.getMessage());
+                        return rules;
+                    }
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Принудительно перечитать exchangeInfo.
+     */
+    public synchronized Rules refresh() {
+        return load();
+    }
+
+    /**
+     * Округляет количество вниз до шага LOT_SIZE; ноль — если меньше minQty.
+     */
+    public BigDecimal normalizeQuantity(String symbol, BigDecimal rawQty) {
+        LotRule rule = rules().lotRules().get(symbol);
+        if (rule == null) {
+            log.warn("No LOT_SIZE rule for {}, using raw qty={}", symbol, rawQty);
+            return rawQty;
+        }
+        BigDecimal disp = rawQty.divide(rule.stepSize(), 0, RoundingMode.DOWN).multiply(rule.stepSize());
+        if (disp.compareTo(rule.minQty()) < 0) {
+            log.warn("Normalized qty {} < minQty {} for {}, will skip", disp, rule.minQty(), symbol);
+            return BigDecimal.ZERO;
+        }
+        return disp.stripTrailingZeros();
+    }
+
+    /**
+     * Метка времени для подписанного запроса: локальное время + смещение сервера.
+     */
+    public long timestamp() {
+        if (System.currentTimeMillis() - timeSyncedAt > TIME_SYNC_MS) {
+            syncTime();
+        }
+        return System.currentTimeMillis() + timeOffsetMs;
+    }
+
+    /**
+     * Пересинхронизировать часы (например, после ошибки -1021 «timestamp outside recvWindow»).
+     */
+    public synchronized void syncTime() {
+        try {
+            long before = System.currentTimeMillis();
+            String json = restTemplate.getForObject(baseUrl + TIME_EP, String.class);
+            long after  = System.currentTimeMillis();
+            JsonNode n = objectMapper.readTree(json);
+            // серверное время относим к середине запроса
+            timeOffsetMs = n.get("serverTime").asLong() - (before + after) / 2;
+            timeSyncedAt = after;
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка getServerTime", e);
+        }
+    }
+
+    private Rules load() {
+        try {
+            String json = restTemplate.getForObject(baseUrl + INFO_EP, String.class);
+            ExchangeInfo info = objectMapper.readValue(json, ExchangeInfo.class);
+
+            Map<String, LotRule>    lotRules         = new ConcurrentHashMap<>();
+            Map<String, BigDecimal> minNotionalRules = new ConcurrentHashMap<>();
+            Map<String, SymbolInfo> symbols          = new ConcurrentHashMap<>();
+            for (SymbolInfo s : info.getSymbols()) {
+                String symbol = s.getSymbol();
+                symbols.put(symbol, s);
+
+                for (SymbolFilter f : s.getFilters()) {
+                    switch (f.getFilterType()) {
+                        case "LOT_SIZE" -> {
+                            BigDecimal step = f.getStepSizeAsDecimal();
+                            BigDecimal min  = f.getMinQtyAsDecimal();
+                            if (step != null && min != null) {
+                                lotRules.put(symbol, new LotRule(step, min));
+                            } else {
+                                log.warn("⚠️ LOT_SIZE stepSize or minQty is null for {}", symbol);
+                            }
+                        }
+                        case "MIN_NOTIONAL", "NOTIONAL" -> {
+                            BigDecimal minNotional = f.getMinNotionalAsDecimal();
+                            if (minNotional != null) {
+                                minNotionalRules.put(symbol, minNotional);
+                            } else {
+                                log.warn("⚠️ {} value is null for {}", f.getFilterType(), symbol);
+                            }
+                        }
+                        default -> {
+                            // Не обрабатываем другие фильтры
+                        }
+                    }
+                }
+            }
+
+            Rules loaded = new Rules(info, symbols, lotRules, minNotionalRules, System.currentTimeMillis());
+            rules = loaded;
+            onLoad.accept(info);
+            log.info("Loaded trading rules (LOT_SIZE: {}, MIN_NOTIONAL: {}) for {} symbols from {}",
+                    lotRules.size(), minNotionalRules.size(), info.getSymbols().size(), baseUrl);
+            return loaded;
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка загрузки exchangeInfo", e);
+        }
+    }
+
+    /**
+     * Неизменяемый снимок exchangeInfo и извлечённых из него правил.
+     */
+    public record Rules(ExchangeInfo exchangeInfo,
+                        Map<String, SymbolInfo> symbols,
+                        Map<String, LotRule> lotRules,
+                        Map<String, BigDecimal> minNotionalRules,
+                        long loadedAt) {
+    }
+
+    public record LotRule(BigDecimal stepSize, BigDecimal minQty) {
+    }
+}
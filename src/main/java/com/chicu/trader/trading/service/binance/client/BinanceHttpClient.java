@@ -1,5 +1,6 @@
 package com.chicu.trader.trading.service.binance.client;
 
+import com.chicu.trader.trading.service.binance.client.BinanceEndpoint.LotRule;
 import com.chicu.trader.trading.service.binance.client.model.ExchangeInfo;
 import com.chicu.trader.trading.service.binance.client.model.SymbolFilter;
 import com.chicu.trader.trading.service.binance.client.model.SymbolInfo;
@@ -19,100 +20,58 @@ import java.math.RoundingMode;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * HTTP-клиент Binance Spot API. Транспорт, exchangeInfo и синхронизация времени
+ * берутся из общего {@link BinanceEndpoint}, поэтому клиент лёгкий и может
+ * кэшироваться/создаваться на пользователя без повторных загрузок.
+ */
 @Slf4j
 public class BinanceHttpClient {
 
-    private static final String TIME_EP = "/api/v3/time";
-    private static final String INFO_EP = "/api/v3/exchangeInfo";
     private static final String PRICE_EP = "/api/v3/ticker/price";
     private static final String ACCOUNT_EP = "/api/v3/account";
     private static final String ORDER_EP = "/api/v3/order";
     private static final String OCO_ORDER_EP = "/api/v3/order/oco";
     private static final long DEFAULT_WINDOW = 5000L;
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BinanceEndpoint endpoint;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
     private final String apiKey;
     private final String secretKey;
     @Getter
     private final String baseUrl;
 
-    private final Map<String, LotRule> lotRules = new ConcurrentHashMap<>();
-    private final Map<String, BigDecimal> minNotionalRules = new ConcurrentHashMap<>();
-    private ExchangeInfo exchangeInfo;
-
-    public BinanceHttpClient(String baseUrl) {
+    /**
+     * Публичный клиент поверх общего эндпоинта.
+     */
+    public BinanceHttpClient(BinanceEndpoint endpoint) {
+        this.endpoint = Objects.requireNonNull(endpoint);
+        this.restTemplate = endpoint.getRestTemplate();
+        this.objectMapper = endpoint.getObjectMapper();
         this.apiKey = null;
         this.secretKey = null;
-        this.baseUrl = Objects.requireNonNull(baseUrl);
-        log.info("BinanceHttpClient initialized (public): {}", baseUrl);
+        this.baseUrl = endpoint.getBaseUrl();
+        log.debug("BinanceHttpClient initialized (public): {}", baseUrl);
     }
 
-    public BinanceHttpClient(String apiKey, String secretKey, String baseUrl) {
+    /**
+     * Клиент с ключами поверх общего эндпоинта.
+     */
+    public BinanceHttpClient(String apiKey, String secretKey, BinanceEndpoint endpoint) {
+        this.endpoint = Objects.requireNonNull(endpoint);
+        this.restTemplate = endpoint.getRestTemplate();
+        this.objectMapper = endpoint.getObjectMapper();
         this.apiKey = Objects.requireNonNull(apiKey);
         this.secretKey = Objects.requireNonNull(secretKey);
-        this.baseUrl = Objects.requireNonNull(baseUrl);
-        log.info("BinanceHttpClient initialized (private): {}", baseUrl);
-    }
-
-    private synchronized void ensureExchangeInfoLoaded() {
-        if (exchangeInfo != null) return;
-        try {
-            String json = restTemplate.getForObject(baseUrl + INFO_EP, String.class);
-            exchangeInfo = objectMapper.readValue(json, ExchangeInfo.class);
-
-            for (SymbolInfo s : exchangeInfo.getSymbols()) {
-                String symbol = s.getSymbol();
-
-                for (SymbolFilter f : s.getFilters()) {
-                    switch (f.getFilterType()) {
-                        case "LOT_SIZE" -> {
-                            BigDecimal step = f.getStepSizeAsDecimal();
-                            BigDecimal min  = f.getMinQtyAsDecimal();
-                            if (step != null && min != null) {
-                                lotRules.put(symbol, new LotRule(step, min));
-                            } else {
-                                log.warn("⚠️ LOT_SIZE stepSize or minQty is null for {}", symbol);
-                            }
-                        }
-                        case "MIN_NOTIONAL", "NOTIONAL" -> {
-                            BigDecimal minNotional = f.getMinNotionalAsDecimal();
-                            if (minNotional != null) {
-                                minNotionalRules.put(symbol, minNotional);
-                            } else {
-                                log.warn("⚠️ {} value is null for {}", f.getFilterType(), symbol);
-                            }
-                        }
-                        default -> {
-                            // Не обрабатываем другие фильтры
-                        }
-                    }
-                }
-            }
-
-            log.info("Loaded trading rules (LOT_SIZE: {}, MIN_NOTIONAL: {}) for {} symbols",
-                    lotRules.size(), minNotionalRules.size(), exchangeInfo.getSymbols().size());
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка загрузки exchangeInfo", e);
-        }
+        this.baseUrl = endpoint.getBaseUrl();
+        log.debug("BinanceHttpClient initialized (private): {}", baseUrl);
     }
 
     private BigDecimal normalizeQuantity(String symbol, BigDecimal rawQty) {
-        ensureExchangeInfoLoaded();
-        LotRule rule = lotRules.get(symbol);
-        if (rule == null) {
-            log.warn("No LOT_SIZE rule for {}, using raw qty={}", symbol, rawQty);
-            return rawQty;
-        }
-        BigDecimal disp = rawQty.divide(rule.stepSize, 0, RoundingMode.DOWN).multiply(rule.stepSize);
-        if (disp.compareTo(rule.minQty) < 0) {
-            log.warn("Normalized qty {} < minQty {} for {}, will skip", disp, rule.minQty, symbol);
-            return BigDecimal.ZERO;
-        }
-        return disp.stripTrailingZeros();
+        return endpoint.normalizeQuantity(symbol, rawQty);
     }
 
     public BigDecimal getLastPrice(String symbol) {
@@ -151,14 +110,14 @@ public class BinanceHttpClient {
             if (body.contains("Filter failure: NOTIONAL")) {
                 log.warn("⚠️ Filter failure: NOTIONAL for {} with qty={}", symbol, quantity);
 
-                BigDecimal minNotional = minNotionalRules.get(symbol);
+                BigDecimal minNotional = endpoint.rules().minNotionalRules().get(symbol);
                 if (minNotional == null) {
                     log.error("❌ No MIN_NOTIONAL rule for {}, cannot retry", symbol);
                     throw ex;
                 }
 
                 BigDecimal price = getLastPrice(symbol);
-                int qtyScale = lotRules.get(symbol).stepSize.stripTrailingZeros().scale();
+                int qtyScale = endpoint.rules().lotRules().get(symbol).stepSize().stripTrailingZeros().scale();
 
                 BigDecimal adjustedQty = minNotional.divide(price, qtyScale, RoundingMode.UP);
                 adjustedQty = normalizeQuantity(symbol, adjustedQty);
@@ -187,7 +146,6 @@ public class BinanceHttpClient {
 
     public String placeMarketSell(String symbol, BigDecimal qty) {
         requireKeys();
-        ensureExchangeInfoLoaded();
 
         BigDecimal quantity = normalizeQuantity(symbol, qty);
         if (quantity.signum() == 0) {
@@ -211,7 +169,7 @@ public class BinanceHttpClient {
             if (body.contains("Filter failure: NOTIONAL")) {
                 log.warn("⚠️ Filter failure: NOTIONAL on SELL {} with qty={}", symbol, quantity);
 
-                BigDecimal minNotional = minNotionalRules.get(symbol);
+                BigDecimal minNotional = endpoint.rules().minNotionalRules().get(symbol);
                 if (minNotional == null) {
                     log.error("❌ No MIN_NOTIONAL rule for {}, cannot retry", symbol);
                     throw ex;
@@ -223,13 +181,13 @@ public class BinanceHttpClient {
                     throw ex;
                 }
 
-                LotRule rule = lotRules.get(symbol);
+                LotRule rule = endpoint.rules().lotRules().get(symbol);
                 if (rule == null) {
                     log.error("❌ No LOT_SIZE rule for {}, cannot compute adjusted qty", symbol);
                     throw ex;
                 }
 
-                int qtyScale = rule.stepSize.stripTrailingZeros().scale();
+                int qtyScale = rule.stepSize().stripTrailingZeros().scale();
                 BigDecimal adjustedQty = minNotional.divide(price, qtyScale, RoundingMode.UP);
                 adjustedQty = normalizeQuantity(symbol, adjustedQty);
 
@@ -260,14 +218,18 @@ public class BinanceHttpClient {
         return json;
     }
 
+    /**
+     * Общий для эндпоинта снимок exchangeInfo (перечитывается по TTL).
+     */
     public ExchangeInfo getExchangeInfo() {
-        try {
-            String json = restTemplate.getForObject(baseUrl + INFO_EP, String.class);
-            this.exchangeInfo = objectMapper.readValue(json, ExchangeInfo.class);
-            return exchangeInfo;
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка getExchangeInfo", e);
-        }
+        return endpoint.rules().exchangeInfo();
+    }
+
+    /**
+     * Принудительно перечитать exchangeInfo (для всех клиентов этого эндпоинта).
+     */
+    public ExchangeInfo refreshExchangeInfo() {
+        return endpoint.refresh().exchangeInfo();
     }
 
     public BigDecimal getBalance(String asset) {
@@ -286,20 +248,24 @@ public class BinanceHttpClient {
         }
     }
 
-    private long getServerTime() {
+    String sendSigned(HttpMethod method, String path, Map<String, String> params) {
         try {
-            String json = restTemplate.getForObject(baseUrl + TIME_EP, String.class);
-            JsonNode n = objectMapper.readTree(json);
-            return n.get("serverTime").asLong();
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка getServerTime", e);
+            return doSendSigned(method, path, params);
+        } catch (HttpClientErrorException.BadRequest ex) {
+            // -1021: часы разошлись с сервером — пересинхронизируем и повторяем один раз
+            if (!ex.getResponseBodyAsString().contains("\"code\":-1021")) {
+                throw ex;
+            }
+            log.warn("⏰ Timestamp вне recvWindow для {}, пересинхронизация времени", baseUrl);
+            endpoint.syncTime();
+            return doSendSigned(method, path, params);
         }
     }
 
-    String sendSigned(HttpMethod method, String path, Map<String, String> params) {
+    private String doSendSigned(HttpMethod method, String path, Map<String, String> params) {
         requireKeys();
         Map<String, String> q = new HashMap<>(params);
-        q.put("timestamp", String.valueOf(getServerTime()));
+        q.put("timestamp", String.valueOf(endpoint.timestamp()));
         q.put("recvWindow", String.valueOf(DEFAULT_WINDOW));
 
         String query = q.entrySet().stream()
@@ -337,34 +303,41 @@ public class BinanceHttpClient {
         }
     }
 
-    private static class LotRule {
-        final BigDecimal stepSize;
-        final BigDecimal minQty;
-        LotRule(BigDecimal stepSize, BigDecimal minQty) {
-            this.stepSize = stepSize;
-            this.minQty = minQty;
-        }
-    }
+    // userDataStream требует только заголовок X-MBX-APIKEY, без подписи и timestamp
+
     public String startUserDataStream() {
         requireKeys();
-        return sendSigned(HttpMethod.POST, "/api/v3/userDataStream", Map.of());
+        return sendWithApiKey(HttpMethod.POST, "/api/v3/userDataStream", null);
     }
 
     public void keepAliveUserDataStream(String listenKey) {
         requireKeys();
-        sendSigned(HttpMethod.PUT, "/api/v3/userDataStream", Map.of("listenKey", listenKey));
+        sendWithApiKey(HttpMethod.PUT, "/api/v3/userDataStream", listenKey);
     }
+
+    public void closeUserDataStream(String listenKey) {
+        requireKeys();
+        sendWithApiKey(HttpMethod.DELETE, "/api/v3/userDataStream", listenKey);
+    }
+
+    private String sendWithApiKey(HttpMethod method, String path, String listenKey) {
+        String url = baseUrl + path
+                + (listenKey == null ? "" : "?listenKey=" + URLEncoder.encode(listenKey, StandardCharsets.UTF_8));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-MBX-APIKEY", apiKey);
+        return restTemplate.exchange(url, method, new HttpEntity<>(headers), String.class).getBody();
+    }
+
     public String placeOcoSell(String symbol,
                                BigDecimal rawQty,
                                BigDecimal stopLossPrice,
                                BigDecimal takeProfitPrice) {
         requireKeys();
-        ensureExchangeInfoLoaded();
 
-        SymbolInfo info = exchangeInfo.getSymbols().stream()
-                .filter(s -> s.getSymbol().equals(symbol))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Symbol not found: " + symbol));
+        SymbolInfo info = endpoint.rules().symbols().get(symbol);
+        if (info == null) {
+            throw new RuntimeException("Symbol not found: " + symbol);
+        }
 
         SymbolFilter pf = info.getFilters().stream()
                 .filter(f -> "PRICE_FILTER".equals(f.getFilterType()))
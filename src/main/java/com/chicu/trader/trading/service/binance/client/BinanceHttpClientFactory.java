@@ -2,20 +2,37 @@ package com.chicu.trader.trading.service.binance.client;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
 
 /**
  * Фабрика для создания BinanceHttpClient:
  *  - публичного (market-data-only) без ключей,
  *  - приватного с ключами пользователя.
+ * <p>
+ * Все клиенты одной сети (production/testnet) делят один {@link BinanceEndpoint}:
+ * пул keep-alive соединений общего RestTemplate, снимок exchangeInfo и смещение времени.
  */
 @Component
 public class BinanceHttpClientFactory {
 
-    @Value("${binance.base-url}")
-    private String baseUrl;
+    private final BinanceEndpoint production;
+    private final BinanceEndpoint testnet;
 
-    @Value("${binance.testnet-base-url}")
-    private String testnetBaseUrl;
+    public BinanceHttpClientFactory(RestTemplate restTemplate,
+                                    BinanceRateLimiter rateLimiter,
+                                    @Value("${binance.base-url}") String baseUrl,
+                                    @Value("${binance.testnet-base-url}") String testnetBaseUrl,
+                                    @Value("${binance.exchange-info.ttl:1h}") Duration exchangeInfoTtl) {
+        long ttlMs = exchangeInfoTtl.toMillis();
+        // лимиты запросов каждой сети берутся из её exchangeInfo
+        this.production = new BinanceEndpoint(baseUrl, restTemplate, ttlMs,
+                info -> rateLimiter.configure(URI.create(baseUrl).getHost(), info.getRateLimits()));
+        this.testnet    = new BinanceEndpoint(testnetBaseUrl, restTemplate, ttlMs,
+                info -> rateLimiter.configure(URI.create(testnetBaseUrl).getHost(), info.getRateLimits()));
+    }
 
     /**
      * @param apiKey     API-ключ (null для публичного клиента)
@@ -23,14 +40,21 @@ public class BinanceHttpClientFactory {
      * @param isTestnet  Если true — берем testnetBaseUrl, иначе — production baseUrl
      */
     public BinanceHttpClient create(String apiKey, String secretKey, boolean isTestnet) {
-        String url = isTestnet ? testnetBaseUrl : baseUrl;
+        BinanceEndpoint endpoint = endpoint(isTestnet);
 
         // Если ключей нет — создаем "public" клиент через конструктор без ключей
         if (apiKey == null || secretKey == null) {
-            return new BinanceHttpClient(url);
+            return new BinanceHttpClient(endpoint);
         }
 
         // Иначе — полный клиент с ключами
-        return new BinanceHttpClient(apiKey, secretKey, url);
+        return new BinanceHttpClient(apiKey, secretKey, endpoint);
+    }
+
+    /**
+     * Общий эндпоинт сети.
+     */
+    public BinanceEndpoint endpoint(boolean isTestnet) {
+        return isTestnet ? testnet : production;
     }
 }
@@ -0,0 +1,61 @@
+package com.chicu.trader.trading.service.binance.client;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Подключает {@link BinanceRateLimiter} к RestTemplate (перехватчик)
+ * и к WebClient ({@link #filter}). Запросы не к Binance проходят как есть.
+ * Аккаунт для лимита ORDERS берётся из заголовка X-MBX-APIKEY запроса.
+ */
+public class BinanceRateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    /** Ключ аккаунта: по нему ведутся лимиты ORDERS */
+    private static final String API_KEY_HEADER = "X-MBX-APIKEY";
+
+    private final BinanceRateLimiter limiter;
+
+    public BinanceRateLimitInterceptor(BinanceRateLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        URI uri = request.getURI();
+        String host = uri.getHost();
+        if (!BinanceRateLimiter.isBinanceHost(host)) {
+            return execution.execute(request, body);
+        }
+        String apiKey = request.getHeaders().getFirst(API_KEY_HEADER);
+        limiter.acquire(host, apiKey, request.getMethod(), uri.getPath(), uri.getRawQuery());
+        ClientHttpResponse response = execution.execute(request, body);
+        limiter.onResponse(host, apiKey, response.getStatusCode().value(), response.getHeaders());
+        return response;
+    }
+
+    /**
+     * То же для WebClient: ожидание бюджета без блокировки потока.
+     */
+    public static ExchangeFilterFunction filter(BinanceRateLimiter limiter) {
+        return (request, next) -> {
+            URI uri = request.url();
+            String host = uri.getHost();
+            if (!BinanceRateLimiter.isBinanceHost(host)) {
+                return next.exchange(request);
+            }
+            String apiKey = request.headers().getFirst(API_KEY_HEADER);
+            return limiter.acquireAsync(host, apiKey, request.method(), uri.getPath(), uri.getRawQuery())
+                    .then(Mono.defer(() -> next.exchange(request)))
+                    .doOnNext(response -> limiter.onResponse(host, apiKey, response.statusCode().value(),
+                            response.headers().asHttpHeaders()));
+        };
+    }
+}
@@ -0,0 +1,492 @@
+package com.chicu.trader.trading.service.binance.client;
+
+import com.chicu.trader.trading.service.binance.client.model.RateLimit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Клиентский регулятор запросов к Binance — общий для всех HTTP-клиентов приложения.
+ * <p>
+ * Корзины по лимитам из exchangeInfo.rateLimits ведутся так же, как их считает
+ * биржа: REQUEST_WEIGHT и RAW_REQUESTS — на хост (production, testnet), то есть на IP;
+ * ORDERS — на аккаунт (API-ключ из заголовка X-MBX-APIKEY) в пределах хоста.
+ * Корзина пополняется целиком в начале окна, а её расход сверяется с заголовками
+ * X-MBX-USED-WEIGHT-* (учитываются и чужие запросы с того же IP) и
+ * X-MBX-ORDER-COUNT-* (ордера аккаунта из любых мест).
+ * <p>
+ * Вызывающий, которому не хватает бюджета, ждёт начала следующего окна вместо
+ * того, чтобы получить 429/418. Ордерам доступен весь бюджет, рыночным данным —
+ * только его часть, и они уступают, пока есть ждущие ордера. После 429/418
+ * все запросы к хосту приостанавливаются на Retry-After. Блокирующее ожидание
+ * ({@link #acquire}) занимает поток вызывающего и поэтому ограничено коротким
+ * max-blocking-wait-ms: дольше — отказ сразу; неблокирующее — max-wait-ms.
+ */
+@Slf4j
+@Component
+public class BinanceRateLimiter {
+
+    /** Приоритет трафика */
+    public enum Priority { ORDER, MARKET_DATA }
+
+    private static final List<Bucket> IP_DEFAULTS = List.of(
+            new Bucket("REQUEST_WEIGHT", 60_000L, 6000, "1M"),
+            new Bucket("RAW_REQUESTS", 300_000L, 61_000, "5M"));
+    private static final List<Bucket> ACCOUNT_DEFAULTS = List.of(
+            new Bucket("ORDERS", 10_000L, 100, "10S"),
+            new Bucket("ORDERS", 86_400_000L, 200_000, "1D"));
+
+    /** Хост → корзины IP */
+    private final Map<String, Governor> governors = new ConcurrentHashMap<>();
+    /** "host|аккаунт" → корзины ордеров аккаунта */
+    private final Map<String, Governor> accounts  = new ConcurrentHashMap<>();
+    /** Хост → лимиты ORDERS из exchangeInfo (для новых аккаунтов) */
+    private final Map<String, List<RateLimit>> orderLimits = new ConcurrentHashMap<>();
+
+    /** Доля лимита, которую вообще используем (запас на неточность оценок веса) */
+    private final double safety;
+    /** Доля веса, доступная рыночным данным; остальное — резерв для ордеров */
+    private final double marketDataShare;
+    private final long   maxWaitMs;
+    private final long   maxBlockingWaitMs;
+
+    // ===== Метрики =====
+    private final LongAdder throttled  = new LongAdder();
+    private final LongAdder waitMillis = new LongAdder();
+    private final LongAdder rejected   = new LongAdder();
+
+    public BinanceRateLimiter(@Value("${binance.rate-limit.safety:0.9}") double safety,
+                              @Value("${binance.rate-limit.market-data-share:0.8}") double marketDataShare,
+                              @Value("${binance.rate-limit.max-wait-ms:60000}") long maxWaitMs,
+                              @Value("${binance.rate-limit.max-blocking-wait-ms:2000}") long maxBlockingWaitMs) {
+        this.safety            = safety;
+        this.marketDataShare   = marketDataShare;
+        this.maxWaitMs         = maxWaitMs;
+        this.maxBlockingWaitMs = maxBlockingWaitMs;
+    }
+
+    /**
+     * Относится ли хост к Binance (остальные запросы не регулируются).
+     */
+    public static boolean isBinanceHost(String host) {
+        return host != null && (host.endsWith("binance.com") || host.endsWith("binance.vision"));
+    }
+
+    /**
+     * Применить лимиты из exchangeInfo хоста.
+     */
+    public void configure(String host, List<RateLimit> rateLimits) {
+        if (rateLimits == null || rateLimits.isEmpty()) {
+            return;
+        }
+        List<RateLimit> ipLimits = rateLimits.stream()
+                .filter(r -> !"ORDERS".equals(r.getRateLimitType())).toList();
+        List<RateLimit> accountLimits = rateLimits.stream()
+                .filter(r -> "ORDERS".equals(r.getRateLimitType())).toList();
+        governor(host).configure(ipLimits);
+        if (!accountLimits.isEmpty()) {
+            orderLimits.put(host, accountLimits);
+            accounts.forEach((key, g) -> {
+                if (key.startsWith(host + "|")) {
+                    g.configure(accountLimits);
+                }
+            });
+        }
+        log.info("🚦 Лимиты Binance для {}: {}", host, rateLimits.stream()
+                .map(r -> r.getRateLimitType() + "=" + r.getLimit() + "/" + r.getIntervalNum() + r.getInterval())
+                .toList());
+    }
+
+    /**
+     * Блокирующее получение бюджета на запрос.
+     *
+     * @param apiKey API-ключ запроса (X-MBX-APIKEY) — аккаунт для лимита ORDERS; null — без ключа
+     * @throws IllegalStateException если ждать пришлось бы дольше max-blocking-wait-ms
+     */
+    public void acquire(String host, String apiKey, HttpMethod method, String path, String query) {
+        Cost cost = costOf(method, path, query);
+        Governor g = governor(host);
+        Governor account = account(host, apiKey, cost);
+        long started = System.currentTimeMillis();
+        boolean waiting = false;
+        try {
+            while (true) {
+                long wait = tryAcquire(g, account, cost, System.currentTimeMillis());
+                if (wait == 0) {
+                    return;
+                }
+                if (!waiting) {
+                    waiting = true;
+                    throttled.increment();
+                    if (cost.priority() == Priority.ORDER) g.ordersWaiting.incrementAndGet();
+                }
+                // поток вызывающего (в т.ч. пул закрытия свечей) не держим до конца окна
+                if (System.currentTimeMillis() - started + wait > maxBlockingWaitMs) {
+                    rejected.increment();
+                    throw new IllegalStateException("Binance rate limit: бюджет " + host + " исчерпан, ожидание "
+                            + wait + " мс");
+                }
+                try {
+                    Thread.sleep(Math.min(wait, 1_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Прервано ожидание лимита Binance", e);
+                }
+            }
+        } finally {
+            if (waiting) {
+                waitMillis.add(System.currentTimeMillis() - started);
+                if (cost.priority() == Priority.ORDER) g.ordersWaiting.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Неблокирующий вариант {@link #acquire}: завершается, когда бюджет получен.
+     */
+    public Mono<Void> acquireAsync(String host, String apiKey, HttpMethod method, String path, String query) {
+        Cost cost = costOf(method, path, query);
+        Governor g = governor(host);
+        Governor account = account(host, apiKey, cost);
+        return Mono.defer(() -> {
+            long started = System.currentTimeMillis();
+            long wait = tryAcquire(g, account, cost, started);
+            if (wait == 0) {
+                return Mono.<Void>empty();
+            }
+            throttled.increment();
+            if (cost.priority() == Priority.ORDER) g.ordersWaiting.incrementAndGet();
+            return retryAsync(g, account, cost, started, wait)
+                    .doFinally(s -> {
+                        waitMillis.add(System.currentTimeMillis() - started);
+                        if (cost.priority() == Priority.ORDER) g.ordersWaiting.decrementAndGet();
+                    });
+        });
+    }
+
+    /**
+     * Учесть ответ: заголовки фактического расхода и 429/418.
+     *
+     * @param apiKey API-ключ запроса — чей расход ордеров в X-MBX-ORDER-COUNT-*; null — без ключа
+     */
+    public void onResponse(String host, String apiKey, int status, HttpHeaders headers) {
+        Governor g = governors.get(host);
+        if (g == null) {
+            return;
+        }
+        Governor account = apiKey == null ? null : accounts.get(accountKey(host, apiKey));
+        long now = System.currentTimeMillis();
+        headers.forEach((name, values) -> {
+            if (values.isEmpty()) return;
+            String n = name.toUpperCase(Locale.ROOT);
+            if (n.startsWith("X-MBX-USED-WEIGHT-")) {
+                g.observe("REQUEST_WEIGHT", n.substring("X-MBX-USED-WEIGHT-".length()), values.get(0), now);
+            } else if (n.startsWith("X-MBX-ORDER-COUNT-") && account != null) {
+                account.observe("ORDERS", n.substring("X-MBX-ORDER-COUNT-".length()), values.get(0), now);
+            }
+        });
+        if (status == 429 || status == 418) {
+            long retryAfterMs = 60_000;
+            String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+            if (retryAfter != null) {
+                try {
+                    retryAfterMs = Long.parseLong(retryAfter.trim()) * 1000;
+                } catch (NumberFormatException ignored) {
+                    // оставляем минуту
+                }
+            }
+            g.pauseUntil(now + retryAfterMs);
+            log.error("⛔ Binance {} вернул {}: запросы приостановлены на {} с", host, status, retryAfterMs / 1000);
+        }
+    }
+
+    // ===== Метрики =====
+
+    /**
+     * Текущий расход по всем корзинам.
+     */
+    public List<Usage> getUsage() {
+        long now = System.currentTimeMillis();
+        List<Usage> usage = new ArrayList<>();
+        governors.forEach((host, g) -> usage.addAll(g.usage(host, now)));
+        accounts.forEach((key, g) -> usage.addAll(g.usage(key, now)));
+        return usage;
+    }
+
+    /** Сколько запросов ждали бюджет */
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /** Суммарное время ожидания бюджета, мс */
+    public long getWaitMillis() {
+        return waitMillis.sum();
+    }
+
+    /** Сколько запросов отклонено из-за слишком долгого ожидания */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${binance.rate-limit.stats-log-ms:60000}")
+    public void logStats() {
+        List<Usage> usage = getUsage();
+        if (usage.stream().anyMatch(u -> u.used() > 0)) {
+            log.info("🚦 Лимиты Binance: {}; ждали={}, ожидание={}мс, отклонено={}",
+                    usage.stream().map(u -> u.host() + " " + u.type() + "/" + u.window() + "=" + u.used() + "/" + u.limit())
+                            .toList(),
+                    getThrottledCount(), getWaitMillis(), getRejectedCount());
+        }
+    }
+
+    // ===== Внутреннее =====
+
+    private Mono<Void> retryAsync(Governor g, Governor account, Cost cost, long started, long wait) {
+        if (System.currentTimeMillis() - started + wait > maxWaitMs) {
+            rejected.increment();
+            return Mono.error(new IllegalStateException("Binance rate limit: бюджет исчерпан, ожидание " + wait + " мс"));
+        }
+        return Mono.delay(Duration.ofMillis(Math.min(wait, 1_000)))
+                .then(Mono.defer(() -> {
+                    long next = tryAcquire(g, account, cost, System.currentTimeMillis());
+                    return next == 0 ? Mono.<Void>empty() : retryAsync(g, account, cost, started, next);
+                }));
+    }
+
+    private Governor governor(String host) {
+        return governors.computeIfAbsent(host, h -> new Governor(IP_DEFAULTS));
+    }
+
+    /** Корзины ордеров аккаунта; null — запрос не расходует ордера или ключ неизвестен */
+    private Governor account(String host, String apiKey, Cost cost) {
+        if (apiKey == null || apiKey.isBlank() || cost.orders() == 0) {
+            return null;
+        }
+        return accounts.computeIfAbsent(accountKey(host, apiKey), k -> {
+            Governor g = new Governor(ACCOUNT_DEFAULTS);
+            List<RateLimit> limits = orderLimits.get(host);
+            if (limits != null) {
+                g.configure(limits);
+            }
+            return g;
+        });
+    }
+
+    /** Ключ аккаунта: сам API-ключ в метриках и логах не показываем */
+    private static String accountKey(String host, String apiKey) {
+        return host + "|" + Integer.toHexString(apiKey.hashCode());
+    }
+
+    /**
+     * Бюджет сразу в корзинах IP и аккаунта (мониторы — всегда в этом порядке):
+     * 0 — получен в обеих, иначе через сколько мс пробовать снова.
+     */
+    private static long tryAcquire(Governor ip, Governor account, Cost cost, long now) {
+        synchronized (ip) {
+            if (account == null) {
+                long wait = ip.check(cost, now);
+                if (wait == 0) ip.reserve(cost);
+                return wait;
+            }
+            synchronized (account) {
+                long wait = Math.max(ip.check(cost, now), account.check(cost, now));
+                if (wait == 0) {
+                    ip.reserve(cost);
+                    account.reserve(cost);
+                }
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Вес запроса и число ордеров по таблице весов Binance Spot API;
+     * неточность оценки исправляется заголовками ответа.
+     */
+    static Cost costOf(HttpMethod method, String path, String query) {
+        boolean hasSymbol = query != null && (query.startsWith("symbol=") || query.contains("&symbol="));
+        return switch (path) {
+            case "/api/v3/order"         -> HttpMethod.POST.equals(method)
+                    ? new Cost(Priority.ORDER, 1, 1) : new Cost(Priority.ORDER, HttpMethod.GET.equals(method) ? 4 : 1, 0);
+            case "/api/v3/order/oco",
+                 "/api/v3/orderList/oco" -> new Cost(Priority.ORDER, 1, 2);
+            case "/api/v3/account"       -> new Cost(Priority.ORDER, 20, 0);
+            case "/api/v3/openOrders"    -> new Cost(Priority.ORDER, hasSymbol ? 6 : 80, 0);
+            case "/api/v3/userDataStream" -> new Cost(Priority.ORDER, 2, 0);
+            case "/api/v3/exchangeInfo"  -> new Cost(Priority.MARKET_DATA, 20, 0);
+            case "/api/v3/ticker/price"  -> new Cost(Priority.MARKET_DATA, hasSymbol ? 2 : 4, 0);
+            case "/api/v3/ticker/24hr"   -> new Cost(Priority.MARKET_DATA, hasSymbol ? 2 : 80, 0);
+            case "/api/v3/klines"        -> new Cost(Priority.MARKET_DATA, 2, 0);
+            default                      -> new Cost(Priority.MARKET_DATA, 1, 0);
+        };
+    }
+
+    record Cost(Priority priority, int weight, int orders) {
+    }
+
+    /**
+     * Снимок корзины: хост, тип лимита, окно ("1M", "10S"), израсходовано и лимит.
+     */
+    public record Usage(String host, String type, String window, int used, int limit) {
+    }
+
+    /**
+     * Корзины одной области лимитов: IP хоста или аккаунта на хосте.
+     */
+    private final class Governor {
+
+        /** Ждущие ордера: пока они есть, рыночные данные уступают */
+        final AtomicInteger ordersWaiting = new AtomicInteger();
+
+        /** Лимиты по умолчанию (Binance Spot) — до загрузки exchangeInfo */
+        private List<Bucket> buckets;
+        private long pausedUntil;
+
+        Governor(List<Bucket> defaults) {
+            buckets = new ArrayList<>(defaults.size());
+            for (Bucket b : defaults) {
+                buckets.add(new Bucket(b.type, b.windowMs, b.limit, b.window));
+            }
+        }
+
+        synchronized void configure(List<RateLimit> limits) {
+            List<Bucket> next = new ArrayList<>();
+            for (RateLimit r : limits) {
+                long unitMs = switch (String.valueOf(r.getInterval())) {
+                    case "SECOND" -> 1_000L;
+                    case "MINUTE" -> 60_000L;
+                    case "HOUR"   -> 3_600_000L;
+                    case "DAY"    -> 86_400_000L;
+                    default       -> 0L;
+                };
+                if (unitMs == 0 || r.getLimit() == null || r.getIntervalNum() == null) {
+                    continue;
+                }
+                String window = r.getIntervalNum() + r.getInterval().substring(0, 1);
+                Bucket b = new Bucket(r.getRateLimitType(), unitMs * r.getIntervalNum(), r.getLimit(), window);
+                // сохраняем уже посчитанный расход текущего окна
+                for (Bucket old : buckets) {
+                    if (old.type.equals(b.type) && old.window.equals(b.window)) {
+                        b.windowStart = old.windowStart;
+                        b.used        = old.used;
+                    }
+                }
+                next.add(b);
+            }
+            if (!next.isEmpty()) {
+                buckets = next;
+            }
+        }
+
+        /**
+         * Хватает ли бюджета (без резерва); 0 — хватает, иначе через сколько мс пробовать снова.
+         */
+        synchronized long check(Cost cost, long now) {
+            if (now < pausedUntil) {
+                return pausedUntil - now;
+            }
+            boolean marketData = cost.priority() == Priority.MARKET_DATA;
+            if (marketData && ordersWaiting.get() > 0) {
+                return 50;
+            }
+            long wait = 0;
+            for (Bucket b : buckets) {
+                int amount = b.amount(cost);
+                if (amount == 0) continue;
+                b.roll(now);
+                double share = marketData && "REQUEST_WEIGHT".equals(b.type) ? safety * marketDataShare : safety;
+                int cap = Math.max(1, (int) (b.limit * share));
+                if (b.used + amount > cap) {
+                    wait = Math.max(wait, b.windowStart + b.windowMs - now);
+                }
+            }
+            return wait;
+        }
+
+        /** Списать бюджет после успешной {@link #check} */
+        synchronized void reserve(Cost cost) {
+            for (Bucket b : buckets) {
+                b.used += b.amount(cost);
+            }
+        }
+
+        synchronized void observe(String type, String window, String value, long now) {
+            int used;
+            try {
+                used = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                return;
+            }
+            for (Bucket b : buckets) {
+                if (b.type.equals(type) && b.window.equals(window)) {
+                    b.roll(now);
+                    // биржа видит и чужие запросы с этого IP; локальные резервы ещё в полёте
+                    b.used = Math.max(b.used, used);
+                }
+            }
+        }
+
+        synchronized void pauseUntil(long until) {
+            pausedUntil = Math.max(pausedUntil, until);
+        }
+
+        synchronized List<Usage> usage(String host, long now) {
+            List<Usage> usage = new ArrayList<>(buckets.size());
+            for (Bucket b : buckets) {
+                b.roll(now);
+                usage.add(new Usage(host, b.type, b.window, b.used, b.limit));
+            }
+            return usage;
+        }
+    }
+
+    /**
+     * Корзина одного лимита: фиксированное окно, выровненное по часам (как у биржи).
+     */
+    private static final class Bucket {
+        final String type;
+        final long   windowMs;
+        final int    limit;
+        /** Суффикс заголовка, например "1M" */
+        final String window;
+        long windowStart;
+        int  used;
+
+        Bucket(String type, long windowMs, int limit, String window) {
+            this.type     = type;
+            this.windowMs = windowMs;
+            this.limit    = limit;
+            this.window   = window.toUpperCase(Locale.ROOT);
+        }
+
+        void roll(long now) {
+            long start = now - now % windowMs;
+            if (start != windowStart) {
+                windowStart = start;
+                used = 0;
+            }
+        }
+
+        int amount(Cost cost) {
+            return switch (type) {
+                case "REQUEST_WEIGHT" -> cost.weight();
+                case "ORDERS"         -> cost.orders();
+                case "RAW_REQUESTS"   -> 1;
+                default               -> 0;
+            };
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.chicu.trader.trading.service.binance.client;
 
 import com.chicu.trader.trading.service.binance.client.model.ExchangeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpMethod;
 
 import java.math.BigDecimal;
@@ -18,6 +19,10 @@ public class BinanceRestClient {
         return http.getExchangeInfo();
     }
 
+    public ExchangeInfo refreshExchangeInfo() {
+        return http.refreshExchangeInfo();
+    }
+
     public BigDecimal getLastPrice(String symbol) {
         return http.getLastPrice(symbol);
     }
@@ -45,6 +50,47 @@ public class BinanceRestClient {
         return http.placeOcoSell(symbol, quantity, stopLossPrice, takeProfitPrice);
     }
 
+    /**
+     * Новый (или текущий активный) listenKey для User Data Stream.
+     */
+    public String startUserDataStream() {
+        try {
+            return new ObjectMapper().readTree(http.startUserDataStream()).path("listenKey").asText(null);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка startUserDataStream", e);
+        }
+    }
+
+    public void keepAliveUserDataStream(String listenKey) {
+        http.keepAliveUserDataStream(listenKey);
+    }
+
+    public void closeUserDataStream(String listenKey) {
+        http.closeUserDataStream(listenKey);
+    }
+
+    /**
+     * Отменить ордер по clientOrderId. Отмена одной ноги OCO отменяет весь список.
+     */
+    public String cancelOrderRaw(String symbol, String origClientOrderId) {
+        return http.sendSigned(
+                HttpMethod.DELETE,
+                "/api/v3/order",
+                Map.of("symbol", symbol, "origClientOrderId", origClientOrderId)
+        );
+    }
+
+    /**
+     * Состояние ордера по clientOrderId (GET /api/v3/order).
+     */
+    public String getOrderRaw(String symbol, String origClientOrderId) {
+        return http.sendSigned(
+                HttpMethod.GET,
+                "/api/v3/order",
+                Map.of("symbol", symbol, "origClientOrderId", origClientOrderId)
+        );
+    }
+
     public String getOcoStatusRaw(String symbol, String listId) {
         return http.sendSigned(
                 HttpMethod.GET,
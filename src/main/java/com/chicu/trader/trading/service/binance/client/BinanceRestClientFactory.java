@@ -1,23 +1,44 @@
 package com.chicu.trader.trading.service.binance.client;
 
 import com.chicu.trader.bot.entity.UserSettings;
+import com.chicu.trader.bot.service.UserCredentialsChangedEvent;
 import com.chicu.trader.bot.service.UserSettingsService;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Фабрика для создания BinanceRestClient:
  * - приватного, с ключами пользователя (для торговли),
  * - публичного, без ключей (только market-data),
  * - произвольного (по явно заданным ключам и testnet-флагу).
+ * <p>
+ * Клиенты пользователей кэшируются по (chatId, сеть) и пересоздаются, если ключи
+ * в настройках поменялись; при смене режима/ключей в {@link UserSettingsService}
+ * кэш пользователя сбрасывается. Публичный клиент — один на приложение.
  */
+@Slf4j
 @Component
-@RequiredArgsConstructor
 public class BinanceRestClientFactory {
 
     private final UserSettingsService      userSettingsService;
     private final BinanceHttpClientFactory httpClientFactory;
 
+    /** "chatId:TEST|REAL" → клиент и ключи, с которыми он создан */
+    private final Map<String, CachedClient> clients = new ConcurrentHashMap<>();
+    private final BinanceRestClient publicClient;
+
+    public BinanceRestClientFactory(UserSettingsService userSettingsService,
+                                    BinanceHttpClientFactory httpClientFactory) {
+        this.userSettingsService = userSettingsService;
+        this.httpClientFactory   = httpClientFactory;
+        this.publicClient        = create(null, null, false);
+    }
+
     /**
      * Клиент с ключами из настроек пользователя.
      */
@@ -32,23 +53,51 @@ public class BinanceRestClientFactory {
                 ? settings.getTestSecretKey()
                 : settings.getRealSecretKey();
 
-        BinanceHttpClient httpClient = httpClientFactory.create(apiKey, secretKey, isTestnet);
-        return new BinanceRestClient(apiKey, secretKey, isTestnet, httpClient);
+        String key = chatId + ":" + (isTestnet ? "TEST" : "REAL");
+        CachedClient cached = clients.get(key);
+        if (cached != null && cached.matches(apiKey, secretKey)) {
+            return cached.client();
+        }
+        return clients.compute(key, (k, old) -> {
+            if (old != null && old.matches(apiKey, secretKey)) {
+                return old;
+            }
+            log.debug("Создаём Binance-клиент для {}", k);
+            return new CachedClient(apiKey, secretKey, create(apiKey, secretKey, isTestnet));
+        }).client();
     }
 
     /**
      * Публичный клиент без ключей (использует production-эндпоинты).
      */
     public BinanceRestClient getPublicClient() {
-        BinanceHttpClient httpClient = httpClientFactory.create(null, null, false);
-        return new BinanceRestClient(null, null, false, httpClient);
+        return publicClient;
     }
 
     /**
-     * Клиент по явным параметрам: ключи + режим.
+     * Клиент по явным параметрам: ключи + режим. Не кэшируется.
      */
     public BinanceRestClient create(String apiKey, String secretKey, boolean isTestnet) {
         BinanceHttpClient httpClient = httpClientFactory.create(apiKey, secretKey, isTestnet);
         return new BinanceRestClient(apiKey, secretKey, isTestnet, httpClient);
     }
+
+    /**
+     * Сбросить закэшированные клиенты пользователя (обеих сетей).
+     */
+    public void evict(Long chatId) {
+        clients.remove(chatId + ":TEST");
+        clients.remove(chatId + ":REAL");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCredentialsChanged(UserCredentialsChangedEvent event) {
+        evict(event.chatId());
+    }
+
+    private record CachedClient(String apiKey, String secretKey, BinanceRestClient client) {
+        boolean matches(String apiKey, String secretKey) {
+            return Objects.equals(this.apiKey, apiKey) && Objects.equals(this.secretKey, secretKey);
+        }
+    }
 }
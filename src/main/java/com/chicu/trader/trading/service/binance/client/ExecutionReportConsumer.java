@@ -0,0 +1,308 @@
+package com.chicu.trader.trading.service.binance.client;
+
+import com.chicu.trader.trading.entity.TradeLog;
+import com.chicu.trader.trading.repository.TradeLogRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Применение executionReport из User Data Stream к TradeLog.
+ * <p>
+ * Поток WebSocket только кладёт событие в очередь; отдельный поток забирает их
+ * пачками (до batch-size или через batch-wait-ms) и обрабатывает пачку одним
+ * запросом к БД и одной транзакцией. Метрики: задержка от исполнения на бирже
+ * до записи в БД и число обработанных событий.
+ * <p>
+ * Переполненная очередь тормозит поток WebSocket (до offer-timeout-ms), но событий
+ * не теряет: если место так и не освободилось, аккаунт ставится на сверку, и тот же
+ * поток обработки запрашивает через REST состояние ордеров выхода его открытых сделок.
+ */
+@Slf4j
+@Component
+public class ExecutionReportConsumer {
+
+    private final TradeLogRepository  tradeLogRepo;
+    private final TransactionTemplate tx;
+    private final BinanceRestClientFactory clientFactory;
+    private final ObjectMapper objectMapper;
+    private final int  batchSize;
+    private final long batchWaitMs;
+    private final long offerTimeoutMs;
+
+    private final BlockingQueue<ExecutionReport> queue;
+    /** chatId аккаунтов, чьи события не поместились в очередь — ждут сверки через REST */
+    private final Set<Long> toReconcile = ConcurrentHashMap.newKeySet();
+    private Thread worker;
+    private volatile boolean running = true;
+
+    // ===== Метрики =====
+    private final LongAdder  received      = new LongAdder();
+    private final LongAdder  dropped       = new LongAdder();
+    private final LongAdder  applied       = new LongAdder();
+    private final LongAdder  batches       = new LongAdder();
+    private final LongAdder  reconciled    = new LongAdder();
+    private final LongAdder  latencyMsSum  = new LongAdder();
+    private final LongAdder  latencyCount  = new LongAdder();
+    private final AtomicLong maxLatencyMs  = new AtomicLong();
+
+    public ExecutionReportConsumer(TradeLogRepository tradeLogRepo,
+                                   TransactionTemplate tx,
+                                   BinanceRestClientFactory clientFactory,
+                                   ObjectMapper objectMapper,
+                                   @Value("${binance.user-data-stream.batch-size:200}") int batchSize,
+                                   @Value("${binance.user-data-stream.batch-wait-ms:100}") long batchWaitMs,
+                                   @Value("${binance.user-data-stream.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${binance.user-data-stream.offer-timeout-ms:2000}") long offerTimeoutMs) {
+        this.tradeLogRepo   = tradeLogRepo;
+        this.tx             = tx;
+        this.clientFactory  = clientFactory;
+        this.objectMapper   = objectMapper;
+        this.batchSize      = batchSize;
+        this.batchWaitMs    = batchWaitMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.queue          = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = new Thread(this::loop, "execution-reports");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Принять событие executionReport аккаунта chatId (вызывается из потока WebSocket).
+     * Если очередь не освободилась за offer-timeout-ms, аккаунт ставится на сверку через REST.
+     */
+    public void offer(Long chatId, JsonNode report) {
+        received.increment();
+        ExecutionReport r = new ExecutionReport(
+                report.path("s").asText(),
+                report.path("c").asText(),
+                report.path("S").asText(),
+                report.path("X").asText(),
+                report.path("p").asText("0"),
+                report.path("L").asText("0"),
+                report.path("z").asText("0"),
+                report.path("Z").asText("0"),
+                report.path("E").asLong());
+        boolean queued;
+        try {
+            queued = queue.offer(r, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            dropped.increment();
+            toReconcile.add(chatId);
+            log.warn("⚠️ Очередь executionReport переполнена — событие {} не принято, chatId={} будет сверен через REST",
+                    r.clientOrderId(), chatId);
+        }
+    }
+
+    public Stats getStats() {
+        long n = latencyCount.sum();
+        return new Stats(received.sum(), applied.sum(), dropped.sum(), reconciled.sum(), batches.sum(), queue.size(),
+                n == 0 ? 0 : (double) latencyMsSum.sum() / n, maxLatencyMs.get());
+    }
+
+    @Scheduled(fixedDelayString = "${binance.user-data-stream.stats-log-ms:60000}")
+    public void logStats() {
+        Stats s = getStats();
+        if (s.received() > 0) {
+            log.info("📨 executionReport: получено={}, применено={}, не принято={}, сверок={}, пачек={}, в очереди={}, "
+                            + "задержка до БД: средняя={}мс, макс={}мс",
+                    s.received(), s.applied(), s.dropped(), s.reconciled(), s.batches(), s.queued(),
+                    String.format("%.1f", s.avgLatencyMs()), s.maxLatencyMs());
+        }
+    }
+
+    // ===== Внутреннее =====
+
+    private void loop() {
+        List<ExecutionReport> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                reconcilePending();
+                ExecutionReport first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // добираем пачку: всё, что уже есть, и то, что придёт за batch-wait-ms
+                long deadline = System.currentTimeMillis() + batchWaitMs;
+                while (batch.size() < batchSize) {
+                    long left = deadline - System.currentTimeMillis();
+                    ExecutionReport next = left > 0 ? queue.poll(left, TimeUnit.MILLISECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("❌ Ошибка обработки пачки executionReport ({} шт.): {}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<ExecutionReport> batch) {
+        // нас интересуют только исполненные SELL — закрытие сделки
+        Map<String, ExecutionReport> fills = new LinkedHashMap<>();
+        Set<String> symbols = new HashSet<>();
+        for (ExecutionReport r : batch) {
+            if ("FILLED".equals(r.status()) && "SELL".equals(r.side())) {
+                fills.put(r.clientOrderId(), r);
+                symbols.add(r.symbol());
+            }
+        }
+        batches.increment();
+        if (fills.isEmpty()) {
+            return;
+        }
+
+        // исполнение ноги OCO (или ордера выхода) ищем среди exitClientOrderId открытых сделок
+        Map<Long, ExecutionReport> matched = new HashMap<>();
+        List<TradeLog> closed = tx.execute(status -> {
+            List<TradeLog> trades = new ArrayList<>();
+            for (TradeLog entry : tradeLogRepo.findOpenWithExitOrders(symbols)) {
+                ExecutionReport r = matchExit(entry, fills);
+                if (r == null) {
+                    continue;
+                }
+                matched.put(entry.getId(), r);
+                trades.add(entry);
+                BigDecimal price = r.fillPrice();
+                BigDecimal pnl = price
+                        .subtract(entry.getEntryPrice())
+                        .multiply(entry.getQuantity());
+
+                entry.setExitPrice(price);
+                entry.setExitTime(Instant.ofEpochMilli(r.eventTime()));
+                entry.setClosed(true);
+                entry.setPnl(pnl);
+            }
+            return tradeLogRepo.saveAll(trades);
+        });
+
+        long now = System.currentTimeMillis();
+        for (TradeLog entry : closed) {
+            long latency = now - matched.get(entry.getId()).eventTime();
+            latencyMsSum.add(latency);
+            latencyCount.increment();
+            maxLatencyMs.accumulateAndGet(latency, Math::max);
+            applied.increment();
+            log.info("Trade #{} closed: exit={}, pnl={}", entry.getId(), entry.getExitPrice(), entry.getPnl());
+        }
+    }
+
+    /**
+     * Сверка аккаунтов, чьи события не поместились в очередь: состояние каждой ноги
+     * выхода открытых сделок берётся через REST и применяется как executionReport.
+     */
+    private void reconcilePending() {
+        for (Long chatId : List.copyOf(toReconcile)) {
+            toReconcile.remove(chatId);
+            try {
+                List<ExecutionReport> reports = new ArrayList<>();
+                BinanceRestClient client = clientFactory.getClient(chatId);
+                for (TradeLog trade : tradeLogRepo.findAllByUserChatIdAndClosedFalse(chatId)) {
+                    if (trade.getExitClientOrderId() == null) {
+                        continue;
+                    }
+                    for (String leg : trade.getExitClientOrderId().split(",")) {
+                        JsonNode o = objectMapper.readTree(client.getOrderRaw(trade.getSymbol(), leg.trim()));
+                        reports.add(new ExecutionReport(
+                                trade.getSymbol(),
+                                o.path("clientOrderId").asText(),
+                                o.path("side").asText(),
+                                o.path("status").asText(),
+                                o.path("price").asText("0"),
+                                "0",
+                                o.path("executedQty").asText("0"),
+                                o.path("cummulativeQuoteQty").asText("0"),
+                                o.path("updateTime").asLong()));
+                    }
+                }
+                reconciled.increment();
+                apply(reports);
+                log.info("🔄 chatId={} сверен через REST: ордеров выхода {}", chatId, reports.size());
+            } catch (Exception e) {
+                log.error("❌ Не удалось сверить chatId={} через REST: {}", chatId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Исполнение одной из ног выхода сделки, либо null */
+    private static ExecutionReport matchExit(TradeLog trade, Map<String, ExecutionReport> fills) {
+        for (String leg : trade.getExitClientOrderId().split(",")) {
+            ExecutionReport r = fills.get(leg.trim());
+            if (r != null) {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Нужные поля executionReport: s — символ, c — clientOrderId, S — сторона, X — статус,
+     * p — цена ордера, L — цена последнего исполнения, z/Z — исполненные количество
+     * и сумма в котируемой валюте, E — время события.
+     */
+    private record ExecutionReport(String symbol, String clientOrderId, String side, String status,
+                                   String orderPrice, String lastFillPrice,
+                                   String filledQty, String filledQuote, long eventTime) {
+
+        /** Средняя цена исполнения; если сумм нет — цена ордера, у MARKET — последнего исполнения */
+        BigDecimal fillPrice() {
+            BigDecimal qty = new BigDecimal(filledQty);
+            BigDecimal quote = new BigDecimal(filledQuote);
+            if (qty.signum() > 0 && quote.signum() > 0) {
+                return quote.divide(qty, MathContext.DECIMAL64);
+            }
+            BigDecimal p = new BigDecimal(orderPrice);
+            return p.signum() > 0 ? p : new BigDecimal(lastFillPrice);
+        }
+    }
+
+    /**
+     * Снимок метрик.
+     */
+    public record Stats(long received, long applied, long dropped, long reconciled, long batches, int queued,
+                        double avgLatencyMs, long maxLatencyMs) {
+    }
+}
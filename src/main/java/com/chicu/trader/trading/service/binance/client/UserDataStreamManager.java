@@ -0,0 +1,250 @@
+package com.chicu.trader.trading.service.binance.client;
+
+import com.chicu.trader.bot.entity.AiTradingSettings;
+import com.chicu.trader.bot.entity.UserSettings;
+import com.chicu.trader.bot.service.AiTradingSettingsService;
+import com.chicu.trader.bot.service.UserSettingsService;
+import com.chicu.trader.trading.marketdata.BinanceStreamConnection;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Единый менеджер User Data Stream для всех запущенных пользователей.
+ * <p>
+ * На каждую сеть — одно WebSocket-соединение с combined-эндпоинтом; listenKey
+ * каждого аккаунта подписывается в нём как отдельный поток, так что число
+ * соединений не растёт с числом пользователей. Менеджер сам получает,
+ * продлевает и перевыпускает listenKey (по ошибке продления, событию
+ * {@code listenKeyExpired} и после переподключения), а события executionReport
+ * передаёт в {@link ExecutionReportConsumer}.
+ */
+@Slf4j
+@Service
+public class UserDataStreamManager {
+
+    private final AiTradingSettingsService settingsService;
+    private final UserSettingsService      userSettingsService;
+    private final BinanceRestClientFactory clientFactory;
+    private final ExecutionReportConsumer  consumer;
+    private final TaskScheduler            scheduler;
+
+    private final BinanceStreamConnection mainnet;
+    private final BinanceStreamConnection testnet;
+
+    /** "T:apiKey" / "M:apiKey" → аккаунт */
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    /** listenKey → аккаунт (для маршрутизации событий) */
+    private final Map<String, Account> byListenKey = new ConcurrentHashMap<>();
+    /** Аккаунты, перевыпуск ключа которых уже запланирован или идёт */
+    private final Set<Account> renewing = ConcurrentHashMap.newKeySet();
+
+    public UserDataStreamManager(AiTradingSettingsService settingsService,
+                                 UserSettingsService userSettingsService,
+                                 BinanceRestClientFactory clientFactory,
+                                 ExecutionReportConsumer consumer,
+                                 TaskScheduler scheduler,
+                                 @Value("${binance.user-data-stream.url:wss://stream.binance.com:9443/stream}") String url,
+                                 @Value("${binance.user-data-stream.testnet-url:wss://testnet.binance.vision/stream}") String testnetUrl) {
+        this.settingsService     = settingsService;
+        this.userSettingsService = userSettingsService;
+        this.clientFactory       = clientFactory;
+        this.consumer            = consumer;
+        this.scheduler           = scheduler;
+        this.mainnet = new BinanceStreamConnection("user-data", url, this::onMessage);
+        this.testnet = new BinanceStreamConnection("user-data-testnet", testnetUrl, this::onMessage);
+        // после обрыва ключи могли истечь — перевыпускаем
+        this.mainnet.setOnReconnect(() -> renewAll(false));
+        this.testnet.setOnReconnect(() -> renewAll(true));
+    }
+
+    /**
+     * Сверяет набор аккаунтов с запущенными пользователями: новые подписывает,
+     * остановленные (или сменившие ключи) отписывает и закрывает их listenKey.
+     */
+    @Scheduled(initialDelay = 5_000, fixedDelayString = "${binance.user-data-stream.refresh-ms:30000}")
+    public synchronized void refresh() {
+        Map<String, Long> wanted = new HashMap<>();
+        for (AiTradingSettings s : settingsService.getAllActiveTrading()) {
+            try {
+                UserSettings us = userSettingsService.getSettings(s.getChatId());
+                boolean isTestnet = "TEST".equalsIgnoreCase(us.getMode());
+                String apiKey = isTestnet ? us.getTestApiKey() : us.getRealApiKey();
+                if (apiKey != null && !apiKey.isBlank()) {
+                    wanted.putIfAbsent(key(isTestnet, apiKey), s.getChatId());
+                }
+            } catch (Exception e) {
+                log.debug("Нет настроек chatId={}: {}", s.getChatId(), e.getMessage());
+            }
+        }
+
+        for (String key : List.copyOf(accounts.keySet())) {
+            if (!wanted.containsKey(key)) {
+                stop(accounts.remove(key));
+            }
+        }
+        wanted.forEach((key, chatId) -> {
+            if (!accounts.containsKey(key)) {
+                Account a = new Account(chatId, key.startsWith("T:"));
+                accounts.put(key, a);
+                renew(a);
+            }
+        });
+    }
+
+    /**
+     * Продление всех listenKey; ключ, который продлить не удалось, перевыпускается.
+     */
+    @Scheduled(fixedDelayString = "${binance.user-data-stream.keepalive-ms}")
+    public void keepAlive() {
+        for (Account a : accounts.values()) {
+            String listenKey = a.listenKey;
+            if (listenKey == null) {
+                renew(a);
+                continue;
+            }
+            try {
+                clientFactory.getClient(a.chatId).keepAliveUserDataStream(listenKey);
+                log.debug("Продлён listenKey аккаунта chatId={}", a.chatId);
+            } catch (Exception e) {
+                log.warn("⚠️ Не удалось продлить listenKey chatId={}: {} — перевыпускаем", a.chatId, e.getMessage());
+                renew(a);
+            }
+        }
+    }
+
+    /** Число аккаунтов с активной подпиской */
+    public int getAccountCount() {
+        return byListenKey.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mainnet.close();
+        testnet.close();
+    }
+
+    // ===== Внутреннее =====
+
+    private void onMessage(String stream, JsonNode data) {
+        Account a = byListenKey.get(stream);
+        if (a == null) {
+            return;
+        }
+        switch (data.path("e").asText()) {
+            case "executionReport" -> consumer.offer(a.chatId, data);
+            case "listenKeyExpired" -> {
+                log.warn("⚠️ listenKey аккаунта chatId={} истёк — перевыпускаем", a.chatId);
+                connection(a.testnet).unsubscribe(List.of(stream));
+                byListenKey.remove(stream, a);
+                a.listenKey = null; // следующий keepAlive не будет продлевать мёртвый ключ
+                scheduleRenew(a);
+            }
+            default -> { }
+        }
+    }
+
+    /**
+     * Перевыпуск ключа вне потока WebSocket, на планировщике; повторные запросы
+     * по аккаунту, пока предыдущий не выполнен, отбрасываются.
+     */
+    private void scheduleRenew(Account a) {
+        if (!renewing.add(a)) {
+            return;
+        }
+        scheduler.schedule(() -> {
+            try {
+                renew(a);
+            } finally {
+                renewing.remove(a);
+            }
+        }, Instant.now());
+    }
+
+    private void renewAll(boolean isTestnet) {
+        accounts.values().stream().filter(a -> a.testnet == isTestnet).forEach(this::renew);
+    }
+
+    /**
+     * Получить listenKey (Binance вернёт действующий, если он есть) и переподписаться, если ключ сменился.
+     */
+    private void renew(Account a) {
+        synchronized (a) {
+            try {
+                String fresh = clientFactory.getClient(a.chatId).startUserDataStream();
+                if (fresh == null) {
+                    log.warn("⚠️ Binance не вернул listenKey для chatId={}", a.chatId);
+                    return;
+                }
+                String old = a.listenKey;
+                if (fresh.equals(old) && byListenKey.get(fresh) == a) {
+                    return;
+                }
+                if (old != null) {
+                    byListenKey.remove(old, a);
+                    connection(a.testnet).unsubscribe(List.of(old));
+                }
+                a.listenKey = fresh;
+                byListenKey.put(fresh, a);
+                connection(a.testnet).subscribe(List.of(fresh));
+                log.info("🔑 User Data Stream chatId={} ({}) подписан", a.chatId, a.testnet ? "testnet" : "mainnet");
+            } catch (Exception e) {
+                log.warn("⚠️ Не удалось получить listenKey chatId={}: {}", a.chatId, e.getMessage());
+            }
+        }
+    }
+
+    private void stop(Account a) {
+        if (a == null) {
+            return;
+        }
+        synchronized (a) {
+            String listenKey = a.listenKey;
+            a.listenKey = null;
+            if (listenKey == null) {
+                return;
+            }
+            byListenKey.remove(listenKey, a);
+            connection(a.testnet).unsubscribe(List.of(listenKey));
+            try {
+                clientFactory.getClient(a.chatId).closeUserDataStream(listenKey);
+            } catch (Exception e) {
+                log.debug("Не удалось закрыть listenKey chatId={}: {}", a.chatId, e.getMessage());
+            }
+            log.info("🔕 User Data Stream chatId={} отписан", a.chatId);
+        }
+    }
+
+    private BinanceStreamConnection connection(boolean isTestnet) {
+        return isTestnet ? testnet : mainnet;
+    }
+
+    private static String key(boolean isTestnet, String apiKey) {
+        return (isTestnet ? "T:" : "M:") + apiKey;
+    }
+
+    /**
+     * Аккаунт Binance (один apiKey в одной сети); chatId — через чьи настройки берём клиента.
+     */
+    private static final class Account {
+        final Long    chatId;
+        final boolean testnet;
+        volatile String listenKey;
+
+        Account(Long chatId, boolean testnet) {
+            this.chatId  = chatId;
+            this.testnet = testnet;
+        }
+    }
+}
@@ -16,6 +16,9 @@ public class ExchangeInfo {
     @JsonProperty("serverTime")
     private Long serverTime;
 
+    @JsonProperty("rateLimits")
+    private List<RateLimit> rateLimits;
+
     @JsonProperty("symbols")
     private List<SymbolInfo> symbols;
 }
@@ -0,0 +1,27 @@
+// src/main/java/com/chicu/trader/trading/service/binance/client/model/RateLimit.java
+package com.chicu.trader.trading.service.binance.client.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * Лимит из exchangeInfo.rateLimits, например REQUEST_WEIGHT / MINUTE / 1 / 6000.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RateLimit {
+    /** REQUEST_WEIGHT, ORDERS, RAW_REQUESTS */
+    @JsonProperty("rateLimitType")
+    private String rateLimitType;
+
+    /** SECOND, MINUTE, HOUR, DAY */
+    @JsonProperty("interval")
+    private String interval;
+
+    @JsonProperty("intervalNum")
+    private Integer intervalNum;
+
+    @JsonProperty("limit")
+    private Integer limit;
+}
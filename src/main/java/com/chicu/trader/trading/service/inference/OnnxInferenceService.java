@@ -0,0 +1,340 @@
+package com.chicu.trader.trading.service.inference;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxJavaType;
+import ai.onnxruntime.OnnxMap;
+import ai.onnxruntime.OnnxSequence;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import com.chicu.trader.trading.ml.MlInferenceException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Инференс ONNX-моделей внутри JVM.
+ * <p>
+ * На каждый путь модели — одна {@link OrtSession}, общая для всех потоков
+ * ({@code run} потокобезопасен). Вход пишется в direct-буфер потока, который
+ * переиспользуется между вызовами (ORT читает его без копирования).
+ * Поддерживается пакетный вход {@code float[N][F]}: одна пачка — один вызов модели.
+ * <p>
+ * Не чаще раза в reload-check-ms проверяется время изменения файла модели;
+ * если файл переписан (например, после переобучения), сессия пересоздаётся,
+ * а старая закрывается, когда завершатся идущие на ней вызовы. Если новый файл
+ * не загрузился (ещё пишется) — работаем на старой сессии до следующей проверки.
+ */
+@Slf4j
+@Service
+public class OnnxInferenceService {
+
+    private final ObjectProvider<OrtEnvironment> envProvider;
+    private final long reloadCheckMs;
+    private final int  intraOpThreads;
+
+    private final Map<String, LoadedModel> models = new ConcurrentHashMap<>();
+    /** Входной буфер потока; растёт под самую большую пачку */
+    private final ThreadLocal<FloatBuffer> inputBuffers = ThreadLocal.withInitial(() -> allocate(256));
+
+    private final LongAdder inferences = new LongAdder();
+    private final LongAdder rows       = new LongAdder();
+    private final LongAdder nanos      = new LongAdder();
+    private final LongAdder reloads    = new LongAdder();
+
+    public OnnxInferenceService(ObjectProvider<OrtEnvironment> envProvider,
+                                @Value("${ml.onnx.reload-check-ms:5000}") long reloadCheckMs,
+                                @Value("${ml.onnx.intra-op-threads:1}") int intraOpThreads) {
+        this.envProvider    = envProvider;
+        this.reloadCheckMs  = reloadCheckMs;
+        this.intraOpThreads = intraOpThreads;
+    }
+
+    /** Доступен ли ONNX Runtime (загрузилась ли нативная библиотека) */
+    public boolean isAvailable() {
+        return envProvider.getIfAvailable() != null;
+    }
+
+    /**
+     * Вероятность положительного класса (BUY) для каждой строки пачки.
+     */
+    public float[] predict(String modelPath, float[][] batch) {
+        if (batch.length == 0) {
+            return new float[0];
+        }
+        int cols = batch[0].length;
+        return run(modelPath, batch.length, cols, buf -> {
+            for (float[] row : batch) {
+                if (row.length != cols) {
+                    throw new MlInferenceException("Строки пачки разной длины: " + row.length + " и " + cols);
+                }
+                buf.put(row);
+            }
+        });
+    }
+
+    public float predict(String modelPath, float[] features) {
+        return run(modelPath, 1, features.length, buf -> buf.put(features))[0];
+    }
+
+    /**
+     * Вероятность BUY (от 0.0 до 1.0) для одного вектора признаков.
+     */
+    public double predict(String modelPath, double[] features) {
+        return run(modelPath, 1, features.length, buf -> {
+            for (double f : features) {
+                buf.put((float) f);
+            }
+        })[0];
+    }
+
+    /** Закрыть сессию модели (следующий вызов загрузит файл заново) */
+    public void evict(String modelPath) {
+        LoadedModel m = models.remove(key(modelPath));
+        if (m != null) {
+            m.close();
+        }
+    }
+
+    public long getInferenceCount() {
+        return inferences.sum();
+    }
+
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    /** Среднее время вызова модели, мкс */
+    public double getAvgMicros() {
+        long n = inferences.sum();
+        return n == 0 ? 0 : nanos.sum() / 1_000.0 / n;
+    }
+
+    public long getReloadCount() {
+        return reloads.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        models.values().forEach(LoadedModel::close);
+        models.clear();
+    }
+
+    // ===== Внутреннее =====
+
+    private float[] run(String modelPath, int n, int cols, Consumer<FloatBuffer> fill) {
+        OrtEnvironment env = envProvider.getIfAvailable();
+        if (env == null) {
+            throw new MlInferenceException("ONNX Runtime недоступен");
+        }
+        LoadedModel model = models.computeIfAbsent(key(modelPath), k -> new LoadedModel(env, Paths.get(k)));
+        model.reloadIfChanged();
+
+        FloatBuffer buf = inputBuffers.get();
+        if (buf.capacity() < n * cols) {
+            buf = allocate(Math.max(n * cols, buf.capacity() * 2));
+            inputBuffers.set(buf);
+        }
+        buf.clear();
+        fill.accept(buf);
+        buf.flip();
+
+        long start = System.nanoTime();
+        ReentrantReadWriteLock.ReadLock lock = model.lock.readLock();
+        lock.lock();
+        try {
+            if (model.session == null) {
+                throw new MlInferenceException("Модель не загружена: " + modelPath);
+            }
+            if (model.features > 0 && model.features != cols) {
+                throw new MlInferenceException("Модель " + modelPath + " ждёт " + model.features
+                        + " признаков, передано " + cols);
+            }
+            try (OnnxTensor input = OnnxTensor.createTensor(env, buf, new long[]{n, cols});
+                 OrtSession.Result result = model.session.run(Map.of(model.inputName, input))) {
+                return probabilities(result, n);
+            }
+        } catch (OrtException e) {
+            throw new MlInferenceException("Ошибка инференса модели " + modelPath, e);
+        } finally {
+            lock.unlock();
+            inferences.increment();
+            rows.add(n);
+            nanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Из выходов модели берём вероятности (выход с "prob" в имени, иначе первый float-тензор):
+     * тензор [N, C] → последний столбец (класс 1), [N] или [N, 1] → сам выход;
+     * последовательность словарей (ZipMap у sklearn/xgboost) → значение класса 1.
+     */
+    private static float[] probabilities(OrtSession.Result result, int n) throws OrtException {
+        OnnxValue chosen = null;
+        for (Map.Entry<String, OnnxValue> e : result) {
+            OnnxValue v = e.getValue();
+            boolean usable = isFloatTensor(v) || v instanceof OnnxSequence;
+            if (usable && e.getKey().toLowerCase().contains("prob")) {
+                chosen = v;
+                break;
+            }
+            if (chosen == null && isFloatTensor(v)) {
+                chosen = v;
+            }
+        }
+        if (chosen == null) {
+            throw new MlInferenceException("У модели нет выхода с вероятностями");
+        }
+
+        float[] out = new float[n];
+        if (chosen instanceof OnnxTensor t) {
+            long[] shape = t.getInfo().getShape();
+            int classes = shape.length > 1 ? (int) shape[1] : 1;
+            FloatBuffer fb = t.getFloatBuffer();
+            for (int i = 0; i < n; i++) {
+                out[i] = fb.get(i * classes + classes - 1);
+            }
+            return out;
+        }
+        List<? extends OnnxValue> maps = ((OnnxSequence) chosen).getValue();
+        for (int i = 0; i < n; i++) {
+            Map<?, ?> m = ((OnnxMap) maps.get(i)).getValue();
+            Object p = m.containsKey(1L) ? m.get(1L) : m.get("1");
+            out[i] = p instanceof Number num ? num.floatValue() : 0.5f;
+        }
+        return out;
+    }
+
+    private static boolean isFloatTensor(OnnxValue v) {
+        return v instanceof OnnxTensor t && t.getInfo().type == OnnxJavaType.FLOAT;
+    }
+
+    private static FloatBuffer allocate(int floats) {
+        return ByteBuffer.allocateDirect(floats * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    private static String key(String modelPath) {
+        return Paths.get(modelPath).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Сессия одной модели. Вызовы идут под read-lock, замена сессии — под write-lock.
+     */
+    private final class LoadedModel {
+        final OrtEnvironment env;
+        final Path path;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        volatile OrtSession session;
+        String inputName;
+        /** Число признаков из формы входа модели (-1 — не задано) */
+        long features = -1;
+        FileTime loadedModified;
+        long loadedSize;
+        volatile long nextCheck;
+
+        LoadedModel(OrtEnvironment env, Path path) {
+            this.env  = env;
+            this.path = path;
+        }
+
+        void reloadIfChanged() {
+            long now = System.currentTimeMillis();
+            if (session != null && now < nextCheck) {
+                return;
+            }
+            synchronized (this) {
+                if (session != null && now < nextCheck) {
+                    return;
+                }
+                nextCheck = now + reloadCheckMs;
+                try {
+                    FileTime modified = Files.getLastModifiedTime(path);
+                    long size = Files.size(path);
+                    if (session != null && modified.equals(loadedModified) && size == loadedSize) {
+                        return;
+                    }
+                    load(modified, size);
+                } catch (Exception e) {
+                    if (session == null) {
+                        throw new MlInferenceException("Не удалось загрузить модель " + path, e);
+                    }
+                    log.warn("⚠️ Не удалось перезагрузить модель {}: {} — работаем на прежней", path, e.getMessage());
+                }
+            }
+        }
+
+        private void load(FileTime modified, long size) throws OrtException {
+            OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
+            opts.setIntraOpNumThreads(intraOpThreads);
+            opts.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            OrtSession fresh = env.createSession(path.toString(), opts);
+
+            String name = fresh.getInputNames().iterator().next();
+            long f = -1;
+            NodeInfo info = fresh.getInputInfo().get(name);
+            if (info.getInfo() instanceof TensorInfo ti && ti.getShape().length == 2) {
+                f = ti.getShape()[1];
+            }
+
+            OrtSession old;
+            lock.writeLock().lock();
+            try {
+                old = session;
+                session        = fresh;
+                inputName      = name;
+                features       = f;
+                loadedModified = modified;
+                loadedSize     = size;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (old != null) {
+                closeQuietly(old);
+                reloads.increment();
+                log.info("🔄 ONNX-модель {} перезагружена", path);
+            } else {
+                log.info("✅ ONNX-модель загружена: {} (вход {}, признаков {})", path, name, f);
+            }
+        }
+
+        void close() {
+            lock.writeLock().lock();
+            try {
+                if (session != null) {
+                    closeQuietly(session);
+                    session = null;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void closeQuietly(OrtSession s) {
+            try {
+                s.close();
+            } catch (OrtException e) {
+                log.debug("Ошибка закрытия сессии {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.chicu.trader.trading.service.inference;
+
+import com.chicu.trader.trading.ml.MlInferenceException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пул долгоживущих Python-воркеров ({@code python_ml/model_server.py}) для моделей,
+ * которые нельзя экспортировать в ONNX (.pkl).
+ * <p>
+ * Вместо запуска интерпретатора на каждое предсказание воркеры живут постоянно
+ * и держат загруженные модели в памяти. Обмен — кадрами с префиксом длины через
+ * stdin/stdout (формат описан в model_server.py); один запрос несёт пачку строк
+ * признаков. Воркер, который упал, не ответил за timeout-ms или не прошёл
+ * проверку здоровья, уничтожается и заменяется новым при следующем запросе.
+ * Первый запрос воркера к модели (или к её новой версии) включает распаковку .pkl
+ * и ограничен отдельным, более длинным load-timeout-ms — иначе свежие воркеры
+ * убивались бы на загрузке крупной модели, и пул перезапускал бы их по кругу.
+ */
+@Slf4j
+@Service
+public class PythonModelWorkerPool {
+
+    private static final byte OP_PREDICT = 1;
+    private static final byte OP_PING    = 2;
+
+    private final String pythonExe;
+    private final File   script;
+    private final int    size;
+    private final long   timeoutMs;
+    private final long   loadTimeoutMs;
+
+    /** Свободные воркеры */
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    /** Сколько воркеров сейчас существует (свободных и занятых) */
+    private final AtomicInteger alive = new AtomicInteger();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "py-worker-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rows     = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+    private final LongAdder nanos    = new LongAdder();
+
+    public PythonModelWorkerPool(@Value("${ml.python.executable:python}") String pythonExe,
+                                 @Value("${ml.python.server-script:python_ml/model_server.py}") String script,
+                                 @Value("${ml.python.workers:2}") int size,
+                                 @Value("${ml.python.timeout-ms:10000}") long timeoutMs,
+                                 @Value("${ml.python.load-timeout-ms:120000}") long loadTimeoutMs) {
+        this.pythonExe     = pythonExe;
+        this.script        = new File(script);
+        this.size          = size;
+        this.timeoutMs     = timeoutMs;
+        this.loadTimeoutMs = loadTimeoutMs;
+    }
+
+    /**
+     * Вероятность класса 1 (BUY) для каждой строки пачки — одним обращением к воркеру.
+     */
+    public float[] predict(String modelPath, float[][] batch) {
+        if (batch.length == 0) {
+            return new float[0];
+        }
+        int cols = batch[0].length;
+        // воркер работает из каталога скрипта — передаём абсолютный путь
+        File model = new File(modelPath).getAbsoluteFile();
+        byte[] path = model.getPath().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(11 + path.length + batch.length * cols * 4);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(OP_PREDICT);
+            out.writeShort(path.length);
+            out.write(path);
+            out.writeInt(batch.length);
+            out.writeInt(cols);
+            for (float[] row : batch) {
+                if (row.length != cols) {
+                    throw new MlInferenceException("Строки пачки разной длины: " + row.length + " и " + cols);
+                }
+                for (float f : row) {
+                    out.writeFloat(f);
+                }
+            }
+        } catch (IOException e) {
+            throw new MlInferenceException("Ошибка сериализации признаков", e);
+        }
+
+        long start = System.nanoTime();
+        // воркер перечитывает модель при смене mtime — так же отличаем и мы
+        float[] result = call(bytes.toByteArray(), model.getPath() + "@" + model.lastModified());
+        nanos.add(System.nanoTime() - start);
+        requests.increment();
+        rows.add(batch.length);
+        return result;
+    }
+
+    /**
+     * Вероятность BUY (от 0.0 до 1.0) для одного вектора признаков.
+     */
+    public double predict(String modelPath, double[] features) {
+        float[] row = new float[features.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = (float) features[i];
+        }
+        return predict(modelPath, new float[][]{row})[0];
+    }
+
+    /**
+     * Проверка здоровья: свободные воркеры отвечают на PING, неответившие заменяются.
+     */
+    @Scheduled(fixedDelayString = "${ml.python.health-check-ms:30000}")
+    public void healthCheck() {
+        List<Worker> checked = new ArrayList<>();
+        idle.drainTo(checked);
+        for (Worker w : checked) {
+            try {
+                w.exchange(new byte[]{OP_PING}, timeoutMs);
+                idle.offer(w);
+            } catch (Exception e) {
+                log.warn("⚠️ Python-воркер #{} не прошёл проверку: {}", w.id, e.getMessage());
+                discard(w);
+            }
+        }
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    public long getRestartCount() {
+        return restarts.sum();
+    }
+
+    /** Среднее время запроса к воркеру, мс */
+    public double getAvgMillis() {
+        long n = requests.sum();
+        return n == 0 ? 0 : nanos.sum() / 1_000_000.0 / n;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        List<Worker> all = new ArrayList<>();
+        idle.drainTo(all);
+        all.forEach(Worker::destroy);
+    }
+
+    // ===== Внутреннее =====
+
+    private float[] call(byte[] request, String modelVersion) {
+        Worker w = acquire();
+        try {
+            boolean loaded = w.models.contains(modelVersion);
+            float[] result = w.exchange(request, loaded ? timeoutMs : loadTimeoutMs);
+            w.models.add(modelVersion);
+            idle.offer(w);
+            return result;
+        } catch (ModelError e) {
+            // воркер жив, ошибка в модели/данных
+            idle.offer(w);
+            throw new MlInferenceException(e.getMessage());
+        } catch (Exception e) {
+            discard(w);
+            throw new MlInferenceException("Python-воркер #" + w.id + " не ответил: " + e.getMessage(), e);
+        }
+    }
+
+    private Worker acquire() {
+        Worker w = idle.poll();
+        if (w != null) {
+            return w;
+        }
+        if (alive.incrementAndGet() <= size) {
+            try {
+                return start();
+            } catch (IOException e) {
+                alive.decrementAndGet();
+                throw new MlInferenceException("Не удалось запустить Python-воркер", e);
+            }
+        }
+        alive.decrementAndGet();
+        try {
+            w = idle.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MlInferenceException("Прервано ожидание Python-воркера", e);
+        }
+        if (w == null) {
+            throw new MlInferenceException("Нет свободного Python-воркера за " + timeoutMs + " мс");
+        }
+        return w;
+    }
+
+    private Worker start() throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(pythonExe, "-u", script.getAbsolutePath());
+        if (script.getParentFile() != null) {
+            pb.directory(script.getAbsoluteFile().getParentFile());
+        }
+        Process process = pb.start();
+        Worker w = new Worker(workerIds.incrementAndGet(), process);
+        log.info("🐍 Запущен Python-воркер #{} (pid={})", w.id, process.pid());
+        return w;
+    }
+
+    private void discard(Worker w) {
+        w.destroy();
+        alive.decrementAndGet();
+        restarts.increment();
+    }
+
+    /** Ошибка, которую вернул сам воркер (модель не найдена, неверные признаки и т.п.) */
+    private static final class ModelError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        ModelError(String message) {
+            super(message);
+        }
+    }
+
+    private final class Worker {
+        final int id;
+        final Process process;
+        final DataOutputStream in;
+        final DataInputStream out;
+        /** Модели (путь@mtime), уже загруженные воркером; воркер занят одним потоком за раз */
+        final Set<String> models = new HashSet<>();
+
+        Worker(int id, Process process) {
+            this.id      = id;
+            this.process = process;
+            this.in      = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.out     = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            Thread stderr = new Thread(this::drainStderr, "py-worker-" + id + "-stderr");
+            stderr.setDaemon(true);
+            stderr.start();
+        }
+
+        /**
+         * Один запрос — один ответ. Если воркер молчит дольше timeout, процесс
+         * убивается, и чтение завершается ошибкой.
+         */
+        float[] exchange(byte[] request, long timeout) throws IOException, ModelError {
+            ScheduledFuture<?> kill = watchdog.schedule(process::destroyForcibly, timeout, TimeUnit.MILLISECONDS);
+            try {
+                in.writeInt(request.length);
+                in.write(request);
+                in.flush();
+
+                int length = out.readInt();
+                byte[] payload = new byte[length];
+                out.readFully(payload);
+
+                DataInputStream resp = new DataInputStream(new ByteArrayInputStream(payload));
+                if (resp.readUnsignedByte() != 0) {
+                    byte[] msg = new byte[resp.readUnsignedShort()];
+                    resp.readFully(msg);
+                    throw new ModelError(new String(msg, StandardCharsets.UTF_8));
+                }
+                float[] result = new float[resp.readInt()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = resp.readFloat();
+                }
+                return result;
+            } finally {
+                kill.cancel(false);
+            }
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+        }
+
+        private void drainStderr() {
+            try (BufferedReader r = new BufferedReader(
+                    new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    log.debug("[py#{}] {}", id, line);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
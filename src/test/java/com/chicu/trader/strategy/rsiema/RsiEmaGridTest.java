@@ -0,0 +1,81 @@
+package com.chicu.trader.strategy.rsiema;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RsiEmaGridTest {
+
+    private static final int TP_WINDOW = 10;
+    private static final double TP_PCT = 0.01;
+    private static final double SL_PCT = 0.005;
+
+    @Test
+    void scoreMatchesBarByBarRecalculation() {
+        Random rnd = new Random(11);
+        double[] closes = new double[600];
+        double price = 100;
+        for (int i = 0; i < closes.length; i++) {
+            price *= 1 + rnd.nextGaussian() * 0.004;
+            closes[i] = price;
+        }
+        boolean[] approved = new boolean[closes.length];
+        for (int i = 0; i < approved.length; i++) {
+            approved[i] = rnd.nextInt(5) != 0;
+        }
+        RsiEmaGrid grid = new RsiEmaGrid(closes, approved, TP_WINDOW, TP_PCT, SL_PCT);
+
+        int nonZero = 0;
+        for (int rsiPeriod : new int[]{7, 14}) {
+            for (int[] ema : new int[][]{{5, 20}, {9, 21}, {12, 26}}) {
+                for (double[] thresholds : new double[][]{{30, 70}, {45, 55}}) {
+                    int expected = bruteForce(closes, approved, rsiPeriod, ema[0], ema[1], thresholds[0], thresholds[1]);
+                    assertThat(grid.score(rsiPeriod, ema[0], ema[1], thresholds[0], thresholds[1]))
+                            .as("rsi=%d ema=%d/%d thresholds=%s/%s",
+                                    rsiPeriod, ema[0], ema[1], thresholds[0], thresholds[1])
+                            .isEqualTo(expected);
+                    if (expected > 0) nonZero++;
+                }
+            }
+        }
+        // сравнение не вырождено в «ноль сигналов»
+        assertThat(nonZero).isPositive();
+    }
+
+    @Test
+    void disapprovedBarsAreNotCounted() {
+        double[] closes = new double[200];
+        for (int i = 0; i < closes.length; i++) {
+            closes[i] = 100 + Math.sin(i / 3.0) * 3;
+        }
+        RsiEmaGrid grid = new RsiEmaGrid(closes, new boolean[closes.length], TP_WINDOW, TP_PCT, SL_PCT);
+
+        assertThat(grid.score(14, 9, 21, 50, 50)).isZero();
+    }
+
+    /** Индикаторы заново по закрытиям [0, i) на каждом баре, исход — перебором вперёд */
+    private static int bruteForce(double[] closes, boolean[] approved, int rsiPeriod, int emaShort, int emaLong,
+                                  double rsiBuy, double rsiSell) {
+        int hits = 0;
+        for (int i = RsiEmaGrid.FIRST_BAR; i < closes.length - TP_WINDOW; i++) {
+            if (!approved[i]) continue;
+            double rsi = RsiCalculator.latest(closes, 0, i, rsiPeriod);
+            double s = EmaCalculator.latest(closes, 0, i, emaShort);
+            double l = EmaCalculator.latest(closes, 0, i, emaLong);
+            boolean buy = rsi < rsiBuy && s > l;
+            boolean sell = !buy && rsi > rsiSell && s < l;
+            if (!buy && !sell) continue;
+            for (int j = i + 1; j <= i + TP_WINDOW; j++) {
+                double pct = (closes[j] - closes[i]) / closes[i];
+                boolean hit = buy ? pct >= TP_PCT || pct <= -SL_PCT : pct <= -TP_PCT || pct >= SL_PCT;
+                if (hit) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,144 @@
+package com.chicu.trader.trading.archive;
+
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
+import com.chicu.trader.trading.repository.CandleRepository;
+import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CandleArchiveServiceTest {
+
+    private static final Duration TIMEFRAME = Duration.ofHours(1);
+    private static final long TF = TIMEFRAME.toMillis();
+    private static final String SYMBOL = "BTCUSDT";
+
+    @TempDir
+    Path dir;
+
+    private final HttpBinanceCandleService rest = mock(HttpBinanceCandleService.class);
+    private CandleArchiveService service;
+
+    /** Первая свеча, которую «отдаёт Binance» */
+    private long listing;
+    /** Последняя свеча, которую отдаёт REST (обрыв скачивания) */
+    private long restLimit = Long.MAX_VALUE;
+    private long base;
+
+    @BeforeEach
+    void setUp() {
+        base = Math.floorDiv(System.currentTimeMillis(), TF) * TF - 1_000 * TF;
+        listing = base - 500 * TF;
+        when(rest.fetchClosedRange(eq(SYMBOL), eq(TIMEFRAME), anyLong(), anyLong(), any()))
+                .thenAnswer(inv -> fetch(inv.getArgument(2), inv.getArgument(3), inv.getArgument(4)));
+        service = new CandleArchiveService(rest, mock(CandleRepository.class), true, dir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void fetchesOnlyMissingBars() {
+        CandleSeries first = service.load(SYMBOL, TIMEFRAME, base, base + 99 * TF);
+        assertThat(first.size()).isEqualTo(100);
+
+        CandleSeries inside = service.load(SYMBOL, TIMEFRAME, base + 10 * TF, base + 50 * TF);
+        assertThat(inside.size()).isEqualTo(41);
+        verify(rest, times(1)).fetchClosedRange(eq(SYMBOL), eq(TIMEFRAME), anyLong(), anyLong(), any());
+
+        service.load(SYMBOL, TIMEFRAME, base, base + 149 * TF);
+        verify(rest).fetchClosedRange(eq(SYMBOL), eq(TIMEFRAME), eq(base + 100 * TF), eq(base + 149 * TF), any());
+    }
+
+    @Test
+    void prependsEarlierHistoryWithoutGaps() {
+        service.load(SYMBOL, TIMEFRAME, base, base + 99 * TF);
+
+        CandleSeries all = service.load(SYMBOL, TIMEFRAME, base - 200 * TF, base + 99 * TF);
+
+        assertContiguous(all, base - 200 * TF, 300);
+        assertThat(Files.exists(dir.resolve("BTCUSDT_1h.bin.tmp"))).isFalse();
+    }
+
+    @Test
+    void stopsAskingBeforeListing() {
+        service.load(SYMBOL, TIMEFRAME, base, base + 9 * TF);
+
+        CandleSeries all = service.load(SYMBOL, TIMEFRAME, listing - 100 * TF, base + 9 * TF);
+        assertContiguous(all, listing, (int) ((base - listing) / TF) + 10);
+
+        service.load(SYMBOL, TIMEFRAME, listing - 100 * TF, base + 9 * TF);
+        verify(rest, times(2)).fetchClosedRange(eq(SYMBOL), eq(TIMEFRAME), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void discardsPrependThatDoesNotMeetArchive() {
+        service.load(SYMBOL, TIMEFRAME, base, base + 9 * TF);
+        // REST обрывается за 5 свечей до начала архива, и повтор не помогает
+        restLimit = base - 6 * TF;
+
+        CandleSeries all = service.load(SYMBOL, TIMEFRAME, base - 50 * TF, base + 9 * TF);
+
+        assertContiguous(all, base, 10);
+        verify(rest).fetchClosedRange(eq(SYMBOL), eq(TIMEFRAME), eq(base - 50 * TF), eq(base - TF), any());
+        verify(rest).fetchClosedRange(eq(SYMBOL), eq(TIMEFRAME), eq(base - 5 * TF), eq(base - TF), any());
+        assertThat(Files.exists(dir.resolve("BTCUSDT_1h.bin.tmp"))).isFalse();
+
+        // до перезапуска раньше архива не спрашиваем
+        service.load(SYMBOL, TIMEFRAME, base - 50 * TF, base + 9 * TF);
+        verify(rest, times(3)).fetchClosedRange(eq(SYMBOL), eq(TIMEFRAME), anyLong(), anyLong(), any());
+        verify(rest, never()).fetchClosedRange(eq(SYMBOL), eq(TIMEFRAME), eq(base - 50 * TF), eq(base - 6 * TF), any());
+    }
+
+    private int fetch(long from, long to, Consumer<List<Candle>> pages) {
+        List<Candle> page = new ArrayList<>();
+        int total = 0;
+        for (long t = Math.max(from, listing); t <= Math.min(to, restLimit); t += TF) {
+            page.add(Candle.builder()
+                    .symbol(SYMBOL)
+                    .openTime(t)
+                    .closeTime(t + TF - 1)
+                    .open(t).high(t).low(t).close(t)
+                    .build());
+            if (page.size() == 1000) {
+                pages.accept(page);
+                total += page.size();
+                page = new ArrayList<>();
+            }
+        }
+        if (!page.isEmpty()) {
+            pages.accept(page);
+            total += page.size();
+        }
+        return total;
+    }
+
+    private static void assertContiguous(CandleSeries series, long firstOpenTime, int size) {
+        assertThat(series.size()).isEqualTo(size);
+        for (int i = 0; i < size; i++) {
+            assertThat(series.openTime(i)).isEqualTo(firstOpenTime + i * TF);
+            assertThat(series.close(i)).isEqualTo((double) series.openTime(i));
+        }
+    }
+}
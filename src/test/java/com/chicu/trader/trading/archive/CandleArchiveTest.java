@@ -0,0 +1,106 @@
+package com.chicu.trader.trading.archive;
+
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.model.CandleSeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CandleArchiveTest {
+
+    private static final long TF = 60_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readMatchesBruteForceAcrossIndexBlocks() {
+        // с пропусками, чтобы openTime не выводился из номера записи
+        List<Candle> candles = new ArrayList<>();
+        Random rnd = new Random(7);
+        long t = 1_000 * TF;
+        for (int i = 0; i < 3 * CandleArchive.INDEX_STRIDE + 123; i++) {
+            candles.add(candle(t, i));
+            t += TF * (1 + rnd.nextInt(3));
+        }
+        try (CandleArchive archive = open()) {
+            archive.append(candles);
+            assertReads(archive, candles, rnd);
+        }
+        // индекс перестраивается из файла
+        try (CandleArchive reopened = open()) {
+            assertThat(reopened.size()).isEqualTo(candles.size());
+            assertThat(reopened.firstOpenTime()).isEqualTo(candles.get(0).getOpenTime());
+            assertThat(reopened.lastOpenTime()).isEqualTo(candles.get(candles.size() - 1).getOpenTime());
+            assertReads(reopened, candles, rnd);
+        }
+    }
+
+    @Test
+    void appendSkipsBarsNotAfterLast() {
+        try (CandleArchive archive = open()) {
+            assertThat(archive.append(List.of(candle(0, 1), candle(TF, 2)))).isEqualTo(2);
+            assertThat(archive.append(List.of(candle(TF, 9), candle(2 * TF, 3)))).isEqualTo(1);
+
+            CandleSeries all = archive.read(Long.MIN_VALUE, Long.MAX_VALUE);
+            assertThat(all.size()).isEqualTo(3);
+            assertThat(all.close(1)).isEqualTo(2);
+            assertThat(all.close(2)).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void exportAssignsStoreIds() {
+        try (CandleArchive archive = open()) {
+            archive.append(List.of(candle(0, 1), candle(TF, 2)));
+
+            List<Candle> exported = archive.export(TF, TF);
+            assertThat(exported).hasSize(1);
+            assertThat(exported.get(0).getId()).isEqualTo("BTCUSDT:1m:" + TF);
+            assertThat(exported.get(0).getTimestamp()).isEqualTo(TF);
+        }
+    }
+
+    private void assertReads(CandleArchive archive, List<Candle> candles, Random rnd) {
+        long first = candles.get(0).getOpenTime();
+        long last  = candles.get(candles.size() - 1).getOpenTime();
+        for (int k = 0; k < 300; k++) {
+            // границы и между барами, и за пределами архива
+            long from = first - 5 * TF + (long) (rnd.nextDouble() * (last - first + 10 * TF));
+            long to   = from + (long) (rnd.nextDouble() * 3 * CandleArchive.INDEX_STRIDE * TF);
+            List<Long> expected = candles.stream()
+                    .map(Candle::getOpenTime)
+                    .filter(o -> o >= from && o <= to)
+                    .toList();
+
+            CandleSeries series = archive.read(from, to);
+            List<Long> actual = new ArrayList<>(series.size());
+            for (int i = 0; i < series.size(); i++) {
+                actual.add(series.openTime(i));
+            }
+            assertThat(actual).as("[%d, %d]", from, to).isEqualTo(expected);
+        }
+        // начало блока индекса — точное попадание в разреженный индекс
+        long blockStart = candles.get(CandleArchive.INDEX_STRIDE).getOpenTime();
+        assertThat(archive.read(blockStart, blockStart).close(0))
+                .isEqualTo(CandleArchive.INDEX_STRIDE);
+    }
+
+    private CandleArchive open() {
+        return CandleArchive.open(dir.resolve("BTCUSDT_1m.bin"), "BTCUSDT", "1m", TF);
+    }
+
+    private static Candle candle(long openTime, double close) {
+        return Candle.builder()
+                .openTime(openTime)
+                .closeTime(openTime + TF - 1)
+                .open(close).high(close + 1).low(close - 1).close(close).volume(10)
+                .build();
+    }
+}
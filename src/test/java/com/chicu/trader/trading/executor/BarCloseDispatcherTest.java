@@ -0,0 +1,99 @@
+package com.chicu.trader.trading.executor;
+
+import com.chicu.trader.bot.entity.AiTradingSettings;
+import com.chicu.trader.bot.service.AiTradingSettingsService;
+import com.chicu.trader.trading.entity.ProfitablePair;
+import com.chicu.trader.trading.marketdata.BarClosedEvent;
+import com.chicu.trader.trading.marketdata.KlineStreamService;
+import com.chicu.trader.trading.service.ProfitablePairService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BarCloseDispatcherTest {
+
+    /** Последняя закрытая минутная свеча — чтобы задача не истекла до запуска */
+    private static final long OPEN = System.currentTimeMillis() / 60_000 * 60_000 - 60_000;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+    private final AiTradingSettingsService settingsService = mock(AiTradingSettingsService.class);
+    private final ProfitablePairService pairService = mock(ProfitablePairService.class);
+    private final KlineStreamService klineStream = mock(KlineStreamService.class);
+    private final BarCloseListener listener = mock(BarCloseListener.class);
+
+    private final ProfitablePair btc = pair(1L, "BTCUSDT");
+    private final ProfitablePair eth = pair(1L, "ETHUSDT");
+    private final ProfitablePair bnb = pair(1L, "BNBUSDT");
+    private final ProfitablePair other = pair(2L, "BTCUSDT");
+
+    private BarCloseDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        when(settingsService.getAllActiveTrading()).thenReturn(List.of(
+                AiTradingSettings.builder().chatId(1L).timeframe("1m").build(),
+                AiTradingSettings.builder().chatId(2L).timeframe("1m").build()));
+        when(pairService.getActivePairs(1L)).thenReturn(List.of(btc, eth, bnb));
+        when(pairService.getActivePairs(2L)).thenReturn(List.of(other));
+        when(klineStream.watch(any(), any())).thenReturn(true);
+
+        dispatcher = new BarCloseDispatcher(settingsService, pairService, klineStream,
+                List.of(listener), new ChatTaskExecutor(pool), 5_000, 200);
+        dispatcher.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        pool.shutdownNow();
+    }
+
+    @Test
+    void closesOfOneOpenTimeReachListenerAsOneBatchPerChat() {
+        dispatcher.onBarClosed(bar("BTCUSDT", OPEN));
+        dispatcher.onBarClosed(bar("ETHUSDT", OPEN));
+        dispatcher.onBarClosed(bar("BNBUSDT", OPEN));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ProfitablePair>> pairs = ArgumentCaptor.forClass(List.class);
+        verify(listener, timeout(2_000)).onBarClosed(eq(1L), pairs.capture(), eq(OPEN));
+        assertThat(pairs.getValue()).containsExactlyInAnyOrder(btc, eth, bnb);
+
+        verify(listener, timeout(2_000)).onBarClosed(2L, List.of(other), OPEN);
+        verify(listener, after(300).times(2)).onBarClosed(any(), anyList(), anyLong());
+    }
+
+    @Test
+    void repeatedCloseOfSameBarIsDispatchedOnce() {
+        dispatcher.onBarClosed(bar("BTCUSDT", OPEN));
+        dispatcher.onBarClosed(bar("BTCUSDT", OPEN));
+
+        verify(listener, after(500).times(1)).onBarClosed(eq(1L), anyList(), eq(OPEN));
+    }
+
+    private static BarClosedEvent bar(String symbol, long openTime) {
+        return new BarClosedEvent(symbol, "1m", Duration.ofMinutes(1), openTime, null);
+    }
+
+    private static ProfitablePair pair(Long chatId, String symbol) {
+        return ProfitablePair.builder().userChatId(chatId).symbol(symbol)
+                .takeProfitPct(1.0).stopLossPct(1.0).active(true).build();
+    }
+}
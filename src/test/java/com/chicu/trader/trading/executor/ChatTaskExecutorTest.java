@@ -0,0 +1,142 @@
+package com.chicu.trader.trading.executor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatTaskExecutorTest {
+
+    private static final long FAR = Long.MAX_VALUE;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private final ChatTaskExecutor executor = new ChatTaskExecutor(pool);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void tasksOfOneChatRunInOrderWithoutOverlap() throws Exception {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            executor.submit(1L, "task " + n, FAR, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlapped.set(true);
+                }
+                order.add(n);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(overlapped).isFalse();
+        assertThat(order).isSorted().hasSize(200);
+    }
+
+    @Test
+    void slowChatDoesNotBlockOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch other = new CountDownLatch(1);
+        executor.submit(1L, "slow", FAR, () -> await(release));
+
+        executor.submit(2L, "fast", FAR, other::countDown);
+
+        assertThat(other.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    void expiredTaskIsSkippedAndReportsExpiry() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch expired = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+        executor.submit(1L, "slow", FAR, () -> await(release));
+        executor.submit(1L, "late", System.currentTimeMillis() + 50, () -> ran.set(true), expired::countDown);
+
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(expired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran).isFalse();
+        assertThat(executor.getStats().expired()).isEqualTo(1);
+    }
+
+    @Test
+    void failingOnExpiredDoesNotStopQueue() throws Exception {
+        CountDownLatch next = new CountDownLatch(1);
+        executor.submit(1L, "late", System.currentTimeMillis() - 1, () -> { },
+                () -> { throw new IllegalStateException("boom"); });
+        executor.submit(1L, "next", FAR, next::countDown);
+
+        assertThat(next.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void rejectedChatIsRetried() throws Exception {
+        AtomicBoolean reject = new AtomicBoolean(true);
+        ChatTaskExecutor flaky = new ChatTaskExecutor(r -> {
+            if (reject.getAndSet(false)) {
+                throw new RejectedExecutionException("full");
+            }
+            pool.execute(r);
+        });
+        CountDownLatch done = new CountDownLatch(1);
+
+        flaky.submit(1L, "task", FAR, done::countDown);
+        assertThat(done.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        flaky.retryPending();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(flaky.getStats().rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void tasksSubmittedWhileQueueDrainsAreNotLost() throws Exception {
+        int threads = 8, perThread = 2_000;
+        AtomicInteger executed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threads * perThread);
+        ExecutorService submitters = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                submitters.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        executor.submit(1L, "task", FAR, () -> {
+                            executed.incrementAndGet();
+                            done.countDown();
+                        });
+                    }
+                });
+            }
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            submitters.shutdownNow();
+        }
+        assertThat(executed).hasValue(threads * perThread);
+        assertThat(executor.getStats().queued()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.chicu.trader.trading.executor;
+
+import com.chicu.trader.bot.entity.AiTradingSettings;
+import com.chicu.trader.bot.service.AiTradingSettingsService;
+import com.chicu.trader.strategy.SignalType;
+import com.chicu.trader.strategy.StrategyRegistry;
+import com.chicu.trader.trading.entity.ProfitablePair;
+import com.chicu.trader.trading.order.OrderPipeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TradingStrategyProcessorTest {
+
+    private static final Long CHAT = 1L;
+    private static final long OPEN = 1_700_000_000_000L;
+
+    private final AiTradingSettingsService settingsService = mock(AiTradingSettingsService.class);
+    private final SharedSignalService signalService = mock(SharedSignalService.class);
+    private final OrderPipeline orderPipeline = mock(OrderPipeline.class);
+    private final AiTradingSettings settings = AiTradingSettings.builder().chatId(CHAT).timeframe("1m").build();
+
+    private TradingStrategyProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        when(settingsService.getSettingsOrThrow(CHAT)).thenReturn(settings);
+        processor = new TradingStrategyProcessor(mock(StrategyRegistry.class), settingsService,
+                signalService, orderPipeline);
+    }
+
+    @Test
+    void buySignalsOfOneBarGoToPipelineAsOneBatch() {
+        ProfitablePair btc = pair("BTCUSDT");
+        ProfitablePair eth = pair("ETHUSDT");
+        ProfitablePair bnb = pair("BNBUSDT");
+        ProfitablePair xrp = pair("XRPUSDT");
+        signal("BTCUSDT", SignalType.BUY);
+        signal("ETHUSDT", SignalType.HOLD);
+        signal("BNBUSDT", SignalType.BUY);
+        // XRPUSDT — нет свечей
+
+        processor.processPairs(CHAT, List.of(btc, eth, bnb, xrp), OPEN);
+
+        verify(orderPipeline).execute(CHAT, settings, List.of(btc, bnb));
+    }
+
+    @Test
+    void noBuySignalsSkipPipeline() {
+        signal("ETHUSDT", SignalType.HOLD);
+
+        processor.processPairs(CHAT, List.of(pair("ETHUSDT")), OPEN);
+
+        verify(orderPipeline, never()).execute(any(), any(), any());
+    }
+
+    private void signal(String symbol, SignalType type) {
+        when(signalService.evaluate(eq(symbol), any(), anyInt(), any(), any(), eq(OPEN)))
+                .thenReturn(new SharedSignalService.Signal(type, 1.0));
+    }
+
+    private static ProfitablePair pair(String symbol) {
+        return ProfitablePair.builder().userChatId(CHAT).symbol(symbol)
+                .takeProfitPct(1.0).stopLossPct(1.0).active(true).build();
+    }
+}
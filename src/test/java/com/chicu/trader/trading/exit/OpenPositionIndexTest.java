@@ -0,0 +1,154 @@
+package com.chicu.trader.trading.exit;
+
+import com.chicu.trader.bot.service.UserSettingsService;
+import com.chicu.trader.trading.entity.TradeLog;
+import com.chicu.trader.trading.executor.ChatTaskExecutor;
+import com.chicu.trader.trading.exit.OpenPositionIndex.Book;
+import com.chicu.trader.trading.exit.OpenPositionIndex.Position;
+import com.chicu.trader.trading.marketdata.PriceTickerCache;
+import com.chicu.trader.trading.service.PriceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OpenPositionIndexTest {
+
+    private final UserSettingsService settings = mock(UserSettingsService.class);
+    private final PriceTickerCache tickers = mock(PriceTickerCache.class);
+    private final PriceService prices = mock(PriceService.class);
+    private final ChatTaskExecutor chatTasks = mock(ChatTaskExecutor.class);
+    private final TradingExitManager exitManager = mock(TradingExitManager.class);
+    private final OpenPositionIndex index =
+            new OpenPositionIndex(settings, tickers, prices, chatTasks, exitManager, 60_000);
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    // ===== Book =====
+
+    @Test
+    void bookTakesExactlyCrossedPositions() {
+        Book book = new Book("BTCUSDT");
+        book.add(new Position(1, 10L, "BTCUSDT", 110, 90));
+        book.add(new Position(2, 10L, "BTCUSDT", 120, 95));
+        book.add(new Position(3, 11L, "BTCUSDT", 105, 80));
+
+        assertThat(book.mayCross(100)).isFalse();
+        assertThat(book.takeCrossed(100)).isEmpty();
+
+        assertThat(book.mayCross(110)).isTrue();
+        assertThat(book.takeCrossed(110)).extracting(Position::tradeId).containsExactlyInAnyOrder(1L, 3L);
+        // взятые позиции больше не срабатывают, границы пересчитаны
+        assertThat(book.mayCross(110)).isFalse();
+        assertThat(book.mayCross(95)).isTrue();
+        assertThat(book.takeCrossed(95)).extracting(Position::tradeId).containsExactly(2L);
+        assertThat(book.mayCross(0)).isFalse();
+        assertThat(book.anyChatId()).isNull();
+    }
+
+    @Test
+    void bookDoesNotDuplicatePositionCrossingBothLevels() {
+        Book book = new Book("BTCUSDT");
+        // уровни «перевёрнуты»: цена 100 пересекает и TP, и SL
+        book.add(new Position(1, 10L, "BTCUSDT", 99, 101));
+
+        assertThat(book.takeCrossed(100)).extracting(Position::tradeId).containsExactly(1L);
+    }
+
+    @Test
+    void bookRemoveKeepsSharedLevels() {
+        Book book = new Book("BTCUSDT");
+        book.add(new Position(1, 10L, "BTCUSDT", 110, 90));
+        book.add(new Position(2, 10L, "BTCUSDT", 110, 90));
+
+        book.remove(1);
+
+        assertThat(book.takeCrossed(110)).extracting(Position::tradeId).containsExactly(2L);
+        assertThat(book.anyChatId()).isNull();
+    }
+
+    // ===== Индекс =====
+
+    @Test
+    void crossingTickSubmitsExitOnce() {
+        when(settings.isTestnet(10L)).thenReturn(false);
+        index.onSaved(trade(1L, 110, 90));
+        awaitSize(1);
+
+        index.onPrice(false, "BTCUSDT", 111);
+        index.onPrice(false, "BTCUSDT", 112);
+
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(chatTasks, times(1)).submit(eq(10L), anyString(), anyLong(), task.capture(), any());
+        assertThat(index.size()).isZero();
+
+        task.getValue().run();
+        verify(exitManager).exitOnTrigger(1L, 111.0, "TP");
+    }
+
+    @Test
+    void expiredExitReturnsPositionOnReconcile() {
+        when(settings.isTestnet(10L)).thenReturn(false);
+        TradeLog trade = trade(1L, 110, 90);
+        index.onSaved(trade);
+        awaitSize(1);
+
+        index.onPrice(false, "BTCUSDT", 89);
+        ArgumentCaptor<Runnable> onExpired = ArgumentCaptor.forClass(Runnable.class);
+        verify(chatTasks).submit(eq(10L), anyString(), anyLong(), any(), onExpired.capture());
+
+        // пока выход в очереди, сверка позицию не возвращает
+        index.reconcile(List.of(trade));
+        verify(tickers, timeout(1_000)).getFresh(false, "BTCUSDT");
+        assertThat(index.size()).isZero();
+
+        onExpired.getValue().run();
+        index.reconcile(List.of(trade));
+        awaitSize(1);
+    }
+
+    @Test
+    void reconcileChecksUnquotedSymbolsByRestPrice() {
+        when(settings.isTestnet(10L)).thenReturn(false);
+        when(prices.getPrice(10L, "BTCUSDT")).thenReturn(new BigDecimal("120"));
+
+        index.reconcile(List.of(trade(1L, 110, 90)));
+
+        verify(chatTasks, timeout(1_000)).submit(eq(10L), anyString(), anyLong(), any(), any());
+    }
+
+    private void awaitSize(int size) {
+        long until = System.currentTimeMillis() + 1_000;
+        while (index.size() != size && System.currentTimeMillis() < until) {
+            Thread.onSpinWait();
+        }
+        assertThat(index.size()).isEqualTo(size);
+    }
+
+    private static TradeLog trade(Long id, double tp, double sl) {
+        return TradeLog.builder()
+                .id(id)
+                .userChatId(10L)
+                .symbol("BTCUSDT")
+                .closed(false)
+                .takeProfitPrice(BigDecimal.valueOf(tp))
+                .stopLossPrice(BigDecimal.valueOf(sl))
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.chicu.trader.trading.indicator.stream;
+
+import com.chicu.trader.trading.model.CandleSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndicatorBankTest {
+
+    private static final long TF = 60_000;
+    private static final long NOW = Long.MAX_VALUE;
+
+    private final double[] closes = prices(300);
+
+    @Test
+    void streamExtendsSyncedBankBarByBar() {
+        IndicatorBank bank = bank();
+        bank.sync(series(0, 200), NOW);
+        for (int i = 200; i < 300; i++) {
+            assertThat(bank.onBar(i * TF, (i + 1) * TF - 1, closes[i], closes[i], closes[i], 1)).isTrue();
+        }
+
+        IndicatorBank expected = bank();
+        expected.sync(series(0, 300), NOW);
+        assertSameValues(bank, expected);
+    }
+
+    @Test
+    void barAfterGapResetsBankUntilNextSync() {
+        IndicatorBank bank = bank();
+        bank.sync(series(0, 200), NOW);
+        bank.ema(10);
+
+        // свечи 200..204 потеряны
+        assertThat(bank.onBar(205 * TF, 206 * TF - 1, closes[205], closes[205], closes[205], 1)).isFalse();
+        assertThat(bank.lastOpenTime()).isEqualTo(Long.MIN_VALUE);
+        assertThat(bank.ema(10).isReady()).isFalse();
+        // пока банк не прогрет заново, поток его не продлевает
+        assertThat(bank.onBar(206 * TF, 207 * TF - 1, closes[206], closes[206], closes[206], 1)).isFalse();
+
+        assertThat(bank.sync(series(100, 250), NOW)).isEqualTo(150);
+
+        IndicatorBank expected = bank();
+        expected.sync(series(100, 250), NOW);
+        assertSameValues(bank, expected);
+    }
+
+    @Test
+    void seriesNotContinuingBankRewarmsFromWholeSeries() {
+        IndicatorBank bank = bank();
+        bank.sync(series(0, 100), NOW);
+        bank.rsi(14);
+
+        // ряд начинается позже следующей за банком свечи
+        assertThat(bank.sync(series(150, 300), NOW)).isEqualTo(150);
+
+        IndicatorBank expected = bank();
+        expected.sync(series(150, 300), NOW);
+        assertSameValues(bank, expected);
+        assertThat(bank.lastOpenTime()).isEqualTo(299 * TF);
+    }
+
+    @Test
+    void overlappingSeriesOnlyAddsNewBars() {
+        IndicatorBank bank = bank();
+        bank.sync(series(0, 200), NOW);
+
+        assertThat(bank.sync(series(100, 250), NOW)).isEqualTo(50);
+
+        IndicatorBank expected = bank();
+        expected.sync(series(0, 250), NOW);
+        assertSameValues(bank, expected);
+    }
+
+    private static IndicatorBank bank() {
+        return new IndicatorBank("BTCUSDT", "1m", 1000);
+    }
+
+    private static void assertSameValues(IndicatorBank actual, IndicatorBank expected) {
+        assertThat(actual.lastOpenTime()).isEqualTo(expected.lastOpenTime());
+        assertThat(actual.ema(10).value()).isEqualTo(expected.ema(10).value());
+        assertThat(actual.ema(50).value()).isEqualTo(expected.ema(50).value());
+        assertThat(actual.rsi(14).value()).isEqualTo(expected.rsi(14).value());
+    }
+
+    /** Свечи [from, to) минутного ряда */
+    private CandleSeries series(int from, int to) {
+        int n = to - from;
+        long[] openTime = new long[n];
+        long[] closeTime = new long[n];
+        double[] c = new double[n];
+        double[] v = new double[n];
+        for (int k = 0; k < n; k++) {
+            openTime[k] = (from + k) * TF;
+            closeTime[k] = (from + k + 1) * TF - 1;
+            c[k] = closes[from + k];
+            v[k] = 1;
+        }
+        return CandleSeries.wrap("BTCUSDT", "1m", openTime, c, c, c, c, v, closeTime);
+    }
+
+    private static double[] prices(int n) {
+        double[] out = new double[n];
+        Random rnd = new Random(7);
+        double price = 100;
+        for (int i = 0; i < n; i++) {
+            price += rnd.nextGaussian();
+            out[i] = price;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,60 @@
+package com.chicu.trader.trading.indicator.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class RollingWindowTest {
+
+    @Test
+    void matchesBruteForceOverManyResyncs() {
+        int period = 20;
+        RollingWindow window = new RollingWindow(period);
+        Random rnd = new Random(42);
+        int n = period * RollingWindow.RESYNC_PERIODS * 3;
+        double[] xs = new double[n];
+        for (int i = 0; i < n; i++) {
+            // большой уровень и малый разброс — худший случай для накопления ошибки
+            xs[i] = 50_000 + rnd.nextGaussian() * 5;
+            window.update(xs[i]);
+
+            int from = Math.max(0, i + 1 - period);
+            int size = i + 1 - from;
+            double mean = 0;
+            for (int k = from; k <= i; k++) mean += xs[k];
+            mean /= size;
+            double var = 0;
+            for (int k = from; k <= i; k++) var += (xs[k] - mean) * (xs[k] - mean);
+            var /= size;
+
+            assertThat(window.size()).isEqualTo(size);
+            assertThat(window.isReady()).isEqualTo(size == period);
+            assertThat(window.mean()).as("mean at %d", i).isCloseTo(mean, within(1e-9));
+            assertThat(window.variance()).as("variance at %d", i).isCloseTo(var, within(1e-6));
+            assertThat(window.latest()).isEqualTo(xs[i]);
+            assertThat(window.get(size - 1)).isEqualTo(xs[from]);
+        }
+    }
+
+    @Test
+    void constantWindowHasZeroVariance() {
+        RollingWindow window = new RollingWindow(5);
+        for (int i = 0; i < 1_000; i++) {
+            window.update(0.1);
+        }
+        assertThat(window.stdDev()).isCloseTo(0, within(1e-12));
+        assertThat(window.sum()).isCloseTo(0.5, within(1e-12));
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        assertThatThrownBy(() -> new RollingWindow(0)).isInstanceOf(IllegalArgumentException.class);
+        RollingWindow window = new RollingWindow(3);
+        window.update(1);
+        assertThatThrownBy(() -> window.get(1)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}
@@ -0,0 +1,57 @@
+package com.chicu.trader.trading.indicator.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SimpleRsiTest {
+
+    @Test
+    void matchesSimpleAveragesOverLastWindow() {
+        int period = 14;
+        SimpleRsi rsi = new SimpleRsi(period);
+        double[] closes = new double[500];
+        Random rnd = new Random(3);
+        double price = 100;
+        for (int i = 0; i < closes.length; i++) {
+            // участки без движения дают нулевые изменения
+            price += rnd.nextInt(4) == 0 ? 0 : rnd.nextGaussian();
+            closes[i] = price;
+            rsi.update(price);
+
+            assertThat(rsi.isReady()).isEqualTo(i >= period);
+            if (i >= period) {
+                assertThat(rsi.value()).as("bar %d", i).isCloseTo(bruteForce(closes, i, period), within(1e-6));
+            } else {
+                assertThat(rsi.value()).isEqualTo(50.0);
+            }
+        }
+    }
+
+    @Test
+    void lossesLeavingWindowGiveMaximumRsi() {
+        SimpleRsi rsi = new SimpleRsi(3);
+        double[] closes = {10, 9, 8, 9, 10, 11};
+        for (double c : closes) {
+            rsi.update(c);
+        }
+        // в окне только рост: скользящее среднее потерь могло не вернуться ровно в 0
+        assertThat(rsi.value()).isCloseTo(100 - 100.0 / 101, within(1e-12));
+    }
+
+    /** Как IndicatorService.rsi по окну из period + 1 последних свечей */
+    private static double bruteForce(double[] closes, int last, int period) {
+        double gain = 0, loss = 0;
+        for (int i = last - period + 1; i <= last; i++) {
+            double change = closes[i] - closes[i - 1];
+            if (change > 0) gain += change;
+            else loss -= change;
+        }
+        double avgGain = gain / period, avgLoss = loss / period;
+        double rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
+        return 100 - (100 / (1 + rs));
+    }
+}
@@ -0,0 +1,48 @@
+package com.chicu.trader.trading.indicator.stream;
+
+import com.chicu.trader.strategy.rsiema.RsiCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WilderRsiTest {
+
+    @Test
+    void matchesRsiCalculatorOnEveryPrefix() {
+        int period = 14;
+        WilderRsi rsi = new WilderRsi(period);
+        List<Double> prices = new ArrayList<>();
+        double[] raw = new double[300];
+        Random rnd = new Random(1);
+        double price = 100;
+        for (int i = 0; i < raw.length; i++) {
+            price += rnd.nextGaussian();
+            raw[i] = price;
+            prices.add(price);
+            rsi.update(price);
+
+            List<Double> expected = RsiCalculator.calculate(prices, period);
+            assertThat(rsi.isReady()).isEqualTo(!expected.isEmpty());
+            if (expected.isEmpty()) {
+                assertThat(rsi.value()).isEqualTo(50.0);
+            } else {
+                assertThat(rsi.value()).as("bar %d", i).isCloseTo(expected.get(expected.size() - 1), within(1e-9));
+                assertThat(rsi.value()).isCloseTo(RsiCalculator.latest(raw, 0, i + 1, period), within(1e-9));
+            }
+        }
+    }
+
+    @Test
+    void onlyGainsGiveMaximumRsi() {
+        WilderRsi rsi = new WilderRsi(3);
+        for (int i = 0; i < 10; i++) {
+            rsi.update(100 + i);
+        }
+        assertThat(rsi.value()).isCloseTo(100 - 100.0 / 101, within(1e-12));
+    }
+}
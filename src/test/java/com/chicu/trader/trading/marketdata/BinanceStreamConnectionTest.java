@@ -0,0 +1,177 @@
+package com.chicu.trader.trading.marketdata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.ServerApplicationConfig;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.apache.catalina.Context;
+import org.apache.catalina.servlets.DefaultServlet;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.websocket.server.WsSci;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Соединение против локальной подмены combined-эндпоинта Binance (встроенный Tomcat).
+ */
+class BinanceStreamConnectionTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @TempDir
+    Path baseDir;
+
+    private Tomcat tomcat;
+    private FakeBinance server;
+    private BinanceStreamConnection connection;
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new FakeBinance();
+        FakeBinanceConfig.server = server;
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        Context ctx = tomcat.addContext("", baseDir.toString());
+        ctx.addServletContainerInitializer(new WsSci(), Set.of(FakeBinanceConfig.class));
+        // без сервлета запрос не доходит до фильтра WebSocket-апгрейда
+        Tomcat.addServlet(ctx, "default", new DefaultServlet());
+        ctx.addServletMappingDecoded("/", "default");
+        tomcat.getConnector();
+        tomcat.start();
+
+        String url = "ws://localhost:" + tomcat.getConnector().getLocalPort() + "/stream";
+        connection = new BinanceStreamConnection("test", url,
+                (stream, data) -> received.add(stream + " " + data));
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        connection.close();
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Test
+    void subscribesAndDeliversStreamMessages() throws Exception {
+        connection.subscribe(List.of("btcusdt@kline_1m"));
+
+        JsonNode subscribe = server.nextRequest();
+        assertThat(subscribe.get("method").asText()).isEqualTo("SUBSCRIBE");
+        assertThat(params(subscribe)).containsExactly("btcusdt@kline_1m");
+
+        server.send("{\"result\":null,\"id\":1}");
+        server.send("{\"stream\":\"btcusdt@kline_1m\",\"data\":{\"s\":\"BTCUSDT\"}}");
+        assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo("btcusdt@kline_1m {\"s\":\"BTCUSDT\"}");
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void sendsOnlyChangedStreamsToLiveSession() throws Exception {
+        connection.subscribe(List.of("btcusdt@kline_1m"));
+        server.nextRequest();
+
+        connection.subscribe(List.of("btcusdt@kline_1m", "ethusdt@kline_1m"));
+        JsonNode subscribe = server.nextRequest();
+        assertThat(params(subscribe)).containsExactly("ethusdt@kline_1m");
+
+        connection.unsubscribe(List.of("btcusdt@kline_1m", "xrpusdt@kline_1m"));
+        JsonNode unsubscribe = server.nextRequest();
+        assertThat(unsubscribe.get("method").asText()).isEqualTo("UNSUBSCRIBE");
+        assertThat(params(unsubscribe)).containsExactly("btcusdt@kline_1m");
+        assertThat(connection.getStreams()).containsExactly("ethusdt@kline_1m");
+    }
+
+    @Test
+    void reconnectsAndRestoresSubscriptions() throws Exception {
+        CountDownLatch reconnected = new CountDownLatch(1);
+        connection.setOnReconnect(reconnected::countDown);
+        connection.subscribe(List.of("btcusdt@kline_1m", "ethusdt@kline_1m"));
+        server.nextRequest();
+
+        server.dropSession();
+
+        JsonNode resubscribe = server.nextRequest();
+        assertThat(resubscribe.get("method").asText()).isEqualTo("SUBSCRIBE");
+        assertThat(params(resubscribe)).containsExactly("btcusdt@kline_1m", "ethusdt@kline_1m");
+        assertThat(reconnected.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(connection.isConnected()).isTrue();
+    }
+
+    private static List<String> params(JsonNode request) {
+        return JSON.convertValue(request.get("params"), JSON.getTypeFactory()
+                .constructCollectionType(List.class, String.class));
+    }
+
+    /**
+     * Регистрирует подмену на /stream; Tomcat создаёт этот класс сам, поэтому экземпляр — через поле.
+     */
+    public static class FakeBinanceConfig implements ServerApplicationConfig {
+
+        static volatile FakeBinance server;
+
+        @Override
+        public Set<ServerEndpointConfig> getEndpointConfigs(Set<Class<? extends Endpoint>> endpointClasses) {
+            return Set.of(ServerEndpointConfig.Builder.create(FakeBinance.class, "/stream")
+                    .configurator(new ServerEndpointConfig.Configurator() {
+                        @Override
+                        public <T> T getEndpointInstance(Class<T> endpointClass) {
+                            return endpointClass.cast(server);
+                        }
+                    })
+                    .build());
+        }
+
+        @Override
+        public Set<Class<?>> getAnnotatedEndpointClasses(Set<Class<?>> scanned) {
+            return Set.of();
+        }
+    }
+
+    /**
+     * Подмена эндпоинта: запоминает запросы клиента и шлёт сообщения в последнюю сессию.
+     */
+    public static class FakeBinance extends Endpoint {
+
+        private final BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+        private volatile Session session;
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            this.session = session;
+            session.addMessageHandler(String.class, (MessageHandler.Whole<String>) requests::add);
+        }
+
+        JsonNode nextRequest() throws Exception {
+            String request = requests.poll(10, TimeUnit.SECONDS);
+            assertThat(request).as("запрос клиента").isNotNull();
+            return JSON.readTree(request);
+        }
+
+        void send(String message) throws Exception {
+            session.getBasicRemote().sendText(message);
+        }
+
+        void dropSession() throws Exception {
+            session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "test"));
+        }
+    }
+}
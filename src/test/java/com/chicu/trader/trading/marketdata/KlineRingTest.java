@@ -0,0 +1,87 @@
+package com.chicu.trader.trading.marketdata;
+
+import com.chicu.trader.trading.model.Candle;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KlineRingTest {
+
+    private static final long TF = 60_000;
+
+    @Test
+    void upsertReplacesOpenBarInPlace() {
+        KlineRing ring = new KlineRing(10, TF);
+        ring.upsert(candle(0, 1), false);
+        ring.upsert(candle(0, 2), true);
+
+        assertThat(ring.size()).isEqualTo(1);
+        assertThat(ring.isLastClosed()).isTrue();
+        assertThat(ring.snapshot(10)).extracting(Candle::getClose).containsExactly(2.0);
+    }
+
+    @Test
+    void upsertReportsGapStart() {
+        KlineRing ring = new KlineRing(10, TF);
+        assertThat(ring.upsert(candle(0, 1), true)).isEqualTo(-1);
+        assertThat(ring.upsert(candle(TF, 1), true)).isEqualTo(-1);
+        // пропущены свечи 2 и 3
+        assertThat(ring.upsert(candle(4 * TF, 1), false)).isEqualTo(TF);
+        assertThat(ring.lastOpenTime()).isEqualTo(4 * TF);
+    }
+
+    @Test
+    void upsertIgnoresLateMessages() {
+        KlineRing ring = new KlineRing(10, TF);
+        ring.upsert(candle(0, 1), true);
+        ring.upsert(candle(TF, 2), false);
+
+        assertThat(ring.upsert(candle(0, 9), true)).isEqualTo(-1);
+        assertThat(ring.snapshot(10)).extracting(Candle::getClose).containsExactly(1.0, 2.0);
+        assertThat(ring.isLastClosed()).isFalse();
+    }
+
+    @Test
+    void oldestBarsAreEvictedAtCapacity() {
+        KlineRing ring = new KlineRing(3, TF);
+        for (int i = 0; i < 5; i++) {
+            ring.upsert(candle(i * TF, i), true);
+        }
+
+        assertThat(ring.size()).isEqualTo(3);
+        assertThat(ring.snapshot(10)).extracting(Candle::getOpenTime).containsExactly(2 * TF, 3 * TF, 4 * TF);
+        assertThat(ring.snapshot(2)).extracting(Candle::getOpenTime).containsExactly(3 * TF, 4 * TF);
+    }
+
+    @Test
+    void mergePrefersRestForClosedBarsAndKeepsStreamOpenBar() {
+        KlineRing ring = new KlineRing(10, TF);
+        ring.upsert(candle(0, 1), true);
+        ring.upsert(candle(3 * TF, 30), false);
+
+        ring.merge(List.of(candle(0, 10), candle(TF, 11), candle(2 * TF, 12)));
+
+        assertThat(ring.snapshot(10)).extracting(Candle::getClose).containsExactly(10.0, 11.0, 12.0, 30.0);
+        assertThat(ring.isLastClosed()).isFalse();
+    }
+
+    @Test
+    void mergeKeepsOnlyNewestBarsThatFit() {
+        KlineRing ring = new KlineRing(2, TF);
+        ring.merge(List.of(candle(0, 1), candle(TF, 2), candle(2 * TF, 3)));
+
+        assertThat(ring.snapshot(10)).extracting(Candle::getOpenTime).containsExactly(TF, 2 * TF);
+        assertThat(ring.isLastClosed()).isTrue();
+    }
+
+    private static Candle candle(long openTime, double close) {
+        return Candle.builder()
+                .symbol("BTCUSDT")
+                .openTime(openTime)
+                .closeTime(openTime + TF - 1)
+                .open(close).high(close).low(close).close(close)
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.chicu.trader.trading.ml.dataset;
+
+import com.chicu.trader.trading.ml.MlTrainingException;
+import com.chicu.trader.trading.ml.features.FeatureDefinition;
+import com.chicu.trader.trading.model.CandleSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class DatasetBuilderTest {
+
+    /** Достаточно строк, чтобы ряд делился на куски */
+    private static final int BARS = 40_000;
+
+    @Test
+    void chunkedBuildMatchesSinglePass() throws Exception {
+        CandleSeries series = randomSeries(BARS, 5);
+        for (FeatureDefinition def : new FeatureDefinition[]{
+                FeatureDefinition.WINDOW_V1, FeatureDefinition.MARKET_V1}) {
+            assertThat(def.lookback()).as(def.id()).isPositive();
+            assertMatchesSinglePass(def, series);
+        }
+    }
+
+    @Test
+    void unboundedMemoryFeaturesUseOnePass() throws Exception {
+        FeatureDefinition def = FeatureDefinition.adhoc("rsi14,ema26,close");
+        assertThat(def.lookback()).isNegative();
+
+        assertMatchesSinglePass(def, randomSeries(BARS, 6));
+    }
+
+    @Test
+    void tooShortSeriesIsRejected() {
+        DatasetBuilder builder = new DatasetBuilder(FeatureDefinition.WINDOW_V1);
+
+        assertThatThrownBy(() -> builder.build(randomSeries(20, 1)))
+                .isInstanceOf(MlTrainingException.class);
+    }
+
+    /**
+     * Строка i — вектор живого состояния после свечи first + i,
+     * метка — рост следующего close.
+     */
+    private static void assertMatchesSinglePass(FeatureDefinition def, CandleSeries series) throws Exception {
+        double[][] expected = def.compute(series);
+        int first = series.size() - expected.length;
+
+        Dataset ds = new DatasetBuilder(def).build(series);
+
+        assertThat(ds.getRows()).isEqualTo(expected.length - 1);
+        assertThat(ds.getCols()).isEqualTo(def.size());
+        for (int r = 0; r < ds.getRows(); r++) {
+            for (int c = 0; c < ds.getCols(); c++) {
+                float want = (float) expected[r][c];
+                assertThat(ds.feature(r, c))
+                        .as("%s row %d col %d", def.id(), r, c)
+                        .isCloseTo(want, within(1e-5f * Math.max(1f, Math.abs(want))));
+            }
+            int bar = first + r;
+            float label = series.close(bar + 1) > series.close(bar) ? 1f : 0f;
+            assertThat(ds.getLabels()[r]).isEqualTo(label);
+        }
+    }
+
+    private static CandleSeries randomSeries(int n, long seed) {
+        Random rnd = new Random(seed);
+        long[]   ot = new long[n];
+        double[] o  = new double[n];
+        double[] h  = new double[n];
+        double[] l  = new double[n];
+        double[] c  = new double[n];
+        double[] v  = new double[n];
+        long[]   ct = new long[n];
+        double price = 100;
+        for (int i = 0; i < n; i++) {
+            ot[i] = i * 60_000L;
+            ct[i] = ot[i] + 59_999;
+            o[i]  = price;
+            price *= 1 + rnd.nextGaussian() * 0.003;
+            c[i]  = price;
+            h[i]  = Math.max(o[i], c[i]) * (1 + rnd.nextDouble() * 0.002);
+            l[i]  = Math.min(o[i], c[i]) * (1 - rnd.nextDouble() * 0.002);
+            v[i]  = 10 + rnd.nextDouble() * 90;
+        }
+        return CandleSeries.wrap("BTCUSDT", "1m", ot, o, h, l, c, v, ct);
+    }
+}
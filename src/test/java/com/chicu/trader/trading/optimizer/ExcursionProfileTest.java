@@ -0,0 +1,97 @@
+package com.chicu.trader.trading.optimizer;
+
+import com.chicu.trader.trading.model.CandleSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ExcursionProfileTest {
+
+    private static final double[] LEVELS = {0.002, 0.005, 0.01, 0.015, 0.02, 0.03};
+
+    @Test
+    void scoreGridMatchesBarByBarSimulation() {
+        for (int seed = 0; seed < 5; seed++) {
+            CandleSeries series = randomWalk(new Random(seed), 400);
+            for (int horizon : new int[]{1, 5, 40, 1000}) {
+                double[][] grid = ExcursionProfile.build(series, horizon).scoreGrid(LEVELS, LEVELS);
+                for (int t = 0; t < LEVELS.length; t++) {
+                    for (int s = 0; s < LEVELS.length; s++) {
+                        assertThat(grid[t][s])
+                                .as("seed=%d horizon=%d tp=%s sl=%s", seed, horizon, LEVELS[t], LEVELS[s])
+                                .isCloseTo(simulate(series, horizon, LEVELS[t], LEVELS[s]), within(1e-12));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void takeProfitWinsWhenBothLevelsTouchOnSameBar() {
+        // вход по 100, следующий бар задевает и +1%, и -1%
+        CandleSeries series = series(new double[]{100, 100}, new double[]{100, 101}, new double[]{100, 99});
+        double[][] grid = ExcursionProfile.build(series, 10).scoreGrid(new double[]{0.01}, new double[]{0.01});
+        assertThat(grid[0][0]).isEqualTo(0.01);
+    }
+
+    @Test
+    void shortSeriesHasNoEntries() {
+        CandleSeries series = series(new double[]{100}, new double[]{100}, new double[]{100});
+        ExcursionProfile profile = ExcursionProfile.build(series, 10);
+
+        assertThat(profile.entries()).isZero();
+        assertThat(profile.scoreGrid(LEVELS, LEVELS)[0][0]).isZero();
+    }
+
+    /** Прямой перебор баров после каждого входа: как в бэктесте */
+    private static double simulate(CandleSeries series, int horizon, double tp, double sl) {
+        int entries = series.size() - 1;
+        double sum = 0;
+        for (int i = 0; i < entries; i++) {
+            double entry = series.close(i);
+            int last = Math.min(series.size() - 1, i + horizon);
+            double result = series.close(last) / entry - 1;
+            for (int j = i + 1; j <= last; j++) {
+                if (series.high(j) / entry - 1 >= tp) {
+                    result = tp;
+                    break;
+                }
+                if (1 - series.low(j) / entry >= sl) {
+                    result = -sl;
+                    break;
+                }
+            }
+            sum += result;
+        }
+        return sum / entries;
+    }
+
+    private static CandleSeries randomWalk(Random rnd, int n) {
+        double[] close = new double[n];
+        double[] high  = new double[n];
+        double[] low   = new double[n];
+        double price = 100;
+        for (int i = 0; i < n; i++) {
+            double open = price;
+            price *= 1 + rnd.nextGaussian() * 0.006;
+            close[i] = price;
+            high[i]  = Math.max(open, price) * (1 + rnd.nextDouble() * 0.004);
+            low[i]   = Math.min(open, price) * (1 - rnd.nextDouble() * 0.004);
+        }
+        return series(close, high, low);
+    }
+
+    private static CandleSeries series(double[] close, double[] high, double[] low) {
+        int n = close.length;
+        long[] openTime = new long[n];
+        long[] closeTime = new long[n];
+        for (int i = 0; i < n; i++) {
+            openTime[i]  = i * 60_000L;
+            closeTime[i] = openTime[i] + 59_999;
+        }
+        return CandleSeries.wrap("BTCUSDT", "1m", openTime, close.clone(), high, low, close, new double[n], closeTime);
+    }
+}
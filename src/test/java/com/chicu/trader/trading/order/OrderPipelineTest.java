@@ -0,0 +1,136 @@
+package com.chicu.trader.trading.order;
+
+import com.chicu.trader.bot.entity.AiTradingSettings;
+import com.chicu.trader.bot.service.UserSettingsService;
+import com.chicu.trader.trading.entity.ProfitablePair;
+import com.chicu.trader.trading.entity.TradeLog;
+import com.chicu.trader.trading.marketdata.PriceTickerCache;
+import com.chicu.trader.trading.repository.TradeLogRepository;
+import com.chicu.trader.trading.risk.RiskManager;
+import com.chicu.trader.trading.service.PriceService;
+import com.chicu.trader.trading.service.binance.client.BinanceAsyncClient;
+import com.chicu.trader.trading.service.binance.client.BinanceAsyncClientFactory;
+import com.chicu.trader.trading.service.binance.client.BinanceHttpClient;
+import com.chicu.trader.trading.service.binance.client.BinanceRestClient;
+import com.chicu.trader.trading.service.binance.client.BinanceRestClientFactory;
+import com.chicu.trader.trading.service.binance.client.model.ExchangeInfo;
+import com.chicu.trader.trading.service.binance.client.model.SymbolFilter;
+import com.chicu.trader.trading.service.binance.client.model.SymbolInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderPipelineTest {
+
+    private static final Long CHAT = 1L;
+
+    private final BinanceAsyncClient asyncClient = mock(BinanceAsyncClient.class);
+    private final BinanceRestClient restClient = mock(BinanceRestClient.class);
+    private final PriceTickerCache tickerCache = mock(PriceTickerCache.class);
+    private final RiskManager riskManager = mock(RiskManager.class);
+    private final TradeLogRepository repo = mock(TradeLogRepository.class);
+    private final AiTradingSettings settings = new AiTradingSettings();
+
+    private OrderPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        BinanceAsyncClientFactory asyncFactory = mock(BinanceAsyncClientFactory.class);
+        BinanceRestClientFactory restFactory = mock(BinanceRestClientFactory.class);
+        when(asyncFactory.getClient(CHAT)).thenReturn(asyncClient);
+        when(restFactory.getClient(CHAT)).thenReturn(restClient);
+        when(restClient.getExchangeInfo()).thenReturn(exchangeInfo("BTCUSDT", "ETHUSDT", "BNBUSDT"));
+
+        when(asyncClient.getFullBalance()).thenReturn(CompletableFuture.completedFuture(Map.of(
+                "USDT", new BinanceHttpClient.BalanceInfo("USDT", new BigDecimal("1000"), BigDecimal.ZERO))));
+        // BTC — только через REST, ETH и BNB — из потокового кэша
+        when(asyncClient.getLastPrice("BTCUSDT")).thenReturn(CompletableFuture.completedFuture(new BigDecimal("100")));
+        when(tickerCache.getFresh(false, "ETHUSDT"))
+                .thenReturn(new PriceTickerCache.Quote("ETHUSDT", 10, 10, 10, System.currentTimeMillis(), 0));
+        when(tickerCache.getFresh(false, "BNBUSDT"))
+                .thenReturn(new PriceTickerCache.Quote("BNBUSDT", 1, 1, 1, System.currentTimeMillis(), 0));
+
+        when(asyncClient.placeMarketBuy(anyString(), any())).thenAnswer(inv -> CompletableFuture.completedFuture(
+                "{\"clientOrderId\":\"e-" + inv.getArgument(0) + "\",\"executedQty\":\"0\"}"));
+        when(asyncClient.placeOcoSell(anyString(), any(), any(), any())).thenReturn(CompletableFuture.completedFuture(
+                "{\"orderReports\":[{\"clientOrderId\":\"sl\"},{\"clientOrderId\":\"tp\"}]}"));
+        when(repo.save(any(TradeLog.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // 10% свободного баланса на позицию
+        when(riskManager.quoteAsset(anyString())).thenReturn("USDT");
+        when(riskManager.calculatePositionSize(any(BigDecimal.class), anyDouble(), eq(settings)))
+                .thenAnswer(inv -> ((BigDecimal) inv.getArgument(0)).doubleValue() * 0.1 / (double) inv.getArgument(1));
+
+        pipeline = new OrderPipeline(asyncFactory, restFactory, mock(UserSettingsService.class), tickerCache,
+                mock(PriceService.class), riskManager, repo, new ObjectMapper(), 4, 5_000);
+    }
+
+    @Test
+    void simultaneousSignalsShareOnePrefetch() {
+        pipeline.execute(CHAT, settings, List.of(pair("BTCUSDT"), pair("ETHUSDT"), pair("BNBUSDT")));
+
+        verify(restClient, times(1)).getExchangeInfo();
+        verify(asyncClient, times(1)).getFullBalance();
+        verify(asyncClient, times(1)).getLastPrice("BTCUSDT");
+        verify(asyncClient, never()).getLastPrice("ETHUSDT");
+        verify(asyncClient, never()).getLastPrice("BNBUSDT");
+        verify(asyncClient, times(3)).placeMarketBuy(anyString(), any());
+        verify(asyncClient, times(3)).placeOcoSell(anyString(), any(), any(), any());
+        assertThat(pipeline.getStageStats().get(OrderPipeline.Stage.PREFETCH).count()).isEqualTo(1);
+    }
+
+    @Test
+    void balanceIsReservedAcrossPairsOfOneBatch() {
+        pipeline.execute(CHAT, settings, List.of(pair("BTCUSDT"), pair("ETHUSDT"), pair("BNBUSDT")));
+
+        ArgumentCaptor<BigDecimal> free = ArgumentCaptor.forClass(BigDecimal.class);
+        verify(riskManager, times(3)).calculatePositionSize(free.capture(), anyDouble(), eq(settings));
+        assertThat(free.getAllValues()).usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("1000"), new BigDecimal("900"), new BigDecimal("810"));
+    }
+
+    @Test
+    void emptyBatchDoesNotTouchExchange() {
+        pipeline.execute(CHAT, settings, List.of());
+
+        verify(restClient, never()).getExchangeInfo();
+        verify(asyncClient, never()).getFullBalance();
+    }
+
+    private static ProfitablePair pair(String symbol) {
+        return ProfitablePair.builder().userChatId(CHAT).symbol(symbol)
+                .takeProfitPct(1.0).stopLossPct(1.0).active(true).build();
+    }
+
+    private static ExchangeInfo exchangeInfo(String... symbols) {
+        ExchangeInfo info = new ExchangeInfo();
+        info.setSymbols(Arrays.stream(symbols).map(s -> {
+            SymbolFilter lot = new SymbolFilter();
+            lot.setFilterType("LOT_SIZE");
+            lot.setStepSize("0.001");
+            SymbolInfo si = new SymbolInfo();
+            si.setSymbol(s);
+            si.setFilters(List.of(lot));
+            return si;
+        }).toList());
+        return info;
+    }
+}
@@ -0,0 +1,139 @@
+package com.chicu.trader.trading.service;
+
+import com.chicu.trader.trading.entity.CandleRange;
+import com.chicu.trader.trading.model.Candle;
+import com.chicu.trader.trading.repository.CandleRangeRepository;
+import com.chicu.trader.trading.repository.CandleRepository;
+import com.chicu.trader.trading.service.binance.HttpBinanceCandleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CandleStoreTest {
+
+    private static final Duration TIMEFRAME = Duration.ofHours(1);
+    private static final long TF = TIMEFRAME.toMillis();
+    private static final String SYMBOL = "BTCUSDT";
+
+    private final CandleRepository candleRepository = mock(CandleRepository.class);
+    private final CandleRangeRepository rangeRepository = mock(CandleRangeRepository.class);
+    private final HttpBinanceCandleService rest = mock(HttpBinanceCandleService.class);
+    private final PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+
+    /** Содержимое таблицы диапазонов */
+    private final List<CandleRange> ranges = new ArrayList<>();
+    private CandleStore store;
+    private long lastClosed;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lastClosed = Math.floorDiv(System.currentTimeMillis(), TF) * TF - TF;
+        when(rangeRepository.findBySymbolAndTimeframeOrderByFromOpenTimeAsc(eq(SYMBOL), anyString()))
+                .thenAnswer(inv -> ranges.stream()
+                        .sorted(Comparator.comparing(CandleRange::getFromOpenTime)).toList());
+        when(rangeRepository.save(any(CandleRange.class))).thenAnswer(inv -> {
+            ranges.add(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        doAnswer(inv -> ranges.removeAll((Collection<CandleRange>) inv.getArgument(0)))
+                .when(rangeRepository).deleteAll(any(Iterable.class));
+        store = new CandleStore(candleRepository, rangeRepository, rest, new TransactionTemplate(txManager));
+    }
+
+    @Test
+    void emptySpanBeforeLastClosedBarIsRecordedAndNotRefetched() {
+        long from = lastClosed - 100 * TF;
+        long to = lastClosed - 50 * TF;
+        when(rest.fetchClosedRangeOrThrow(eq(SYMBOL), eq(TIMEFRAME), anyLong(), anyLong(), any())).thenReturn(0);
+
+        store.getRange(SYMBOL, TIMEFRAME, from, to);
+        store.getRange(SYMBOL, TIMEFRAME, from, to);
+
+        verify(rest, times(1)).fetchClosedRangeOrThrow(eq(SYMBOL), eq(TIMEFRAME), anyLong(), anyLong(), any());
+        assertThat(ranges).singleElement().satisfies(r -> {
+            assertThat(r.getFromOpenTime()).isEqualTo(from);
+            assertThat(r.getToOpenTime()).isEqualTo(to);
+        });
+    }
+
+    @Test
+    void emptyTailAtLastClosedBarIsNotRecorded() {
+        long from = lastClosed - 10 * TF;
+        when(rest.fetchClosedRangeOrThrow(eq(SYMBOL), eq(TIMEFRAME), anyLong(), anyLong(), any()))
+                .thenAnswer(inv -> page(inv.getArgument(4), from, lastClosed - TF));
+
+        store.getRange(SYMBOL, TIMEFRAME, from, lastClosed);
+
+        // последняя закрытая свеча могла ещё не появиться — хвост спросим снова
+        assertThat(ranges).singleElement().satisfies(r -> {
+            assertThat(r.getFromOpenTime()).isEqualTo(from);
+            assertThat(r.getToOpenTime()).isEqualTo(lastClosed - TF);
+        });
+    }
+
+    @Test
+    void eachPageIsSavedWithItsRangeInOneTransaction() {
+        long from = lastClosed - 10 * TF;
+        when(rest.fetchClosedRangeOrThrow(eq(SYMBOL), eq(TIMEFRAME), anyLong(), anyLong(), any()))
+                .thenAnswer(inv -> {
+                    Consumer<List<Candle>> consumer = inv.getArgument(4);
+                    return page(consumer, from, from + 4 * TF) + page(consumer, from + 5 * TF, lastClosed);
+                });
+
+        store.getRange(SYMBOL, TIMEFRAME, from, lastClosed);
+
+        verify(candleRepository, times(2)).saveAll(any());
+        verify(txManager, times(2)).commit(any());
+        assertThat(ranges).singleElement().satisfies(r -> {
+            assertThat(r.getFromOpenTime()).isEqualTo(from);
+            assertThat(r.getToOpenTime()).isEqualTo(lastClosed);
+        });
+    }
+
+    @Test
+    void failedFetchKeepsOnlySavedPages() {
+        long from = lastClosed - 100 * TF;
+        long to = lastClosed - 50 * TF;
+        when(rest.fetchClosedRangeOrThrow(eq(SYMBOL), eq(TIMEFRAME), anyLong(), anyLong(), any()))
+                .thenAnswer(inv -> {
+                    page(inv.getArgument(4), from, from + 9 * TF);
+                    throw new IllegalStateException("timeout");
+                });
+
+        store.getRange(SYMBOL, TIMEFRAME, from, to);
+
+        assertThat(ranges).singleElement().satisfies(r -> {
+            assertThat(r.getFromOpenTime()).isEqualTo(from);
+            assertThat(r.getToOpenTime()).isEqualTo(from + 9 * TF);
+        });
+    }
+
+    private static int page(Consumer<List<Candle>> consumer, long from, long to) {
+        List<Candle> page = new ArrayList<>();
+        for (long t = from; t <= to; t += TF) {
+            page.add(Candle.builder().symbol(SYMBOL).openTime(t).closeTime(t + TF - 1).build());
+        }
+        consumer.accept(page);
+        return page.size();
+    }
+}
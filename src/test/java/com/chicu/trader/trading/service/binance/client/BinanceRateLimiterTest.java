@@ -0,0 +1,149 @@
+package com.chicu.trader.trading.service.binance.client;
+
+import com.chicu.trader.trading.service.binance.client.model.RateLimit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinanceRateLimiterTest {
+
+    private static final String HOST = "api.binance.com";
+    private static final String KEY_A = "key-a";
+    private static final String KEY_B = "key-b";
+
+    private BinanceRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        // суточные окна, чтобы граница окна не попала внутрь теста
+        limiter = new BinanceRateLimiter(1.0, 0.5, 200, 100);
+        limiter.configure(HOST, List.of(
+                limit("REQUEST_WEIGHT", 100),
+                limit("RAW_REQUESTS", 1_000),
+                limit("ORDERS", 2)));
+    }
+
+    @Test
+    void marketDataGetsOnlyItsShareAndOrdersTheRest() {
+        for (int i = 0; i < 25; i++) {
+            klines();
+        }
+        long started = System.currentTimeMillis();
+        assertThatThrownBy(this::klines).isInstanceOf(IllegalStateException.class);
+        // до конца окна далеко — отказ сразу, поток не ждёт
+        assertThat(System.currentTimeMillis() - started).isLessThan(1_000);
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+
+        // резерв ордеров: ещё 50 веса для запросов аккаунта
+        for (int i = 0; i < 2; i++) {
+            limiter.acquire(HOST, KEY_A, HttpMethod.GET, "/api/v3/account", "");
+        }
+        assertThat(used("REQUEST_WEIGHT")).isEqualTo(90);
+        assertThatThrownBy(() -> limiter.acquire(HOST, KEY_A, HttpMethod.GET, "/api/v3/account", ""))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void ordersAreCountedPerAccount() {
+        order(KEY_A);
+        order(KEY_A);
+        assertThatThrownBy(() -> order(KEY_A)).isInstanceOf(IllegalStateException.class);
+
+        // у другого ключа на том же IP свой лимит ордеров
+        order(KEY_B);
+        // отмена не расходует ORDERS
+        limiter.acquire(HOST, KEY_A, HttpMethod.DELETE, "/api/v3/order", "symbol=BTCUSDT");
+
+        assertThat(limiter.getUsage())
+                .filteredOn(u -> u.type().equals("ORDERS"))
+                .extracting(BinanceRateLimiter.Usage::used)
+                .containsExactlyInAnyOrder(2, 1);
+    }
+
+    @Test
+    void responseHeadersRaiseLocalUsage() {
+        klines();
+        order(KEY_A);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("x-mbx-used-weight-1d", "40");
+        headers.add("X-MBX-ORDER-COUNT-1D", "2");
+
+        limiter.onResponse(HOST, KEY_A, 200, headers);
+
+        assertThat(used("REQUEST_WEIGHT")).isEqualTo(40);
+        assertThatThrownBy(() -> order(KEY_A)).isInstanceOf(IllegalStateException.class);
+        order(KEY_B);
+
+        // меньшее значение от биржи не отменяет локальные резервы
+        headers.set("x-mbx-used-weight-1d", "1");
+        limiter.onResponse(HOST, KEY_A, 200, headers);
+        assertThat(used("REQUEST_WEIGHT")).isEqualTo(41);
+    }
+
+    @Test
+    void tooManyRequestsPausesHost() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "30");
+
+        limiter.onResponse(HOST, null, 429, headers);
+
+        assertThatThrownBy(this::klines).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> order(KEY_A)).isInstanceOf(IllegalStateException.class);
+        // другие хосты не затронуты
+        limiter.acquire("testnet.binance.vision", null, HttpMethod.GET, "/api/v3/klines", "symbol=BTCUSDT");
+    }
+
+    @Test
+    void asyncAcquireFailsAfterMaxWait() {
+        for (int i = 0; i < 25; i++) {
+            limiter.acquireAsync(HOST, null, HttpMethod.GET, "/api/v3/klines", "symbol=BTCUSDT").block();
+        }
+        assertThatThrownBy(() -> limiter.acquireAsync(HOST, null, HttpMethod.GET, "/api/v3/klines", "symbol=BTCUSDT")
+                .block(Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(limiter.getThrottledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void costsFollowBinanceWeights() {
+        assertThat(BinanceRateLimiter.costOf(HttpMethod.POST, "/api/v3/order", "symbol=X"))
+                .isEqualTo(new BinanceRateLimiter.Cost(BinanceRateLimiter.Priority.ORDER, 1, 1));
+        assertThat(BinanceRateLimiter.costOf(HttpMethod.POST, "/api/v3/orderList/oco", "symbol=X").orders())
+                .isEqualTo(2);
+        assertThat(BinanceRateLimiter.costOf(HttpMethod.GET, "/api/v3/openOrders", "").weight()).isEqualTo(80);
+        assertThat(BinanceRateLimiter.costOf(HttpMethod.GET, "/api/v3/openOrders", "symbol=X").weight()).isEqualTo(6);
+        assertThat(BinanceRateLimiter.costOf(HttpMethod.GET, "/api/v3/ticker/24hr", "").priority())
+                .isEqualTo(BinanceRateLimiter.Priority.MARKET_DATA);
+    }
+
+    private void klines() {
+        limiter.acquire(HOST, null, HttpMethod.GET, "/api/v3/klines", "symbol=BTCUSDT&interval=1m");
+    }
+
+    private void order(String apiKey) {
+        limiter.acquire(HOST, apiKey, HttpMethod.POST, "/api/v3/order", "symbol=BTCUSDT");
+    }
+
+    private int used(String type) {
+        return limiter.getUsage().stream()
+                .filter(u -> u.host().equals(HOST) && u.type().equals(type))
+                .mapToInt(BinanceRateLimiter.Usage::used)
+                .sum();
+    }
+
+    private static RateLimit limit(String type, int limit) {
+        RateLimit r = new RateLimit();
+        r.setRateLimitType(type);
+        r.setInterval("DAY");
+        r.setIntervalNum(1);
+        r.setLimit(limit);
+        return r;
+    }
+}
@@ -0,0 +1,97 @@
+package com.chicu.trader.trading.service.binance.client;
+
+import com.chicu.trader.trading.entity.TradeLog;
+import com.chicu.trader.trading.repository.TradeLogRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExecutionReportConsumerTest {
+
+    private static final Long CHAT = 7L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TradeLogRepository repo = mock(TradeLogRepository.class);
+    private final BinanceRestClientFactory clientFactory = mock(BinanceRestClientFactory.class);
+    private final BinanceRestClient client = mock(BinanceRestClient.class);
+
+    private ExecutionReportConsumer consumer;
+    private TradeLog trade;
+
+    @BeforeEach
+    void setUp() {
+        trade = TradeLog.builder()
+                .id(1L).userChatId(CHAT).symbol("BTCUSDT")
+                .entryTime(Instant.now()).entryPrice(new BigDecimal("100")).quantity(new BigDecimal("2"))
+                .exitClientOrderId("sl-1,tp-1").closed(false)
+                .build();
+        when(clientFactory.getClient(CHAT)).thenReturn(client);
+        when(repo.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        consumer = new ExecutionReportConsumer(repo, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                clientFactory, mapper, 200, 10, 1, 20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.stop();
+    }
+
+    @Test
+    void filledExitFromStreamClosesTrade() throws Exception {
+        when(repo.findOpenWithExitOrders(anyCollection())).thenReturn(List.of(trade));
+        consumer.start();
+
+        consumer.offer(CHAT, report("tp-1", "FILLED", "220"));
+
+        verify(repo, timeout(2_000)).saveAll(List.of(trade));
+        assertThat(trade.getClosed()).isTrue();
+        assertThat(trade.getExitPrice()).isEqualByComparingTo("110");
+        assertThat(trade.getPnl()).isEqualByComparingTo("20");
+    }
+
+    @Test
+    void reportThatDoesNotFitIsRecoveredThroughRest() throws Exception {
+        when(repo.findAllByUserChatIdAndClosedFalse(CHAT)).thenReturn(List.of(trade));
+        when(repo.findOpenWithExitOrders(anyCollection())).thenReturn(List.of(trade));
+        when(client.getOrderRaw("BTCUSDT", "sl-1")).thenReturn(
+                "{\"clientOrderId\":\"sl-1\",\"side\":\"SELL\",\"status\":\"EXPIRED\",\"price\":\"95\","
+                        + "\"executedQty\":\"0\",\"cummulativeQuoteQty\":\"0\",\"updateTime\":1}");
+        when(client.getOrderRaw("BTCUSDT", "tp-1")).thenReturn(
+                "{\"clientOrderId\":\"tp-1\",\"side\":\"SELL\",\"status\":\"FILLED\",\"price\":\"110\","
+                        + "\"executedQty\":\"2\",\"cummulativeQuoteQty\":\"220\",\"updateTime\":1}");
+
+        // обработчик ещё не запущен: первое событие занимает очередь, второе не помещается
+        consumer.offer(CHAT, report("other", "NEW", "0"));
+        consumer.offer(CHAT, report("tp-1", "FILLED", "220"));
+        assertThat(consumer.getStats().dropped()).isEqualTo(1);
+
+        consumer.start();
+
+        verify(repo, timeout(2_000)).saveAll(List.of(trade));
+        assertThat(trade.getClosed()).isTrue();
+        assertThat(trade.getExitPrice()).isEqualByComparingTo("110");
+        assertThat(consumer.getStats().reconciled()).isEqualTo(1);
+    }
+
+    private JsonNode report(String clientOrderId, String status, String quote) throws Exception {
+        return mapper.readTree("{\"e\":\"executionReport\",\"s\":\"BTCUSDT\",\"c\":\"" + clientOrderId + "\","
+                + "\"S\":\"SELL\",\"X\":\"" + status + "\",\"p\":\"0\",\"L\":\"0\",\"z\":\"2\",\"Z\":\"" + quote + "\","
+                + "\"E\":" + System.currentTimeMillis() + "}");
+    }
+}